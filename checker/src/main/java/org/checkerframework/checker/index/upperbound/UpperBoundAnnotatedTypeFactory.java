@@ -813,7 +813,7 @@ public class UpperBoundAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
                 continue;
             }
             CFStore store = getStoreBefore(tree);
-            CFValue value = store.getValue(je);
+            CFValue value = store == null ? null : store.getValue(je);
             if (value != null && value.getAnnotations().size() == 1) {
                 UBQualifier newUBQ =
                         UBQualifier.createUBQualifier(
@@ -2,6 +2,7 @@ package org.checkerframework.checker.lock;
 
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.Tree.Kind;
 import com.sun.source.tree.VariableTree;
@@ -267,6 +268,18 @@ public class LockAnnotatedTypeFactory
         return new LockAnalysis(checker, this, fieldValues);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The Lock Checker never skips the flow analysis of a method: its visitor looks up the locks
+     * that are held before every access of a guarded field.
+     */
+    @Override
+    protected boolean canSkipFlowAnalysis(
+            MethodTree method, List<Pair<VariableElement, CFValue>> fieldValues) {
+        return false;
+    }
+
     @Override
     public LockTransfer createFlowTransferFunction(
             CFAbstractAnalysis<CFValue, LockStore, LockTransfer> analysis) {
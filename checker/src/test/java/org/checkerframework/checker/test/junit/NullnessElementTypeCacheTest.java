@@ -0,0 +1,173 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.testchecker.NullnessStatisticsChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.junit.Assert;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker -- testing {@code -AelementTypeCacheDir} command-line
+ * argument. The test files are type-checked several times: the first compilation writes the cache,
+ * and the second one reads it. Then the jar file that one of the classes used by the test files is
+ * read from changes, so the next compilation must not use the cached types of that class.
+ */
+public class NullnessElementTypeCacheTest extends CheckerFrameworkPerDirectoryTest {
+
+    /** The directory of the element type cache. */
+    private static final String CACHE_DIR = "tests/build/elementtypecache";
+
+    /** The directory that contains the source of the class in the jar file. */
+    private static final String LIB_DIR = "tests/nullness-elementtypecache-lib";
+
+    /** The directory in which the jar file is built. */
+    private static final String LIB_BUILD_DIR = "tests/build/elementtypecachelib";
+
+    /** The name of the class in the jar file. */
+    private static final String LIB_CLASS = "ElementTypeCacheLib";
+
+    /**
+     * Create a NullnessElementTypeCacheTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessElementTypeCacheTest(List<File> testFiles) {
+        super(
+                testFiles,
+                NullnessStatisticsChecker.class,
+                "nullness",
+                "-Anomsgtext",
+                "-AelementTypeCacheDir=" + CACHE_DIR);
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness-elementtypecache"};
+    }
+
+    @Override
+    public void run() {
+        TestUtilities.deleteDirectory(CACHE_DIR);
+        Path jar = buildLibJar();
+
+        // Computes the types and writes them to the cache.
+        TypecheckResult first = runOnce(jar);
+        Assert.assertTrue(
+                "No element type cache was written to " + CACHE_DIR,
+                new File(CACHE_DIR).list().length > 0);
+        Assert.assertEquals(0, statistic(first, "persistentCacheHits"));
+        Assert.assertTrue(
+                "The first compilation looked nothing up: " + first.summarize(),
+                statistic(first, "persistentCacheMisses") > 0);
+
+        // Reads the types from the cache.
+        TypecheckResult second = runOnce(jar);
+        Assert.assertTrue(
+                "The second compilation did not use the cache: " + second.summarize(),
+                statistic(second, "persistentCacheHits") > 0);
+        Assert.assertEquals(0, statistic(second, "persistentCacheStaleLookups"));
+
+        // The jar file changed, so the cached types of its class are stale; those of the JDK are
+        // still used.
+        try {
+            Files.setLastModifiedTime(
+                    jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10_000));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        TypecheckResult third = runOnce(jar);
+        Assert.assertTrue(
+                "The cached types of " + LIB_CLASS + " were used after its jar file changed",
+                statistic(third, "persistentCacheStaleLookups") > 0);
+        Assert.assertTrue(
+                "The cached types of the JDK were not used: " + third.summarize(),
+                statistic(third, "persistentCacheHits") > 0);
+
+        // The third compilation cached the types of the changed jar file again.
+        TypecheckResult fourth = runOnce(jar);
+        Assert.assertEquals(0, statistic(fourth, "persistentCacheStaleLookups"));
+    }
+
+    /**
+     * Type-checks the test files, with {@code jar} on the classpath, and checks the diagnostics.
+     *
+     * @param jar the jar file that contains {@link #LIB_CLASS}
+     * @return the result of type-checking
+     */
+    private TypecheckResult runOnce(Path jar) {
+        boolean shouldEmitDebugInfo = TestUtilities.getShouldEmitDebugInfo();
+        List<String> customizedOptions =
+                customizeOptions(Collections.unmodifiableList(checkerOptions));
+        TestConfiguration config =
+                TestConfigurationBuilder.buildDefaultConfiguration(
+                        testDir,
+                        testFiles,
+                        Collections.singletonList(jar.toString()),
+                        Collections.singleton(NullnessStatisticsChecker.class.getName()),
+                        customizedOptions,
+                        shouldEmitDebugInfo);
+        TypecheckResult testResult = new TypecheckExecutor().runTest(config);
+        NullnessStatisticsChecker.assertTestDidNotFail(testResult);
+        return testResult;
+    }
+
+    /**
+     * Returns a statistic of the element type cache in a compilation.
+     *
+     * @param result the result of type-checking
+     * @param name the name of the statistic
+     * @return the value of the statistic
+     */
+    private static long statistic(TypecheckResult result, String name) {
+        return NullnessStatisticsChecker.getStatistic(result, name);
+    }
+
+    /**
+     * Compiles {@link #LIB_CLASS} and puts its class file in a jar file.
+     *
+     * @return the jar file
+     */
+    private static Path buildLibJar() {
+        TestUtilities.deleteDirectory(LIB_BUILD_DIR);
+        Path classesDir = Paths.get(LIB_BUILD_DIR, "classes");
+        Path jar = Paths.get(LIB_BUILD_DIR, LIB_CLASS + ".jar");
+        try {
+            Files.createDirectories(classesDir);
+            int exitCode =
+                    ToolProvider.getSystemJavaCompiler()
+                            .run(
+                                    null,
+                                    null,
+                                    null,
+                                    "-d",
+                                    classesDir.toString(),
+                                    Paths.get(LIB_DIR, LIB_CLASS + ".java").toString());
+            Assert.assertEquals("Could not compile " + LIB_CLASS, 0, exitCode);
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+                out.putNextEntry(new JarEntry(LIB_CLASS + ".class"));
+                Files.copy(classesDir.resolve(LIB_CLASS + ".class"), (OutputStream) out);
+                out.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return jar;
+    }
+}
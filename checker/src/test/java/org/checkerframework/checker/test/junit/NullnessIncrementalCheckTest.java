@@ -0,0 +1,122 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.testchecker.NullnessStatisticsChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.junit.Assert;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker -- testing {@code -AincrementalCheckDir} command-line
+ * argument. The test files are type-checked several times, together with different versions of a
+ * class whose signature they use; the diagnostics recorded for them must only be replayed while
+ * that signature is unchanged.
+ */
+public class NullnessIncrementalCheckTest extends CheckerFrameworkPerDirectoryTest {
+
+    /** The directory of the incremental check index. */
+    private static final String INDEX_DIR = "tests/build/incrementalcheck";
+
+    /** The directory that contains the versions of the class used by the test files. */
+    private static final String LIB_DIR = "tests/nullness-incrementalcheck-lib";
+
+    /**
+     * Create a NullnessIncrementalCheckTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessIncrementalCheckTest(List<File> testFiles) {
+        super(
+                testFiles,
+                NullnessStatisticsChecker.class,
+                "nullness",
+                "-Anomsgtext",
+                "-AincrementalCheckDir=" + INDEX_DIR);
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness-incrementalcheck"};
+    }
+
+    @Override
+    public void run() {
+        TestUtilities.deleteDirectory(INDEX_DIR);
+
+        // Records the error in the index.
+        TypecheckResult first = runOnce("nullable");
+        NullnessStatisticsChecker.assertTestDidNotFail(first);
+        Assert.assertTrue(
+                "No incremental check index was written to " + INDEX_DIR,
+                new File(INDEX_DIR).list().length > 0);
+        assertClasses(first, 0, 2);
+
+        // The signature of Lib.get() changed, so the error must not be replayed.
+        TypecheckResult nonNullResult = runOnce("nonnull");
+        Assert.assertTrue(
+                nonNullResult.summarize(),
+                NullnessStatisticsChecker.getUnexpectedDiagnostics(nonNullResult).isEmpty());
+        Assert.assertEquals(
+                nonNullResult.summarize(), 1, nonNullResult.getMissingDiagnostics().size());
+        assertClasses(nonNullResult, 0, 2);
+
+        // The signature changed back, so the error must reappear.
+        TypecheckResult nullableResult = runOnce("nullable");
+        NullnessStatisticsChecker.assertTestDidNotFail(nullableResult);
+        assertClasses(nullableResult, 0, 2);
+
+        // Nothing changed, so the diagnostics of Client and Lib are replayed, and the error is
+        // issued without type-checking Client.
+        TypecheckResult replayResult = runOnce("nullable");
+        NullnessStatisticsChecker.assertTestDidNotFail(replayResult);
+        assertClasses(replayResult, 2, 0);
+    }
+
+    /**
+     * Asserts how many classes were replayed from the index and how many were type-checked.
+     *
+     * @param result the result of type-checking
+     * @param replayed the expected number of classes whose diagnostics were replayed
+     * @param checked the expected number of classes that were type-checked
+     */
+    private static void assertClasses(TypecheckResult result, long replayed, long checked) {
+        Assert.assertEquals(
+                "replayed classes: " + result.summarize(),
+                replayed,
+                NullnessStatisticsChecker.getStatistic(result, "incrementalCheckReplayedClasses"));
+        Assert.assertEquals(
+                "type-checked classes: " + result.summarize(),
+                checked,
+                NullnessStatisticsChecker.getStatistic(result, "incrementalCheckCheckedClasses"));
+    }
+
+    /**
+     * Type-checks the test files together with a version of class Lib.
+     *
+     * @param libVersion the subdirectory of {@link #LIB_DIR} that contains the version of Lib
+     * @return the result of type-checking
+     */
+    private TypecheckResult runOnce(String libVersion) {
+        List<File> files = new ArrayList<>(testFiles);
+        files.add(new File(LIB_DIR + File.separator + libVersion, "Lib.java"));
+        boolean shouldEmitDebugInfo = TestUtilities.getShouldEmitDebugInfo();
+        List<String> customizedOptions =
+                customizeOptions(Collections.unmodifiableList(checkerOptions));
+        TestConfiguration config =
+                TestConfigurationBuilder.buildDefaultConfiguration(
+                        testDir,
+                        files,
+                        Collections.singleton(NullnessStatisticsChecker.class.getName()),
+                        customizedOptions,
+                        shouldEmitDebugInfo);
+        return new TypecheckExecutor().runTest(config);
+    }
+}
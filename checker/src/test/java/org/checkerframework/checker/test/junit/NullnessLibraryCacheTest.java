@@ -0,0 +1,89 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.testchecker.NullnessStatisticsChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.junit.Assert;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker -- testing the cache of the types of library elements and
+ * the {@code -AatfLibraryCacheSize} command-line argument. The test files are type-checked with a
+ * small cache of source elements, with and without the cache of library elements.
+ */
+public class NullnessLibraryCacheTest extends CheckerFrameworkPerDirectoryTest {
+
+    /**
+     * Create a NullnessLibraryCacheTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessLibraryCacheTest(List<File> testFiles) {
+        super(
+                testFiles,
+                NullnessStatisticsChecker.class,
+                "nullness",
+                "-Anomsgtext",
+                "-AatfCacheSize=4");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness-librarycache"};
+    }
+
+    @Override
+    public void run() {
+        TypecheckResult withLibraryCache = runOnce();
+        NullnessStatisticsChecker.assertTestDidNotFail(withLibraryCache);
+        TypecheckResult withoutLibraryCache = runOnce("-AatfLibraryCacheSize=0");
+        NullnessStatisticsChecker.assertTestDidNotFail(withoutLibraryCache);
+
+        long libraryHits =
+                NullnessStatisticsChecker.getStatistic(withLibraryCache, "libraryElementCacheHits");
+        Assert.assertTrue(
+                "The library element cache had no hits: " + withLibraryCache.summarize(),
+                libraryHits > 0);
+        Assert.assertEquals(
+                "The empty library element cache had hits: " + withoutLibraryCache.summarize(),
+                0,
+                NullnessStatisticsChecker.getStatistic(
+                        withoutLibraryCache, "libraryElementCacheHits"));
+        // Without the library element cache, its hits become misses.
+        Assert.assertTrue(
+                "The library element cache did not prevent any misses",
+                NullnessStatisticsChecker.getStatistic(withoutLibraryCache, "elementCacheMisses")
+                        > NullnessStatisticsChecker.getStatistic(
+                                withLibraryCache, "elementCacheMisses"));
+    }
+
+    /**
+     * Type-checks the test files.
+     *
+     * @param extraOptions options to pass in addition to those passed to the constructor
+     * @return the result of type-checking
+     */
+    private TypecheckResult runOnce(String... extraOptions) {
+        List<String> options = new ArrayList<>(checkerOptions);
+        options.addAll(Arrays.asList(extraOptions));
+        boolean shouldEmitDebugInfo = TestUtilities.getShouldEmitDebugInfo();
+        List<String> customizedOptions = customizeOptions(Collections.unmodifiableList(options));
+        TestConfiguration config =
+                TestConfigurationBuilder.buildDefaultConfiguration(
+                        testDir,
+                        testFiles,
+                        Collections.singleton(NullnessStatisticsChecker.class.getName()),
+                        customizedOptions,
+                        shouldEmitDebugInfo);
+        return new TypecheckExecutor().runTest(config);
+    }
+}
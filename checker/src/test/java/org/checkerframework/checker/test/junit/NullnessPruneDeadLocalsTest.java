@@ -0,0 +1,115 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.testchecker.NullnessStatisticsChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.junit.Assert;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker -- testing {@code -AflowPruneDeadLocals} command-line
+ * argument. The test files are type-checked with and without the argument. Both compilations must
+ * issue the same diagnostics, and the stores at the calls of {@code localVariablesInStore} must
+ * contain the expected local variables.
+ */
+public class NullnessPruneDeadLocalsTest extends CheckerFrameworkPerDirectoryTest {
+
+    /**
+     * Create a NullnessPruneDeadLocalsTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessPruneDeadLocalsTest(List<File> testFiles) {
+        super(testFiles, NullnessStatisticsChecker.class, "nullness", "-Anomsgtext");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness-prunedeadlocals"};
+    }
+
+    @Override
+    public void run() {
+        TypecheckResult unpruned = runOnce();
+        TypecheckResult pruned = runOnce("-AflowPruneDeadLocals");
+        Assert.assertEquals(errorsAndWarnings(unpruned), errorsAndWarnings(pruned));
+
+        // Before the last use of x, nothing is removed.
+        assertLocals(unpruned, "beforeLastUse", "b", "p", "x", "y");
+        assertLocals(pruned, "beforeLastUse", "b", "p", "x", "y");
+
+        // After the last use of x, it is removed; the formal parameter b is kept although it is
+        // not read again.
+        assertLocals(unpruned, "afterLastUse", "b", "p", "x", "y");
+        assertLocals(pruned, "afterLastUse", "b", "p", "y");
+
+        // Variables that are read in a later iteration of a loop are kept.
+        assertLocals(unpruned, "inLoop", "i", "o", "z");
+        assertLocals(pruned, "inLoop", "i", "o", "z");
+    }
+
+    /**
+     * Asserts which local variables had a value in the store at a call of {@code
+     * localVariablesInStore}.
+     *
+     * @param result the result of type-checking
+     * @param label the argument of the call of {@code localVariablesInStore}
+     * @param expected the sorted names of the local variables
+     */
+    private static void assertLocals(TypecheckResult result, String label, String... expected) {
+        Assert.assertEquals(
+                label,
+                Arrays.asList(expected),
+                NullnessStatisticsChecker.getLocalVariablesInStore(result, label));
+    }
+
+    /**
+     * Returns the errors and warnings of a compilation.
+     *
+     * @param result the result of type-checking
+     * @return the errors and warnings, as strings
+     */
+    private static List<String> errorsAndWarnings(TypecheckResult result) {
+        List<String> diagnostics = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : result.getActualDiagnostics()) {
+            if (diagnostic.getKind() != Diagnostic.Kind.NOTE) {
+                diagnostics.add(diagnostic.toString());
+            }
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Type-checks the test files and checks the diagnostics.
+     *
+     * @param extraOptions options to pass in addition to those passed to the constructor
+     * @return the result of type-checking
+     */
+    private TypecheckResult runOnce(String... extraOptions) {
+        List<String> options = new ArrayList<>(checkerOptions);
+        options.addAll(Arrays.asList(extraOptions));
+        boolean shouldEmitDebugInfo = TestUtilities.getShouldEmitDebugInfo();
+        List<String> customizedOptions = customizeOptions(Collections.unmodifiableList(options));
+        TestConfiguration config =
+                TestConfigurationBuilder.buildDefaultConfiguration(
+                        testDir,
+                        testFiles,
+                        Collections.singleton(NullnessStatisticsChecker.class.getName()),
+                        customizedOptions,
+                        shouldEmitDebugInfo);
+        TypecheckResult testResult = new TypecheckExecutor().runTest(config);
+        NullnessStatisticsChecker.assertTestDidNotFail(testResult);
+        return testResult;
+    }
+}
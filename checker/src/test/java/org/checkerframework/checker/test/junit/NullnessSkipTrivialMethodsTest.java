@@ -0,0 +1,114 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.testchecker.LockStatisticsChecker;
+import org.checkerframework.checker.testchecker.NullnessStatisticsChecker;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenesStorage;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.junit.Assert;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker -- testing {@code -AflowSkipTrivialMethods} command-line
+ * argument. Each test file is type-checked separately, and the number of methods whose flow
+ * analysis was skipped is checked.
+ */
+public class NullnessSkipTrivialMethodsTest extends CheckerFrameworkPerDirectoryTest {
+
+    /** The command-line argument that is tested. */
+    private static final String SKIP_TRIVIAL_METHODS = "-AflowSkipTrivialMethods";
+
+    /** The number of methods in Trivial.java whose flow analysis can be skipped. */
+    private static final int TRIVIAL_METHODS = 8;
+
+    /**
+     * Create a NullnessSkipTrivialMethodsTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessSkipTrivialMethodsTest(List<File> testFiles) {
+        super(testFiles, NullnessStatisticsChecker.class, "nullness", "-Anomsgtext");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness-skiptrivialmethods"};
+    }
+
+    @Override
+    public void run() {
+        Assert.assertEquals(
+                TRIVIAL_METHODS,
+                skippedMethods(
+                        NullnessStatisticsChecker.class, "Trivial.java", SKIP_TRIVIAL_METHODS));
+
+        // No method is skipped unless the command-line argument is supplied.
+        Assert.assertEquals(0, skippedMethods(NullnessStatisticsChecker.class, "Trivial.java"));
+
+        Assert.assertEquals(
+                0,
+                skippedMethods(
+                        NullnessStatisticsChecker.class, "NearMisses.java", SKIP_TRIVIAL_METHODS));
+
+        // Whole-program inference needs the stores of every method.
+        try {
+            Assert.assertEquals(
+                    0,
+                    skippedMethods(
+                            NullnessStatisticsChecker.class,
+                            "Trivial.java",
+                            SKIP_TRIVIAL_METHODS,
+                            "-Ainfer=stubs"));
+        } finally {
+            // Do not leave the inferred stub file to the whole-program inference tests.
+            new File(WholeProgramInferenceScenesStorage.JAIF_FILES_PATH, "Trivial.astub").delete();
+        }
+
+        // The Lock Checker never skips the flow analysis of a method.
+        Assert.assertEquals(
+                0,
+                skippedMethods(LockStatisticsChecker.class, "Trivial.java", SKIP_TRIVIAL_METHODS));
+    }
+
+    /**
+     * Type-checks one of the test files, checks the diagnostics, and returns the number of methods
+     * whose flow analysis was skipped.
+     *
+     * @param checker the checker to use, which reports statistics like {@link
+     *     NullnessStatisticsChecker}
+     * @param fileName the name of the test file
+     * @param extraOptions the command-line arguments to supply in addition to those of this test
+     * @return the number of methods whose flow analysis was skipped
+     */
+    private long skippedMethods(Class<?> checker, String fileName, String... extraOptions) {
+        File testFile = null;
+        for (File file : testFiles) {
+            if (file.getName().equals(fileName)) {
+                testFile = file;
+            }
+        }
+        Assert.assertNotNull("No test file " + fileName, testFile);
+        boolean shouldEmitDebugInfo = TestUtilities.getShouldEmitDebugInfo();
+        List<String> options = new ArrayList<>(checkerOptions);
+        Collections.addAll(options, extraOptions);
+        List<String> customizedOptions = customizeOptions(Collections.unmodifiableList(options));
+        TestConfiguration config =
+                TestConfigurationBuilder.buildDefaultConfiguration(
+                        testDir,
+                        Collections.singletonList(testFile),
+                        Collections.singleton(checker.getName()),
+                        customizedOptions,
+                        shouldEmitDebugInfo);
+        TypecheckResult testResult = new TypecheckExecutor().runTest(config);
+        NullnessStatisticsChecker.assertTestDidNotFail(testResult);
+        return NullnessStatisticsChecker.getStatistic(testResult, "skippedFlowAnalyses");
+    }
+}
@@ -0,0 +1,100 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.testchecker.NullnessStatisticsChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.junit.Assert;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker -- testing the cache of subtype queries between
+ * parameterized types in {@link org.checkerframework.framework.type.DefaultTypeHierarchy}. Each
+ * test file is type-checked separately, and the statistics of the cache are checked.
+ */
+public class NullnessSubtypeCacheTest extends CheckerFrameworkPerDirectoryTest {
+
+    /**
+     * Create a NullnessSubtypeCacheTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessSubtypeCacheTest(List<File> testFiles) {
+        super(testFiles, NullnessStatisticsChecker.class, "nullness", "-Anomsgtext");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness-subtypecache"};
+    }
+
+    @Override
+    public void run() {
+        // The keys of the cache are copies of the queried types, so every hit is a query between
+        // types that are different from, but equal to, those of an earlier query.
+        TypecheckResult parameterized = runOnce("Parameterized.java");
+        Assert.assertTrue(
+                "Repeated subtype queries were not answered by the cache: "
+                        + parameterized.summarize(),
+                statistic(parameterized, "subtypeCacheHits") > 0);
+        Assert.assertTrue(
+                "The subtype queries were not cached: " + parameterized.summarize(),
+                statistic(parameterized, "subtypeCacheMisses") > 0);
+
+        // Repeated subtype queries that involve raw types are computed every time.
+        TypecheckResult rawTypes = runOnce("RawTypes.java");
+        Assert.assertEquals(
+                "A subtype query that involves a raw type was cached: " + rawTypes.summarize(),
+                0,
+                statistic(rawTypes, "subtypeCacheHits"));
+        Assert.assertTrue(
+                "No subtype query involved a raw type: " + rawTypes.summarize(),
+                statistic(rawTypes, "subtypeCacheUncacheableQueries") > 0);
+    }
+
+    /**
+     * Type-checks one of the test files and checks the diagnostics.
+     *
+     * @param fileName the name of the test file
+     * @return the result of type-checking
+     */
+    private TypecheckResult runOnce(String fileName) {
+        File testFile = null;
+        for (File file : testFiles) {
+            if (file.getName().equals(fileName)) {
+                testFile = file;
+            }
+        }
+        Assert.assertNotNull("No test file " + fileName, testFile);
+        boolean shouldEmitDebugInfo = TestUtilities.getShouldEmitDebugInfo();
+        List<String> customizedOptions =
+                customizeOptions(Collections.unmodifiableList(checkerOptions));
+        TestConfiguration config =
+                TestConfigurationBuilder.buildDefaultConfiguration(
+                        testDir,
+                        Collections.singletonList(testFile),
+                        Collections.singleton(NullnessStatisticsChecker.class.getName()),
+                        customizedOptions,
+                        shouldEmitDebugInfo);
+        TypecheckResult testResult = new TypecheckExecutor().runTest(config);
+        NullnessStatisticsChecker.assertTestDidNotFail(testResult);
+        return testResult;
+    }
+
+    /**
+     * Returns a statistic of the subtype cache in a compilation.
+     *
+     * @param result the result of type-checking
+     * @param name the name of the statistic
+     * @return the value of the statistic
+     */
+    private static long statistic(TypecheckResult result, String name) {
+        return NullnessStatisticsChecker.getStatistic(result, name);
+    }
+}
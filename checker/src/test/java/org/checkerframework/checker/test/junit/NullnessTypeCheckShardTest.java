@@ -0,0 +1,110 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.junit.Assert;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker -- testing {@code -AtypeCheckShard} command-line argument.
+ * The test files are type-checked with {@code -AtypeCheckShard=1/2}, with {@code
+ * -AtypeCheckShard=0/2}, and without the option; the two shards together must issue exactly the
+ * diagnostics of the compilation without the option.
+ */
+public class NullnessTypeCheckShardTest extends CheckerFrameworkPerDirectoryTest {
+
+    /**
+     * Create a NullnessTypeCheckShardTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessTypeCheckShardTest(List<File> testFiles) {
+        super(testFiles, NullnessChecker.class, "nullness", "-Anomsgtext");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness-typecheckshard"};
+    }
+
+    @Override
+    public void run() {
+        // Shard 1 issues the diagnostics expected in the test files, which are those of
+        // TypeCheckShard1.java.
+        TypecheckResult shard1 = runOnce("-AtypeCheckShard=1/2");
+        TestUtilities.assertTestDidNotFail(shard1);
+
+        TypecheckResult shard0 = runOnce("-AtypeCheckShard=0/2");
+        TypecheckResult serial = runOnce();
+        List<String> shard0Diagnostics = diagnostics(shard0);
+        Assert.assertFalse(
+                "Shard 0 issued no diagnostics: " + shard0.summarize(),
+                shard0Diagnostics.isEmpty());
+
+        List<String> union = new ArrayList<>(shard0Diagnostics);
+        union.addAll(diagnostics(shard1));
+        Collections.sort(union);
+        List<String> serialDiagnostics = diagnostics(serial);
+        Collections.sort(serialDiagnostics);
+        Assert.assertEquals(
+                "The shards together must issue the diagnostics of the compilation without"
+                        + " -AtypeCheckShard",
+                serialDiagnostics,
+                union);
+    }
+
+    /**
+     * Type-checks the test files.
+     *
+     * @param extraOptions options to pass in addition to those passed to the constructor
+     * @return the result of type-checking
+     */
+    private TypecheckResult runOnce(String... extraOptions) {
+        List<String> options = new ArrayList<>(checkerOptions);
+        options.addAll(Arrays.asList(extraOptions));
+        boolean shouldEmitDebugInfo = TestUtilities.getShouldEmitDebugInfo();
+        List<String> customizedOptions = customizeOptions(Collections.unmodifiableList(options));
+        TestConfiguration config =
+                TestConfigurationBuilder.buildDefaultConfiguration(
+                        testDir,
+                        testFiles,
+                        Collections.singleton(NullnessChecker.class.getName()),
+                        customizedOptions,
+                        shouldEmitDebugInfo);
+        return new TypecheckExecutor().runTest(config);
+    }
+
+    /**
+     * Returns the diagnostics of a compilation, as file name, line, kind and message.
+     *
+     * @param result the result of type-checking
+     * @return the diagnostics issued in {@code result}, in the order they were issued
+     */
+    private static List<String> diagnostics(TypecheckResult result) {
+        List<String> diagnostics = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : result.getActualDiagnostics()) {
+            String file = diagnostic.getSource() == null ? "" : diagnostic.getSource().getName();
+            diagnostics.add(
+                    file
+                            + ":"
+                            + diagnostic.getLineNumber()
+                            + ": "
+                            + diagnostic.getKind()
+                            + ": "
+                            + diagnostic.getMessage(null));
+        }
+        return diagnostics;
+    }
+}
@@ -0,0 +1,17 @@
+package org.checkerframework.checker.testchecker;
+
+import org.checkerframework.checker.lock.LockChecker;
+
+/**
+ * A Lock Checker that reports how many methods its flow analysis skipped, in the format of {@link
+ * NullnessStatisticsChecker}.
+ */
+public class LockStatisticsChecker extends LockChecker {
+
+    @Override
+    public void typeProcessingOver() {
+        super.typeProcessingOver();
+        NullnessStatisticsChecker.reportStatistic(
+                messager, "skippedFlowAnalyses", getTypeFactory().getSkippedFlowAnalyses());
+    }
+}
@@ -0,0 +1,231 @@
+package org.checkerframework.checker.testchecker;
+
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.checker.nullness.NullnessStore;
+import org.checkerframework.checker.nullness.NullnessVisitor;
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.dataflow.expression.LocalVariable;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.checkerframework.framework.test.diagnostics.TestDiagnostic;
+import org.checkerframework.framework.type.DefaultTypeHierarchy;
+import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
+import org.checkerframework.framework.type.PersistentElementTypeCache;
+import org.checkerframework.javacutil.TreeUtils;
+import org.junit.Assert;
+
+/**
+ * A Nullness Checker that reports statistics about its caches and its incremental check index at
+ * the end of the compilation, so that tests can check that they are used. Each statistic is
+ * reported as a note of the form "statistic NAME VALUE".
+ *
+ * <p>In addition, at every call of a method named {@code localVariablesInStore} with a string
+ * literal argument, this checker reports which local variables of the enclosing method have a value
+ * in the store before the call, as a note of the form "locals LABEL: NAME...".
+ */
+public class NullnessStatisticsChecker extends NullnessChecker {
+
+    /** The prefix of the notes that report statistics. */
+    private static final String STATISTIC_PREFIX = "statistic ";
+
+    /** The prefix of the notes that report the local variables in a store. */
+    private static final String LOCALS_PREFIX = "locals ";
+
+    /** The name of the method at whose calls the local variables in the store are reported. */
+    private static final String LOCALS_METHOD = "localVariablesInStore";
+
+    @Override
+    protected BaseTypeVisitor<?> createSourceVisitor() {
+        return new NullnessVisitor(this) {
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree tree, Void p) {
+                ExecutableElement method = TreeUtils.elementFromUse(tree);
+                if (method != null
+                        && method.getSimpleName().contentEquals(LOCALS_METHOD)
+                        && tree.getArguments().size() == 1
+                        && tree.getArguments().get(0) instanceof LiteralTree) {
+                    Object label = ((LiteralTree) tree.getArguments().get(0)).getValue();
+                    MethodTree enclosingMethod = TreeUtils.enclosingMethod(getCurrentPath());
+                    NullnessStore store = atypeFactory.getStoreBefore(tree);
+                    if (enclosingMethod != null && store != null) {
+                        reportLocalVariables(label, enclosingMethod, store);
+                    }
+                }
+                return super.visitMethodInvocation(tree, p);
+            }
+        };
+    }
+
+    /**
+     * Reports the local variables of a method, including its formal parameters, that have a value
+     * in a store.
+     *
+     * @param label the label of the note
+     * @param method a method
+     * @param store a store at a location in {@code method}
+     */
+    private void reportLocalVariables(Object label, MethodTree method, NullnessStore store) {
+        List<String> names = new ArrayList<>();
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitVariable(VariableTree tree, Void p) {
+                VariableElement variable = TreeUtils.elementFromDeclaration(tree);
+                if (store.getValue(new LocalVariable(variable)) != null) {
+                    names.add(variable.getSimpleName().toString());
+                }
+                return super.visitVariable(tree, p);
+            }
+        }.scan(method, null);
+        Collections.sort(names);
+        messager.printMessage(
+                Diagnostic.Kind.NOTE, LOCALS_PREFIX + label + ": " + String.join(" ", names));
+    }
+
+    @Override
+    public void typeProcessingOver() {
+        super.typeProcessingOver();
+
+        GenericAnnotatedTypeFactory<?, ?, ?, ?> atypeFactory = getTypeFactory();
+        reportStatistic("elementCacheHits", atypeFactory.getElementCacheHits());
+        reportStatistic("libraryElementCacheHits", atypeFactory.getLibraryElementCacheHits());
+        reportStatistic("elementCacheMisses", atypeFactory.getElementCacheMisses());
+        PersistentElementTypeCache persistentCache = atypeFactory.getPersistentElementTypeCache();
+        if (persistentCache != null) {
+            reportStatistic("persistentCacheHits", persistentCache.getHits());
+            reportStatistic("persistentCacheMisses", persistentCache.getMisses());
+            reportStatistic("persistentCacheStaleLookups", persistentCache.getStaleLookups());
+        }
+        if (atypeFactory.getTypeHierarchy() instanceof DefaultTypeHierarchy) {
+            DefaultTypeHierarchy typeHierarchy =
+                    (DefaultTypeHierarchy) atypeFactory.getTypeHierarchy();
+            reportStatistic("subtypeCacheHits", typeHierarchy.getSubtypeCacheHits());
+            reportStatistic("subtypeCacheMisses", typeHierarchy.getSubtypeCacheMisses());
+            reportStatistic(
+                    "subtypeCacheUncacheableQueries",
+                    typeHierarchy.getSubtypeCacheUncacheableQueries());
+        }
+        reportStatistic("skippedFlowAnalyses", atypeFactory.getSkippedFlowAnalyses());
+        reportStatistic("incrementalCheckReplayedClasses", getIncrementalCheckReplayedClasses());
+        reportStatistic("incrementalCheckCheckedClasses", getIncrementalCheckCheckedClasses());
+    }
+
+    /**
+     * Reports a statistic as a note.
+     *
+     * @param name the name of the statistic
+     * @param value the value of the statistic
+     */
+    private void reportStatistic(String name, long value) {
+        reportStatistic(messager, name, value);
+    }
+
+    /**
+     * Reports a statistic as a note, in the format that {@link #getStatistics} reads.
+     *
+     * @param messager the messager of the checker that reports the statistic
+     * @param name the name of the statistic
+     * @param value the value of the statistic
+     */
+    static void reportStatistic(Messager messager, String name, long value) {
+        messager.printMessage(Diagnostic.Kind.NOTE, STATISTIC_PREFIX + name + " " + value);
+    }
+
+    /**
+     * Returns the statistics reported by this checker in a compilation.
+     *
+     * @param result the result of a compilation that used this checker
+     * @return a map from the name of each statistic to its value
+     */
+    public static Map<String, Long> getStatistics(TypecheckResult result) {
+        Map<String, Long> statistics = new HashMap<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : result.getActualDiagnostics()) {
+            String message = diagnostic.getMessage(null);
+            if (diagnostic.getKind() == Diagnostic.Kind.NOTE
+                    && message.startsWith(STATISTIC_PREFIX)) {
+                String[] nameAndValue = message.substring(STATISTIC_PREFIX.length()).split(" ");
+                statistics.put(nameAndValue[0], Long.parseLong(nameAndValue[1]));
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns a statistic reported by this checker in a compilation.
+     *
+     * @param result the result of a compilation that used this checker
+     * @param name the name of the statistic
+     * @return the value of the statistic
+     */
+    public static long getStatistic(TypecheckResult result, String name) {
+        Long value = getStatistics(result).get(name);
+        Assert.assertNotNull("No statistic " + name + ": " + result.summarize(), value);
+        return value;
+    }
+
+    /**
+     * Returns the local variables that were reported at the call of {@code localVariablesInStore}
+     * with the given label.
+     *
+     * @param result the result of a compilation that used this checker
+     * @param label the argument of the call of {@code localVariablesInStore}
+     * @return the sorted names of the local variables that had a value in the store
+     */
+    public static List<String> getLocalVariablesInStore(TypecheckResult result, String label) {
+        String prefix = LOCALS_PREFIX + label + ":";
+        for (Diagnostic<? extends JavaFileObject> diagnostic : result.getActualDiagnostics()) {
+            String message = diagnostic.getMessage(null);
+            if (diagnostic.getKind() == Diagnostic.Kind.NOTE && message.startsWith(prefix)) {
+                String names = message.substring(prefix.length()).trim();
+                return names.isEmpty() ? Collections.emptyList() : Arrays.asList(names.split(" "));
+            }
+        }
+        Assert.fail("No local variables reported for " + label + ": " + result.summarize());
+        throw new AssertionError("unreachable");
+    }
+
+    /**
+     * Returns the diagnostics that a compilation that used this checker issued but that were not
+     * expected, apart from the notes that report statistics and local variables.
+     *
+     * @param result the result of a compilation that used this checker
+     * @return the unexpected diagnostics, apart from the notes that report statistics
+     */
+    public static List<TestDiagnostic> getUnexpectedDiagnostics(TypecheckResult result) {
+        List<TestDiagnostic> unexpected = new ArrayList<>();
+        for (TestDiagnostic diagnostic : result.getUnexpectedDiagnostics()) {
+            if (!diagnostic.getMessage().contains(STATISTIC_PREFIX)
+                    && !diagnostic.getMessage().contains(LOCALS_PREFIX)) {
+                unexpected.add(diagnostic);
+            }
+        }
+        return unexpected;
+    }
+
+    /**
+     * Asserts that a compilation that used this checker issued exactly the expected diagnostics,
+     * apart from the notes that report statistics and local variables.
+     *
+     * @param result the result of a compilation that used this checker
+     */
+    public static void assertTestDidNotFail(TypecheckResult result) {
+        Assert.assertTrue(
+                result.summarize(),
+                getUnexpectedDiagnostics(result).isEmpty()
+                        && result.getMissingDiagnostics().isEmpty());
+    }
+}
@@ -0,0 +1,11 @@
+// NullnessElementTypeCacheTest compiles this class without a checker and puts it in a jar file, so
+// that the element type cache stores the types of its members with the jar file as their origin.
+public class ElementTypeCacheLib {
+    public static String name() {
+        return "lib";
+    }
+
+    public String describe(Object o) {
+        return o.toString();
+    }
+}
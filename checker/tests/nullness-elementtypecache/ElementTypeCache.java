@@ -0,0 +1,38 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.*;
+
+// The types of the JDK members used here come from the annotated JDK in the first compilation and
+// from the element type cache in the second one.
+public class ElementTypeCache {
+
+    void mapGet(Map<String, String> map) {
+        // :: error: (dereference.of.nullable)
+        map.get("key").length();
+        String value = map.get("key");
+        if (value != null) {
+            value.length();
+        }
+    }
+
+    void systemProperty() {
+        // :: error: (assignment.type.incompatible)
+        @NonNull String home = System.getProperty("user.home");
+        @NonNull String path = System.getProperty("java.home", "/");
+    }
+
+    void collections(List<@NonNull String> strings) {
+        List<@Nullable String> copy = new ArrayList<>();
+        // :: error: (argument.type.incompatible)
+        strings.add(null);
+        copy.add(null);
+        Map<String, @Nullable Object> map = new HashMap<>();
+        map.put("key", null);
+    }
+
+    String valueOf(@Nullable Object o) {
+        return String.valueOf(o);
+    }
+}
@@ -0,0 +1,11 @@
+// ElementTypeCacheLib is read from a jar file.  The types of its members are cached with the jar
+// file as their origin, and are ignored once the jar file changes.
+public class ElementTypeCacheLibUse {
+
+    void use(ElementTypeCacheLib lib) {
+        ElementTypeCacheLib.name().length();
+        lib.describe("value").length();
+        // :: error: (argument.type.incompatible)
+        lib.describe(null);
+    }
+}
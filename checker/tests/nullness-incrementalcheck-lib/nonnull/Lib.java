@@ -0,0 +1,5 @@
+public class Lib {
+    public static String get() {
+        return "";
+    }
+}
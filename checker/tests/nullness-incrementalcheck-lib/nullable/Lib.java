@@ -0,0 +1,7 @@
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+public class Lib {
+    public static @Nullable String get() {
+        return null;
+    }
+}
@@ -0,0 +1,8 @@
+// Type-checked together with one of the versions of Lib in ../nullness-incrementalcheck-lib.
+
+public class Client {
+    int length() {
+        // :: error: (dereference.of.nullable)
+        return Lib.get().length();
+    }
+}
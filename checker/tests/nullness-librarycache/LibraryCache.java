@@ -0,0 +1,41 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.*;
+
+// Uses the same JDK methods in many methods, which declare many local variables.  With a small
+// -AatfCacheSize, the local variables evict the JDK methods from the cache of source elements, so
+// only the cache of library elements can answer the repeated lookups of the JDK methods.
+public class LibraryCache {
+
+    void first(Map<String, String> map, List<String> list) {
+        String a = map.get("a");
+        String b = map.get("b");
+        String c = map.getOrDefault("c", "c");
+        // :: error: (dereference.of.nullable)
+        a.length();
+        list.add(c);
+        list.size();
+    }
+
+    void second(Map<String, String> map, List<String> list) {
+        String d = map.get("d");
+        String e = map.get("e");
+        String f = map.getOrDefault("f", "f");
+        if (d != null) {
+            d.length();
+        }
+        list.add(f);
+        list.size();
+    }
+
+    void third(Map<String, @Nullable Object> map, List<String> list) {
+        Object g = map.get("g");
+        Object h = map.put("h", null);
+        String i = String.valueOf(g);
+        // :: error: (argument.type.incompatible)
+        list.add(null);
+        list.size();
+        new HashMap<String, String>().get(i);
+    }
+}
@@ -0,0 +1,40 @@
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+// NullnessPruneDeadLocalsTest checks which local variables have a value in the store at each call
+// of localVariablesInStore, with and without -AflowPruneDeadLocals.
+public class PruneDeadLocals {
+    static void localVariablesInStore(String label) {}
+
+    void lastUse(@Nullable Object p, boolean b) {
+        Object x = "x";
+        @Nullable Object y = null;
+        if (b) {
+            y = "y";
+        }
+        // x and y are read below; b is dead, but it is a formal parameter.
+        localVariablesInStore("beforeLastUse");
+        x.toString();
+        if (y != null) {
+            // x is dead.
+            localVariablesInStore("afterLastUse");
+            y.toString();
+        }
+        // :: error: (dereference.of.nullable)
+        p.toString();
+    }
+
+    void refinementInLoop(@Nullable Object o) {
+        @Nullable Object z = o;
+        if (z == null) {
+            return;
+        }
+        for (int i = 0; i < 3; i++) {
+            // z is read in every iteration, so its refined type is kept.
+            localVariablesInStore("inLoop");
+            z.toString();
+        }
+        @Nullable Object w = null;
+        // :: error: (dereference.of.nullable)
+        w.toString();
+    }
+}
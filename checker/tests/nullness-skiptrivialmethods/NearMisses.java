@@ -0,0 +1,49 @@
+import org.checkerframework.checker.nullness.qual.EnsuresNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.nullness.qual.RequiresNonNull;
+
+// Methods that look like getters and setters, but whose flow analysis cannot be skipped.
+public class NearMisses {
+    @Nullable String name;
+    int count;
+    // The initializer is analyzed before the methods, so the value of the field is known.
+    final String greeting = "hello";
+
+    // A constructor.
+    NearMisses() {
+        this.count = 0;
+    }
+
+    // A postcondition.
+    @EnsuresNonNull("name")
+    void initName() {
+        this.name = "name";
+    }
+
+    // A precondition.
+    @RequiresNonNull("name")
+    String getNonNullName() {
+        return name;
+    }
+
+    // A final field with a value in the initial store.
+    String getGreeting() {
+        return greeting;
+    }
+
+    // Two statements.
+    void reset() {
+        name = null;
+        count = 0;
+    }
+
+    // A method call.
+    String describe() {
+        return toString();
+    }
+
+    // A comparison.
+    boolean hasNoName() {
+        return name == null;
+    }
+}
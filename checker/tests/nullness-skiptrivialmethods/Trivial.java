@@ -0,0 +1,39 @@
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+// The flow analysis of every method, apart from the default constructor, can be skipped.
+public class Trivial {
+    @Nullable String name;
+    int count;
+    static @Nullable Object shared;
+
+    @Nullable
+    String getName() {
+        return name;
+    }
+
+    void setName(@Nullable String name) {
+        this.name = name;
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    static @Nullable Object getShared() {
+        return Trivial.shared;
+    }
+
+    void doNothing() {}
+
+    int one() {
+        return 1;
+    }
+
+    String identity(String s) {
+        return s;
+    }
+
+    void returnEarly() {
+        return;
+    }
+}
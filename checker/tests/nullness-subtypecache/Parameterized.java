@@ -0,0 +1,27 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+// The same subtype queries between parameterized types are made several times, each time with
+// different but equal types, so all but the first are answered by the subtype cache.
+public class Parameterized {
+    void assign(List<String> strings, Map<String, List<Integer>> map) {
+        List<String> a = strings;
+        List<String> b = strings;
+        List<String> c = strings;
+        Iterable<String> d = new ArrayList<String>();
+        Iterable<String> e = new ArrayList<String>();
+        Map<String, List<Integer>> f = map;
+        Map<String, List<Integer>> g = map;
+    }
+
+    void nullable(List<@Nullable String> nullableStrings) {
+        List<@Nullable String> a = nullableStrings;
+        List<@Nullable String> b = nullableStrings;
+        // :: error: (assignment.type.incompatible)
+        List<String> c = nullableStrings;
+        // :: error: (assignment.type.incompatible)
+        List<String> d = nullableStrings;
+    }
+}
@@ -0,0 +1,14 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Every subtype query involves a raw type, so none of them is cached.
+public class RawTypes {
+    void assign(List<String> strings, List raw) {
+        List a = strings;
+        List b = strings;
+        List c = raw;
+        List d = raw;
+        Iterable e = new ArrayList();
+        Iterable f = new ArrayList();
+    }
+}
@@ -0,0 +1,24 @@
+import org.checkerframework.checker.nullness.qual.*;
+
+// This file is in shard 1, so it is type-checked.
+public class TypeCheckShard1 {
+
+    static class Nested {
+        void m(@Nullable Object o) {
+            // :: error: (dereference.of.nullable)
+            o.toString();
+        }
+    }
+
+    void m(@Nullable Object o) {
+        // :: error: (assignment.type.incompatible)
+        @NonNull Object x = o;
+    }
+}
+
+class TypeCheckShard1Other {
+    void m(@Nullable Object o) {
+        // :: error: (dereference.of.nullable)
+        o.hashCode();
+    }
+}
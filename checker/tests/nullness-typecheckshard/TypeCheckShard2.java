@@ -0,0 +1,22 @@
+import org.checkerframework.checker.nullness.qual.*;
+
+// This file is in shard 0.  The errors in it are only reported with -AtypeCheckShard=0/2 and
+// without -AtypeCheckShard, so they have no expected diagnostics.
+public class TypeCheckShard2 {
+
+    static class Nested {
+        void m(@Nullable Object o) {
+            o.toString();
+        }
+    }
+
+    void m(@Nullable Object o) {
+        @NonNull Object x = o;
+    }
+}
+
+class TypeCheckShard2Other {
+    void m(@Nullable Object o) {
+        o.hashCode();
+    }
+}
@@ -3,13 +3,15 @@ package org.checkerframework.dataflow.analysis;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.StringJoiner;
 import javax.lang.model.element.Element;
 import org.checkerframework.checker.interning.qual.FindDistinct;
 import org.checkerframework.checker.interning.qual.InternedDistinct;
@@ -57,17 +59,28 @@ public abstract class AbstractAnalysis<
      * The transfer inputs of every basic block (assumed to be 'no information' if not present,
      * inputs before blocks in forward analysis, after blocks in backward analysis).
      */
-    protected final IdentityHashMap<Block, TransferInput<V, S>> inputs;
+    protected final Map<Block, TransferInput<V, S>> inputs;
 
     /** The worklist used for the fix-point iteration. */
     protected final Worklist worklist;
 
-    /** Abstract values of nodes. */
-    protected final IdentityHashMap<Node, V> nodeValues;
+    /**
+     * Abstract values of nodes. While {@link #runAnalysisFor} re-runs the analysis for an {@link
+     * AnalysisResult}, this is the map of the result rather than a copy of it.
+     */
+    protected Map<Node, V> nodeValues;
 
     /** Map from (effectively final) local variable elements to their abstract value. */
     protected final HashMap<Element, V> finalLocalValues;
 
+    /**
+     * Transfer inputs recorded before some nodes in the middle of basic blocks, so that {@link
+     * #runAnalysisFor} can start at the closest of them instead of at the beginning of the block.
+     * Empty unless a subclass records checkpoints, as {@link ForwardAnalysisImpl} does when {@link
+     * ForwardAnalysisImpl#setCheckpointing} has been called.
+     */
+    protected final IdentityHashMap<Node, TransferInput<V, S>> checkpoints;
+
     /**
      * The node that is currently handled in the analysis (if it is running). The following
      * invariant holds:
@@ -123,10 +136,11 @@ public abstract class AbstractAnalysis<
      */
     protected AbstractAnalysis(Direction direction) {
         this.direction = direction;
-        this.inputs = new IdentityHashMap<>();
+        this.inputs = new BlockIndexedMap<>();
         this.worklist = new Worklist(this.direction);
-        this.nodeValues = new IdentityHashMap<>();
+        this.nodeValues = new NodeIndexedMap<>();
         this.finalLocalValues = new HashMap<>();
+        this.checkpoints = new IdentityHashMap<>();
     }
 
     /** Initialize the transfer inputs of every basic block before performing the analysis. */
@@ -168,12 +182,16 @@ public abstract class AbstractAnalysis<
             throw new BugInCF(
                     "AbstractAnalysis::getResult() shouldn't be called when the analysis is running.");
         }
+        IdentityHashMap<Tree, List<Block>> graphBlocks = new IdentityHashMap<>();
+        graphBlocks.put(cfg.getUnderlyingAST().getCode(), cfg.getIndexedBlocks());
         return new AnalysisResult<>(
                 nodeValues,
-                inputs,
+                new IdentityHashMap<>(inputs),
                 cfg.getTreeLookup(),
                 cfg.getUnaryAssignNodeLookup(),
-                finalLocalValues);
+                finalLocalValues,
+                new IdentityHashMap<>(checkpoints),
+                graphBlocks);
     }
 
     @Override
@@ -208,19 +226,19 @@ public abstract class AbstractAnalysis<
      *
      * @return {@link #nodeValues}
      */
-    public IdentityHashMap<Node, V> getNodeValues() {
+    public Map<Node, V> getNodeValues() {
         return nodeValues;
     }
 
     /**
-     * Set all current node values to the given map.
+     * Set all current node values to the given map. The analysis uses {@code in} itself rather than
+     * a copy, and does not modify it: the next {@link #performAnalysis} starts with a new map.
      *
      * @param in the current node values
      */
-    /*package-private*/ void setNodeValues(IdentityHashMap<Node, V> in) {
+    /*package-private*/ void setNodeValues(Map<Node, V> in) {
         assert !isRunning;
-        nodeValues.clear();
-        nodeValues.putAll(in);
+        nodeValues = in;
     }
 
     @Override
@@ -374,8 +392,10 @@ public abstract class AbstractAnalysis<
     @EnsuresNonNull("this.cfg")
     protected void initFields(ControlFlowGraph cfg) {
         inputs.clear();
-        nodeValues.clear();
+        // Not nodeValues.clear(), because nodeValues may be the map of an AnalysisResult.
+        nodeValues = new NodeIndexedMap<>();
         finalLocalValues.clear();
+        checkpoints.clear();
         this.cfg = cfg;
     }
 
@@ -418,47 +438,28 @@ public abstract class AbstractAnalysis<
      * @param b the block to add to {@link #worklist}
      */
     protected void addToWorklist(Block b) {
-        // TODO: use a more efficient way to check if b is already present
-        if (!worklist.contains(b)) {
-            worklist.add(b);
-        }
+        worklist.add(b);
     }
 
     /**
      * A worklist is a priority queue of blocks in which the order is given by depth-first ordering
      * to place non-loop predecessors ahead of successors.
+     *
+     * <p>The worklist is a bit set over the {@link Block#getIndex() indexes} of the blocks, which
+     * are assigned in reverse depth-first postorder by {@link ControlFlowGraph#getIndexedBlocks}.
+     * Adding a block, checking whether it is present, and polling the next block therefore neither
+     * hash nor compare blocks.
      */
     protected static class Worklist {
 
-        /** Map all blocks in the CFG to their depth-first order. */
-        protected final IdentityHashMap<Block, Integer> depthFirstOrder;
+        /** The direction of the analysis. */
+        protected final Direction direction;
 
-        /**
-         * Comparators to allow priority queue to order blocks by their depth-first order, using by
-         * forward analysis.
-         */
-        public class ForwardDFOComparator implements Comparator<Block> {
-            @SuppressWarnings("nullness:unboxing.of.nullable")
-            @Override
-            public int compare(Block b1, Block b2) {
-                return depthFirstOrder.get(b1) - depthFirstOrder.get(b2);
-            }
-        }
-
-        /**
-         * Comparators to allow priority queue to order blocks by their depth-first order, using by
-         * backward analysis.
-         */
-        public class BackwardDFOComparator implements Comparator<Block> {
-            @SuppressWarnings("nullness:unboxing.of.nullable")
-            @Override
-            public int compare(Block b1, Block b2) {
-                return depthFirstOrder.get(b2) - depthFirstOrder.get(b1);
-            }
-        }
+        /** All blocks in the CFG, indexed by {@link Block#getIndex}. */
+        protected List<Block> blocks;
 
-        /** The backing priority queue. */
-        protected final PriorityQueue<Block> queue;
+        /** The indexes of the blocks in the worklist. */
+        protected final BitSet queue;
 
         /**
          * Create a Worklist.
@@ -466,36 +467,39 @@ public abstract class AbstractAnalysis<
          * @param direction the direction (forward or backward)
          */
         public Worklist(Direction direction) {
-            depthFirstOrder = new IdentityHashMap<>();
-
-            if (direction == Direction.FORWARD) {
-                queue = new PriorityQueue<>(11, new ForwardDFOComparator());
-            } else if (direction == Direction.BACKWARD) {
-                queue = new PriorityQueue<>(11, new BackwardDFOComparator());
-            } else {
+            if (direction != Direction.FORWARD && direction != Direction.BACKWARD) {
                 throw new BugInCF("Unexpected Direction meet: " + direction.name());
             }
+            this.direction = direction;
+            this.blocks = Collections.emptyList();
+            this.queue = new BitSet();
         }
 
         /**
-         * Process the control flow graph, add the blocks to {@link #depthFirstOrder}.
+         * Process the control flow graph, numbering its blocks in depth-first order.
          *
          * @param cfg the control flow graph to process
          */
         public void process(ControlFlowGraph cfg) {
-            depthFirstOrder.clear();
-            int count = 1;
-            for (Block b : cfg.getDepthFirstOrderedBlocks()) {
-                depthFirstOrder.put(b, count++);
-            }
-
+            blocks = cfg.getIndexedBlocks();
             queue.clear();
         }
 
         /**
-         * See {@link PriorityQueue#isEmpty}.
+         * Returns true if {@code block} is a block of the control flow graph that was last {@link
+         * #process processed}, that is, if it is reachable from the entry block.
+         *
+         * @param block a block
+         * @return true if {@code block} is a reachable block of the processed control flow graph
+         */
+        public boolean hasBlock(Block block) {
+            int index = block.getIndex();
+            return index >= 0 && index < blocks.size() && blocks.get(index) == block;
+        }
+
+        /**
+         * Returns true if the worklist is empty.
          *
-         * @see PriorityQueue#isEmpty
          * @return true if {@link #queue} is empty else false
          */
         @EnsuresNonNullIf(result = false, expression = "poll()")
@@ -511,31 +515,47 @@ public abstract class AbstractAnalysis<
          * @return true if {@link #queue} contains the given block
          */
         public boolean contains(Block block) {
-            return queue.contains(block);
+            return hasBlock(block) && queue.get(block.getIndex());
         }
 
         /**
-         * Add the given block to {@link #queue}.
+         * Add the given block to {@link #queue}. Adding a block that is already present has no
+         * effect.
          *
          * @param block the block to add to {@link #queue}
          */
         public void add(Block block) {
-            queue.add(block);
+            if (!hasBlock(block)) {
+                throw new BugInCF("Block is not in the processed control flow graph: " + block);
+            }
+            queue.set(block.getIndex());
         }
 
         /**
-         * See {@link PriorityQueue#poll}.
+         * Removes and returns the first block in depth-first order for a forward analysis, or the
+         * last one for a backward analysis.
          *
-         * @see PriorityQueue#poll
-         * @return the head of {@link #queue}
+         * @return the head of {@link #queue}, or null if the worklist is empty
          */
         public @Nullable Block poll() {
-            return queue.poll();
+            int index =
+                    direction == Direction.FORWARD
+                            ? queue.nextSetBit(0)
+                            : queue.previousSetBit(blocks.size() - 1);
+            if (index == -1) {
+                return null;
+            }
+            queue.clear(index);
+            return blocks.get(index);
         }
 
         @Override
         public String toString() {
-            return "Worklist(" + queue + ")";
+            StringJoiner result = new StringJoiner(", ", "Worklist([", "])");
+            for (int i = queue.nextSetBit(0); i >= 0; i = queue.nextSetBit(i + 1)) {
+                result.add(blocks.get(i).toString());
+            }
+            return result.toString();
         }
     }
 }
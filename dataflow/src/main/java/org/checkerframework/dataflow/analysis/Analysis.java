@@ -91,9 +91,36 @@ public interface Analysis<
             Node node,
             Analysis.BeforeOrAfter preOrPost,
             TransferInput<V, S> blockTransferInput,
-            IdentityHashMap<Node, V> nodeValues,
+            Map<Node, V> nodeValues,
             Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>> analysisCaches);
 
+    /**
+     * Runs the analysis again within the block of {@code node} and returns the store at the
+     * location of {@code node}, like {@link #runAnalysisFor(Node, BeforeOrAfter, TransferInput,
+     * Map, Map)}. An implementation may start at the closest node in {@code checkpoints} that
+     * precedes {@code node} in the direction of the analysis, rather than at the beginning of the
+     * block.
+     *
+     * @param node the node to analyze
+     * @param preOrPost indicates which store to return: the store immediately before {@code node}
+     *     or the store after {@code node}
+     * @param blockTransferInput the transfer input of the block of this node
+     * @param nodeValues abstract values of nodes
+     * @param analysisCaches caches of analysis results
+     * @param checkpoints the transfer inputs of some nodes, as recorded by the analysis
+     * @return the store before or after {@code node} (depends on the value of {@code before}) after
+     *     running the analysis
+     */
+    default S runAnalysisFor(
+            Node node,
+            Analysis.BeforeOrAfter preOrPost,
+            TransferInput<V, S> blockTransferInput,
+            Map<Node, V> nodeValues,
+            Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>> analysisCaches,
+            Map<Node, TransferInput<V, S>> checkpoints) {
+        return runAnalysisFor(node, preOrPost, blockTransferInput, nodeValues, analysisCaches);
+    }
+
     /**
      * The result of running the analysis. This is only available once the analysis finished
      * running.
@@ -2,8 +2,10 @@ package org.checkerframework.dataflow.analysis;
 
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.UnaryTree;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
@@ -29,8 +31,8 @@ import org.plumelib.util.UniqueId;
  */
 public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> implements UniqueId {
 
-    /** Abstract values of nodes. */
-    protected final IdentityHashMap<Node, V> nodeValues;
+    /** Abstract values of nodes, stored by {@link Node#getGraphIndex() node index}. */
+    protected final Map<Node, V> nodeValues;
 
     /**
      * Map from AST {@link Tree}s to sets of {@link Node}s.
@@ -49,10 +51,25 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
     /** The stores before every method call. */
     protected final IdentityHashMap<Block, TransferInput<V, S>> stores;
 
+    /**
+     * Transfer inputs that the analysis recorded before some nodes in the middle of basic blocks.
+     * Re-running the analysis for a node starts at the closest of them.
+     *
+     * @see Analysis#runAnalysisFor(Node, Analysis.BeforeOrAfter, TransferInput, Map, Map, Map)
+     */
+    protected final IdentityHashMap<Node, TransferInput<V, S>> checkpoints;
+
+    /**
+     * The {@linkplain org.checkerframework.dataflow.cfg.ControlFlowGraph#getIndexedBlocks() blocks}
+     * of each analyzed control flow graph, by the tree of the code it represents. Used by {@link
+     * #release} to find the entries of that code.
+     */
+    protected final IdentityHashMap<Tree, List<Block>> graphBlocks;
+
     /**
      * Caches of the analysis results for each input for the block of the node and each node.
      *
-     * @see #runAnalysisFor(Node, Analysis.BeforeOrAfter, TransferInput, IdentityHashMap, Map)
+     * @see #runAnalysisFor(Node, Analysis.BeforeOrAfter, TransferInput, Map, Map)
      */
     protected final Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>>
             analysisCaches;
@@ -75,6 +92,8 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
      * @param treeLookup {@link #treeLookup}
      * @param unaryAssignNodeLookup {@link #unaryAssignNodeLookup}
      * @param finalLocalValues {@link #finalLocalValues}
+     * @param checkpoints {@link #checkpoints}
+     * @param graphBlocks {@link #graphBlocks}
      * @param analysisCaches {@link #analysisCaches}
      */
     protected AnalysisResult(
@@ -83,13 +102,17 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
             IdentityHashMap<Tree, Set<Node>> treeLookup,
             IdentityHashMap<UnaryTree, AssignmentNode> unaryAssignNodeLookup,
             HashMap<Element, V> finalLocalValues,
+            IdentityHashMap<Node, TransferInput<V, S>> checkpoints,
+            IdentityHashMap<Tree, List<Block>> graphBlocks,
             Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>> analysisCaches) {
-        this.nodeValues = new IdentityHashMap<>(nodeValues);
+        this.nodeValues = new NodeIndexedMap<>(nodeValues);
         this.treeLookup = new IdentityHashMap<>(treeLookup);
         this.unaryAssignNodeLookup = new IdentityHashMap<>(unaryAssignNodeLookup);
         // TODO: why are stores and finalLocalValues captured?
         this.stores = stores;
         this.finalLocalValues = finalLocalValues;
+        this.checkpoints = checkpoints;
+        this.graphBlocks = graphBlocks;
         this.analysisCaches = analysisCaches;
     }
 
@@ -117,6 +140,65 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
                 new IdentityHashMap<>());
     }
 
+    /**
+     * Initialize with given mappings, checkpoints, and empty cache.
+     *
+     * @param nodeValues {@link #nodeValues}
+     * @param stores {@link #stores}
+     * @param treeLookup {@link #treeLookup}
+     * @param unaryAssignNodeLookup {@link #unaryAssignNodeLookup}
+     * @param finalLocalValues {@link #finalLocalValues}
+     * @param checkpoints {@link #checkpoints}
+     */
+    public AnalysisResult(
+            Map<Node, V> nodeValues,
+            IdentityHashMap<Block, TransferInput<V, S>> stores,
+            IdentityHashMap<Tree, Set<Node>> treeLookup,
+            IdentityHashMap<UnaryTree, AssignmentNode> unaryAssignNodeLookup,
+            HashMap<Element, V> finalLocalValues,
+            IdentityHashMap<Node, TransferInput<V, S>> checkpoints) {
+        this(
+                nodeValues,
+                stores,
+                treeLookup,
+                unaryAssignNodeLookup,
+                finalLocalValues,
+                checkpoints,
+                new IdentityHashMap<>(),
+                new IdentityHashMap<>());
+    }
+
+    /**
+     * Initialize with given mappings, checkpoints, blocks of the analyzed control flow graphs, and
+     * empty cache.
+     *
+     * @param nodeValues {@link #nodeValues}
+     * @param stores {@link #stores}
+     * @param treeLookup {@link #treeLookup}
+     * @param unaryAssignNodeLookup {@link #unaryAssignNodeLookup}
+     * @param finalLocalValues {@link #finalLocalValues}
+     * @param checkpoints {@link #checkpoints}
+     * @param graphBlocks {@link #graphBlocks}
+     */
+    public AnalysisResult(
+            Map<Node, V> nodeValues,
+            IdentityHashMap<Block, TransferInput<V, S>> stores,
+            IdentityHashMap<Tree, Set<Node>> treeLookup,
+            IdentityHashMap<UnaryTree, AssignmentNode> unaryAssignNodeLookup,
+            HashMap<Element, V> finalLocalValues,
+            IdentityHashMap<Node, TransferInput<V, S>> checkpoints,
+            IdentityHashMap<Tree, List<Block>> graphBlocks) {
+        this(
+                nodeValues,
+                stores,
+                treeLookup,
+                unaryAssignNodeLookup,
+                finalLocalValues,
+                checkpoints,
+                graphBlocks,
+                new IdentityHashMap<>());
+    }
+
     /**
      * Initialize empty result with specified cache.
      *
@@ -130,6 +212,8 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
                 new IdentityHashMap<>(),
                 new IdentityHashMap<>(),
                 new HashMap<>(),
+                new IdentityHashMap<>(),
+                new IdentityHashMap<>(),
                 analysisCaches);
     }
 
@@ -144,10 +228,53 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
         unaryAssignNodeLookup.putAll(other.unaryAssignNodeLookup);
         stores.putAll(other.stores);
         finalLocalValues.putAll(other.finalLocalValues);
+        checkpoints.putAll(other.checkpoints);
+        graphBlocks.putAll(other.graphBlocks);
     }
 
     /**
-     * Merge all entries from otherTreeLookup into treeLookup. Merge sets if already present.
+     * Removes the results for the control flow graph of {@code code}: the values of its nodes, the
+     * stores of its blocks, and the cached results of re-running the analysis within them. After
+     * this call, queries for trees of {@code code} return null, as for trees that were never
+     * analyzed.
+     *
+     * <p>The results for lambdas and classes within {@code code} have their own control flow graphs
+     * and are not removed. Does nothing if {@code code} was not analyzed, or was already released.
+     *
+     * @param code the body of a method, a lambda, or the initializer of a field, as in {@link
+     *     org.checkerframework.dataflow.cfg.UnderlyingAST#getCode()}
+     */
+    public void release(Tree code) {
+        List<Block> blocks = graphBlocks.remove(code);
+        if (blocks == null) {
+            return;
+        }
+        for (Block block : blocks) {
+            TransferInput<V, S> input = stores.remove(block);
+            if (input != null && analysisCaches != null) {
+                analysisCaches.remove(input);
+            }
+            for (Node node : block.getNodes()) {
+                nodeValues.remove(node);
+                TransferInput<V, S> checkpoint = checkpoints.remove(node);
+                if (checkpoint != null && analysisCaches != null) {
+                    analysisCaches.remove(checkpoint);
+                }
+                Tree tree = node.getTree();
+                if (tree != null) {
+                    treeLookup.remove(tree);
+                    if (tree instanceof UnaryTree) {
+                        unaryAssignNodeLookup.remove(tree);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge all entries from otherTreeLookup into treeLookup. Merge sets if already present. The
+     * sets are not modified, because they may belong to a control flow graph that other analysis
+     * results share.
      *
      * @param treeLookup a map from abstract syntax trees to sets of nodes
      * @param otherTreeLookup another treeLookup that will be merged into {@code treeLookup}
@@ -160,7 +287,10 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
             if (hit == null) {
                 treeLookup.put(entry.getKey(), entry.getValue());
             } else {
-                hit.addAll(entry.getValue());
+                Set<Node> merged = Collections.newSetFromMap(new IdentityHashMap<>());
+                merged.addAll(hit);
+                merged.addAll(entry.getValue());
+                treeLookup.put(entry.getKey(), merged);
             }
         }
     }
@@ -348,7 +478,8 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
                         Analysis.BeforeOrAfter.AFTER,
                         transferInput,
                         nodeValues,
-                        analysisCaches);
+                        analysisCaches,
+                        checkpoints);
             case BACKWARD:
                 return transferInput.getRegularStore();
             default:
@@ -393,6 +524,7 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
      * Runs the analysis again within the block of {@code node} and returns the store at the
      * location of {@code node}. If {@code before} is true, then the store immediately before the
      * {@link Node} {@code node} is returned. Otherwise, the store after {@code node} is returned.
+     * The analysis starts at the closest {@linkplain #checkpoints checkpoint}, if any.
      *
      * <p>If the given {@link Node} cannot be reached (in the control flow graph), then {@code null}
      * is returned.
@@ -410,7 +542,11 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
         if (transferInput == null) {
             return null;
         }
-        return runAnalysisFor(node, preOrPost, transferInput, nodeValues, analysisCaches);
+        if (transferInput.analysis == null) {
+            throw new BugInCF("Analysis in transferInput cannot be null.");
+        }
+        return transferInput.analysis.runAnalysisFor(
+                node, preOrPost, transferInput, nodeValues, analysisCaches, checkpoints);
     }
 
     /**
@@ -438,7 +574,7 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
             Node node,
             Analysis.BeforeOrAfter preOrPost,
             TransferInput<V, S> transferInput,
-            IdentityHashMap<Node, V> nodeValues,
+            Map<Node, V> nodeValues,
             Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>> analysisCaches) {
         if (transferInput.analysis == null) {
             throw new BugInCF("Analysis in transferInput cannot be null.");
@@ -463,6 +599,8 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
         result.add("unaryAssignNodeLookup = " + unaryAssignNodeLookup);
         result.add("finalLocalValues = " + finalLocalValues);
         result.add("stores = " + stores);
+        result.add("checkpoints = " + checkpoints);
+        result.add("graphBlocks = " + graphBlocks.size() + " graphs");
         result.add("analysisCaches = " + analysisCaches);
         return result.toString();
     }
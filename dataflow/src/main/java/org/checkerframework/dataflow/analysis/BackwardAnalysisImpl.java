@@ -37,7 +37,7 @@ public class BackwardAnalysisImpl<
     // TODO: Add widening support like what the forward analysis does.
 
     /** Out stores after every basic block (assumed to be 'no information' if not present). */
-    protected final IdentityHashMap<Block, S> outStores;
+    protected final Map<Block, S> outStores;
 
     /**
      * Exception store of an exception block, propagated by exceptional successors of its exception
@@ -56,7 +56,7 @@ public class BackwardAnalysisImpl<
      */
     public BackwardAnalysisImpl() {
         super(Direction.BACKWARD);
-        this.outStores = new IdentityHashMap<>();
+        this.outStores = new BlockIndexedMap<>();
         this.exceptionStores = new IdentityHashMap<>();
         this.storeAtEntry = null;
     }
@@ -209,8 +209,7 @@ public class BackwardAnalysisImpl<
         worklist.process(cfg);
         SpecialBlock regularExitBlock = cfg.getRegularExitBlock();
         SpecialBlock exceptionExitBlock = cfg.getExceptionalExitBlock();
-        if (worklist.depthFirstOrder.get(regularExitBlock) == null
-                && worklist.depthFirstOrder.get(exceptionExitBlock) == null) {
+        if (!worklist.hasBlock(regularExitBlock) && !worklist.hasBlock(exceptionExitBlock)) {
             throw new BugInCF(
                     "regularExitBlock and exceptionExitBlock should never both be null at the same time.");
         }
@@ -221,12 +220,12 @@ public class BackwardAnalysisImpl<
         S exceptionalInitialStore = transferFunction.initialExceptionalExitStore(underlyingAST);
         // If regularExitBlock or exceptionExitBlock is reachable in the control flow graph, then
         // initialize it as a start point of the analysis.
-        if (worklist.depthFirstOrder.get(regularExitBlock) != null) {
+        if (worklist.hasBlock(regularExitBlock)) {
             worklist.add(regularExitBlock);
             inputs.put(regularExitBlock, new TransferInput<>(null, this, normalInitialStore));
             outStores.put(regularExitBlock, normalInitialStore);
         }
-        if (worklist.depthFirstOrder.get(exceptionExitBlock) != null) {
+        if (worklist.hasBlock(exceptionExitBlock)) {
             worklist.add(exceptionExitBlock);
             inputs.put(
                     exceptionExitBlock, new TransferInput<>(null, this, exceptionalInitialStore));
@@ -318,7 +317,7 @@ public class BackwardAnalysisImpl<
             @FindDistinct Node node,
             Analysis.BeforeOrAfter preOrPost,
             TransferInput<V, S> blockTransferInput,
-            IdentityHashMap<Node, V> nodeValues,
+            Map<Node, V> nodeValues,
             Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>> analysisCaches) {
         Block block = node.getBlock();
         assert block != null : "@AssumeAssertion(nullness): invariant";
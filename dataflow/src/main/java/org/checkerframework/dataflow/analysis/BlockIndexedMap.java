@@ -0,0 +1,175 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A map from the blocks of a control flow graph to values, which stores the value of a block in an
+ * array at the {@link Block#getIndex() index} of the block. Looking up a block does not hash it.
+ * The blocks must have been numbered by {@link
+ * org.checkerframework.dataflow.cfg.ControlFlowGraph#getIndexedBlocks}, and all keys must belong to
+ * the same control flow graph.
+ *
+ * @param <T> the type of values
+ */
+/*package-private*/ class BlockIndexedMap<T> extends AbstractMap<Block, T> {
+
+    /** The keys, by index. */
+    private @Nullable Block[] keys = new Block[16];
+
+    /** The values, by index. */
+    private @Nullable Object[] values = new Object[16];
+
+    /** The number of entries. */
+    private int size = 0;
+
+    /**
+     * Returns the index of {@code key} if it is a key of this map, and -1 otherwise.
+     *
+     * @param key a potential key
+     * @return the index of {@code key}, or -1
+     */
+    private int indexOf(@Nullable Object key) {
+        if (!(key instanceof Block)) {
+            return -1;
+        }
+        int index = ((Block) key).getIndex();
+        return index >= 0 && index < keys.length && keys[index] == key ? index : -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public @Nullable T get(@Nullable Object key) {
+        int index = indexOf(key);
+        return index == -1 ? null : valueAt(index);
+    }
+
+    @Override
+    public @Nullable T put(Block key, T value) {
+        int index = key.getIndex();
+        if (index < 0) {
+            throw new BugInCF("Block without index: " + key);
+        }
+        if (index >= keys.length) {
+            int newLength = Math.max(index + 1, keys.length * 2);
+            keys = Arrays.copyOf(keys, newLength);
+            values = Arrays.copyOf(values, newLength);
+        }
+        if (keys[index] == null) {
+            keys[index] = key;
+            size++;
+        } else if (keys[index] != key) {
+            throw new BugInCF("Blocks with the same index: " + keys[index] + " and " + key);
+        }
+        T oldValue = valueAt(index);
+        values[index] = value;
+        return oldValue;
+    }
+
+    @Override
+    public @Nullable T remove(@Nullable Object key) {
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+        T oldValue = valueAt(index);
+        keys[index] = null;
+        values[index] = null;
+        size--;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the value at {@code index}.
+     *
+     * @param index an index
+     * @return the value at {@code index}
+     */
+    @SuppressWarnings("unchecked")
+    private T valueAt(int index) {
+        return (T) values[index];
+    }
+
+    @Override
+    public Set<Map.Entry<Block, T>> entrySet() {
+        return new AbstractSet<Map.Entry<Block, T>>() {
+            @Override
+            public Iterator<Map.Entry<Block, T>> iterator() {
+                return new Iterator<Map.Entry<Block, T>>() {
+                    /** The index from which to search for the next entry. */
+                    int next = 0;
+
+                    /** The index of the last returned entry, or -1. */
+                    int last = -1;
+
+                    /**
+                     * Advances {@link #next} to the index of the next entry, or {@code
+                     * keys.length}.
+                     */
+                    void advance() {
+                        while (next < keys.length && keys[next] == null) {
+                            next++;
+                        }
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        advance();
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<Block, T> next() {
+                        advance();
+                        if (next >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next;
+                        next++;
+                        @SuppressWarnings("nullness:assignment.type.incompatible") // non-null slot
+                        Block key = keys[last];
+                        return new SimpleImmutableEntry<>(key, valueAt(last));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == -1) {
+                            throw new IllegalStateException();
+                        }
+                        BlockIndexedMap.this.remove(keys[last]);
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -6,6 +6,7 @@ import com.sun.source.tree.VariableTree;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,10 +45,10 @@ public class ForwardAnalysisImpl<
         extends AbstractAnalysis<V, S, T> implements ForwardAnalysis<V, S, T> {
 
     /**
-     * Number of times each block has been analyzed since the last time widening was applied. Null
-     * if maxCountBeforeWidening is -1, which implies widening isn't used for this analysis.
+     * Decides when the store before a block is widened. Null if maxCountBeforeWidening is -1 and no
+     * strategy has been set, which implies widening isn't used for this analysis.
      */
-    protected final @Nullable IdentityHashMap<Block, Integer> blockCount;
+    protected @Nullable WideningStrategy wideningStrategy;
 
     /**
      * Number of times a block can be analyzed before widening. -1 implies that widening shouldn't
@@ -55,15 +56,46 @@ public class ForwardAnalysisImpl<
      */
     protected final int maxCountBeforeWidening;
 
+    /**
+     * The maximum number of times that blocks are analyzed per control flow graph, or -1 for no
+     * limit.
+     */
+    protected long maxIterations = -1;
+
+    /**
+     * The maximum time in milliseconds for the analysis of a control flow graph, or -1 for no
+     * limit.
+     */
+    protected long maxMillis = -1;
+
+    /** The number of times that blocks have been analyzed for the current control flow graph. */
+    protected long iterationCount = 0;
+
+    /**
+     * Whether the analysis of the current control flow graph exceeded {@link #maxIterations} or
+     * {@link #maxMillis}. If so, the store before every block is {@link #getTopStore top} or
+     * widened from then on.
+     */
+    protected boolean budgetExceeded = false;
+
     /** Then stores before every basic block (assumed to be 'no information' if not present). */
-    protected final IdentityHashMap<Block, S> thenStores;
+    protected final Map<Block, S> thenStores;
 
     /** Else stores before every basic block (assumed to be 'no information' if not present). */
-    protected final IdentityHashMap<Block, S> elseStores;
+    protected final Map<Block, S> elseStores;
 
     /** The stores after every return statement. */
     protected final IdentityHashMap<ReturnNode, TransferResult<V, S>> storesAtReturnStatements;
 
+    /**
+     * The number of nodes between two {@linkplain #checkpoints checkpoints} within a regular block.
+     * 0 implies that no checkpoints are recorded.
+     */
+    protected int checkpointInterval = 0;
+
+    /** The maximum number of {@linkplain #checkpoints checkpoints} per control flow graph. */
+    protected int maxCheckpoints = 0;
+
     // `@code`, not `@link`, because dataflow module doesn't depend on framework module.
     /**
      * Construct an object that can perform a org.checkerframework.dataflow forward analysis over a
@@ -75,9 +107,12 @@ public class ForwardAnalysisImpl<
     public ForwardAnalysisImpl(int maxCountBeforeWidening) {
         super(Direction.FORWARD);
         this.maxCountBeforeWidening = maxCountBeforeWidening;
-        this.blockCount = maxCountBeforeWidening == -1 ? null : new IdentityHashMap<>();
-        this.thenStores = new IdentityHashMap<>();
-        this.elseStores = new IdentityHashMap<>();
+        this.wideningStrategy =
+                maxCountBeforeWidening == -1
+                        ? null
+                        : new ThresholdWideningStrategy(maxCountBeforeWidening, false);
+        this.thenStores = new BlockIndexedMap<>();
+        this.elseStores = new BlockIndexedMap<>();
         this.storesAtReturnStatements = new IdentityHashMap<>();
     }
 
@@ -102,9 +137,19 @@ public class ForwardAnalysisImpl<
 
         try {
             init(cfg);
+            long deadline =
+                    maxMillis == -1 ? Long.MAX_VALUE : System.currentTimeMillis() + maxMillis;
             while (!worklist.isEmpty()) {
                 Block b = worklist.poll();
                 performAnalysisBlock(b);
+                iterationCount++;
+                if (!budgetExceeded
+                        && ((maxIterations != -1 && iterationCount > maxIterations)
+                                || (deadline != Long.MAX_VALUE
+                                        && System.currentTimeMillis() > deadline))) {
+                    budgetExceeded = true;
+                    iterationBudgetExceeded();
+                }
             }
         } finally {
             assert isRunning;
@@ -113,6 +158,106 @@ public class ForwardAnalysisImpl<
         }
     }
 
+    /**
+     * Sets the strategy that decides when the store before a block is widened. This replaces the
+     * strategy implied by the {@code maxCountBeforeWidening} constructor argument.
+     *
+     * @param wideningStrategy the widening strategy, or null to never widen
+     */
+    public void setWideningStrategy(@Nullable WideningStrategy wideningStrategy) {
+        this.wideningStrategy = wideningStrategy;
+    }
+
+    /**
+     * Limits the work per control flow graph. Once the analysis of a control flow graph has
+     * analyzed {@code maxIterations} blocks or has taken {@code maxMillis} milliseconds, it calls
+     * {@link #iterationBudgetExceeded}. From then on, the store before every block is the {@link
+     * #getTopStore top store}, or, if the analysis has none, is widened, so that the analysis
+     * converges quickly at the cost of precision. Since the time depends on the machine, only an
+     * iteration budget gives the same results on every machine.
+     *
+     * @param maxIterations the maximum number of times that blocks are analyzed, or -1 for no limit
+     * @param maxMillis the maximum time in milliseconds, or -1 for no limit
+     */
+    public void setIterationBudget(long maxIterations, long maxMillis) {
+        this.maxIterations = maxIterations;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Returns the number of times that blocks were analyzed for the most recently analyzed control
+     * flow graph.
+     *
+     * @return the number of times that blocks were analyzed for the current control flow graph
+     */
+    public long getIterationCount() {
+        return iterationCount;
+    }
+
+    /**
+     * Returns true if the analysis of the most recently analyzed control flow graph exceeded the
+     * budget set by {@link #setIterationBudget}.
+     *
+     * @return true if the analysis of the current control flow graph exceeded its budget
+     */
+    public boolean isIterationBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    /**
+     * Called when the analysis of the current control flow graph exceeds the budget set by {@link
+     * #setIterationBudget}. Subclasses may override this method to report the problem. Does nothing
+     * by default.
+     */
+    protected void iterationBudgetExceeded() {}
+
+    /**
+     * Returns the store that replaces {@code store}, which flows into a block, once the analysis of
+     * the current control flow graph has exceeded its budget. The result should contain no
+     * information, so that the least upper bound of it and any other store is itself; then every
+     * block is analyzed at most once more. Returns null if this analysis has no such store, in
+     * which case the store before every block is widened instead. Returns null by default.
+     *
+     * @param store a store that flows into a block
+     * @return the store without information that replaces {@code store}, or null
+     */
+    protected @Nullable S getTopStore(S store) {
+        return null;
+    }
+
+    /**
+     * Makes this analysis record a copy of the transfer input before every {@code interval}th node
+     * of a regular block, so that queries for stores in the middle of long blocks re-run the
+     * transfer functions of at most {@code interval} nodes. At most {@code maxCheckpoints} inputs
+     * are recorded per control flow graph, which bounds the additional memory.
+     *
+     * @param interval the number of nodes between two checkpoints, or 0 to record none
+     * @param maxCheckpoints the maximum number of checkpoints per control flow graph
+     */
+    public void setCheckpointing(int interval, int maxCheckpoints) {
+        if (interval < 0 || maxCheckpoints < 0) {
+            throw new BugInCF(
+                    "Negative checkpoint interval %d or maximum %d", interval, maxCheckpoints);
+        }
+        this.checkpointInterval = interval;
+        this.maxCheckpoints = maxCheckpoints;
+    }
+
+    /**
+     * Returns true if the transfer input before {@code node}, which is at position {@code index} in
+     * its regular block, should be recorded as a checkpoint.
+     *
+     * @param node a node in a regular block
+     * @param index the position of {@code node} in its block
+     * @return true if the transfer input before {@code node} should be recorded
+     */
+    protected boolean shouldRecordCheckpoint(Node node, int index) {
+        return checkpointInterval > 0
+                && index > 0
+                && index % checkpointInterval == 0
+                && (checkpoints.size() < maxCheckpoints || checkpoints.containsKey(node));
+    }
+
     @Override
     public void performAnalysisBlock(Block b) {
         switch (b.getType()) {
@@ -125,8 +270,13 @@ public class ForwardAnalysisImpl<
                     currentInput = inputBefore.copy();
                     Node lastNode = null;
                     boolean addToWorklistAgain = false;
+                    int index = 0;
                     for (Node n : rb.getNodes()) {
                         assert currentInput != null : "@AssumeAssertion(nullness): invariant";
+                        if (shouldRecordCheckpoint(n, index++)) {
+                            // Copy the input, because the transfer function may modify it.
+                            checkpoints.put(n, currentInput.copy());
+                        }
                         TransferResult<V, S> transferResult = callTransferFunction(n, currentInput);
                         addToWorklistAgain |= updateNodeValues(n, transferResult);
                         currentInput = new TransferInput<>(n, this, transferResult);
@@ -159,7 +309,10 @@ public class ForwardAnalysisImpl<
                         propagateStoresTo(
                                 succ, node, currentInput, eb.getFlowRule(), addToWorklistAgain);
                     }
-                    // Propagate store to exceptional successors
+                    // Propagate store to exceptional successors.  A successor for several
+                    // causes that have no exceptional store, such as the exceptional exit, gets
+                    // the regular store before the node only once.
+                    Set<Block> regularStoreSuccs = null;
                     for (Map.Entry<TypeMirror, Set<Block>> e :
                             eb.getExceptionalSuccessors().entrySet()) {
                         TypeMirror cause = e.getKey();
@@ -174,14 +327,20 @@ public class ForwardAnalysisImpl<
                                         addToWorklistAgain);
                             }
                         } else {
-                            for (Block exceptionSucc : e.getValue()) {
-                                addStoreBefore(
-                                        exceptionSucc,
-                                        node,
-                                        inputBefore.copy().getRegularStore(),
-                                        Store.Kind.BOTH,
-                                        addToWorklistAgain);
+                            if (regularStoreSuccs == null) {
+                                regularStoreSuccs = new LinkedHashSet<>();
                             }
+                            regularStoreSuccs.addAll(e.getValue());
+                        }
+                    }
+                    if (regularStoreSuccs != null) {
+                        for (Block exceptionSucc : regularStoreSuccs) {
+                            addStoreBefore(
+                                    exceptionSucc,
+                                    node,
+                                    inputBefore.copy().getRegularStore(),
+                                    Store.Kind.BOTH,
+                                    addToWorklistAgain);
                         }
                     }
                     break;
@@ -240,19 +399,54 @@ public class ForwardAnalysisImpl<
             @FindDistinct Node node,
             Analysis.BeforeOrAfter preOrPost,
             TransferInput<V, S> blockTransferInput,
-            IdentityHashMap<Node, V> nodeValues,
+            Map<Node, V> nodeValues,
             Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>> analysisCaches) {
+        return runAnalysisFor(
+                node,
+                preOrPost,
+                blockTransferInput,
+                nodeValues,
+                analysisCaches,
+                Collections.emptyMap());
+    }
+
+    @Override
+    public S runAnalysisFor(
+            @FindDistinct Node node,
+            Analysis.BeforeOrAfter preOrPost,
+            TransferInput<V, S> blockTransferInput,
+            Map<Node, V> nodeValues,
+            Map<TransferInput<V, S>, IdentityHashMap<Node, TransferResult<V, S>>> analysisCaches,
+            Map<Node, TransferInput<V, S>> checkpoints) {
         Block block = node.getBlock();
         assert block != null : "@AssumeAssertion(nullness): invariant";
         Node oldCurrentNode = currentNode;
 
+        // Find the closest checkpoint at or before node
+        TransferInput<V, S> startInput = blockTransferInput;
+        int startIndex = 0;
+        if (!checkpoints.isEmpty() && block.getType() == Block.BlockType.REGULAR_BLOCK) {
+            List<Node> nodes = block.getNodes();
+            for (int i = 0; i < nodes.size(); i++) {
+                Node n = nodes.get(i);
+                TransferInput<V, S> checkpoint = checkpoints.get(n);
+                if (checkpoint != null) {
+                    startInput = checkpoint;
+                    startIndex = i;
+                }
+                if (n == node) {
+                    break;
+                }
+            }
+        }
+
         // Prepare cache
         IdentityHashMap<Node, TransferResult<V, S>> cache;
         if (analysisCaches != null) {
-            cache = analysisCaches.get(blockTransferInput);
+            cache = analysisCaches.get(startInput);
             if (cache == null) {
                 cache = new IdentityHashMap<>();
-                analysisCaches.put(blockTransferInput, cache);
+                analysisCaches.put(startInput, cache);
             }
         } else {
             cache = null;
@@ -271,9 +465,10 @@ public class ForwardAnalysisImpl<
                         RegularBlock rb = (RegularBlock) block;
                         // Apply transfer function to contents until we found the node we are
                         // looking for.
-                        TransferInput<V, S> store = blockTransferInput;
+                        TransferInput<V, S> store = startInput;
                         TransferResult<V, S> transferResult;
-                        for (Node n : rb.getNodes()) {
+                        List<Node> nodes = rb.getNodes();
+                        for (Node n : nodes.subList(startIndex, nodes.size())) {
                             setCurrentNode(n);
                             if (n == node && preOrPost == Analysis.BeforeOrAfter.BEFORE) {
                                 return store.getRegularStore();
@@ -330,9 +525,11 @@ public class ForwardAnalysisImpl<
     protected void initFields(ControlFlowGraph cfg) {
         thenStores.clear();
         elseStores.clear();
-        if (blockCount != null) {
-            blockCount.clear();
+        if (wideningStrategy != null) {
+            wideningStrategy.initialize(cfg);
         }
+        iterationCount = 0;
+        budgetExceeded = false;
         storesAtReturnStatements.clear();
         super.initFields(cfg);
     }
@@ -353,13 +550,15 @@ public class ForwardAnalysisImpl<
     }
 
     /**
-     * Returns the formal parameters for a method.
+     * Returns the formal parameters for a method. It is static and package-private because {@link
+     * SparseForwardAnalysis} uses it too, so that both analyses represent the parameters by equal
+     * nodes.
      *
      * @param underlyingAST the AST for the method
      * @return the formal parameters for the method
      */
     @SideEffectFree
-    private List<LocalVariableNode> getParameters(UnderlyingAST underlyingAST) {
+    /*package-private*/ static List<LocalVariableNode> getParameters(UnderlyingAST underlyingAST) {
         List<LocalVariableNode> result;
         switch (underlyingAST.getKind()) {
             case METHOD:
@@ -494,18 +693,17 @@ public class ForwardAnalysisImpl<
             Block b, @Nullable Node node, S s, Store.Kind kind, boolean addBlockToWorklist) {
         S thenStore = getStoreBefore(b, Store.Kind.THEN);
         S elseStore = getStoreBefore(b, Store.Kind.ELSE);
-        boolean shouldWiden = false;
-        if (blockCount != null) {
-            Integer count = blockCount.get(b);
-            if (count == null) {
-                count = 0;
-            }
-            shouldWiden = count >= maxCountBeforeWidening;
-            if (shouldWiden) {
-                blockCount.put(b, 0);
-            } else {
-                blockCount.put(b, count + 1);
+        boolean shouldWiden;
+        if (budgetExceeded) {
+            S top = getTopStore(s);
+            if (top != null) {
+                s = top;
             }
+            shouldWiden = true;
+        } else if (wideningStrategy != null) {
+            shouldWiden = wideningStrategy.shouldWiden(b);
+        } else {
+            shouldWiden = false;
         }
         switch (kind) {
             case THEN:
@@ -0,0 +1,319 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.node.Node;
+
+/**
+ * A map from nodes to values, which stores the values of the nodes of each control flow graph in an
+ * array at the {@link Node#getGraphIndex() index} of each node. Looking up a node does not hash it,
+ * and an entry takes two array slots rather than the several slots of an {@link IdentityHashMap}
+ * entry. Nodes that have no index are kept in an {@link IdentityHashMap}.
+ *
+ * <p>Like an {@link IdentityHashMap}, the map compares keys by reference. Its iterators do not
+ * support removal.
+ *
+ * @param <V> the type of values
+ */
+/*package-private*/ class NodeIndexedMap<V> extends AbstractMap<Node, V> {
+
+    /** The entries for the nodes of one control flow graph. */
+    private static class Chunk {
+        /** The keys, by node index. */
+        @Nullable Node[] keys;
+
+        /** The values, by node index. */
+        @Nullable Object[] values;
+
+        /** The number of entries. */
+        int size;
+
+        /**
+         * Creates an empty chunk.
+         *
+         * @param capacity the initial length of the arrays
+         */
+        Chunk(int capacity) {
+            keys = new Node[capacity];
+            values = new Object[capacity];
+            size = 0;
+        }
+
+        /**
+         * Creates a copy of a chunk, without the unused slots at the end of its arrays.
+         *
+         * @param other the chunk to copy
+         */
+        Chunk(Chunk other) {
+            int length = other.keys.length;
+            while (length > 0 && other.keys[length - 1] == null) {
+                length--;
+            }
+            keys = Arrays.copyOf(other.keys, length);
+            values = Arrays.copyOf(other.values, length);
+            size = other.size;
+        }
+    }
+
+    /** The chunks, by {@link Node#getGraphUid() control flow graph}. */
+    private final HashMap<Long, Chunk> chunks = new HashMap<>();
+
+    /** The entries for nodes without an index. */
+    private final IdentityHashMap<Node, V> unindexed = new IdentityHashMap<>();
+
+    /** The number of entries in {@link #chunks}. */
+    private int indexedSize = 0;
+
+    /** The graph of the last chunk that was looked up, or -1. */
+    private long lastGraphUid = -1;
+
+    /** The last chunk that was looked up, or null. */
+    private @Nullable Chunk lastChunk = null;
+
+    /** Creates an empty map. */
+    /*package-private*/ NodeIndexedMap() {}
+
+    /**
+     * Creates a map with the entries of {@code other}.
+     *
+     * @param other the map whose entries to copy
+     */
+    /*package-private*/ NodeIndexedMap(Map<Node, ? extends V> other) {
+        putAll(other);
+    }
+
+    /**
+     * Returns the chunk for the control flow graph of {@code node}, or null if there is none and
+     * {@code create} is false.
+     *
+     * @param node a node with an index
+     * @param create whether to create the chunk if there is none
+     * @return the chunk for the control flow graph of {@code node}, or null
+     */
+    private @Nullable Chunk chunkOf(Node node, boolean create) {
+        long graphUid = node.getGraphUid();
+        if (graphUid == lastGraphUid && lastChunk != null) {
+            return lastChunk;
+        }
+        Chunk chunk = chunks.get(graphUid);
+        if (chunk == null) {
+            if (!create) {
+                return null;
+            }
+            chunk = new Chunk(node.getGraphIndex() + 1);
+            chunks.put(graphUid, chunk);
+        }
+        lastGraphUid = graphUid;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Returns the chunk that contains {@code key}, or null if {@code key} is not an indexed key of
+     * this map.
+     *
+     * @param key a potential key
+     * @return the chunk that contains {@code key}, or null
+     */
+    private @Nullable Chunk chunkContaining(@Nullable Object key) {
+        if (!(key instanceof Node)) {
+            return null;
+        }
+        Node node = (Node) key;
+        int index = node.getGraphIndex();
+        if (index < 0) {
+            return null;
+        }
+        Chunk chunk = chunkOf(node, false);
+        return chunk != null && index < chunk.keys.length && chunk.keys[index] == node
+                ? chunk
+                : null;
+    }
+
+    @Override
+    public int size() {
+        return indexedSize + unindexed.size();
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return chunkContaining(key) != null || unindexed.containsKey(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(@Nullable Object key) {
+        Chunk chunk = chunkContaining(key);
+        if (chunk != null) {
+            return (V) chunk.values[((Node) key).getGraphIndex()];
+        }
+        return unindexed.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(Node key, V value) {
+        int index = key.getGraphIndex();
+        if (index < 0) {
+            return unindexed.put(key, value);
+        }
+        Chunk chunk = chunkOf(key, true);
+        assert chunk != null : "@AssumeAssertion(nullness): created";
+        if (index >= chunk.keys.length) {
+            int newLength = Math.max(index + 1, chunk.keys.length * 2);
+            chunk.keys = Arrays.copyOf(chunk.keys, newLength);
+            chunk.values = Arrays.copyOf(chunk.values, newLength);
+        }
+        if (chunk.keys[index] == null) {
+            chunk.keys[index] = key;
+            chunk.size++;
+            indexedSize++;
+        }
+        V oldValue = (V) chunk.values[index];
+        chunk.values[index] = value;
+        return oldValue;
+    }
+
+    @Override
+    public void putAll(Map<? extends Node, ? extends V> other) {
+        if (!(other instanceof NodeIndexedMap)) {
+            super.putAll(other);
+            return;
+        }
+        NodeIndexedMap<?> otherMap = (NodeIndexedMap<?>) other;
+        for (Map.Entry<Long, Chunk> entry : otherMap.chunks.entrySet()) {
+            Chunk otherChunk = entry.getValue();
+            if (otherChunk.size == 0) {
+                continue;
+            }
+            Chunk chunk = chunks.get(entry.getKey());
+            if (chunk == null) {
+                chunks.put(entry.getKey(), new Chunk(otherChunk));
+                indexedSize += otherChunk.size;
+            } else {
+                for (int i = 0; i < otherChunk.keys.length; i++) {
+                    Node key = otherChunk.keys[i];
+                    if (key != null) {
+                        @SuppressWarnings("unchecked")
+                        V value = (V) otherChunk.values[i];
+                        put(key, value);
+                    }
+                }
+            }
+        }
+        for (Node key : otherMap.unindexed.keySet()) {
+            // Read the value through the typed map, to avoid an unchecked cast.
+            unindexed.put(key, other.get(key));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(@Nullable Object key) {
+        Chunk chunk = chunkContaining(key);
+        if (chunk == null) {
+            return unindexed.remove(key);
+        }
+        Node node = (Node) key;
+        int index = node.getGraphIndex();
+        V oldValue = (V) chunk.values[index];
+        chunk.keys[index] = null;
+        chunk.values[index] = null;
+        chunk.size--;
+        indexedSize--;
+        if (chunk.size == 0) {
+            chunks.remove(node.getGraphUid());
+            lastChunk = null;
+        }
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+        unindexed.clear();
+        indexedSize = 0;
+        lastChunk = null;
+    }
+
+    @Override
+    public Set<Map.Entry<Node, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Node, V>>() {
+            @Override
+            public Iterator<Map.Entry<Node, V>> iterator() {
+                return new Iterator<Map.Entry<Node, V>>() {
+                    /** The chunks that have not been visited yet. */
+                    final Iterator<Chunk> chunkIterator = chunks.values().iterator();
+
+                    /** The entries without an index. */
+                    final Iterator<Map.Entry<Node, V>> unindexedIterator =
+                            unindexed.entrySet().iterator();
+
+                    /** The chunk being visited, or null. */
+                    @Nullable Chunk chunk = null;
+
+                    /** The index of the next entry in {@link #chunk}. */
+                    int next = 0;
+
+                    /**
+                     * Advances {@link #chunk} and {@link #next} to the next indexed entry, if any.
+                     */
+                    void advance() {
+                        while (true) {
+                            if (chunk != null) {
+                                while (next < chunk.keys.length && chunk.keys[next] == null) {
+                                    next++;
+                                }
+                                if (next < chunk.keys.length) {
+                                    return;
+                                }
+                            }
+                            if (!chunkIterator.hasNext()) {
+                                chunk = null;
+                                return;
+                            }
+                            chunk = chunkIterator.next();
+                            next = 0;
+                        }
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        advance();
+                        return chunk != null || unindexedIterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<Node, V> next() {
+                        advance();
+                        if (chunk == null) {
+                            if (!unindexedIterator.hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            return unindexedIterator.next();
+                        }
+                        @SuppressWarnings("nullness:assignment.type.incompatible") // non-null slot
+                        Node key = chunk.keys[next];
+                        @SuppressWarnings("unchecked")
+                        V value = (V) chunk.values[next];
+                        next++;
+                        return new SimpleImmutableEntry<>(key, value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return NodeIndexedMap.this.size();
+            }
+        };
+    }
+}
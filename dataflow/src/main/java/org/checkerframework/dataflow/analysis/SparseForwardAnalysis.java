@@ -0,0 +1,420 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.node.AssignmentNode;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A sparse forward analysis of the local variables of a control flow graph.
+ *
+ * <p>{@link ForwardAnalysisImpl} propagates a whole store through every node of every block and
+ * merges whole stores at every join, so its cost grows with the product of the size of a method and
+ * the number of its variables. This analysis instead computes def-use chains: for each use of a
+ * local variable (a {@link LocalVariableNode} that is not an lvalue), the set of definitions that
+ * reach it. A definition is a formal parameter or an {@link AssignmentNode} whose target is a local
+ * variable. The abstract value of a definition is computed by a {@link SparseTransferFunction} from
+ * the values of the uses in its right-hand side, and the value of a use is the least upper bound of
+ * the values of its reaching definitions, as at a phi node of SSA form. When the value of a
+ * definition changes, only the definitions that use it are recomputed.
+ *
+ * <p>No store exists during the analysis. {@link #getStoreBefore} and {@link #getStoreAfter}
+ * materialize a store from the definitions that reach a node, when they are called.
+ *
+ * <p>The analysis tracks only local variables, and it does not refine values along the branches of
+ * conditionals. Analyses that need either use {@link ForwardAnalysisImpl}.
+ *
+ * @param <V> the abstract value type to be tracked by the analysis
+ * @param <S> the store type that the analysis materializes
+ */
+public class SparseForwardAnalysis<V extends AbstractValue<V>, S extends Store<S>> {
+
+    /** The transfer function. */
+    protected final SparseTransferFunction<V, S> transferFunction;
+
+    /** The control flow graph being analyzed, or null before the analysis is performed. */
+    protected @Nullable ControlFlowGraph cfg;
+
+    /** The definitions: formal parameters ({@link LocalVariableNode}s) and assignments. */
+    private final List<Node> definitions = new ArrayList<>();
+
+    /** The variable defined by each definition. */
+    private final List<Element> definedVariables = new ArrayList<>();
+
+    /** The indexes in {@link #definitions} of the assignments to local variables. */
+    private final IdentityHashMap<AssignmentNode, Integer> assignmentIndexes =
+            new IdentityHashMap<>();
+
+    /** The definitions of each variable, in the order in which the variables were found. */
+    private final Map<Element, BitSet> definitionsOfVariable = new LinkedHashMap<>();
+
+    /** A node for each variable, which represents the variable in materialized stores. */
+    private final Map<Element, LocalVariableNode> variableNodes = new HashMap<>();
+
+    /** The definitions that reach the start of each block. */
+    private final IdentityHashMap<Block, BitSet> reachingBefore = new IdentityHashMap<>();
+
+    /** The definitions that reach each use of a local variable. */
+    private final IdentityHashMap<LocalVariableNode, BitSet> reachingUse = new IdentityHashMap<>();
+
+    /** The abstract value of each definition; null if no information is available. */
+    private final List<@Nullable V> values = new ArrayList<>();
+
+    /** The definitions whose abstract value has been computed. */
+    private final BitSet computed = new BitSet();
+
+    /** For each definition, the assignments whose right-hand sides use it. */
+    private final List<BitSet> dependents = new ArrayList<>();
+
+    /**
+     * Creates a SparseForwardAnalysis.
+     *
+     * @param transferFunction the transfer function
+     */
+    public SparseForwardAnalysis(SparseTransferFunction<V, S> transferFunction) {
+        this.transferFunction = transferFunction;
+    }
+
+    /**
+     * Performs the analysis of {@code cfg}.
+     *
+     * @param cfg the control flow graph
+     */
+    public void performAnalysis(ControlFlowGraph cfg) {
+        this.cfg = cfg;
+        definitions.clear();
+        definedVariables.clear();
+        assignmentIndexes.clear();
+        definitionsOfVariable.clear();
+        variableNodes.clear();
+        reachingBefore.clear();
+        reachingUse.clear();
+        values.clear();
+        computed.clear();
+        dependents.clear();
+
+        Set<Block> blocks = new LinkedHashSet<>(cfg.getDepthFirstOrderedBlocks());
+        collectDefinitions(cfg, blocks);
+        computeReachingDefinitions(cfg, blocks);
+        solve();
+    }
+
+    /**
+     * Collects the formal parameters and the assignments to local variables of {@code cfg}.
+     *
+     * @param cfg the control flow graph
+     * @param blocks the blocks of {@code cfg}
+     */
+    private void collectDefinitions(ControlFlowGraph cfg, Set<Block> blocks) {
+        for (LocalVariableNode parameter :
+                ForwardAnalysisImpl.getParameters(cfg.getUnderlyingAST())) {
+            addDefinition(parameter, parameter);
+        }
+        for (Block b : blocks) {
+            for (Node n : b.getNodes()) {
+                if (n instanceof AssignmentNode
+                        && ((AssignmentNode) n).getTarget() instanceof LocalVariableNode) {
+                    AssignmentNode assignment = (AssignmentNode) n;
+                    assignmentIndexes.put(assignment, definitions.size());
+                    addDefinition(assignment, (LocalVariableNode) assignment.getTarget());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a definition.
+     *
+     * @param definition a formal parameter or an assignment
+     * @param variable the variable defined by {@code definition}
+     */
+    private void addDefinition(Node definition, LocalVariableNode variable) {
+        Element element = variable.getElement();
+        int index = definitions.size();
+        definitions.add(definition);
+        definedVariables.add(element);
+        definitionsOfVariable.computeIfAbsent(element, e -> new BitSet()).set(index);
+        variableNodes.putIfAbsent(element, variable);
+        values.add(null);
+        dependents.add(new BitSet());
+    }
+
+    /**
+     * Computes the definitions that reach the start of each block, and those that reach each use of
+     * a local variable.
+     *
+     * @param cfg the control flow graph
+     * @param blocks the blocks of {@code cfg}
+     */
+    private void computeReachingDefinitions(ControlFlowGraph cfg, Set<Block> blocks) {
+        BitSet parameters = new BitSet();
+        parameters.set(0, definitions.size() - assignmentIndexes.size());
+        reachingBefore.put(cfg.getEntryBlock(), parameters);
+
+        ArrayDeque<Block> worklist = new ArrayDeque<>(blocks);
+        Set<Block> inWorklist = new LinkedHashSet<>(blocks);
+        while (!worklist.isEmpty()) {
+            Block b = worklist.poll();
+            inWorklist.remove(b);
+            BitSet after = (BitSet) reachingBefore.computeIfAbsent(b, k -> new BitSet()).clone();
+            for (Node n : b.getNodes()) {
+                killAndGenerate(after, n);
+            }
+            for (Block succ : b.getSuccessors()) {
+                BitSet before = reachingBefore.computeIfAbsent(succ, k -> new BitSet());
+                BitSet added = (BitSet) after.clone();
+                added.andNot(before);
+                if (!added.isEmpty()) {
+                    before.or(added);
+                    if (inWorklist.add(succ)) {
+                        worklist.add(succ);
+                    }
+                }
+            }
+        }
+
+        for (Block b : blocks) {
+            BitSet reaching = (BitSet) reachingBefore.get(b).clone();
+            for (Node n : b.getNodes()) {
+                if (n instanceof LocalVariableNode && !n.isLValue()) {
+                    reachingUse.put(
+                            (LocalVariableNode) n,
+                            reachingOfVariable(reaching, ((LocalVariableNode) n).getElement()));
+                }
+                killAndGenerate(reaching, n);
+            }
+        }
+    }
+
+    /**
+     * If {@code n} is an assignment to a local variable, replaces the definitions of the variable
+     * in {@code reaching} by {@code n}.
+     *
+     * @param reaching a set of definitions
+     * @param n a node
+     */
+    private void killAndGenerate(BitSet reaching, Node n) {
+        Integer index = n instanceof AssignmentNode ? assignmentIndexes.get(n) : null;
+        if (index != null) {
+            reaching.andNot(definitionsOfVariable.get(definedVariables.get(index)));
+            reaching.set(index);
+        }
+    }
+
+    /**
+     * Returns the definitions of {@code variable} in {@code reaching}.
+     *
+     * @param reaching a set of definitions
+     * @param variable a local variable
+     * @return the definitions of {@code variable} in {@code reaching}
+     */
+    private BitSet reachingOfVariable(BitSet reaching, Element variable) {
+        BitSet result = (BitSet) reaching.clone();
+        BitSet ofVariable = definitionsOfVariable.get(variable);
+        if (ofVariable == null) {
+            result.clear();
+        } else {
+            result.and(ofVariable);
+        }
+        return result;
+    }
+
+    /** Computes the abstract value of every definition. */
+    private void solve() {
+        ArrayDeque<Integer> worklist = new ArrayDeque<>();
+        BitSet inWorklist = new BitSet();
+        for (int i = 0; i < definitions.size(); i++) {
+            Node definition = definitions.get(i);
+            if (definition instanceof LocalVariableNode) {
+                values.set(i, transferFunction.initialValue((LocalVariableNode) definition));
+                computed.set(i);
+            } else {
+                worklist.add(i);
+                inWorklist.set(i);
+            }
+        }
+
+        while (!worklist.isEmpty()) {
+            int index = worklist.poll();
+            inWorklist.clear(index);
+            AssignmentNode assignment = (AssignmentNode) definitions.get(index);
+            V newValue =
+                    transferFunction.valueOfAssignment(assignment, use -> valueOfUse(use, index));
+            V oldValue = values.get(index);
+            if (computed.get(index)) {
+                if (oldValue == null) {
+                    continue;
+                }
+                newValue = newValue == null ? null : oldValue.leastUpperBound(newValue);
+                if (Objects.equals(oldValue, newValue)) {
+                    continue;
+                }
+            }
+            values.set(index, newValue);
+            computed.set(index);
+            BitSet users = dependents.get(index);
+            for (int user = users.nextSetBit(0); user >= 0; user = users.nextSetBit(user + 1)) {
+                if (!inWorklist.get(user)) {
+                    inWorklist.set(user);
+                    worklist.add(user);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the abstract value of {@code use} while the value of the assignment {@code user} is
+     * computed, and records that {@code user} depends on the definitions that reach {@code use}.
+     * Definitions that have not been computed yet are ignored.
+     *
+     * @param use a use of a local variable
+     * @param user the index of the assignment that contains {@code use}
+     * @return the abstract value of {@code use}, or null if no information is available
+     */
+    private @Nullable V valueOfUse(LocalVariableNode use, int user) {
+        BitSet reaching = reachingUse.get(use);
+        if (reaching == null) {
+            throw new BugInCF("%s is not a use of a local variable in %s", use, cfg);
+        }
+        V result = null;
+        for (int d = reaching.nextSetBit(0); d >= 0; d = reaching.nextSetBit(d + 1)) {
+            dependents.get(d).set(user);
+            if (!computed.get(d)) {
+                continue;
+            }
+            V value = values.get(d);
+            if (value == null) {
+                return null;
+            }
+            result = result == null ? value : result.leastUpperBound(value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the abstract value of a use of a local variable, or {@code null} if no information is
+     * available.
+     *
+     * @param use a use of a local variable
+     * @return the abstract value of {@code use}, or {@code null}
+     */
+    public @Nullable V getValue(LocalVariableNode use) {
+        BitSet reaching = reachingUse.get(use);
+        return reaching == null ? null : lubOfDefinitions(reaching);
+    }
+
+    /**
+     * Returns the store immediately before {@code node}.
+     *
+     * @param node a node of the control flow graph
+     * @return the store immediately before {@code node}
+     */
+    public S getStoreBefore(Node node) {
+        return materialize(reachingAt(node, false));
+    }
+
+    /**
+     * Returns the store immediately after {@code node}.
+     *
+     * @param node a node of the control flow graph
+     * @return the store immediately after {@code node}
+     */
+    public S getStoreAfter(Node node) {
+        return materialize(reachingAt(node, true));
+    }
+
+    /**
+     * Returns the store at the regular exit of the method, or {@code null} if the method cannot
+     * exit regularly.
+     *
+     * @return the store at the regular exit of the method, or {@code null}
+     */
+    public @Nullable S getRegularExitStore() {
+        if (cfg == null) {
+            return null;
+        }
+        BitSet reaching = reachingBefore.get(cfg.getRegularExitBlock());
+        return reaching == null ? null : materialize(reaching);
+    }
+
+    /**
+     * Returns the definitions that reach the program point immediately before or after {@code
+     * node}.
+     *
+     * @param node a node of the control flow graph
+     * @param after whether to return the definitions after {@code node}
+     * @return the definitions that reach the program point before or after {@code node}
+     */
+    private BitSet reachingAt(Node node, boolean after) {
+        Block b = node.getBlock();
+        BitSet before = b == null ? null : reachingBefore.get(b);
+        if (before == null) {
+            throw new BugInCF("%s is not a node of %s", node, cfg);
+        }
+        BitSet reaching = (BitSet) before.clone();
+        for (Node n : b.getNodes()) {
+            if (n == node && !after) {
+                break;
+            }
+            killAndGenerate(reaching, n);
+            if (n == node) {
+                break;
+            }
+        }
+        return reaching;
+    }
+
+    /**
+     * Returns a store that contains, for each local variable, the least upper bound of the values
+     * of its definitions in {@code reaching}.
+     *
+     * @param reaching a set of definitions
+     * @return a store for the definitions in {@code reaching}
+     */
+    private S materialize(BitSet reaching) {
+        Map<LocalVariableNode, V> storeValues = new LinkedHashMap<>();
+        for (Map.Entry<Element, BitSet> e : definitionsOfVariable.entrySet()) {
+            BitSet reachingOfVariable = (BitSet) reaching.clone();
+            reachingOfVariable.and(e.getValue());
+            V value = lubOfDefinitions(reachingOfVariable);
+            if (value != null) {
+                storeValues.put(variableNodes.get(e.getKey()), value);
+            }
+        }
+        return transferFunction.createStore(storeValues);
+    }
+
+    /**
+     * Returns the least upper bound of the values of the given definitions, or {@code null} if the
+     * set is empty or no information is available for one of them.
+     *
+     * @param reaching a set of definitions
+     * @return the least upper bound of the values of {@code reaching}, or {@code null}
+     */
+    private @Nullable V lubOfDefinitions(BitSet reaching) {
+        V result = null;
+        for (int d = reaching.nextSetBit(0); d >= 0; d = reaching.nextSetBit(d + 1)) {
+            V value = values.get(d);
+            if (value == null) {
+                return null;
+            }
+            result = result == null ? value : result.leastUpperBound(value);
+        }
+        return result;
+    }
+}
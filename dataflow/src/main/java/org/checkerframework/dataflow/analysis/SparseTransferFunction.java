@@ -0,0 +1,49 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.util.Map;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.node.AssignmentNode;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
+
+/**
+ * The transfer function of a {@link SparseForwardAnalysis}. Unlike a {@link
+ * ForwardTransferFunction}, it does not transform stores: it computes the abstract value of each
+ * definition of a local variable from the abstract values of the local variables that the
+ * definition uses.
+ *
+ * @param <V> the abstract value type to be tracked by the analysis
+ * @param <S> the store type that the analysis materializes
+ */
+public interface SparseTransferFunction<V extends AbstractValue<V>, S extends Store<S>> {
+
+    /**
+     * Returns the abstract value of a formal parameter on entry to the method, or {@code null} if
+     * no information is available.
+     *
+     * @param parameter a formal parameter
+     * @return the abstract value of {@code parameter} on entry, or {@code null}
+     */
+    @Nullable V initialValue(LocalVariableNode parameter);
+
+    /**
+     * Returns the abstract value that {@code assignment} assigns to its target, which is a local
+     * variable, or {@code null} if no information is available.
+     *
+     * @param assignment an assignment to a local variable
+     * @param values returns the abstract value of a use of a local variable within {@code
+     *     assignment}, or {@code null} if no information is available
+     * @return the abstract value that {@code assignment} assigns, or {@code null}
+     */
+    @Nullable V valueOfAssignment(
+            AssignmentNode assignment, Function<LocalVariableNode, @Nullable V> values);
+
+    /**
+     * Returns a store that contains exactly the given abstract values of local variables.
+     *
+     * @param values the abstract values of local variables; variables without information are
+     *     absent
+     * @return a store that contains {@code values}
+     */
+    S createStore(Map<LocalVariableNode, V> values);
+}
@@ -0,0 +1,77 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.util.BitSet;
+import java.util.List;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A {@link WideningStrategy} that widens the store before a block once stores have flowed into the
+ * block a given number of times since it was last widened. Optionally, only loop heads are widened:
+ * blocks that are the target of a back edge, that is, of an edge to a block that does not come
+ * later in reverse postorder. Widening at loop heads suffices for the analysis to converge, and
+ * joins rather than widens the stores of all other blocks.
+ */
+public class ThresholdWideningStrategy implements WideningStrategy {
+
+    /** The number of times a store can flow into a block before the block is widened. */
+    protected final int threshold;
+
+    /** Whether only loop heads are widened. */
+    protected final boolean loopHeadsOnly;
+
+    /**
+     * The number of times a store has flowed into each block since the block was last widened,
+     * indexed by {@link Block#getIndex}.
+     */
+    protected int[] counts = new int[0];
+
+    /** The indexes of the loop heads, if {@link #loopHeadsOnly} is true. */
+    protected final BitSet loopHeads = new BitSet();
+
+    /**
+     * Creates a ThresholdWideningStrategy.
+     *
+     * @param threshold the number of times a store can flow into a block before the block is
+     *     widened
+     * @param loopHeadsOnly whether only loop heads are widened
+     */
+    public ThresholdWideningStrategy(int threshold, boolean loopHeadsOnly) {
+        if (threshold < 0) {
+            throw new BugInCF("Negative widening threshold: " + threshold);
+        }
+        this.threshold = threshold;
+        this.loopHeadsOnly = loopHeadsOnly;
+    }
+
+    @Override
+    public void initialize(ControlFlowGraph cfg) {
+        List<Block> blocks = cfg.getIndexedBlocks();
+        counts = new int[blocks.size()];
+        loopHeads.clear();
+        if (loopHeadsOnly) {
+            for (Block block : blocks) {
+                for (Block succ : block.getSuccessors()) {
+                    if (succ.getIndex() <= block.getIndex()) {
+                        loopHeads.set(succ.getIndex());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean shouldWiden(Block block) {
+        int index = block.getIndex();
+        if (loopHeadsOnly && !loopHeads.get(index)) {
+            return false;
+        }
+        if (counts[index] >= threshold) {
+            counts[index] = 0;
+            return true;
+        }
+        counts[index]++;
+        return false;
+    }
+}
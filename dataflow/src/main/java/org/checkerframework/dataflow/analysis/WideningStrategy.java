@@ -0,0 +1,31 @@
+package org.checkerframework.dataflow.analysis;
+
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+
+/**
+ * Decides when a {@link ForwardAnalysisImpl} widens, rather than joins, the stores that flow into a
+ * basic block. Widening makes the analysis of loops converge faster, at the cost of precision.
+ *
+ * @see ThresholdWideningStrategy
+ * @see ForwardAnalysisImpl#setWideningStrategy
+ */
+public interface WideningStrategy {
+
+    /**
+     * Prepares this strategy for the analysis of a control flow graph. Called before any call to
+     * {@link #shouldWiden} for the blocks of {@code cfg}.
+     *
+     * @param cfg the control flow graph that is about to be analyzed
+     */
+    void initialize(ControlFlowGraph cfg);
+
+    /**
+     * Returns true if the store that flows into {@code block} should be widened with the store that
+     * is already there. Called each time a store flows into {@code block}.
+     *
+     * @param block a block of the control flow graph passed to {@link #initialize}
+     * @return true if the analysis should widen the store before {@code block}
+     */
+    boolean shouldWiden(Block block);
+}
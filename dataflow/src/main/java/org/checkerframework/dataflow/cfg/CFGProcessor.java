@@ -77,7 +77,7 @@ public class CFGProcessor extends BasicTypeProcessor {
             } else {
                 ControlFlowGraph cfg =
                         CFGBuilder.build(rootTree, methodTree, classTree, processingEnv);
-                result = new CFGProcessResult(cfg);
+                result = new CFGProcessResult(cfg, rootTree);
             }
         }
         super.typeProcessingOver();
@@ -122,6 +122,8 @@ public class CFGProcessor extends BasicTypeProcessor {
     public static class CFGProcessResult {
         /** Control flow graph. */
         private final @Nullable ControlFlowGraph controlFlowGraph;
+        /** The compilation unit that contains the code of the control flow graph. */
+        private final @Nullable CompilationUnitTree root;
         /** Did the CFG process succeed? */
         private final boolean isSuccess;
         /** Error message (when the CFG process failed). */
@@ -131,9 +133,10 @@ public class CFGProcessor extends BasicTypeProcessor {
          * Create the result of the CFG process. Only called if the CFG was built successfully.
          *
          * @param cfg control flow graph
+         * @param root the compilation unit that contains the code of the control flow graph
          */
-        CFGProcessResult(final ControlFlowGraph cfg) {
-            this(cfg, true, null);
+        CFGProcessResult(final ControlFlowGraph cfg, final CompilationUnitTree root) {
+            this(cfg, root, true, null);
         }
 
         /**
@@ -142,19 +145,24 @@ public class CFGProcessor extends BasicTypeProcessor {
          * @param errMsg the error message
          */
         CFGProcessResult(final String errMsg) {
-            this(null, false, errMsg);
+            this(null, null, false, errMsg);
         }
 
         /**
          * Create the result of CFG process.
          *
          * @param cfg the control flow graph
+         * @param root the compilation unit that contains the code of the control flow graph
          * @param isSuccess did the CFG process succeed?
          * @param errMsg error message (when the CFG process failed)
          */
         private CFGProcessResult(
-                @Nullable ControlFlowGraph cfg, boolean isSuccess, @Nullable String errMsg) {
+                @Nullable ControlFlowGraph cfg,
+                @Nullable CompilationUnitTree root,
+                boolean isSuccess,
+                @Nullable String errMsg) {
             this.controlFlowGraph = cfg;
+            this.root = root;
             this.isSuccess = isSuccess;
             this.errMsg = errMsg;
         }
@@ -173,6 +181,11 @@ public class CFGProcessor extends BasicTypeProcessor {
             return controlFlowGraph;
         }
 
+        /** Get the compilation unit that contains the code of the control flow graph. */
+        public @Nullable CompilationUnitTree getRoot() {
+            return root;
+        }
+
         /** Get the error message. */
         public @Nullable String getErrMsg() {
             return errMsg;
@@ -23,6 +23,7 @@ import org.checkerframework.checker.initialization.qual.UnknownInitialization;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.AnalysisResult;
 import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.BlockImpl;
 import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
 import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
 import org.checkerframework.dataflow.cfg.block.RegularBlock;
@@ -108,6 +109,12 @@ public class ControlFlowGraph implements UniqueId {
      */
     protected final List<LambdaExpressionTree> declaredLambdas;
 
+    /**
+     * The reachable blocks in reverse depth-first postorder, where each block is at its {@link
+     * Block#getIndex() index}; null until {@link #getIndexedBlocks} is first called.
+     */
+    private @Nullable List<Block> indexedBlocks;
+
     public ControlFlowGraph(
             SpecialBlock entryBlock,
             SpecialBlockImpl regularExitBlock,
@@ -254,6 +261,42 @@ public class ControlFlowGraph implements UniqueId {
         return dfsOrderResult;
     }
 
+    /**
+     * Returns all basic blocks in this control flow graph, in reversed depth-first postorder, each
+     * exactly once. The {@link Block#getIndex() index} of each block is its position in the list,
+     * so analyses can store information about blocks in arrays. Likewise, the nodes of the blocks
+     * are numbered consecutively in this order; see {@link Node#getGraphIndex}.
+     *
+     * <p>The blocks are numbered when this method is first called, so it must not be called before
+     * the control flow graph is complete. The order is the order of the last occurrence of each
+     * block in {@link #getDepthFirstOrderedBlocks}.
+     *
+     * @return the list of all basic blocks in this control flow graph in reversed depth-first
+     *     postorder, indexed by {@link Block#getIndex}
+     */
+    public List<Block> getIndexedBlocks() {
+        if (indexedBlocks == null) {
+            List<Block> blocks = getDepthFirstOrderedBlocks();
+            Set<Block> seen = new HashSet<>();
+            List<Block> result = new ArrayList<>(blocks.size());
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                if (seen.add(blocks.get(i))) {
+                    result.add(blocks.get(i));
+                }
+            }
+            Collections.reverse(result);
+            int nodeIndex = 0;
+            for (int i = 0; i < result.size(); i++) {
+                ((BlockImpl) result.get(i)).setIndex(i);
+                for (Node n : result.get(i).getNodes()) {
+                    n.setGraphIndex(uid, nodeIndex++);
+                }
+            }
+            indexedBlocks = Collections.unmodifiableList(result);
+        }
+        return indexedBlocks;
+    }
+
     /**
      * Returns the copied tree-lookup map. Ignores convertedTreeLookup, though {@link
      * #getNodesCorrespondingToTree} uses that field.
@@ -67,4 +67,15 @@ public interface Block extends UniqueId {
      * @return the last node of this block or {@code null}
      */
     @Nullable Node getLastNode();
+
+    /**
+     * Returns the index of this block in the reverse depth-first postorder of the blocks of its
+     * control flow graph, or -1 if the blocks have not been numbered yet. The indexes of the blocks
+     * of a control flow graph are {@code 0} to {@code n-1}, where {@code n} is the number of
+     * reachable blocks.
+     *
+     * @return the index of this block in its control flow graph, or -1
+     * @see org.checkerframework.dataflow.cfg.ControlFlowGraph#getIndexedBlocks()
+     */
+    int getIndex();
 }
@@ -28,6 +28,9 @@ public abstract class BlockImpl implements Block {
         return uid;
     }
 
+    /** The index of this block in its control flow graph, or -1 if not numbered yet. */
+    private int index = -1;
+
     /**
      * Create a new BlockImpl.
      *
@@ -50,6 +53,21 @@ public abstract class BlockImpl implements Block {
         return new LinkedHashSet<>(predecessors);
     }
 
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Set the index of this block in its control flow graph.
+     *
+     * @param index the index of this block
+     * @see org.checkerframework.dataflow.cfg.ControlFlowGraph#getIndexedBlocks()
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     public void addPredecessor(BlockImpl pred) {
         predecessors.add(pred);
     }
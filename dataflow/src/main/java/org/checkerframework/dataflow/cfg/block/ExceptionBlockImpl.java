@@ -17,8 +17,14 @@ public class ExceptionBlockImpl extends SingleSuccessorBlockImpl implements Exce
     /** The node of this block. */
     protected @Nullable Node node;
 
-    /** Set of exceptional successors. */
-    protected final Map<TypeMirror, Set<Block>> exceptionalSuccessors;
+    /**
+     * Set of exceptional successors. Once {@link #shareExceptionalSuccessors} has been called, it
+     * is an unmodifiable map that other exception blocks may share.
+     */
+    protected Map<TypeMirror, Set<Block>> exceptionalSuccessors;
+
+    /** True if {@link #exceptionalSuccessors} may be shared with other exception blocks. */
+    private boolean exceptionalSuccessorsShared = false;
 
     /** Create an empty exceptional block. */
     public ExceptionBlockImpl() {
@@ -62,6 +68,9 @@ public class ExceptionBlockImpl extends SingleSuccessorBlockImpl implements Exce
      * @param cause the exception type that leads to the given block
      */
     public void addExceptionalSuccessor(BlockImpl b, TypeMirror cause) {
+        if (exceptionalSuccessorsShared) {
+            throw new BugInCF("Added an exceptional successor to " + this + " after sharing");
+        }
         Set<Block> blocks = exceptionalSuccessors.get(cause);
         if (blocks == null) {
             blocks = new LinkedHashSet<>();
@@ -71,6 +80,28 @@ public class ExceptionBlockImpl extends SingleSuccessorBlockImpl implements Exce
         b.addPredecessor(this);
     }
 
+    /**
+     * Replaces the exceptional successors of this block by {@code exceptionalSuccessors}, which
+     * must be equal to them and unmodifiable. Exception blocks with the same exceptional successors
+     * can thus share one map. Afterwards, no exceptional successors can be added to this block.
+     *
+     * @param exceptionalSuccessors an unmodifiable map that is equal to the exceptional successors
+     *     of this block
+     */
+    public void shareExceptionalSuccessors(Map<TypeMirror, Set<Block>> exceptionalSuccessors) {
+        if (!this.exceptionalSuccessors.equals(exceptionalSuccessors)) {
+            throw new BugInCF(
+                    "Exceptional successors of "
+                            + this
+                            + " differ from shared ones: "
+                            + this.exceptionalSuccessors
+                            + ", "
+                            + exceptionalSuccessors);
+        }
+        this.exceptionalSuccessors = exceptionalSuccessors;
+        exceptionalSuccessorsShared = true;
+    }
+
     @Override
     public Map<TypeMirror, Set<Block>> getExceptionalSuccessors() {
         if (exceptionalSuccessors == null) {
@@ -43,6 +43,13 @@ import org.checkerframework.javacutil.trees.TreeBuilder;
  *       same block as both 'then' and 'else' successor. This phase removes these cases while
  *       preserving the control flow structure.
  * </ol>
+ *
+ * <p>The builder performs phases two and three together, in {@link CFGTranslationPhaseTwoAndThree},
+ * which does not create the degenerate blocks in the first place. {@link CFGTranslationPhaseTwo}
+ * and {@link CFGTranslationPhaseThree} remain as the reference for the result of the two phases:
+ * the cfgEquivalenceTest Gradle task checks that both build equivalent control flow graphs. The
+ * combined phase numbers the blocks in a different order, and it merges some chains of regular
+ * blocks that phase three leaves apart.
  */
 public abstract class CFGBuilder {
 
@@ -72,9 +79,7 @@ public abstract class CFGBuilder {
                                 assumeAssertionsDisabled,
                                 env)
                         .process(root, underlyingAST);
-        ControlFlowGraph phase2result = CFGTranslationPhaseTwo.process(phase1result);
-        ControlFlowGraph phase3result = CFGTranslationPhaseThree.process(phase2result);
-        return phase3result;
+        return CFGTranslationPhaseTwoAndThree.process(phase1result);
     }
 
     /**
@@ -97,9 +102,7 @@ public abstract class CFGBuilder {
                                 assumeAssertionsDisabled,
                                 env)
                         .process(bodyPath, underlyingAST);
-        ControlFlowGraph phase2result = CFGTranslationPhaseTwo.process(phase1result);
-        ControlFlowGraph phase3result = CFGTranslationPhaseThree.process(phase2result);
-        return phase3result;
+        return CFGTranslationPhaseTwoAndThree.process(phase1result);
     }
 
     /** Build the control flow graph of some code. */
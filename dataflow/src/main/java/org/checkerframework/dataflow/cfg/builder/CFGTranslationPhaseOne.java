@@ -68,6 +68,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -91,6 +92,7 @@ import org.checkerframework.checker.interning.qual.FindDistinct;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.Store.FlowRule;
 import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.builder.ExtendedNode.ExtendedNodeType;
 import org.checkerframework.dataflow.cfg.node.ArrayAccessNode;
 import org.checkerframework.dataflow.cfg.node.ArrayCreationNode;
 import org.checkerframework.dataflow.cfg.node.ArrayTypeNode;
@@ -210,6 +212,21 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
     /** Can assertions be assumed to be enabled? */
     final boolean assumeAssertionsEnabled;
 
+    /**
+     * Should the edges for unchecked exceptions that only lead to the exceptional exit be omitted?
+     *
+     * @see #removeUncaughtUncheckedExceptions()
+     */
+    final boolean ignoreUncaughtUncheckedExceptions;
+
+    /**
+     * Should each finally block be translated only once, rather than once for each way of leaving
+     * its try statement?
+     *
+     * @see #addSharedFinallyBlock
+     */
+    final boolean shareFinallyBlocks;
+
     /* --------------------------------------------------------- */
     /* Extended Node Types and Labels */
     /* --------------------------------------------------------- */
@@ -312,6 +329,12 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
     /** The NullPointerException type . */
     final TypeMirror nullPointerExceptionType;
 
+    /** The RuntimeException type. */
+    final TypeMirror runtimeExceptionType;
+
+    /** The Error type. */
+    final TypeMirror errorType;
+
     /** The String type. */
     final TypeMirror stringType;
 
@@ -331,6 +354,60 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
             boolean assumeAssertionsEnabled,
             boolean assumeAssertionsDisabled,
             ProcessingEnvironment env) {
+        this(
+                treeBuilder,
+                annotationProvider,
+                assumeAssertionsEnabled,
+                assumeAssertionsDisabled,
+                false,
+                env);
+    }
+
+    /**
+     * @param treeBuilder builder for new AST nodes
+     * @param annotationProvider extracts annotations from AST nodes
+     * @param assumeAssertionsDisabled can assertions be assumed to be disabled?
+     * @param assumeAssertionsEnabled can assertions be assumed to be enabled?
+     * @param ignoreUncaughtUncheckedExceptions should the edges for unchecked exceptions that only
+     *     lead to the exceptional exit be omitted?
+     * @param env annotation processing environment containing type utilities
+     */
+    public CFGTranslationPhaseOne(
+            TreeBuilder treeBuilder,
+            AnnotationProvider annotationProvider,
+            boolean assumeAssertionsEnabled,
+            boolean assumeAssertionsDisabled,
+            boolean ignoreUncaughtUncheckedExceptions,
+            ProcessingEnvironment env) {
+        this(
+                treeBuilder,
+                annotationProvider,
+                assumeAssertionsEnabled,
+                assumeAssertionsDisabled,
+                ignoreUncaughtUncheckedExceptions,
+                false,
+                env);
+    }
+
+    /**
+     * @param treeBuilder builder for new AST nodes
+     * @param annotationProvider extracts annotations from AST nodes
+     * @param assumeAssertionsDisabled can assertions be assumed to be disabled?
+     * @param assumeAssertionsEnabled can assertions be assumed to be enabled?
+     * @param ignoreUncaughtUncheckedExceptions should the edges for unchecked exceptions that only
+     *     lead to the exceptional exit be omitted?
+     * @param shareFinallyBlocks should each finally block be translated only once, rather than once
+     *     for each way of leaving its try statement?
+     * @param env annotation processing environment containing type utilities
+     */
+    public CFGTranslationPhaseOne(
+            TreeBuilder treeBuilder,
+            AnnotationProvider annotationProvider,
+            boolean assumeAssertionsEnabled,
+            boolean assumeAssertionsDisabled,
+            boolean ignoreUncaughtUncheckedExceptions,
+            boolean shareFinallyBlocks,
+            ProcessingEnvironment env) {
         this.env = env;
         this.treeBuilder = treeBuilder;
         this.annotationProvider = annotationProvider;
@@ -338,6 +415,8 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
         assert !(assumeAssertionsDisabled && assumeAssertionsEnabled);
         this.assumeAssertionsEnabled = assumeAssertionsEnabled;
         this.assumeAssertionsDisabled = assumeAssertionsDisabled;
+        this.ignoreUncaughtUncheckedExceptions = ignoreUncaughtUncheckedExceptions;
+        this.shareFinallyBlocks = shareFinallyBlocks;
 
         elements = env.getElementUtils();
         types = env.getTypeUtils();
@@ -367,6 +446,8 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
         classCastExceptionType = getTypeMirror(ClassCastException.class);
         iterableType = types.erasure(getTypeMirror(Iterable.class));
         nullPointerExceptionType = getTypeMirror(NullPointerException.class);
+        runtimeExceptionType = getTypeMirror(RuntimeException.class);
+        errorType = getTypeMirror(Error.class);
         stringType = getTypeMirror(String.class);
         throwableType = getTypeMirror(Throwable.class);
     }
@@ -405,6 +486,10 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
         // removed in a later phase.
         nodeList.add(new UnconditionalJump(regularExitLabel));
 
+        if (ignoreUncaughtUncheckedExceptions) {
+            removeUncaughtUncheckedExceptions();
+        }
+
         return new PhaseOneResult(
                 underlyingAST,
                 treeLookupMap,
@@ -427,6 +512,74 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
         return process(bodyPath, underlyingAST);
     }
 
+    /**
+     * Removes the exceptions of the extended nodes that are unchecked and that no enclosing try
+     * statement catches or handles in a finally block, so that their only successor is the
+     * exceptional exit. Most method invocations and field accesses only have such exceptions; they
+     * then become plain nodes, which do not end a basic block. Extended nodes that terminate the
+     * execution, such as throw statements, keep all their exceptions.
+     *
+     * <p>The exceptional exit store of the resulting control flow graph does not account for the
+     * removed exceptions.
+     */
+    protected void removeUncaughtUncheckedExceptions() {
+        for (int i = 0; i < nodeList.size(); i++) {
+            ExtendedNode extendedNode = nodeList.get(i);
+            if (extendedNode.getType() != ExtendedNodeType.EXCEPTION_NODE
+                    || extendedNode.getTerminatesExecution()) {
+                continue;
+            }
+            Node node = extendedNode.getNode();
+            Map<TypeMirror, Set<Label>> exceptions =
+                    ((NodeWithExceptionsHolder) extendedNode).getExceptions();
+            Iterator<Map.Entry<TypeMirror, Set<Label>>> iter = exceptions.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<TypeMirror, Set<Label>> entry = iter.next();
+                Set<Label> labels = entry.getValue();
+                if (labels.size() == 1
+                        && labels.contains(exceptionalExitLabel)
+                        && isUncheckedException(entry.getKey(), node)) {
+                    iter.remove();
+                }
+            }
+            if (exceptions.isEmpty()) {
+                // The index of the extended node does not change, so bindings and leaders remain
+                // valid.
+                nodeList.set(i, new NodeHolder(node));
+            }
+        }
+    }
+
+    /**
+     * Returns true if {@code cause} is an unchecked exception of {@code node}. Throwable is the
+     * cause that stands for the unchecked exceptions of a method or constructor invocation, unless
+     * the invoked method or constructor declares that it throws Throwable.
+     *
+     * @param cause an exception that {@code node} might throw
+     * @param node a node
+     * @return true if {@code cause} is an unchecked exception of {@code node}
+     */
+    private boolean isUncheckedException(TypeMirror cause, Node node) {
+        if (types.isSameType(cause, throwableType)) {
+            Tree tree = node.getTree();
+            ExecutableElement invoked = null;
+            if (tree instanceof MethodInvocationTree) {
+                invoked = TreeUtils.elementFromUse((MethodInvocationTree) tree);
+            } else if (tree instanceof NewClassTree) {
+                invoked = TreeUtils.elementFromUse((NewClassTree) tree);
+            }
+            if (invoked != null) {
+                for (TypeMirror thrown : invoked.getThrownTypes()) {
+                    if (types.isSameType(thrown, throwableType)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return types.isSubtype(cause, runtimeExceptionType) || types.isSubtype(cause, errorType);
+    }
+
     /**
      * Perform any actions required when CFG translation creates a new Tree that is not part of the
      * original AST.
@@ -1307,11 +1460,7 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
         ExtendedNode extendedNode = extendWithNodeWithExceptions(node, thrownSet);
 
         /* Check for the TerminatesExecution annotation. */
-        Element methodElement = TreeUtils.elementFromTree(tree);
-        boolean terminatesExecution =
-                annotationProvider.getDeclAnnotation(methodElement, TerminatesExecution.class)
-                        != null;
-        if (terminatesExecution) {
+        if (terminatesExecution(method)) {
             extendedNode.setTerminatesExecution(true);
         }
 
@@ -1358,6 +1507,17 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
         return null;
     }
 
+    /**
+     * Returns true if {@code method} is annotated with {@link TerminatesExecution}, according to
+     * the {@link #annotationProvider}.
+     *
+     * @param method a method that is invoked by the code whose control flow graph is built
+     * @return true if {@code method} is annotated with {@link TerminatesExecution}
+     */
+    protected boolean terminatesExecution(ExecutableElement method) {
+        return annotationProvider.getDeclAnnotation(method, TerminatesExecution.class) != null;
+    }
+
     /**
      * Should assertions be assumed to be executed for a given {@link AssertTree}? False by default.
      */
@@ -3112,7 +3272,19 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
                     new UnconditionalJump(CFGBuilder.firstNonNull(finallyLabel, doneLabel)));
         }
 
-        if (finallyLabel != null) {
+        if (finallyLabel != null && shareFinallyBlocks) {
+            tryStack.popFrame();
+            addSharedFinallyBlock(
+                    tree,
+                    finallyLabel,
+                    exceptionalFinallyLabel,
+                    doneLabel,
+                    oldReturnTargetL,
+                    oldBreakTargetL,
+                    oldBreakLabels,
+                    oldContinueTargetL,
+                    oldContinueLabels);
+        } else if (finallyLabel != null) {
             // Reset values before analyzing the finally block!
 
             tryStack.popFrame();
@@ -3291,6 +3463,133 @@ public class CFGTranslationPhaseOne extends TreePathScanner<Node, Void> {
         return null;
     }
 
+    /**
+     * Translates the finally block of {@code tree} once for all ways of leaving the try statement,
+     * rather than once for each of them. The try block and the catch blocks must have been
+     * translated already, and the frame of the finally block must have been popped from {@link
+     * #tryStack}.
+     *
+     * <p>Every label that leads to the finally block is bound to the start of the single copy. The
+     * copy ends with a continuation selector: a chain of conditional jumps without a condition that
+     * leads to each continuation that was used, namely the code after the try statement, the
+     * enclosing return, break, and continue targets, and a node that rethrows the exceptions that
+     * entered the finally block. The stores of all paths into the finally block are joined at its
+     * start, and each continuation receives the store at its end. This keeps the control flow graph
+     * linear in the size of the code, even for nested finally blocks, but the stores after the
+     * finally block do not distinguish the ways in which it was entered.
+     *
+     * @param tree the try statement
+     * @param finallyLabel the label for leaving the try and catch blocks normally
+     * @param exceptionalFinallyLabel the label for leaving the try and catch blocks with an
+     *     exception
+     * @param doneLabel the label of the code after the try statement
+     * @param oldReturnTargetL the return target of the enclosing code
+     * @param oldBreakTargetL the unlabeled break target of the enclosing code
+     * @param oldBreakLabels the labeled break targets of the enclosing code
+     * @param oldContinueTargetL the unlabeled continue target of the enclosing code
+     * @param oldContinueLabels the labeled continue targets of the enclosing code
+     */
+    private void addSharedFinallyBlock(
+            TryTree tree,
+            Label finallyLabel,
+            Label exceptionalFinallyLabel,
+            Label doneLabel,
+            TryFinallyScopeCell oldReturnTargetL,
+            TryFinallyScopeCell oldBreakTargetL,
+            Map<Name, Label> oldBreakLabels,
+            TryFinallyScopeCell oldContinueTargetL,
+            Map<Name, Label> oldContinueLabels) {
+        BlockTree finallyBlock = tree.getFinallyBlock();
+        assert finallyBlock != null : "@AssumeAssertion(nullness): checked by the caller";
+
+        // The continuations, in the order of the selector.
+        List<Label> continuations = new ArrayList<>();
+        continuations.add(doneLabel);
+
+        addLabelForNextNode(finallyLabel);
+        Label rethrowLabel = null;
+        if (hasExceptionalPath(exceptionalFinallyLabel)) {
+            addLabelForNextNode(exceptionalFinallyLabel);
+            rethrowLabel = new Label();
+        }
+
+        // Jumps within the finally block leave the try statement, so restore the enclosing targets
+        // before scanning it.
+        if (returnTargetL.wasAccessed()) {
+            addLabelForNextNode(returnTargetL.peekLabel());
+            continuations.add(oldReturnTargetL.accessLabel());
+        }
+        returnTargetL = oldReturnTargetL;
+
+        if (breakTargetL.wasAccessed()) {
+            addLabelForNextNode(breakTargetL.peekLabel());
+            continuations.add(oldBreakTargetL.accessLabel());
+        }
+        breakTargetL = oldBreakTargetL;
+
+        for (Map.Entry<Name, Label> access :
+                ((TryFinallyScopeMap) breakLabels).getAccessedNames().entrySet()) {
+            addLabelForNextNode(access.getValue());
+            continuations.add(oldBreakLabels.get(access.getKey()));
+        }
+        breakLabels = oldBreakLabels;
+
+        if (continueTargetL.wasAccessed()) {
+            addLabelForNextNode(continueTargetL.peekLabel());
+            continuations.add(oldContinueTargetL.accessLabel());
+        }
+        continueTargetL = oldContinueTargetL;
+
+        for (Map.Entry<Name, Label> access :
+                ((TryFinallyScopeMap) continueLabels).getAccessedNames().entrySet()) {
+            addLabelForNextNode(access.getValue());
+            continuations.add(oldContinueLabels.get(access.getKey()));
+        }
+        continueLabels = oldContinueLabels;
+
+        if (rethrowLabel != null) {
+            continuations.add(rethrowLabel);
+        }
+
+        extendWithNode(
+                new MarkerNode(
+                        tree,
+                        "start of shared finally block #" + TreeUtils.treeUids.get(tree),
+                        env.getTypeUtils()));
+        scan(finallyBlock, null);
+        extendWithNode(
+                new MarkerNode(
+                        tree,
+                        "end of shared finally block #" + TreeUtils.treeUids.get(tree),
+                        env.getTypeUtils()));
+
+        // The continuation selector. Each branch leads to an unconditional jump, because only
+        // those can target the special labels of the exits.
+        int last = continuations.size() - 1;
+        for (int i = 0; i < last; i++) {
+            Label branch = new Label();
+            Label next = new Label();
+            extendWithExtendedNode(new ConditionalJump(branch, next));
+            addLabelForNextNode(branch);
+            extendWithExtendedNode(new UnconditionalJump(continuations.get(i)));
+            addLabelForNextNode(next);
+        }
+        extendWithExtendedNode(new UnconditionalJump(continuations.get(last)));
+
+        if (rethrowLabel != null) {
+            addLabelForNextNode(rethrowLabel);
+            NodeWithExceptionsHolder throwing =
+                    extendWithNodeWithException(
+                            new MarkerNode(
+                                    tree,
+                                    "rethrow after shared finally block #"
+                                            + TreeUtils.treeUids.get(tree),
+                                    env.getTypeUtils()),
+                            throwableType);
+            throwing.setTerminatesExecution(true);
+        }
+    }
+
     /**
      * Returns whether an exceptional node for {@code target} exists in {@link #nodeList} or not.
      *
@@ -0,0 +1,426 @@
+package org.checkerframework.dataflow.cfg.builder;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.type.TypeMirror;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.analysis.Store.FlowRule;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.Block.BlockType;
+import org.checkerframework.dataflow.cfg.block.BlockImpl;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlockImpl;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlockImpl;
+import org.checkerframework.dataflow.cfg.block.RegularBlockImpl;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlockImpl;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock.SpecialBlockType;
+import org.checkerframework.dataflow.cfg.block.SpecialBlockImpl;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * Class that performs phases two and three of the translation process together. It translates the
+ * sequence of extended nodes of phase one into the final basic blocks in one pass, without the
+ * degenerate blocks that {@link CFGTranslationPhaseTwo} creates and {@link
+ * CFGTranslationPhaseThree} removes:
+ *
+ * <ul>
+ *   <li>A regular block is created only when there is a node to put into it, so there are no empty
+ *       regular blocks after jumps.
+ *   <li>An unconditional jump that is not preceded by a node of its block does not get a block of
+ *       its own: edges to the jump go directly to its target.
+ * </ul>
+ *
+ * The remaining simplification of phase three, merging a regular block into its regular predecessor
+ * if that is its only predecessor, is done in a final pass over the regular blocks, once all
+ * predecessors are known. Finally, exception blocks with equal exceptional successors are made to
+ * share them.
+ */
+@SuppressWarnings("nullness") // TODO
+public class CFGTranslationPhaseTwoAndThree {
+
+    /** The kind of an edge whose target is not known yet. */
+    private enum EdgeKind {
+        /** The successor of a single-successor block. */
+        SUCCESSOR,
+        /** The 'then' successor of a conditional block. */
+        THEN,
+        /** The 'else' successor of a conditional block. */
+        ELSE,
+        /** An exceptional successor of an exception block. */
+        EXCEPTIONAL
+    }
+
+    /** An edge to an extended node that is added once all extended nodes have been translated. */
+    private static class PendingEdge {
+        /** The source of the edge. */
+        final BlockImpl source;
+
+        /** The kind of the edge. */
+        final EdgeKind kind;
+
+        /** The index of the target extended node; null means the exceptional exit. */
+        final @Nullable Integer index;
+
+        /** The flow rule of the source to set, or null to keep the current one. */
+        final @Nullable FlowRule flowRule;
+
+        /** The cause exception type, for an exceptional edge; otherwise null. */
+        final @Nullable TypeMirror cause;
+
+        /**
+         * Creates a pending edge.
+         *
+         * @param source the source of the edge
+         * @param kind the kind of the edge
+         * @param index the index of the target extended node; null means the exceptional exit
+         * @param flowRule the flow rule of the source to set, or null to keep the current one
+         * @param cause the cause exception type, for an exceptional edge; otherwise null
+         */
+        PendingEdge(
+                BlockImpl source,
+                EdgeKind kind,
+                @Nullable Integer index,
+                @Nullable FlowRule flowRule,
+                @Nullable TypeMirror cause) {
+            this.source = source;
+            this.kind = kind;
+            this.index = index;
+            this.flowRule = flowRule;
+            this.cause = cause;
+        }
+    }
+
+    /** The result of phase one. */
+    private final PhaseOneResult in;
+
+    /** The regular exit block. */
+    private final SpecialBlockImpl regularExitBlock = new SpecialBlockImpl(SpecialBlockType.EXIT);
+
+    /** The exceptional exit block. */
+    private final SpecialBlockImpl exceptionalExitBlock =
+            new SpecialBlockImpl(SpecialBlockType.EXCEPTIONAL_EXIT);
+
+    /** The indexes of the unconditional jumps whose target is being determined. */
+    private final BitSet resolving = new BitSet();
+
+    /**
+     * Creates an object that translates the result of phase one.
+     *
+     * @param in the result of phase one
+     */
+    private CFGTranslationPhaseTwoAndThree(PhaseOneResult in) {
+        this.in = in;
+    }
+
+    /**
+     * Perform phases two and three of the translation.
+     *
+     * @param in the result of phase one
+     * @return the control flow graph
+     */
+    public static ControlFlowGraph process(PhaseOneResult in) {
+        return new CFGTranslationPhaseTwoAndThree(in).process();
+    }
+
+    /**
+     * Perform phases two and three of the translation.
+     *
+     * @return the control flow graph
+     */
+    @SuppressWarnings("interning:not.interned") // AST node comparisons
+    private ControlFlowGraph process() {
+        Map<Label, Integer> bindings = in.bindings;
+        ArrayList<ExtendedNode> nodeList = in.nodeList;
+        // A leader is an extended node which starts a new basic block.
+        Set<Integer> leaders = in.leaders;
+
+        assert !nodeList.isEmpty();
+
+        List<PendingEdge> pendingEdges = new ArrayList<>();
+        List<PendingEdge> pendingExceptionalEdges = new ArrayList<>();
+        List<RegularBlockImpl> regularBlocks = new ArrayList<>();
+
+        SpecialBlockImpl startBlock = new SpecialBlockImpl(SpecialBlockType.ENTRY);
+        pendingEdges.add(new PendingEdge(startBlock, EdgeKind.SUCCESSOR, 0, null, null));
+
+        // The block being filled, or null if the next node starts a new block.
+        RegularBlockImpl block = null;
+        int i = 0;
+        for (ExtendedNode node : nodeList) {
+            switch (node.getType()) {
+                case NODE:
+                    if (block == null || leaders.contains(i)) {
+                        RegularBlockImpl b = new RegularBlockImpl();
+                        regularBlocks.add(b);
+                        if (block != null) {
+                            block.setSuccessor(b);
+                        }
+                        block = b;
+                    }
+                    block.addNode(node.getNode());
+                    node.setBlock(block);
+
+                    // does this node end the execution (modeled as an edge to
+                    // the exceptional exit block)
+                    if (node.getTerminatesExecution()) {
+                        block.setSuccessor(exceptionalExitBlock);
+                        block = null;
+                    }
+                    break;
+                case CONDITIONAL_JUMP:
+                    {
+                        ConditionalJump cj = (ConditionalJump) node;
+                        ConditionalBlockImpl cb = new ConditionalBlockImpl();
+                        if (cj.getTrueFlowRule() != null) {
+                            cb.setThenFlowRule(cj.getTrueFlowRule());
+                        }
+                        if (cj.getFalseFlowRule() != null) {
+                            cb.setElseFlowRule(cj.getFalseFlowRule());
+                        }
+                        // Exception nodes may fall through to conditional jumps, so the jump
+                        // needs a block that edges to it can target.
+                        if (block != null) {
+                            block.setSuccessor(cb);
+                            node.setBlock(block);
+                        } else {
+                            node.setBlock(cb);
+                        }
+                        block = null;
+
+                        Integer thenTarget = bindings.get(cj.getThenLabel());
+                        Integer elseTarget = bindings.get(cj.getElseLabel());
+                        assert thenTarget != null && elseTarget != null;
+                        pendingEdges.add(
+                                new PendingEdge(cb, EdgeKind.THEN, thenTarget, null, null));
+                        pendingEdges.add(
+                                new PendingEdge(cb, EdgeKind.ELSE, elseTarget, null, null));
+                        break;
+                    }
+                case UNCONDITIONAL_JUMP:
+                    if (block != null && !leaders.contains(i)) {
+                        UnconditionalJump uj = (UnconditionalJump) node;
+                        node.setBlock(block);
+                        if (node.getLabel() == in.regularExitLabel) {
+                            block.setSuccessor(regularExitBlock);
+                            block.setFlowRule(uj.getFlowRule());
+                        } else if (node.getLabel() == in.exceptionalExitLabel) {
+                            block.setSuccessor(exceptionalExitBlock);
+                            block.setFlowRule(uj.getFlowRule());
+                        } else {
+                            int target = bindings.get(node.getLabel());
+                            pendingEdges.add(
+                                    new PendingEdge(
+                                            block,
+                                            EdgeKind.SUCCESSOR,
+                                            target,
+                                            uj.getFlowRule(),
+                                            null));
+                        }
+                    } else if (block != null) {
+                        // The jump would be alone in its block: fall through to its target.
+                        pendingEdges.add(new PendingEdge(block, EdgeKind.SUCCESSOR, i, null, null));
+                    }
+                    block = null;
+                    break;
+                case EXCEPTION_NODE:
+                    NodeWithExceptionsHolder en = (NodeWithExceptionsHolder) node;
+                    ExceptionBlockImpl e = new ExceptionBlockImpl();
+                    e.setNode(en.getNode());
+                    node.setBlock(e);
+                    if (block != null) {
+                        block.setSuccessor(e);
+                    }
+                    block = null;
+
+                    // Note: do not link to the next block for throw statements
+                    // (these throw exceptions for sure)
+                    if (!node.getTerminatesExecution()) {
+                        pendingEdges.add(new PendingEdge(e, EdgeKind.SUCCESSOR, i + 1, null, null));
+                    }
+
+                    for (Map.Entry<TypeMirror, Set<Label>> entry : en.getExceptions().entrySet()) {
+                        TypeMirror cause = entry.getKey();
+                        for (Label label : entry.getValue()) {
+                            // A label without a binding means the exceptional exit.
+                            Integer target = bindings.get(label);
+                            pendingExceptionalEdges.add(
+                                    new PendingEdge(e, EdgeKind.EXCEPTIONAL, target, null, cause));
+                        }
+                    }
+                    break;
+            }
+            i++;
+        }
+
+        for (PendingEdge edge : pendingEdges) {
+            BlockImpl target = getTargetBlock(edge.index);
+            switch (edge.kind) {
+                case SUCCESSOR:
+                    SingleSuccessorBlockImpl source = (SingleSuccessorBlockImpl) edge.source;
+                    source.setSuccessor(target);
+                    if (edge.flowRule != null) {
+                        source.setFlowRule(edge.flowRule);
+                    }
+                    break;
+                case THEN:
+                    ((ConditionalBlockImpl) edge.source).setThenSuccessor(target);
+                    break;
+                case ELSE:
+                    ((ConditionalBlockImpl) edge.source).setElseSuccessor(target);
+                    break;
+                default:
+                    throw new BugInCF("Unexpected edge kind " + edge.kind);
+            }
+        }
+        for (PendingEdge edge : pendingExceptionalEdges) {
+            BlockImpl target =
+                    edge.index == null ? exceptionalExitBlock : getTargetBlock(edge.index);
+            ((ExceptionBlockImpl) edge.source).addExceptionalSuccessor(target, edge.cause);
+        }
+
+        ControlFlowGraph cfg =
+                new ControlFlowGraph(
+                        startBlock,
+                        regularExitBlock,
+                        exceptionalExitBlock,
+                        in.underlyingAST,
+                        in.treeLookupMap,
+                        in.convertedTreeLookupMap,
+                        in.unaryAssignNodeLookupMap,
+                        in.returnNodes,
+                        in.declaredClasses,
+                        in.declaredLambdas);
+
+        // Remove unreachable predecessors, so that they do not prevent merging.
+        Set<Block> reachable = cfg.getAllBlocks();
+        for (Block b : reachable) {
+            BlockImpl cur = (BlockImpl) b;
+            for (Block pred : cur.getPredecessors()) {
+                if (!reachable.contains(pred)) {
+                    cur.removePredecessor((BlockImpl) pred);
+                }
+            }
+        }
+
+        // Merge consecutive regular blocks, in the order of the code.
+        Set<RegularBlockImpl> merged = new HashSet<>();
+        for (RegularBlockImpl b : regularBlocks) {
+            if (merged.contains(b) || !reachable.contains(b)) {
+                continue;
+            }
+            while (true) {
+                BlockImpl succ = b.getRegularSuccessor();
+                if (succ == null
+                        || succ == b
+                        || succ.getType() != BlockType.REGULAR_BLOCK
+                        || succ.getPredecessors().size() != 1) {
+                    break;
+                }
+                RegularBlockImpl rs = (RegularBlockImpl) succ;
+                b.setSuccessor(rs.getRegularSuccessor());
+                b.addNodes(rs.getNodes());
+                rs.getRegularSuccessor().removePredecessor(rs);
+                merged.add(rs);
+            }
+        }
+
+        shareExceptionalSuccessors(reachable);
+        return cfg;
+    }
+
+    /**
+     * Makes the exception blocks among {@code blocks} share their exceptional successors: blocks
+     * with equal exceptional successors get the same unmodifiable map, and equal sets of successor
+     * blocks are shared between the maps. Most exception blocks of a method lead to the same few
+     * sets of blocks, such as the exceptional exit alone or the handlers of an enclosing try
+     * statement.
+     *
+     * @param blocks the blocks of a control flow graph
+     */
+    private static void shareExceptionalSuccessors(Set<Block> blocks) {
+        Map<Set<Block>, Set<Block>> sharedSets = new HashMap<>();
+        Map<Map<TypeMirror, Set<Block>>, Map<TypeMirror, Set<Block>>> sharedMaps = new HashMap<>();
+        for (Block b : blocks) {
+            if (b.getType() != BlockType.EXCEPTION_BLOCK) {
+                continue;
+            }
+            ExceptionBlockImpl e = (ExceptionBlockImpl) b;
+            Map<TypeMirror, Set<Block>> successors = e.getExceptionalSuccessors();
+            Map<TypeMirror, Set<Block>> shared = sharedMaps.get(successors);
+            if (shared == null) {
+                Map<TypeMirror, Set<Block>> copy = new LinkedHashMap<>();
+                for (Map.Entry<TypeMirror, Set<Block>> entry : successors.entrySet()) {
+                    Set<Block> set = sharedSets.get(entry.getValue());
+                    if (set == null) {
+                        set =
+                                entry.getValue().size() == 1
+                                        ? Collections.singleton(entry.getValue().iterator().next())
+                                        : Collections.unmodifiableSet(
+                                                new LinkedHashSet<>(entry.getValue()));
+                        sharedSets.put(set, set);
+                    }
+                    copy.put(entry.getKey(), set);
+                }
+                if (copy.size() == 1) {
+                    Map.Entry<TypeMirror, Set<Block>> entry = copy.entrySet().iterator().next();
+                    shared = Collections.singletonMap(entry.getKey(), entry.getValue());
+                } else {
+                    shared = Collections.unmodifiableMap(copy);
+                }
+                sharedMaps.put(shared, shared);
+            }
+            e.shareExceptionalSuccessors(shared);
+        }
+    }
+
+    /**
+     * Returns the block that an edge to the extended node at {@code index} leads to. That is the
+     * block of the extended node, unless it is an unconditional jump without a block of its own;
+     * then it is the block that the jump leads to.
+     *
+     * @param index the index of an extended node
+     * @return the block that an edge to the extended node at {@code index} leads to
+     */
+    @SuppressWarnings("interning:not.interned") // AST node comparisons
+    private BlockImpl getTargetBlock(int index) {
+        ExtendedNode node = in.nodeList.get(index);
+        BlockImpl block = node.getBlock();
+        if (block != null) {
+            return block;
+        }
+        assert node.getType() == ExtendedNode.ExtendedNodeType.UNCONDITIONAL_JUMP
+                : "CFGBuilder: no block for " + node;
+        if (resolving.get(index)) {
+            // The jumps form a loop without any node, such as "for (;;) {}". Keep an empty block
+            // for the loop.
+            RegularBlockImpl loop = new RegularBlockImpl();
+            node.setBlock(loop);
+            return loop;
+        }
+        resolving.set(index);
+        BlockImpl target;
+        if (node.getLabel() == in.regularExitLabel) {
+            target = regularExitBlock;
+        } else if (node.getLabel() == in.exceptionalExitLabel) {
+            target = exceptionalExitBlock;
+        } else {
+            target = getTargetBlock(in.bindings.get(node.getLabel()));
+        }
+        resolving.clear(index);
+        BlockImpl loop = node.getBlock();
+        if (loop != null) {
+            ((RegularBlockImpl) loop).setSuccessor(target);
+            return loop;
+        }
+        node.setBlock(target);
+        return target;
+    }
+}
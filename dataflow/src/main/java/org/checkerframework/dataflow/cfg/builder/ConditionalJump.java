@@ -9,7 +9,9 @@ import org.checkerframework.dataflow.cfg.builder.ExtendedNode.ExtendedNodeType;
  * <p><em>Important:</em> In the list of extended nodes, there should not be any labels that point
  * to a conditional jump. Furthermore, the node directly ahead of any conditional jump has to be a
  * {@link NodeWithExceptionsHolder} or {@link NodeHolder}, and the node held by that extended node
- * is required to be of boolean type.
+ * is required to be of boolean type. The only exception is the continuation selector at the end of
+ * a shared finally block, whose conditional jumps have no condition and may be the targets of
+ * labels; see {@link CFGTranslationPhaseOne#shareFinallyBlocks}.
  */
 @SuppressWarnings("nullness") // TODO
 class ConditionalJump extends ExtendedNode {
@@ -60,6 +60,15 @@ public abstract class Node implements UniqueId {
      */
     protected final TypeMirror type;
 
+    /**
+     * The {@link org.checkerframework.dataflow.cfg.ControlFlowGraph#getUid() unique ID} of the
+     * control flow graph whose blocks contain this node, or -1 if this node has not been numbered.
+     */
+    protected long graphUid = -1;
+
+    /** The index of this node in its control flow graph, or -1 if it has not been numbered. */
+    protected int graphIndex = -1;
+
     /** The unique ID for the next-created object. */
     static final AtomicLong nextUid = new AtomicLong(0);
     /** The unique ID of this object. */
@@ -100,6 +109,43 @@ public abstract class Node implements UniqueId {
         block = b;
     }
 
+    /**
+     * Returns the {@link org.checkerframework.dataflow.cfg.ControlFlowGraph#getUid() unique ID} of
+     * the control flow graph whose blocks contain this node, or -1 if this node has not been
+     * numbered.
+     *
+     * @return the unique ID of the control flow graph of this node, or -1
+     * @see #getGraphIndex
+     */
+    public long getGraphUid() {
+        return graphUid;
+    }
+
+    /**
+     * Returns the index of this node in its control flow graph, or -1 if this node has not been
+     * numbered. {@link org.checkerframework.dataflow.cfg.ControlFlowGraph#getIndexedBlocks} numbers
+     * the nodes of the reachable blocks of a control flow graph densely from 0, so analyses can
+     * store information about nodes in arrays. Nodes in unreachable blocks and nodes that represent
+     * formal parameters are not numbered.
+     *
+     * @return the index of this node in its control flow graph, or -1
+     */
+    public int getGraphIndex() {
+        return graphIndex;
+    }
+
+    /**
+     * Sets the control flow graph and the index of this node.
+     *
+     * @param graphUid the unique ID of the control flow graph whose blocks contain this node
+     * @param graphIndex the index of this node in the control flow graph
+     * @see #getGraphIndex
+     */
+    public void setGraphIndex(long graphUid, int graphIndex) {
+        this.graphUid = graphUid;
+        this.graphIndex = graphIndex;
+    }
+
     /**
      * Returns the {@link Tree} in the abstract syntax tree, or {@code null} if no corresponding
      * tree exists. For instance, this is the case for an {@link ImplicitThisLiteralNode}.
@@ -0,0 +1,457 @@
+package org.checkerframework.dataflow.cfg.serialization;
+
+import com.sun.source.tree.Tree;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.analysis.Store.FlowRule;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.block.Block.BlockType;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock.SpecialBlockType;
+
+/**
+ * Reads a control flow graph that was written by {@link CFGSerializer}. Reading does not need
+ * javac: the graph is read into {@link SerializedBlock}s and {@link SerializedNode}s rather than
+ * into a {@link org.checkerframework.dataflow.cfg.ControlFlowGraph}.
+ *
+ * <p>The constructor reads the header. Afterwards, either {@link #readBlock()} reads the blocks one
+ * at a time, so that only one block of a large graph is in memory at once, or {@link #readGraph()}
+ * reads all of them.
+ *
+ * <p>A deserializer reads no more bytes than the control flow graph occupies, so several graphs
+ * that were written to one stream can be read by creating a deserializer for each of them in turn.
+ * The deserializer does not buffer its input; pass it a {@link BufferedInputStream} to read a file.
+ *
+ * <p>Usage: Directly run it as the main class, with the name of a serialized control flow graph, to
+ * print the graph.
+ */
+public class CFGDeserializer implements Closeable {
+
+    /** The stream to read from. */
+    private final DataInputStream in;
+
+    /** The strings that were read, by index. */
+    private final List<String> strings = new ArrayList<>();
+
+    /** The name of the source file of the control flow graph. */
+    private final String sourceFile;
+
+    /** The kind of code that the control flow graph represents. */
+    private final UnderlyingAST.Kind kind;
+
+    /** The simple name of the class that contains the code. */
+    private final String className;
+
+    /** The name of the method that contains the code, or the empty string. */
+    private final String methodName;
+
+    /** The start position of the code, or -1. */
+    private final int startPosition;
+
+    /** The end position of the code, or -1. */
+    private final int endPosition;
+
+    /** The number of blocks. */
+    private final int numBlocks;
+
+    /** The number of nodes. */
+    private final int numNodes;
+
+    /** The index of the entry block. */
+    private final int entryBlock;
+
+    /** The index of the regular exit block, or -1. */
+    private final int regularExitBlock;
+
+    /** The index of the exceptional exit block, or -1. */
+    private final int exceptionalExitBlock;
+
+    /** The number of blocks that were read. */
+    private int blocksRead = 0;
+
+    /** The number of nodes that were read. */
+    private int nodesRead = 0;
+
+    /**
+     * Creates a deserializer that reads from {@code in}, and reads the header of the next control
+     * flow graph.
+     *
+     * @param in the stream to read from
+     * @throws IOException if reading fails or the stream does not contain a serialized control flow
+     *     graph
+     */
+    public CFGDeserializer(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != CFGSerializer.MAGIC) {
+            throw new IOException("Not a serialized control flow graph");
+        }
+        int version = this.in.readInt();
+        if (version != CFGSerializer.FORMAT_VERSION) {
+            throw new IOException("Unsupported control flow graph format version " + version);
+        }
+        sourceFile = readString();
+        kind = readEnum(UnderlyingAST.Kind.class);
+        className = readString();
+        methodName = readString();
+        startPosition = readVarInt() - 1;
+        endPosition = readVarInt() - 1;
+        numBlocks = readVarInt();
+        numNodes = readVarInt();
+        entryBlock = readVarInt() - 1;
+        regularExitBlock = readVarInt() - 1;
+        exceptionalExitBlock = readVarInt() - 1;
+    }
+
+    /**
+     * Returns the name of the source file of the control flow graph.
+     *
+     * @return the name of the source file of the control flow graph
+     */
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Returns the kind of code that the control flow graph represents.
+     *
+     * @return the kind of code that the control flow graph represents
+     */
+    public UnderlyingAST.Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the simple name of the class that contains the code.
+     *
+     * @return the simple name of the class that contains the code
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Returns the name of the method that contains the code, or the empty string if the code is not
+     * in a method.
+     *
+     * @return the name of the method that contains the code, or the empty string
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Returns the start position of the code in the source file, or -1 if it is not known.
+     *
+     * @return the start position of the code, or -1
+     */
+    public int getStartPosition() {
+        return startPosition;
+    }
+
+    /**
+     * Returns the end position of the code in the source file, or -1 if it is not known.
+     *
+     * @return the end position of the code, or -1
+     */
+    public int getEndPosition() {
+        return endPosition;
+    }
+
+    /**
+     * Returns the number of blocks of the control flow graph.
+     *
+     * @return the number of blocks of the control flow graph
+     */
+    public int getNumBlocks() {
+        return numBlocks;
+    }
+
+    /**
+     * Returns the number of nodes of the control flow graph.
+     *
+     * @return the number of nodes of the control flow graph
+     */
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Reads the next block and its nodes.
+     *
+     * @return the next block, or null if all blocks were read
+     * @throws IOException if reading fails or the stream is corrupt
+     */
+    public @Nullable SerializedBlock readBlock() throws IOException {
+        if (blocksRead == numBlocks) {
+            return null;
+        }
+        int index = blocksRead++;
+        BlockType type = readEnum(BlockType.class);
+        @Nullable SpecialBlockType specialType = null;
+        if (type == BlockType.SPECIAL_BLOCK) {
+            specialType = readEnum(SpecialBlockType.class);
+        }
+
+        int numBlockNodes = readVarInt();
+        List<SerializedNode> nodes = new ArrayList<>(numBlockNodes);
+        for (int i = 0; i < numBlockNodes; i++) {
+            nodes.add(readNode());
+        }
+
+        int successor = readVarInt() - 1;
+        FlowRule flowRule = readEnum(FlowRule.class);
+        int elseSuccessor = -1;
+        @Nullable FlowRule elseFlowRule = null;
+        Map<String, List<Integer>> exceptionalSuccessors = Collections.emptyMap();
+        if (type == BlockType.CONDITIONAL_BLOCK) {
+            elseSuccessor = readVarInt() - 1;
+            elseFlowRule = readEnum(FlowRule.class);
+        } else if (type == BlockType.EXCEPTION_BLOCK) {
+            int numCauses = readVarInt();
+            exceptionalSuccessors = new LinkedHashMap<>(numCauses);
+            for (int i = 0; i < numCauses; i++) {
+                String cause = readString();
+                int numSuccessors = readVarInt();
+                List<Integer> successors = new ArrayList<>(numSuccessors);
+                for (int j = 0; j < numSuccessors; j++) {
+                    successors.add(readVarInt() - 1);
+                }
+                exceptionalSuccessors.put(cause, Collections.unmodifiableList(successors));
+            }
+            exceptionalSuccessors = Collections.unmodifiableMap(exceptionalSuccessors);
+        }
+
+        return new SerializedBlock(
+                index,
+                type,
+                specialType,
+                Collections.unmodifiableList(nodes),
+                successor,
+                flowRule,
+                elseSuccessor,
+                elseFlowRule,
+                exceptionalSuccessors);
+    }
+
+    /**
+     * Reads all blocks of the control flow graph. Must be called before any call to {@link
+     * #readBlock()}.
+     *
+     * @return the control flow graph
+     * @throws IOException if reading fails or the stream is corrupt
+     */
+    public SerializedCFG readGraph() throws IOException {
+        if (blocksRead != 0) {
+            throw new IllegalStateException("readGraph called after readBlock");
+        }
+        List<SerializedBlock> blocks = new ArrayList<>(numBlocks);
+        List<SerializedNode> nodes = new ArrayList<>(numNodes);
+        SerializedBlock block;
+        while ((block = readBlock()) != null) {
+            blocks.add(block);
+            nodes.addAll(block.getNodes());
+        }
+        return new SerializedCFG(
+                Collections.unmodifiableList(blocks),
+                Collections.unmodifiableList(nodes),
+                entryBlock,
+                regularExitBlock,
+                exceptionalExitBlock);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads a node.
+     *
+     * @return the node that was read
+     * @throws IOException if reading fails or the stream is corrupt
+     */
+    private SerializedNode readNode() throws IOException {
+        return readNode(nodesRead++);
+    }
+
+    /**
+     * Reads a node record: a node of the graph, or an operand that is not in the graph.
+     *
+     * @param index the index of the node, or -1 for an operand that is not in the graph
+     * @return the node that was read
+     * @throws IOException if reading fails or the stream is corrupt
+     */
+    private SerializedNode readNode(int index) throws IOException {
+        String nodeClass = readString();
+        String type = readString();
+        String label = readString();
+        int flags = in.readUnsignedByte();
+        Tree.@Nullable Kind treeKind = null;
+        int start = -1;
+        int end = -1;
+        if ((flags & CFGSerializer.FLAG_HAS_TREE) != 0) {
+            treeKind = readEnum(Tree.Kind.class);
+            start = readVarInt() - 1;
+            end = readVarInt() - 1;
+        }
+        int numOperands = readVarInt();
+        List<Integer> operands = new ArrayList<>(numOperands);
+        List<@Nullable SerializedNode> embeddedOperands = new ArrayList<>(numOperands);
+        for (int i = 0; i < numOperands; i++) {
+            int tag = readVarInt();
+            if (tag == CFGSerializer.OPERAND_EMBEDDED) {
+                operands.add(-1);
+                embeddedOperands.add(readNode(-1));
+            } else {
+                operands.add(tag == CFGSerializer.OPERAND_NULL ? -1 : tag - 2);
+                embeddedOperands.add(null);
+            }
+        }
+        return new SerializedNode(
+                index,
+                nodeClass,
+                type,
+                label,
+                (flags & CFGSerializer.FLAG_LVALUE) != 0,
+                (flags & CFGSerializer.FLAG_IN_SOURCE) != 0,
+                treeKind,
+                start,
+                end,
+                Collections.unmodifiableList(operands),
+                Collections.unmodifiableList(embeddedOperands));
+    }
+
+    /**
+     * Reads a string written by {@link CFGSerializer}, and converts it to a constant of {@code
+     * enumClass}.
+     *
+     * @param <E> the enum type
+     * @param enumClass the enum class
+     * @return the constant of {@code enumClass} whose name was read
+     * @throws IOException if reading fails or the string is not the name of a constant
+     */
+    private <E extends Enum<E>> E readEnum(Class<E> enumClass) throws IOException {
+        String name = readString();
+        try {
+            return Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt control flow graph: unknown constant " + name, e);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link CFGSerializer}.
+     *
+     * @return the string that was read
+     * @throws IOException if reading fails or the stream is corrupt
+     */
+    private String readString() throws IOException {
+        int reference = readVarInt();
+        if (reference != 0) {
+            if (reference > strings.size()) {
+                throw new IOException("Corrupt control flow graph: unknown string " + reference);
+            }
+            return strings.get(reference - 1);
+        }
+        byte[] bytes = new byte[readVarInt()];
+        in.readFully(bytes);
+        String result = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(result);
+        return result;
+    }
+
+    /**
+     * Reads a non-negative integer written by {@link CFGSerializer}.
+     *
+     * @return the integer that was read
+     * @throws IOException if reading fails or the stream is corrupt
+     */
+    private int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new IOException("Corrupt control flow graph: malformed integer");
+    }
+
+    /**
+     * Prints the serialized control flow graphs in the file that is the first argument, one block
+     * at a time.
+     *
+     * @param args the name of a file that contains serialized control flow graphs
+     * @throws IOException if reading fails or the file is corrupt
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println(
+                    "Print the control flow graphs that were serialized by CFGSerializer.");
+            System.out.println("Parameters: <inputfile>");
+            System.exit(1);
+        }
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(args[0]))) {
+            while (true) {
+                in.mark(1);
+                if (in.read() == -1) {
+                    break;
+                }
+                in.reset();
+                print(new CFGDeserializer(in));
+            }
+        }
+    }
+
+    /**
+     * Prints the header and the blocks of a serialized control flow graph.
+     *
+     * @param deserializer the deserializer of the control flow graph to print
+     * @throws IOException if reading fails or the stream is corrupt
+     */
+    private static void print(CFGDeserializer deserializer) throws IOException {
+        System.out.printf(
+                "%s %s.%s in %s [%d-%d]: %d blocks, %d nodes%n",
+                deserializer.getKind(),
+                deserializer.getClassName(),
+                deserializer.getMethodName(),
+                deserializer.getSourceFile(),
+                deserializer.getStartPosition(),
+                deserializer.getEndPosition(),
+                deserializer.getNumBlocks(),
+                deserializer.getNumNodes());
+        SerializedBlock block;
+        while ((block = deserializer.readBlock()) != null) {
+            System.out.printf(
+                    "%d %s%s -> %s%n",
+                    block.getIndex(),
+                    block.getType(),
+                    block.getSpecialType() == null ? "" : " " + block.getSpecialType(),
+                    block.getSuccessors());
+            for (SerializedNode node : block.getNodes()) {
+                System.out.printf(
+                        "  %d %s [%s] %s [%d-%d]%n",
+                        node.getIndex(),
+                        node.getLabel(),
+                        node.getNodeClass(),
+                        node.getType(),
+                        node.getStartPosition(),
+                        node.getEndPosition());
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package org.checkerframework.dataflow.cfg.serialization;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.tree.EndPosTable;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.TreeInfo;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.type.TypeMirror;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGLambda;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGStatement;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock;
+import org.checkerframework.dataflow.cfg.node.Node;
+
+/**
+ * Writes a control flow graph in a compact binary format, which {@link CFGDeserializer} reads. The
+ * format records the blocks, their successors and flow rules, and the nodes of each block with
+ * their class, type, string representation, and operands. Trees are recorded by their kind and
+ * their start and end positions in the source file, so a serialized graph can be read without
+ * javac.
+ *
+ * <p>The format consists of a header and the blocks, in the order of {@link
+ * ControlFlowGraph#getIndexedBlocks()}. Blocks and nodes are referred to by their index in that
+ * order; the nodes of a block immediately follow the block's type, so a reader can process one
+ * block at a time. Integers other than the magic number and version are written as variable-length
+ * unsigned integers, and each distinct string is written only once; later occurrences refer to the
+ * first one. Since a reader reads no more than one graph, several graphs can be written to the same
+ * stream, for example for all methods of a compilation unit.
+ *
+ * <p>An operand of a node is written as a reference to a node of the graph. An operand that is not
+ * in any reachable block of the graph, for example the target of the assignment that initializes a
+ * variable in its declaration, has no index, so it is written inline, as a node record after its
+ * own tag; see {@link SerializedNode#getEmbeddedOperands()}.
+ */
+public class CFGSerializer {
+
+    /** The first four bytes of a serialized control flow graph. */
+    static final int MAGIC = 0x43464742;
+
+    /** The version of the serialization format. */
+    static final int FORMAT_VERSION = 2;
+
+    /** The tag of a null operand. */
+    static final int OPERAND_NULL = 0;
+
+    /**
+     * The tag of an operand that is not in the graph, which is followed by the operand's node
+     * record. An operand that is in the graph is written as its index plus two.
+     */
+    static final int OPERAND_EMBEDDED = 1;
+
+    /** The flag of a node that is an l-value. */
+    static final int FLAG_LVALUE = 1;
+
+    /** The flag of a node that is in the source code. */
+    static final int FLAG_IN_SOURCE = 2;
+
+    /** The flag of a node that has a tree. */
+    static final int FLAG_HAS_TREE = 4;
+
+    /** The stream to write to. */
+    private final DataOutputStream out;
+
+    /** The end positions of the trees of the compilation unit, or null if they are not known. */
+    private final @Nullable EndPosTable endPositions;
+
+    /** The strings that were written, and their indexes. */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    /**
+     * Creates a serializer.
+     *
+     * @param out the stream to write to
+     * @param root the compilation unit that contains the code of the control flow graph
+     */
+    private CFGSerializer(DataOutputStream out, CompilationUnitTree root) {
+        this.out = out;
+        this.endPositions = ((JCCompilationUnit) root).endPositions;
+    }
+
+    /**
+     * Writes {@code cfg} to {@code out}. Does not close {@code out}.
+     *
+     * @param cfg the control flow graph to write
+     * @param root the compilation unit that contains the code of {@code cfg}
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public static void write(ControlFlowGraph cfg, CompilationUnitTree root, OutputStream out)
+            throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        new CFGSerializer(data, root).writeGraph(cfg, root);
+        data.flush();
+    }
+
+    /**
+     * Writes the header and the blocks of {@code cfg}.
+     *
+     * @param cfg the control flow graph to write
+     * @param root the compilation unit that contains the code of {@code cfg}
+     * @throws IOException if writing fails
+     */
+    private void writeGraph(ControlFlowGraph cfg, CompilationUnitTree root) throws IOException {
+        List<Block> blocks = cfg.getIndexedBlocks();
+        int numNodes = 0;
+        for (Block block : blocks) {
+            numNodes += block.getNodes().size();
+        }
+
+        UnderlyingAST underlyingAST = cfg.getUnderlyingAST();
+        String className;
+        String methodName;
+        switch (underlyingAST.getKind()) {
+            case METHOD:
+                className = ((CFGMethod) underlyingAST).getSimpleClassName();
+                methodName = ((CFGMethod) underlyingAST).getMethodName();
+                break;
+            case LAMBDA:
+                className = ((CFGLambda) underlyingAST).getSimpleClassName();
+                methodName = ((CFGLambda) underlyingAST).getMethodName();
+                break;
+            default:
+                className = ((CFGStatement) underlyingAST).getSimpleClassName();
+                methodName = "";
+                break;
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(root.getSourceFile().getName());
+        writeString(underlyingAST.getKind().name());
+        writeString(className);
+        writeString(methodName);
+        writePositions(underlyingAST.getCode());
+        writeVarInt(blocks.size());
+        writeVarInt(numNodes);
+        writeBlockReference(cfg.getEntryBlock());
+        writeBlockReference(cfg.getRegularExitBlock());
+        writeBlockReference(cfg.getExceptionalExitBlock());
+
+        for (Block block : blocks) {
+            writeBlock(block, cfg);
+        }
+    }
+
+    /**
+     * Writes a block, its nodes, and its successors.
+     *
+     * @param block the block to write
+     * @param cfg the control flow graph of {@code block}
+     * @throws IOException if writing fails
+     */
+    private void writeBlock(Block block, ControlFlowGraph cfg) throws IOException {
+        writeString(block.getType().name());
+        if (block.getType() == Block.BlockType.SPECIAL_BLOCK) {
+            writeString(((SpecialBlock) block).getSpecialType().name());
+        }
+
+        List<Node> nodes = block.getNodes();
+        writeVarInt(nodes.size());
+        for (Node node : nodes) {
+            writeNode(node, cfg);
+        }
+
+        if (block.getType() == Block.BlockType.CONDITIONAL_BLOCK) {
+            ConditionalBlock conditionalBlock = (ConditionalBlock) block;
+            writeBlockReference(conditionalBlock.getThenSuccessor());
+            writeString(conditionalBlock.getThenFlowRule().name());
+            writeBlockReference(conditionalBlock.getElseSuccessor());
+            writeString(conditionalBlock.getElseFlowRule().name());
+            return;
+        }
+
+        SingleSuccessorBlock singleSuccessorBlock = (SingleSuccessorBlock) block;
+        writeBlockReference(singleSuccessorBlock.getSuccessor());
+        writeString(singleSuccessorBlock.getFlowRule().name());
+        if (block.getType() == Block.BlockType.EXCEPTION_BLOCK) {
+            Map<TypeMirror, Set<Block>> exceptionalSuccessors =
+                    ((ExceptionBlock) block).getExceptionalSuccessors();
+            writeVarInt(exceptionalSuccessors.size());
+            for (Map.Entry<TypeMirror, Set<Block>> entry : exceptionalSuccessors.entrySet()) {
+                writeString(entry.getKey().toString());
+                writeVarInt(entry.getValue().size());
+                for (Block successor : entry.getValue()) {
+                    writeBlockReference(successor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a node: its class, type, string representation, flags, tree, and operands.
+     *
+     * @param node the node to write
+     * @param cfg the control flow graph of {@code node}
+     * @throws IOException if writing fails
+     */
+    private void writeNode(Node node, ControlFlowGraph cfg) throws IOException {
+        writeString(node.getClass().getSimpleName());
+        writeString(node.getType().toString());
+        writeString(node.toString());
+
+        Tree tree = node.getTree();
+        int flags =
+                (node.isLValue() ? FLAG_LVALUE : 0)
+                        | (node.getInSource() ? FLAG_IN_SOURCE : 0)
+                        | (tree != null ? FLAG_HAS_TREE : 0);
+        out.writeByte(flags);
+        if (tree != null) {
+            writeString(tree.getKind().name());
+            writePositions(tree);
+        }
+
+        Collection<Node> operands = node.getOperands();
+        writeVarInt(operands.size());
+        for (Node operand : operands) {
+            if (operand == null) {
+                writeVarInt(OPERAND_NULL);
+            } else if (operand.getGraphUid() == cfg.getUid()) {
+                writeVarInt(operand.getGraphIndex() + 2);
+            } else {
+                writeVarInt(OPERAND_EMBEDDED);
+                writeNode(operand, cfg);
+            }
+        }
+    }
+
+    /**
+     * Writes the start and end positions of a tree, each as a position plus one, so that an unknown
+     * position is written as 0.
+     *
+     * @param tree the tree whose positions to write
+     * @throws IOException if writing fails
+     */
+    private void writePositions(Tree tree) throws IOException {
+        JCTree jcTree = (JCTree) tree;
+        writeVarInt(Math.max(TreeInfo.getStartPos(jcTree), -1) + 1);
+        writeVarInt(Math.max(TreeInfo.getEndPos(jcTree, endPositions), -1) + 1);
+    }
+
+    /**
+     * Writes a reference to a block: its index plus one, or 0 if there is no block or the block is
+     * not reachable.
+     *
+     * @param block the block to refer to, or null
+     * @throws IOException if writing fails
+     */
+    private void writeBlockReference(@Nullable Block block) throws IOException {
+        writeVarInt(block == null ? 0 : block.getIndex() + 1);
+    }
+
+    /**
+     * Writes a string. The first occurrence of a string is written as 0, its length, and its UTF-8
+     * bytes; later occurrences are written as the index of the string plus one.
+     *
+     * @param s the string to write
+     * @throws IOException if writing fails
+     */
+    private void writeString(String s) throws IOException {
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeVarInt(index + 1);
+            return;
+        }
+        strings.put(s, strings.size());
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(0);
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a non-negative integer in seven-bit groups, least significant group first. Each byte
+     * but the last has its high bit set.
+     *
+     * @param value the non-negative integer to write
+     * @throws IOException if writing fails
+     */
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,193 @@
+package org.checkerframework.dataflow.cfg.serialization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.analysis.Store.FlowRule;
+import org.checkerframework.dataflow.cfg.block.Block.BlockType;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock.SpecialBlockType;
+
+/**
+ * A basic block of a control flow graph that was read by {@link CFGDeserializer}. Its successors
+ * are referred to by their index; -1 means that there is no successor.
+ */
+public class SerializedBlock {
+
+    /** The index of this block in its control flow graph. */
+    private final int index;
+
+    /** The type of this block. */
+    private final BlockType type;
+
+    /** The type of this block if it is a special block, or null. */
+    private final @Nullable SpecialBlockType specialType;
+
+    /** The nodes of this block. */
+    private final List<SerializedNode> nodes;
+
+    /** The successor of a block that is not conditional, or the then successor, or -1. */
+    private final int successor;
+
+    /** The flow rule to {@link #successor}. */
+    private final FlowRule flowRule;
+
+    /** The else successor of a conditional block, or -1. */
+    private final int elseSuccessor;
+
+    /** The flow rule to {@link #elseSuccessor}, or null if this block is not conditional. */
+    private final @Nullable FlowRule elseFlowRule;
+
+    /** The exceptional successors of an exception block, by exception type. */
+    private final Map<String, List<Integer>> exceptionalSuccessors;
+
+    /**
+     * Creates a serialized block.
+     *
+     * @param index the index of the block in its control flow graph
+     * @param type the type of the block
+     * @param specialType the type of the block if it is a special block, or null
+     * @param nodes the nodes of the block
+     * @param successor the successor of a block that is not conditional, or the then successor, or
+     *     -1
+     * @param flowRule the flow rule to {@code successor}
+     * @param elseSuccessor the else successor of a conditional block, or -1
+     * @param elseFlowRule the flow rule to {@code elseSuccessor}, or null if the block is not
+     *     conditional
+     * @param exceptionalSuccessors the exceptional successors of an exception block, by exception
+     *     type
+     */
+    /*package-private*/ SerializedBlock(
+            int index,
+            BlockType type,
+            @Nullable SpecialBlockType specialType,
+            List<SerializedNode> nodes,
+            int successor,
+            FlowRule flowRule,
+            int elseSuccessor,
+            @Nullable FlowRule elseFlowRule,
+            Map<String, List<Integer>> exceptionalSuccessors) {
+        this.index = index;
+        this.type = type;
+        this.specialType = specialType;
+        this.nodes = nodes;
+        this.successor = successor;
+        this.flowRule = flowRule;
+        this.elseSuccessor = elseSuccessor;
+        this.elseFlowRule = elseFlowRule;
+        this.exceptionalSuccessors = exceptionalSuccessors;
+    }
+
+    /**
+     * Returns the index of this block in its control flow graph.
+     *
+     * @return the index of this block in its control flow graph
+     * @see org.checkerframework.dataflow.cfg.block.Block#getIndex()
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the type of this block.
+     *
+     * @return the type of this block
+     */
+    public BlockType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the type of this block if it is a special block, or null.
+     *
+     * @return the type of this special block, or null
+     */
+    public @Nullable SpecialBlockType getSpecialType() {
+        return specialType;
+    }
+
+    /**
+     * Returns the nodes of this block.
+     *
+     * @return the nodes of this block
+     */
+    public List<SerializedNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the index of the non-exceptional successor of this block, or -1 if there is none. For
+     * a conditional block, returns the then successor.
+     *
+     * @return the index of the non-exceptional successor of this block, or -1
+     */
+    public int getSuccessor() {
+        return successor;
+    }
+
+    /**
+     * Returns the flow rule to the successor returned by {@link #getSuccessor()}.
+     *
+     * @return the flow rule to the successor of this block
+     */
+    public FlowRule getFlowRule() {
+        return flowRule;
+    }
+
+    /**
+     * Returns the index of the else successor of this conditional block, or -1 if this block is not
+     * conditional.
+     *
+     * @return the index of the else successor of this block, or -1
+     */
+    public int getElseSuccessor() {
+        return elseSuccessor;
+    }
+
+    /**
+     * Returns the flow rule to the else successor of this conditional block, or null if this block
+     * is not conditional.
+     *
+     * @return the flow rule to the else successor of this block, or null
+     */
+    public @Nullable FlowRule getElseFlowRule() {
+        return elseFlowRule;
+    }
+
+    /**
+     * Returns the indexes of the exceptional successors of this block, by exception type. The map
+     * is empty if this block is not an exception block.
+     *
+     * @return the exceptional successors of this block, by exception type
+     */
+    public Map<String, List<Integer>> getExceptionalSuccessors() {
+        return exceptionalSuccessors;
+    }
+
+    /**
+     * Returns the indexes of all successors of this block.
+     *
+     * @return the indexes of all successors of this block
+     */
+    public List<Integer> getSuccessors() {
+        Set<Integer> result = new LinkedHashSet<>();
+        if (successor != -1) {
+            result.add(successor);
+        }
+        if (elseSuccessor != -1) {
+            result.add(elseSuccessor);
+        }
+        for (List<Integer> successors : exceptionalSuccessors.values()) {
+            result.addAll(successors);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(result));
+    }
+
+    @Override
+    public String toString() {
+        return type + "#" + index + nodes;
+    }
+}
@@ -0,0 +1,94 @@
+package org.checkerframework.dataflow.cfg.serialization;
+
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A control flow graph that was read completely by {@link CFGDeserializer#readGraph()}. Its blocks
+ * and nodes are indexed like those of the {@link
+ * org.checkerframework.dataflow.cfg.ControlFlowGraph} that was written.
+ */
+public class SerializedCFG {
+
+    /** The blocks, by index. */
+    private final List<SerializedBlock> blocks;
+
+    /** The nodes, by index. */
+    private final List<SerializedNode> nodes;
+
+    /** The index of the entry block. */
+    private final int entryBlock;
+
+    /** The index of the regular exit block, or -1 if it is not reachable. */
+    private final int regularExitBlock;
+
+    /** The index of the exceptional exit block, or -1 if it is not reachable. */
+    private final int exceptionalExitBlock;
+
+    /**
+     * Creates a serialized control flow graph.
+     *
+     * @param blocks the blocks, by index
+     * @param nodes the nodes, by index
+     * @param entryBlock the index of the entry block
+     * @param regularExitBlock the index of the regular exit block, or -1
+     * @param exceptionalExitBlock the index of the exceptional exit block, or -1
+     */
+    /*package-private*/ SerializedCFG(
+            List<SerializedBlock> blocks,
+            List<SerializedNode> nodes,
+            int entryBlock,
+            int regularExitBlock,
+            int exceptionalExitBlock) {
+        this.blocks = blocks;
+        this.nodes = nodes;
+        this.entryBlock = entryBlock;
+        this.regularExitBlock = regularExitBlock;
+        this.exceptionalExitBlock = exceptionalExitBlock;
+    }
+
+    /**
+     * Returns the blocks of this control flow graph, by index.
+     *
+     * @return the blocks of this control flow graph
+     */
+    public List<SerializedBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the nodes of this control flow graph, by index.
+     *
+     * @return the nodes of this control flow graph
+     */
+    public List<SerializedNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the entry block.
+     *
+     * @return the entry block
+     */
+    public SerializedBlock getEntryBlock() {
+        return blocks.get(entryBlock);
+    }
+
+    /**
+     * Returns the regular exit block, or null if it is not reachable.
+     *
+     * @return the regular exit block, or null
+     */
+    public @Nullable SerializedBlock getRegularExitBlock() {
+        return regularExitBlock == -1 ? null : blocks.get(regularExitBlock);
+    }
+
+    /**
+     * Returns the exceptional exit block, or null if it is not reachable.
+     *
+     * @return the exceptional exit block, or null
+     */
+    public @Nullable SerializedBlock getExceptionalExitBlock() {
+        return exceptionalExitBlock == -1 ? null : blocks.get(exceptionalExitBlock);
+    }
+}
@@ -0,0 +1,199 @@
+package org.checkerframework.dataflow.cfg.serialization;
+
+import com.sun.source.tree.Tree;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A node of a control flow graph that was read by {@link CFGDeserializer}. It records what {@link
+ * CFGSerializer} wrote about a {@link org.checkerframework.dataflow.cfg.node.Node}; its tree is
+ * identified by its kind and its positions in the source file.
+ */
+public class SerializedNode {
+
+    /** The index of this node in its control flow graph, or -1 if it is not in the graph. */
+    private final int index;
+
+    /** The simple name of the class of the node. */
+    private final String nodeClass;
+
+    /** The type of the node. */
+    private final String type;
+
+    /** The string representation of the node. */
+    private final String label;
+
+    /** Whether the node is an l-value. */
+    private final boolean lValue;
+
+    /** Whether the node is in the source code. */
+    private final boolean inSource;
+
+    /** The kind of the tree of the node, or null if the node has no tree. */
+    private final Tree.@Nullable Kind treeKind;
+
+    /** The start position of the tree of the node, or -1. */
+    private final int startPosition;
+
+    /** The end position of the tree of the node, or -1. */
+    private final int endPosition;
+
+    /**
+     * The indexes of the operands of the node; -1 for an operand that is null or not in the graph.
+     */
+    private final List<Integer> operands;
+
+    /** The operands of the node that are not in the graph; null for the other operands. */
+    private final List<@Nullable SerializedNode> embeddedOperands;
+
+    /**
+     * Creates a serialized node.
+     *
+     * @param index the index of the node in its control flow graph, or -1 if it is not in the graph
+     * @param nodeClass the simple name of the class of the node
+     * @param type the type of the node
+     * @param label the string representation of the node
+     * @param lValue whether the node is an l-value
+     * @param inSource whether the node is in the source code
+     * @param treeKind the kind of the tree of the node, or null if the node has no tree
+     * @param startPosition the start position of the tree of the node, or -1
+     * @param endPosition the end position of the tree of the node, or -1
+     * @param operands the indexes of the operands of the node
+     * @param embeddedOperands the operands of the node that are not in the graph
+     */
+    /*package-private*/ SerializedNode(
+            int index,
+            String nodeClass,
+            String type,
+            String label,
+            boolean lValue,
+            boolean inSource,
+            Tree.@Nullable Kind treeKind,
+            int startPosition,
+            int endPosition,
+            List<Integer> operands,
+            List<@Nullable SerializedNode> embeddedOperands) {
+        this.index = index;
+        this.nodeClass = nodeClass;
+        this.type = type;
+        this.label = label;
+        this.lValue = lValue;
+        this.inSource = inSource;
+        this.treeKind = treeKind;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+        this.operands = operands;
+        this.embeddedOperands = embeddedOperands;
+    }
+
+    /**
+     * Returns the index of this node in its control flow graph, or -1 if this node is an operand
+     * that is not in the graph.
+     *
+     * @return the index of this node in its control flow graph, or -1
+     * @see org.checkerframework.dataflow.cfg.node.Node#getGraphIndex()
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the simple name of the class of the node, such as {@code MethodInvocationNode}.
+     *
+     * @return the simple name of the class of the node
+     */
+    public String getNodeClass() {
+        return nodeClass;
+    }
+
+    /**
+     * Returns the type of the node.
+     *
+     * @return the type of the node
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the string representation of the node.
+     *
+     * @return the string representation of the node
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns whether the node is an l-value.
+     *
+     * @return whether the node is an l-value
+     */
+    public boolean isLValue() {
+        return lValue;
+    }
+
+    /**
+     * Returns whether the node is in the source code.
+     *
+     * @return whether the node is in the source code
+     */
+    public boolean getInSource() {
+        return inSource;
+    }
+
+    /**
+     * Returns the kind of the tree of the node, or null if the node has no tree.
+     *
+     * @return the kind of the tree of the node, or null
+     */
+    public Tree.@Nullable Kind getTreeKind() {
+        return treeKind;
+    }
+
+    /**
+     * Returns the start position of the tree of the node in the source file, or -1 if it is not
+     * known.
+     *
+     * @return the start position of the tree of the node, or -1
+     */
+    public int getStartPosition() {
+        return startPosition;
+    }
+
+    /**
+     * Returns the end position of the tree of the node in the source file, or -1 if it is not
+     * known.
+     *
+     * @return the end position of the tree of the node, or -1
+     */
+    public int getEndPosition() {
+        return endPosition;
+    }
+
+    /**
+     * Returns the indexes of the operands of the node. The index of an operand that is null or not
+     * in the control flow graph is -1.
+     *
+     * @return the indexes of the operands of the node
+     */
+    public List<Integer> getOperands() {
+        return operands;
+    }
+
+    /**
+     * Returns the operands of the node that are not in the control flow graph, such as the target
+     * of the assignment that initializes a variable in its declaration. The list is parallel to
+     * {@link #getOperands()}; its element is null for an operand that is null or in the graph.
+     *
+     * @return the operands of the node that are not in the control flow graph
+     */
+    public List<@Nullable SerializedNode> getEmbeddedOperands() {
+        return embeddedOperands;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
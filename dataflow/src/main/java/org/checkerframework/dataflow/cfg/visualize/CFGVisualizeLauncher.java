@@ -1,11 +1,13 @@
 package org.checkerframework.dataflow.cfg.visualize;
 
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.tools.javac.file.JavacFileManager;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.Options;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -21,10 +23,11 @@ import org.checkerframework.dataflow.analysis.TransferFunction;
 import org.checkerframework.dataflow.cfg.CFGProcessor;
 import org.checkerframework.dataflow.cfg.CFGProcessor.CFGProcessResult;
 import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.serialization.CFGSerializer;
 
 /**
- * Launcher to generate the DOT or String representation of the control flow graph of a given method
- * in a given class.
+ * Launcher to generate the DOT, String, or binary representation of the control flow graph of a
+ * given method in a given class.
  *
  * <p>Usage: Directly run it as the main class to generate the DOT representation of the control
  * flow graph of a given method in a given class. See {@link
@@ -59,6 +62,7 @@ public class CFGVisualizeLauncher {
         boolean error = false;
         boolean verbose = false;
         boolean string = false;
+        boolean binary = false;
 
         for (int i = 1; i < args.length; i++) {
             switch (args[i]) {
@@ -96,6 +100,9 @@ public class CFGVisualizeLauncher {
                 case "--string":
                     string = true;
                     break;
+                case "--binary":
+                    binary = true;
+                    break;
                 default:
                     cfgVisualizeLauncher.printError("Unknown command line argument: " + args[i]);
                     error = true;
@@ -107,7 +114,9 @@ public class CFGVisualizeLauncher {
             System.exit(1);
         }
 
-        if (!string) {
+        if (binary) {
+            cfgVisualizeLauncher.generateBinaryOfCFG(input, output, method, clas);
+        } else if (!string) {
             cfgVisualizeLauncher.generateDOTofCFGWithoutAnalysis(
                     input, output, method, clas, pdf, verbose);
         } else {
@@ -205,6 +214,31 @@ public class CFGVisualizeLauncher {
         }
     }
 
+    /**
+     * Generate the binary representation of the CFG for a method, in the format of {@link
+     * CFGSerializer}. Does no dataflow analysis.
+     *
+     * @param inputFile java source input file
+     * @param outputDir output directory
+     * @param method name of the method to generate the CFG for
+     * @param clas name of the class which includes the method to generate the CFG for
+     */
+    protected void generateBinaryOfCFG(
+            String inputFile, String outputDir, String method, String clas) {
+        CFGProcessResult res = processMethod(inputFile, clas, method);
+        ControlFlowGraph cfg = res.getCFG();
+        CompilationUnitTree root = res.getRoot();
+        assert cfg != null && root != null : "@AssumeAssertion(nullness): processMethod succeeded";
+
+        String fileName = outputDir + "/" + clas + "-" + method + ".cfg";
+        try (OutputStream out = new FileOutputStream(fileName)) {
+            CFGSerializer.write(cfg, root, out);
+        } catch (IOException e) {
+            printError("Cannot write binary file " + fileName + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
     /**
      * Generate the control flow graph of a method in a class.
      *
@@ -214,12 +248,29 @@ public class CFGVisualizeLauncher {
      * @return control flow graph of the specified method
      */
     protected ControlFlowGraph generateMethodCFG(String file, String clas, final String method) {
+        ControlFlowGraph cfg = processMethod(file, clas, method).getCFG();
+        assert cfg != null : "@AssumeAssertion(nullness): processMethod succeeded";
+        return cfg;
+    }
+
+    /**
+     * Generate the control flow graph of a method in a class. Exits if the control flow graph
+     * cannot be generated.
+     *
+     * @param file java source input file
+     * @param clas name of the class which includes the method to generate the CFG for
+     * @param method name of the method to generate the CFG for
+     * @return the successful result of generating the control flow graph of the specified method
+     */
+    protected CFGProcessResult processMethod(String file, String clas, final String method) {
 
         CFGProcessor cfgProcessor = new CFGProcessor(clas, method);
 
         Context context = new Context();
         Options.instance(context).put("compilePolicy", "ATTR_ONLY");
         JavaCompiler javac = new JavaCompiler(context);
+        // Record end positions, which the binary representation contains.
+        javac.genEndPos = true;
 
         JavacFileManager fileManager = (JavacFileManager) context.get(JavaFileManager.class);
 
@@ -256,7 +307,7 @@ public class CFGVisualizeLauncher {
             System.exit(1);
         }
 
-        return res.getCFG();
+        return res;
     }
 
     /**
@@ -317,7 +368,7 @@ public class CFGVisualizeLauncher {
         System.out.println(
                 "Generate the control flow graph of a Java method, represented as a DOT or String graph.");
         System.out.println(
-                "Parameters: <inputfile> [--outputdir <outputdir>] [--method <name>] [--class <name>] [--pdf] [--verbose] [--string]");
+                "Parameters: <inputfile> [--outputdir <outputdir>] [--method <name>] [--class <name>] [--pdf] [--verbose] [--string] [--binary]");
         System.out.println(
                 "    --outputdir: The output directory for the generated files (defaults to '.').");
         System.out.println(
@@ -328,6 +379,8 @@ public class CFGVisualizeLauncher {
         System.out.println("    --verbose:   Show the verbose output (defaults to 'false').");
         System.out.println(
                 "    --string:    Print the string representation of the control flow graph (defaults to 'false').");
+        System.out.println(
+                "    --binary:    Write the binary representation of the control flow graph to <outputdir>/<class>-<method>.cfg (defaults to 'false').");
     }
 
     /**
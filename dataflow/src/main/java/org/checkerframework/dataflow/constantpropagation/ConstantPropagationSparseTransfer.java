@@ -0,0 +1,45 @@
+package org.checkerframework.dataflow.constantpropagation;
+
+import java.util.Map;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.analysis.SparseTransferFunction;
+import org.checkerframework.dataflow.cfg.node.AssignmentNode;
+import org.checkerframework.dataflow.cfg.node.IntegerLiteralNode;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+
+/** The transfer function of constant propagation, for a sparse analysis. */
+public class ConstantPropagationSparseTransfer
+        implements SparseTransferFunction<Constant, ConstantPropagationStore> {
+
+    @Override
+    public Constant initialValue(LocalVariableNode parameter) {
+        return new Constant(Constant.Type.TOP);
+    }
+
+    @Override
+    public Constant valueOfAssignment(
+            AssignmentNode assignment, Function<LocalVariableNode, @Nullable Constant> values) {
+        Node expression = assignment.getExpression();
+        if (expression instanceof IntegerLiteralNode) {
+            return new Constant(((IntegerLiteralNode) expression).getValue());
+        }
+        if (expression instanceof LocalVariableNode) {
+            Constant value = values.apply((LocalVariableNode) expression);
+            if (value != null) {
+                return value;
+            }
+        }
+        return new Constant(Constant.Type.TOP);
+    }
+
+    @Override
+    public ConstantPropagationStore createStore(Map<LocalVariableNode, Constant> values) {
+        ConstantPropagationStore store = new ConstantPropagationStore();
+        for (Map.Entry<LocalVariableNode, Constant> e : values.entrySet()) {
+            store.setInformation(e.getKey(), e.getValue());
+        }
+        return store;
+    }
+}
@@ -0,0 +1,190 @@
+package org.checkerframework.dataflow.livevariable;
+
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.node.AssignmentNode;
+import org.checkerframework.dataflow.cfg.node.ClassDeclarationNode;
+import org.checkerframework.dataflow.cfg.node.FunctionalInterfaceNode;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.node.ObjectCreationNode;
+import org.checkerframework.dataflow.expression.LocalVariable;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * The local variables that are live at the start of each basic block of a control flow graph.
+ *
+ * <p>A local variable is live at a point if some path from the point reads the variable before
+ * assigning it. Unlike {@link LiveVarTransfer}, which records only the uses in some kinds of
+ * expressions, every {@link LocalVariableNode} that is not an lvalue is a use. A lambda, or a class
+ * declared in the method, uses the local variables that its body refers to, at the node that
+ * creates it, because the analysis of its body starts from the store at that node.
+ *
+ * <p>The live variables are computed once, by a backward analysis over bit sets, when this object
+ * is created.
+ */
+public class LiveLocalVariables {
+
+    /** The index of each local variable that is used or assigned in the control flow graph. */
+    private final Map<LocalVariable, Integer> variableIndexes = new HashMap<>();
+
+    /** The indexes of the variables that are live at the start of each block, by block index. */
+    private final BitSet[] liveBefore;
+
+    /**
+     * Computes the live local variables of a control flow graph.
+     *
+     * @param cfg a control flow graph
+     */
+    public LiveLocalVariables(ControlFlowGraph cfg) {
+        List<Block> blocks = cfg.getIndexedBlocks();
+        int size = blocks.size();
+        BitSet[] uses = new BitSet[size];
+        BitSet[] defs = new BitSet[size];
+        for (int i = 0; i < size; i++) {
+            uses[i] = new BitSet();
+            defs[i] = new BitSet();
+            for (Node n : blocks.get(i).getNodes()) {
+                addUsesAndDefs(n, uses[i], defs[i]);
+            }
+        }
+
+        liveBefore = new BitSet[size];
+        for (int i = 0; i < size; i++) {
+            liveBefore[i] = (BitSet) uses[i].clone();
+        }
+        // Blocks are in reverse postorder, so visiting them backward propagates liveness along
+        // all forward edges in one pass; the loop repeats only for back edges.
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = size - 1; i >= 0; i--) {
+                BitSet live = new BitSet();
+                for (Block succ : blocks.get(i).getSuccessors()) {
+                    live.or(liveBefore[succ.getIndex()]);
+                }
+                live.andNot(defs[i]);
+                live.or(uses[i]);
+                if (!live.equals(liveBefore[i])) {
+                    liveBefore[i] = live;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the variables that {@code n} reads to {@code uses} unless {@code defs} already contains
+     * them, and adds the variable that {@code n} assigns to {@code defs}.
+     *
+     * @param n a node
+     * @param uses the variables that the enclosing block reads before assigning them
+     * @param defs the variables that the enclosing block assigns
+     */
+    private void addUsesAndDefs(Node n, BitSet uses, BitSet defs) {
+        if (n instanceof LocalVariableNode) {
+            if (!n.isLValue()) {
+                addUse(new LocalVariable((LocalVariableNode) n), uses, defs);
+            }
+        } else if (n instanceof AssignmentNode) {
+            Node target = ((AssignmentNode) n).getTarget();
+            if (target instanceof LocalVariableNode) {
+                defs.set(indexOf(new LocalVariable((LocalVariableNode) target)));
+            }
+        } else if (n instanceof FunctionalInterfaceNode) {
+            addCapturedUses(n.getTree(), uses, defs);
+        } else if (n instanceof ClassDeclarationNode) {
+            addCapturedUses(n.getTree(), uses, defs);
+        } else if (n instanceof ObjectCreationNode) {
+            addCapturedUses(((ObjectCreationNode) n).getTree().getClassBody(), uses, defs);
+        }
+    }
+
+    /**
+     * Adds the local variables that {@code tree} refers to as uses.
+     *
+     * @param tree a lambda, member reference, or class body
+     * @param uses the variables that the enclosing block reads before assigning them
+     * @param defs the variables that the enclosing block assigns
+     */
+    private void addCapturedUses(@Nullable Tree tree, BitSet uses, BitSet defs) {
+        if (tree == null) {
+            return;
+        }
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitIdentifier(IdentifierTree node, Void p) {
+                Element element = TreeUtils.elementFromUse(node);
+                if (element != null) {
+                    switch (element.getKind()) {
+                        case LOCAL_VARIABLE:
+                        case RESOURCE_VARIABLE:
+                        case EXCEPTION_PARAMETER:
+                        case PARAMETER:
+                            addUse(new LocalVariable(element), uses, defs);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                return null;
+            }
+        }.scan(tree, null);
+    }
+
+    /**
+     * Adds {@code variable} to {@code uses} unless {@code defs} contains it.
+     *
+     * @param variable a local variable that is read
+     * @param uses the variables that the enclosing block reads before assigning them
+     * @param defs the variables that the enclosing block assigns
+     */
+    private void addUse(LocalVariable variable, BitSet uses, BitSet defs) {
+        int index = indexOf(variable);
+        if (!defs.get(index)) {
+            uses.set(index);
+        }
+    }
+
+    /**
+     * Returns the index of {@code variable}, assigning it the next index if it has none yet.
+     *
+     * @param variable a local variable
+     * @return the index of {@code variable}
+     */
+    private int indexOf(LocalVariable variable) {
+        return variableIndexes.computeIfAbsent(variable, v -> variableIndexes.size());
+    }
+
+    /**
+     * Returns true if {@code variable} is live at the start of {@code block}. A variable that the
+     * control flow graph never reads is not live anywhere.
+     *
+     * @param block a block of the control flow graph
+     * @param variable a local variable
+     * @return true if {@code variable} is live at the start of {@code block}
+     */
+    public boolean isLiveBefore(Block block, LocalVariable variable) {
+        Integer index = variableIndexes.get(variable);
+        return index != null && liveBefore[block.getIndex()].get(index);
+    }
+
+    /**
+     * Returns the number of local variables that are live at the start of {@code block}.
+     *
+     * @param block a block of the control flow graph
+     * @return the number of local variables that are live at the start of {@code block}
+     */
+    public int getLiveCount(Block block) {
+        return liveBefore[block.getIndex()].cardinality();
+    }
+}
@@ -0,0 +1,232 @@
+package checkpoint;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.analysis.Analysis;
+import org.checkerframework.dataflow.analysis.ForwardAnalysisImpl;
+import org.checkerframework.dataflow.analysis.TransferInput;
+import org.checkerframework.dataflow.analysis.TransferResult;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.builder.CFGBuilder;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.constantpropagation.Constant;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationStore;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationTransfer;
+import org.checkerframework.javacutil.BasicTypeProcessor;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * Used in flowCheckpointTest Gradle task to test the checkpoints that {@link ForwardAnalysisImpl}
+ * records when {@link ForwardAnalysisImpl#setCheckpointing} has been called, as the framework does
+ * for the {@code -AflowCheckpointInterval} command-line option.
+ */
+public class Checkpoints {
+
+    /** The number of nodes between two checkpoints. */
+    private static final int INTERVAL = 2;
+
+    /**
+     * The main method expects to be run in dataflow/tests/flow-checkpoint directory. It runs the
+     * constant propagation on method test, with and without checkpoints, and writes the recorded
+     * checkpoints. For the store before and after every node, it writes whether the analysis
+     * started at a checkpoint computes the same store as the analysis started at the beginning of
+     * the block, and how many transfer functions each of them ran.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        String inputFile = "Test.java";
+        String outputFile = "Out.txt";
+
+        CheckpointProcessor processor = new CheckpointProcessor();
+        Context context = new Context();
+        Options.instance(context).put("compilePolicy", "ATTR_ONLY");
+        JavaCompiler javac = new JavaCompiler(context);
+        JavacFileManager fileManager = (JavacFileManager) context.get(JavaFileManager.class);
+        JavaFileObject file =
+                fileManager
+                        .getJavaFileObjectsFromStrings(com.sun.tools.javac.util.List.of(inputFile))
+                        .iterator()
+                        .next();
+        javac.compile(
+                com.sun.tools.javac.util.List.of(file),
+                com.sun.tools.javac.util.List.of("Test"),
+                com.sun.tools.javac.util.List.of(processor),
+                com.sun.tools.javac.util.List.nil());
+        ControlFlowGraph cfg = processor.cfg;
+        if (cfg == null) {
+            System.err.println("Method test was not found.");
+            System.exit(1);
+        }
+
+        List<String> output = new ArrayList<>();
+        CountingAnalysis withoutCheckpoints = new CountingAnalysis();
+        withoutCheckpoints.performAnalysis(cfg);
+        output.add(
+                "Without checkpointing: "
+                        + withoutCheckpoints.getCheckpoints().size()
+                        + " checkpoints");
+        CountingAnalysis limited = new CountingAnalysis();
+        limited.setCheckpointing(INTERVAL, 1);
+        limited.performAnalysis(cfg);
+        output.add(
+                "Interval "
+                        + INTERVAL
+                        + ", at most 1: "
+                        + limited.getCheckpoints().size()
+                        + " checkpoints");
+
+        CountingAnalysis analysis = new CountingAnalysis();
+        analysis.setCheckpointing(INTERVAL, 1000);
+        analysis.performAnalysis(cfg);
+        Map<Node, TransferInput<Constant, ConstantPropagationStore>> checkpoints =
+                new IdentityHashMap<>(analysis.getCheckpoints());
+        output.add("Interval " + INTERVAL + ": " + checkpoints.size() + " checkpoints");
+
+        for (Block block : cfg.getIndexedBlocks()) {
+            if (block.getType() != Block.BlockType.REGULAR_BLOCK) {
+                continue;
+            }
+            TransferInput<Constant, ConstantPropagationStore> input = analysis.getInput(block);
+            if (input == null) {
+                continue;
+            }
+            output.add("");
+            output.add("Block " + block.getIndex() + ":");
+            List<Node> nodes = block.getNodes();
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                output.add(
+                        "  "
+                                + i
+                                + ": "
+                                + node
+                                + (checkpoints.containsKey(node) ? " (checkpoint)" : ""));
+                for (Analysis.BeforeOrAfter preOrPost : Analysis.BeforeOrAfter.values()) {
+                    analysis.transferFunctionCalls = 0;
+                    ConstantPropagationStore fromCheckpoint =
+                            analysis.runAnalysisFor(
+                                    node,
+                                    preOrPost,
+                                    input,
+                                    analysis.getNodeValues(),
+                                    new HashMap<>(),
+                                    checkpoints);
+                    int fromCheckpointCalls = analysis.transferFunctionCalls;
+                    analysis.transferFunctionCalls = 0;
+                    ConstantPropagationStore fromBlockStart =
+                            analysis.runAnalysisFor(
+                                    node,
+                                    preOrPost,
+                                    input,
+                                    analysis.getNodeValues(),
+                                    new HashMap<>(),
+                                    Collections.emptyMap());
+                    int fromBlockStartCalls = analysis.transferFunctionCalls;
+                    output.add(
+                            String.format(
+                                    "    %s: %s, %d transfer functions from the checkpoint, %d"
+                                            + " from the block start",
+                                    preOrPost.toString().toLowerCase(),
+                                    fromCheckpoint.equals(fromBlockStart)
+                                            ? "same store"
+                                            : "DIFFERENT: "
+                                                    + fromCheckpoint
+                                                    + " and "
+                                                    + fromBlockStart,
+                                    fromCheckpointCalls,
+                                    fromBlockStartCalls));
+                }
+            }
+        }
+
+        try (FileWriter out = new FileWriter(outputFile)) {
+            for (String line : output) {
+                out.write(line);
+                out.write("\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A constant propagation that counts the transfer functions it runs and exposes its
+     * checkpoints.
+     */
+    private static class CountingAnalysis
+            extends ForwardAnalysisImpl<
+                    Constant, ConstantPropagationStore, ConstantPropagationTransfer> {
+
+        /** The number of transfer functions run since this field was last reset. */
+        int transferFunctionCalls = 0;
+
+        /** Creates a CountingAnalysis. */
+        CountingAnalysis() {
+            super(new ConstantPropagationTransfer());
+        }
+
+        /**
+         * Returns the checkpoints recorded by the last call to {@link #performAnalysis}.
+         *
+         * @return the checkpoints recorded by the last call to {@link #performAnalysis}
+         */
+        Map<Node, TransferInput<Constant, ConstantPropagationStore>> getCheckpoints() {
+            return checkpoints;
+        }
+
+        @Override
+        protected TransferResult<Constant, ConstantPropagationStore> callTransferFunction(
+                Node node, TransferInput<Constant, ConstantPropagationStore> input) {
+            transferFunctionCalls++;
+            return super.callTransferFunction(node, input);
+        }
+    }
+
+    /** Builds the control flow graph of method test. */
+    @SupportedAnnotationTypes("*")
+    private static class CheckpointProcessor extends BasicTypeProcessor {
+
+        /** The control flow graph of method test, or null if it was not found. */
+        @Nullable ControlFlowGraph cfg = null;
+
+        @Override
+        protected TreePathScanner<?, ?> createTreePathScanner(CompilationUnitTree root) {
+            return new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitMethod(MethodTree tree, Void p) {
+                    if (tree.getName().contentEquals("test")) {
+                        ClassTree classTree = TreeUtils.enclosingClass(getCurrentPath());
+                        cfg = CFGBuilder.build(root, tree, classTree, processingEnv);
+                    }
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package equivalence;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.block.RegularBlock;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock;
+import org.checkerframework.dataflow.cfg.builder.CFGTranslationPhaseOne;
+import org.checkerframework.dataflow.cfg.builder.CFGTranslationPhaseThree;
+import org.checkerframework.dataflow.cfg.builder.CFGTranslationPhaseTwo;
+import org.checkerframework.dataflow.cfg.builder.CFGTranslationPhaseTwoAndThree;
+import org.checkerframework.dataflow.cfg.builder.PhaseOneResult;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.javacutil.BasicAnnotationProvider;
+import org.checkerframework.javacutil.BasicTypeProcessor;
+import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.trees.TreeBuilder;
+
+/**
+ * Used in cfgEquivalenceTest Gradle task to check that {@link CFGTranslationPhaseTwoAndThree}
+ * builds the same control flow graphs as {@link CFGTranslationPhaseTwo} followed by {@link
+ * CFGTranslationPhaseThree}. The two graphs of a method are equivalent if their canonical forms are
+ * equal; see {@link #canonicalForm}.
+ *
+ * <p>Phase three does not always merge a regular block into its only predecessor; for example, it
+ * leaves apart some of the blocks that follow a finally block. The combined phase merges them, so
+ * the canonical form treats a chain of such blocks as one block.
+ */
+public class CFGEquivalence {
+
+    /** The names of the phase-one options, in the order of {@link #CONFIGURATIONS}. */
+    private static final String[] CONFIGURATION_NAMES = {
+        "default", "ignoreUncaughtUncheckedExceptions", "shareFinallyBlocks"
+    };
+
+    /**
+     * The values of the {@code ignoreUncaughtUncheckedExceptions} and {@code shareFinallyBlocks}
+     * phase-one options with which every method is translated.
+     */
+    private static final boolean[][] CONFIGURATIONS = {
+        {false, false}, {true, false}, {false, true}
+    };
+
+    /**
+     * The main method expects to be run in dataflow/tests/cfg-equivalence directory. For every
+     * method of Test.java and every configuration of phase one, it writes whether the two
+     * translations are equivalent, and their canonical forms if they are not.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        String inputFile = "Test.java";
+        String outputFile = "Out.txt";
+
+        EquivalenceProcessor processor = new EquivalenceProcessor();
+        Context context = new Context();
+        Options.instance(context).put("compilePolicy", "ATTR_ONLY");
+        JavaCompiler javac = new JavaCompiler(context);
+        JavacFileManager fileManager = (JavacFileManager) context.get(JavaFileManager.class);
+        JavaFileObject file =
+                fileManager
+                        .getJavaFileObjectsFromStrings(com.sun.tools.javac.util.List.of(inputFile))
+                        .iterator()
+                        .next();
+        javac.compile(
+                com.sun.tools.javac.util.List.of(file),
+                com.sun.tools.javac.util.List.of("Test"),
+                com.sun.tools.javac.util.List.of(processor),
+                com.sun.tools.javac.util.List.nil());
+
+        try (FileWriter out = new FileWriter(outputFile)) {
+            for (String line : processor.output) {
+                out.write(line);
+                out.write("\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Translates every method with both implementations of phases two and three. */
+    @SupportedAnnotationTypes("*")
+    private static class EquivalenceProcessor extends BasicTypeProcessor {
+
+        /** The lines to write to the output file. */
+        final List<String> output = new ArrayList<>();
+
+        @Override
+        protected TreePathScanner<?, ?> createTreePathScanner(CompilationUnitTree root) {
+            return new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitMethod(MethodTree tree, Void p) {
+                    if (tree.getBody() != null) {
+                        ClassTree classTree = TreeUtils.enclosingClass(getCurrentPath());
+                        UnderlyingAST underlyingAST = new UnderlyingAST.CFGMethod(tree, classTree);
+                        for (int i = 0; i < CONFIGURATIONS.length; i++) {
+                            compare(root, underlyingAST, tree, i);
+                        }
+                    }
+                    return super.visitMethod(tree, p);
+                }
+            };
+        }
+
+        /**
+         * Translates a method with both implementations of phases two and three, and records
+         * whether the results are equivalent.
+         *
+         * @param root the compilation unit that contains the method
+         * @param underlyingAST the method
+         * @param tree the method
+         * @param configuration the index of the phase-one configuration in {@link #CONFIGURATIONS}
+         */
+        private void compare(
+                CompilationUnitTree root,
+                UnderlyingAST underlyingAST,
+                MethodTree tree,
+                int configuration) {
+            // Phases two and three set the blocks of the nodes, so each needs its own phase one.
+            ControlFlowGraph reference =
+                    CFGTranslationPhaseThree.process(
+                            CFGTranslationPhaseTwo.process(
+                                    phaseOne(root, underlyingAST, configuration)));
+            ControlFlowGraph combined =
+                    CFGTranslationPhaseTwoAndThree.process(
+                            phaseOne(root, underlyingAST, configuration));
+            String referenceForm = canonicalForm(reference);
+            String combinedForm = canonicalForm(combined);
+            String name = tree.getName() + " (" + CONFIGURATION_NAMES[configuration] + ")";
+            if (referenceForm.equals(combinedForm)) {
+                output.add(
+                        String.format(
+                                "%s: equivalent, %d blocks",
+                                name, referenceForm.split("\n").length));
+            } else {
+                output.add(name + ": DIFFERENT");
+                output.add("phases two and three:");
+                output.add(referenceForm);
+                output.add("combined phase:");
+                output.add(combinedForm);
+            }
+        }
+
+        /**
+         * Performs phase one of the translation of a method.
+         *
+         * @param root the compilation unit that contains the method
+         * @param underlyingAST the method
+         * @param configuration the index of the phase-one configuration in {@link #CONFIGURATIONS}
+         * @return the result of phase one
+         */
+        private PhaseOneResult phaseOne(
+                CompilationUnitTree root, UnderlyingAST underlyingAST, int configuration) {
+            return new CFGTranslationPhaseOne(
+                            new TreeBuilder(processingEnv),
+                            new BasicAnnotationProvider(),
+                            false,
+                            false,
+                            CONFIGURATIONS[configuration][0],
+                            CONFIGURATIONS[configuration][1],
+                            processingEnv)
+                    .process(root, underlyingAST);
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+    }
+
+    /**
+     * Returns a representation of a control flow graph that does not depend on the identifiers of
+     * its blocks. The blocks are numbered in breadth-first order from the entry block, visiting the
+     * successors of a block in a fixed order: the regular successor, the 'then' and 'else'
+     * successors, and the exceptional successors ordered by exception type and by contents. A
+     * regular block stands for the chain of regular blocks that starts with it; see {@link #chain}.
+     *
+     * @param cfg a control flow graph
+     * @return the canonical form of {@code cfg}
+     */
+    private static String canonicalForm(ControlFlowGraph cfg) {
+        Map<Block, Integer> numbers = new IdentityHashMap<>();
+        List<Block> blocks = new ArrayList<>();
+        Queue<Block> worklist = new ArrayDeque<>();
+        numbers.put(cfg.getEntryBlock(), 0);
+        blocks.add(cfg.getEntryBlock());
+        worklist.add(cfg.getEntryBlock());
+        while (!worklist.isEmpty()) {
+            for (Block successor : orderedSuccessors(worklist.remove())) {
+                if (!numbers.containsKey(successor)) {
+                    numbers.put(successor, blocks.size());
+                    blocks.add(successor);
+                    worklist.add(successor);
+                }
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (Block first : blocks) {
+            List<Block> chain = chain(first);
+            Block block = chain.get(chain.size() - 1);
+            result.append(numbers.get(first)).append(": ").append(contents(chain));
+            if (block instanceof SingleSuccessorBlock) {
+                SingleSuccessorBlock single = (SingleSuccessorBlock) block;
+                Block successor = single.getSuccessor();
+                if (successor != null) {
+                    result.append(" -> ")
+                            .append(numbers.get(successor))
+                            .append(' ')
+                            .append(single.getFlowRule());
+                }
+            } else if (block instanceof ConditionalBlock) {
+                ConditionalBlock conditional = (ConditionalBlock) block;
+                result.append(" then -> ")
+                        .append(numbers.get(conditional.getThenSuccessor()))
+                        .append(' ')
+                        .append(conditional.getThenFlowRule())
+                        .append(", else -> ")
+                        .append(numbers.get(conditional.getElseSuccessor()))
+                        .append(' ')
+                        .append(conditional.getElseFlowRule());
+            }
+            if (block instanceof ExceptionBlock) {
+                for (Map.Entry<String, List<Block>> entry :
+                        exceptionalSuccessors((ExceptionBlock) block).entrySet()) {
+                    result.append(", ").append(entry.getKey()).append(" ->");
+                    for (Block successor : entry.getValue()) {
+                        result.append(' ').append(numbers.get(successor));
+                    }
+                }
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the successors of a block, in the order in which {@link #canonicalForm} numbers them.
+     *
+     * @param block a block
+     * @return the successors of {@code block}
+     */
+    private static List<Block> orderedSuccessors(Block block) {
+        List<Block> chain = chain(block);
+        block = chain.get(chain.size() - 1);
+        List<Block> result = new ArrayList<>();
+        if (block instanceof SingleSuccessorBlock) {
+            Block successor = ((SingleSuccessorBlock) block).getSuccessor();
+            if (successor != null) {
+                result.add(successor);
+            }
+        } else if (block instanceof ConditionalBlock) {
+            result.add(((ConditionalBlock) block).getThenSuccessor());
+            result.add(((ConditionalBlock) block).getElseSuccessor());
+        }
+        if (block instanceof ExceptionBlock) {
+            for (List<Block> successors : exceptionalSuccessors((ExceptionBlock) block).values()) {
+                result.addAll(successors);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the exceptional successors of a block, ordered by exception type and by contents.
+     *
+     * @param block an exception block
+     * @return the exceptional successors of {@code block}
+     */
+    private static Map<String, List<Block>> exceptionalSuccessors(ExceptionBlock block) {
+        Map<String, List<Block>> result = new TreeMap<>();
+        for (Map.Entry<TypeMirror, Set<Block>> entry :
+                block.getExceptionalSuccessors().entrySet()) {
+            List<Block> successors = new ArrayList<>(entry.getValue());
+            successors.sort(Comparator.comparing(successor -> contents(chain(successor))));
+            result.put(entry.getKey().toString(), successors);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a regular block followed by the regular blocks that could be merged into it: each
+     * block of the chain is the successor of the previous one, and has no other predecessor.
+     * Returns a singleton for other blocks.
+     *
+     * @param block a block
+     * @return the chain of regular blocks that starts with {@code block}
+     */
+    private static List<Block> chain(Block block) {
+        List<Block> result = new ArrayList<>();
+        result.add(block);
+        while (block instanceof RegularBlock) {
+            Block successor = ((RegularBlock) block).getSuccessor();
+            if (!(successor instanceof RegularBlock)
+                    || successor.getPredecessors().size() != 1
+                    || result.contains(successor)) {
+                break;
+            }
+            result.add(successor);
+            block = successor;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the type of a chain of blocks and their nodes.
+     *
+     * @param chain a chain of blocks, as returned by {@link #chain}
+     * @return the type of the blocks of {@code chain} and their nodes
+     */
+    private static String contents(List<Block> chain) {
+        Block block = chain.get(0);
+        StringBuilder result = new StringBuilder();
+        result.append(block.getType());
+        if (block instanceof SpecialBlock) {
+            result.append(' ').append(((SpecialBlock) block).getSpecialType());
+        }
+        result.append(" [");
+        String separator = "";
+        for (Block b : chain) {
+            for (Node node : b.getNodes()) {
+                result.append(separator)
+                        .append(node.getClass().getSimpleName())
+                        .append(' ')
+                        .append(node);
+                separator = "; ";
+            }
+        }
+        return result.append(']').toString();
+    }
+}
@@ -0,0 +1,371 @@
+package serialization;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock;
+import org.checkerframework.dataflow.cfg.builder.CFGBuilder;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.serialization.CFGDeserializer;
+import org.checkerframework.dataflow.cfg.serialization.CFGSerializer;
+import org.checkerframework.dataflow.cfg.serialization.SerializedBlock;
+import org.checkerframework.dataflow.cfg.serialization.SerializedCFG;
+import org.checkerframework.dataflow.cfg.serialization.SerializedNode;
+import org.checkerframework.javacutil.BasicTypeProcessor;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * Used in cfgSerializationTest Gradle task to check that {@link CFGDeserializer} reads back the
+ * control flow graphs that {@link CFGSerializer} writes.
+ */
+public class CFGRoundTrip {
+
+    /** The inputs of the other dataflow tests, relative to dataflow/tests/cfg-serialization. */
+    private static final String[] INPUT_FILES = {
+        "../cfg-equivalence/Test.java",
+        "../issue3447/Test.java",
+        "../live-variable/Test.java",
+        "../shared-finally/Test.java",
+        "../sparse-constant-propagation/Test.java"
+    };
+
+    /**
+     * The main method expects to be run in dataflow/tests/cfg-serialization directory. For every
+     * method of the inputs of the other dataflow tests, it serializes and deserializes the control
+     * flow graph and writes the differences between the graph and the deserialized one, and the
+     * number of operands that are not in the graph, which the serialized graph embeds in the nodes
+     * that use them.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        String outputFile = "Out.txt";
+
+        List<String> output = new ArrayList<>();
+        for (String inputFile : INPUT_FILES) {
+            output.add(inputFile + ":");
+            RoundTripProcessor processor = new RoundTripProcessor(output);
+            Context context = new Context();
+            Options.instance(context).put("compilePolicy", "ATTR_ONLY");
+            JavaCompiler javac = new JavaCompiler(context);
+            // Record end positions, which the serialized graph contains.
+            javac.genEndPos = true;
+            JavacFileManager fileManager = (JavacFileManager) context.get(JavaFileManager.class);
+            try {
+                // Write the class files to the current directory, not to those of the inputs.
+                fileManager.setLocation(
+                        StandardLocation.CLASS_OUTPUT, Collections.singleton(new File(".")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            JavaFileObject file =
+                    fileManager
+                            .getJavaFileObjectsFromStrings(
+                                    com.sun.tools.javac.util.List.of(inputFile))
+                            .iterator()
+                            .next();
+            javac.compile(
+                    com.sun.tools.javac.util.List.of(file),
+                    com.sun.tools.javac.util.List.of("Test"),
+                    com.sun.tools.javac.util.List.of(processor),
+                    com.sun.tools.javac.util.List.nil());
+        }
+
+        try (FileWriter out = new FileWriter(outputFile)) {
+            for (String line : output) {
+                out.write(line);
+                out.write("\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Serializes and deserializes the control flow graph of every method. */
+    @SupportedAnnotationTypes("*")
+    private static class RoundTripProcessor extends BasicTypeProcessor {
+
+        /** The lines to write to the output file. */
+        private final List<String> output;
+
+        /**
+         * Creates a RoundTripProcessor.
+         *
+         * @param output the lines to write to the output file
+         */
+        RoundTripProcessor(List<String> output) {
+            this.output = output;
+        }
+
+        @Override
+        protected TreePathScanner<?, ?> createTreePathScanner(CompilationUnitTree root) {
+            return new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitMethod(MethodTree tree, Void p) {
+                    if (tree.getBody() != null) {
+                        ClassTree classTree = TreeUtils.enclosingClass(getCurrentPath());
+                        ControlFlowGraph cfg =
+                                CFGBuilder.build(root, tree, classTree, processingEnv);
+                        roundTrip(cfg, root, tree.getName().toString());
+                    }
+                    return super.visitMethod(tree, p);
+                }
+            };
+        }
+
+        /**
+         * Serializes and deserializes a control flow graph, and records the differences.
+         *
+         * @param cfg the control flow graph
+         * @param root the compilation unit that contains the code of {@code cfg}
+         * @param name the name of the method of {@code cfg}
+         */
+        private void roundTrip(ControlFlowGraph cfg, CompilationUnitTree root, String name) {
+            SerializedCFG serialized;
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                CFGSerializer.write(cfg, root, bytes);
+                try (CFGDeserializer deserializer =
+                        new CFGDeserializer(new ByteArrayInputStream(bytes.toByteArray()))) {
+                    serialized = deserializer.readGraph();
+                }
+            } catch (IOException e) {
+                output.add("  " + name + ": " + e);
+                return;
+            }
+
+            List<String> differences = new ArrayList<>();
+            List<Block> blocks = cfg.getIndexedBlocks();
+            check(differences, "block count", blocks.size(), serialized.getBlocks().size());
+            check(
+                    differences,
+                    "entry block",
+                    index(cfg.getEntryBlock()),
+                    serialized.getEntryBlock().getIndex());
+            int nodes = 0;
+            int operandsOutside = 0;
+            for (int i = 0; i < Math.min(blocks.size(), serialized.getBlocks().size()); i++) {
+                Block block = blocks.get(i);
+                SerializedBlock serializedBlock = serialized.getBlocks().get(i);
+                String where = "block " + i;
+                check(differences, where + " type", block.getType(), serializedBlock.getType());
+                if (block instanceof SpecialBlock) {
+                    check(
+                            differences,
+                            where + " special type",
+                            ((SpecialBlock) block).getSpecialType(),
+                            serializedBlock.getSpecialType());
+                }
+                checkSuccessors(differences, where, block, serializedBlock);
+
+                List<Node> blockNodes = block.getNodes();
+                List<SerializedNode> serializedNodes = serializedBlock.getNodes();
+                check(
+                        differences,
+                        where + " node count",
+                        blockNodes.size(),
+                        serializedNodes.size());
+                for (int j = 0; j < Math.min(blockNodes.size(), serializedNodes.size()); j++) {
+                    Node node = blockNodes.get(j);
+                    SerializedNode serializedNode = serializedNodes.get(j);
+                    String nodeWhere = where + " node " + j;
+                    check(differences, nodeWhere + " index", nodes, serializedNode.getIndex());
+                    operandsOutside += checkNode(differences, nodeWhere, cfg, node, serializedNode);
+                    nodes++;
+                }
+            }
+            check(differences, "node count", nodes, serialized.getNodes().size());
+
+            output.add(
+                    String.format(
+                            "  %s: %d blocks, %d nodes, %d operands outside the graph, %s",
+                            name,
+                            blocks.size(),
+                            nodes,
+                            operandsOutside,
+                            differences.isEmpty() ? "round trip OK" : "DIFFERENT"));
+            for (String difference : differences) {
+                output.add("    " + difference);
+            }
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+    }
+
+    /**
+     * Records the differences between a node and the deserialized node, including those of the
+     * operands that are not in the graph, which are compared recursively.
+     *
+     * @param differences the list of differences to add to
+     * @param where a description of the node
+     * @param cfg the control flow graph
+     * @param node the node
+     * @param serializedNode the deserialized node
+     * @return the number of operands of {@code node} and of its embedded operands that are not in
+     *     the graph
+     */
+    private static int checkNode(
+            List<String> differences,
+            String where,
+            ControlFlowGraph cfg,
+            Node node,
+            SerializedNode serializedNode) {
+        check(
+                differences,
+                where + " class",
+                node.getClass().getSimpleName(),
+                serializedNode.getNodeClass());
+        check(differences, where + " label", node.toString(), serializedNode.getLabel());
+        List<Node> nodeOperands = new ArrayList<>(node.getOperands());
+        List<Integer> operands = new ArrayList<>();
+        for (Node operand : nodeOperands) {
+            boolean inGraph = operand != null && operand.getGraphUid() == cfg.getUid();
+            operands.add(inGraph ? operand.getGraphIndex() : -1);
+        }
+        check(differences, where + " operands", operands, serializedNode.getOperands());
+
+        int operandsOutside = 0;
+        List<@Nullable SerializedNode> embeddedOperands = serializedNode.getEmbeddedOperands();
+        for (int i = 0; i < Math.min(nodeOperands.size(), embeddedOperands.size()); i++) {
+            Node operand = nodeOperands.get(i);
+            SerializedNode embeddedOperand = embeddedOperands.get(i);
+            String operandWhere = where + " operand " + i;
+            if (operand == null || operand.getGraphUid() == cfg.getUid()) {
+                check(differences, operandWhere + " embedded", false, embeddedOperand != null);
+            } else if (embeddedOperand == null) {
+                differences.add(operandWhere + ": not embedded");
+            } else {
+                check(differences, operandWhere + " index", -1, embeddedOperand.getIndex());
+                operandsOutside +=
+                        1 + checkNode(differences, operandWhere, cfg, operand, embeddedOperand);
+            }
+        }
+        return operandsOutside;
+    }
+
+    /**
+     * Records the successors of a block that differ from those of the deserialized block.
+     *
+     * @param differences the list of differences to add to
+     * @param where a description of the block
+     * @param block the block
+     * @param serializedBlock the deserialized block
+     */
+    private static void checkSuccessors(
+            List<String> differences, String where, Block block, SerializedBlock serializedBlock) {
+        if (block instanceof ConditionalBlock) {
+            ConditionalBlock conditional = (ConditionalBlock) block;
+            check(
+                    differences,
+                    where + " then successor",
+                    index(conditional.getThenSuccessor()),
+                    serializedBlock.getSuccessor());
+            check(
+                    differences,
+                    where + " then flow rule",
+                    conditional.getThenFlowRule(),
+                    serializedBlock.getFlowRule());
+            check(
+                    differences,
+                    where + " else successor",
+                    index(conditional.getElseSuccessor()),
+                    serializedBlock.getElseSuccessor());
+            check(
+                    differences,
+                    where + " else flow rule",
+                    conditional.getElseFlowRule(),
+                    serializedBlock.getElseFlowRule());
+            return;
+        }
+        SingleSuccessorBlock single = (SingleSuccessorBlock) block;
+        check(
+                differences,
+                where + " successor",
+                index(single.getSuccessor()),
+                serializedBlock.getSuccessor());
+        check(
+                differences,
+                where + " flow rule",
+                single.getFlowRule(),
+                serializedBlock.getFlowRule());
+        Map<String, Set<Integer>> exceptionalSuccessors = new TreeMap<>();
+        if (block instanceof ExceptionBlock) {
+            for (Map.Entry<TypeMirror, Set<Block>> entry :
+                    ((ExceptionBlock) block).getExceptionalSuccessors().entrySet()) {
+                Set<Integer> successors = new HashSet<>();
+                for (Block successor : entry.getValue()) {
+                    successors.add(index(successor));
+                }
+                exceptionalSuccessors.put(entry.getKey().toString(), successors);
+            }
+        }
+        Map<String, Set<Integer>> serializedExceptionalSuccessors = new TreeMap<>();
+        for (Map.Entry<String, List<Integer>> entry :
+                serializedBlock.getExceptionalSuccessors().entrySet()) {
+            serializedExceptionalSuccessors.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        check(
+                differences,
+                where + " exceptional successors",
+                exceptionalSuccessors,
+                serializedExceptionalSuccessors);
+    }
+
+    /**
+     * Returns the index of a block, or -1 if there is no block.
+     *
+     * @param block a block, or null
+     * @return the index of {@code block}, or -1
+     */
+    private static int index(@Nullable Block block) {
+        return block == null ? -1 : block.getIndex();
+    }
+
+    /**
+     * Records a difference if {@code expected} and {@code actual} are not equal.
+     *
+     * @param differences the list of differences to add to
+     * @param what a description of the compared values
+     * @param expected the value in the control flow graph
+     * @param actual the value in the deserialized control flow graph
+     */
+    private static void check(
+            List<String> differences, String what, Object expected, @Nullable Object actual) {
+        if (!expected.equals(actual)) {
+            differences.add(what + ": expected " + expected + ", found " + actual);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package sharedfinally;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.analysis.AnalysisResult;
+import org.checkerframework.dataflow.analysis.ForwardAnalysisImpl;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.builder.CFGTranslationPhaseOne;
+import org.checkerframework.dataflow.cfg.builder.CFGTranslationPhaseTwoAndThree;
+import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
+import org.checkerframework.dataflow.cfg.visualize.StringCFGVisualizer;
+import org.checkerframework.dataflow.constantpropagation.Constant;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationStore;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationTransfer;
+import org.checkerframework.javacutil.BasicAnnotationProvider;
+import org.checkerframework.javacutil.BasicTypeProcessor;
+import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.trees.TreeBuilder;
+
+/**
+ * Used in sharedFinallyTest Gradle task to test the continuation selector of a shared finally
+ * block, which is built when each finally block is translated only once.
+ */
+public class SharedFinally {
+
+    /**
+     * The main method expects to be run in dataflow/tests/shared-finally directory. It writes the
+     * control flow graph of method test, and the store of the constant propagation before each
+     * block.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        String inputFile = "Test.java";
+        String outputFile = "Out.txt";
+
+        SharedFinallyProcessor processor = new SharedFinallyProcessor();
+        Context context = new Context();
+        Options.instance(context).put("compilePolicy", "ATTR_ONLY");
+        JavaCompiler javac = new JavaCompiler(context);
+        JavacFileManager fileManager = (JavacFileManager) context.get(JavaFileManager.class);
+        JavaFileObject file =
+                fileManager
+                        .getJavaFileObjectsFromStrings(com.sun.tools.javac.util.List.of(inputFile))
+                        .iterator()
+                        .next();
+        javac.compile(
+                com.sun.tools.javac.util.List.of(file),
+                com.sun.tools.javac.util.List.of("Test"),
+                com.sun.tools.javac.util.List.of(processor),
+                com.sun.tools.javac.util.List.nil());
+        ControlFlowGraph cfg = processor.cfg;
+        if (cfg == null) {
+            System.err.println("Method test was not found.");
+            System.exit(1);
+        }
+
+        ForwardAnalysisImpl<Constant, ConstantPropagationStore, ConstantPropagationTransfer>
+                analysis = new ForwardAnalysisImpl<>(new ConstantPropagationTransfer());
+        analysis.performAnalysis(cfg);
+
+        Map<String, Object> vizArgs = new HashMap<>();
+        vizArgs.put("verbose", true);
+        CFGVisualizer<Constant, ConstantPropagationStore, ConstantPropagationTransfer> viz =
+                new StringCFGVisualizer<>();
+        viz.init(vizArgs);
+        Map<String, Object> res = viz.visualize(cfg, cfg.getEntryBlock(), null);
+        viz.shutdown();
+
+        List<Block> blocks = new ArrayList<>(cfg.getAllBlocks());
+        blocks.sort(Comparator.comparingLong(Block::getUid));
+        AnalysisResult<Constant, ConstantPropagationStore> result = analysis.getResult();
+        try (FileWriter out = new FileWriter(outputFile)) {
+            out.write(res.get("stringGraph").toString());
+            out.write("\n\nStores before the blocks:\n");
+            for (Block block : blocks) {
+                out.write(block.getUid() + ": " + result.getStoreBefore(block) + "\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Builds the control flow graph of method test, translating each finally block once. */
+    @SupportedAnnotationTypes("*")
+    private static class SharedFinallyProcessor extends BasicTypeProcessor {
+
+        /** The control flow graph of method test, or null if it was not found. */
+        @Nullable ControlFlowGraph cfg = null;
+
+        @Override
+        protected TreePathScanner<?, ?> createTreePathScanner(CompilationUnitTree root) {
+            return new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitMethod(MethodTree tree, Void p) {
+                    if (tree.getName().contentEquals("test")) {
+                        ClassTree classTree = TreeUtils.enclosingClass(getCurrentPath());
+                        cfg =
+                                CFGTranslationPhaseTwoAndThree.process(
+                                        new CFGTranslationPhaseOne(
+                                                        new TreeBuilder(processingEnv),
+                                                        new BasicAnnotationProvider(),
+                                                        false,
+                                                        false,
+                                                        false,
+                                                        true,
+                                                        processingEnv)
+                                                .process(
+                                                        root,
+                                                        new UnderlyingAST.CFGMethod(
+                                                                tree, classTree)));
+                    }
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package sparse;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import org.checkerframework.dataflow.analysis.AnalysisResult;
+import org.checkerframework.dataflow.analysis.ForwardAnalysisImpl;
+import org.checkerframework.dataflow.analysis.SparseForwardAnalysis;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.visualize.CFGVisualizeLauncher;
+import org.checkerframework.dataflow.constantpropagation.Constant;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationSparseTransfer;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationStore;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationTransfer;
+
+/**
+ * Used in sparseConstantPropagationTest Gradle task to compare the sparse constant propagation with
+ * the dense one.
+ */
+public class SparseConstantPropagation extends CFGVisualizeLauncher {
+
+    /**
+     * The main method expects to be run in dataflow/tests/sparse-constant-propagation directory.
+     * For every use of a local variable, it writes the value computed by the dense and by the
+     * sparse analysis.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+
+        String inputFile = "Test.java";
+        String method = "test";
+        String clazz = "Test";
+        String outputFile = "Out.txt";
+
+        ControlFlowGraph cfg =
+                new SparseConstantPropagation().generateMethodCFG(inputFile, clazz, method);
+
+        ForwardAnalysisImpl<Constant, ConstantPropagationStore, ConstantPropagationTransfer>
+                denseAnalysis = new ForwardAnalysisImpl<>(new ConstantPropagationTransfer());
+        denseAnalysis.performAnalysis(cfg);
+        AnalysisResult<Constant, ConstantPropagationStore> denseResult = denseAnalysis.getResult();
+
+        SparseForwardAnalysis<Constant, ConstantPropagationStore> sparseAnalysis =
+                new SparseForwardAnalysis<>(new ConstantPropagationSparseTransfer());
+        sparseAnalysis.performAnalysis(cfg);
+
+        try (FileWriter out = new FileWriter(outputFile)) {
+            for (Block block : cfg.getIndexedBlocks()) {
+                for (Node node : block.getNodes()) {
+                    if (!(node instanceof LocalVariableNode) || node.isLValue()) {
+                        continue;
+                    }
+                    Constant dense = denseResult.getValue(node);
+                    Constant sparse = sparseAnalysis.getValue((LocalVariableNode) node);
+                    out.write(
+                            String.format(
+                                    "%s: dense %s, sparse %s%s%n",
+                                    node,
+                                    dense,
+                                    sparse,
+                                    String.valueOf(dense).equals(String.valueOf(sparse))
+                                            ? ""
+                                            : " DIFFERENT"));
+                }
+            }
+            out.write("regular exit: " + sparseAnalysis.getRegularExitStore());
+            out.write("\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
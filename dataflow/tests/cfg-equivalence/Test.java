@@ -0,0 +1,141 @@
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+
+public class Test {
+    int field;
+
+    public int conditionals(int a, boolean b) {
+        int x = b ? a : -a;
+        if (a > 0 && b || a < -10) {
+            x++;
+        } else if (!b) {
+            x--;
+        }
+        return x > 0 ? x : 0;
+    }
+
+    public int loops(int[] array, List<String> list) {
+        int sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] < 0) {
+                continue;
+            }
+            sum += array[i];
+        }
+        for (int value : array) {
+            sum += value;
+        }
+        for (String s : list) {
+            sum += s.length();
+        }
+        int j = 0;
+        while (j < sum) {
+            j += 2;
+        }
+        do {
+            j--;
+        } while (j > 0);
+        outer:
+        for (int k = 0; k < 10; k++) {
+            for (int l = 0; l < 10; l++) {
+                if (k * l > sum) {
+                    break outer;
+                }
+                if (k == l) {
+                    continue outer;
+                }
+            }
+        }
+        return sum;
+    }
+
+    public String switches(int a, String s) {
+        switch (a) {
+            case 1:
+                s = s + 1;
+            case 2:
+                s = s + 2;
+                break;
+            case 3:
+                return s;
+            default:
+                s = s + a;
+        }
+        switch (s) {
+            case "a":
+                return "A";
+            case "b":
+                break;
+        }
+        return s;
+    }
+
+    public int exceptions(String name) {
+        int result = 0;
+        try (FileReader reader = new FileReader(name)) {
+            result = reader.read();
+        } catch (IOException e) {
+            result = -1;
+        } finally {
+            field++;
+        }
+        try {
+            if (result > 0) {
+                return result;
+            }
+            result = Integer.parseInt(name);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            field--;
+        }
+        return result;
+    }
+
+    public int finallyExits(int[] array) {
+        int count = 0;
+        for (int value : array) {
+            try {
+                if (value == 0) {
+                    break;
+                }
+                if (value < 0) {
+                    continue;
+                }
+                if (value > 100) {
+                    return value;
+                }
+                count += 100 / value;
+            } finally {
+                count++;
+            }
+        }
+        try {
+            try {
+                count = count / array.length;
+            } finally {
+                count--;
+            }
+        } finally {
+            count++;
+        }
+        return count;
+    }
+
+    public void misc(Object o) {
+        assert o != null : "null";
+        synchronized (this) {
+            field = o instanceof String ? ((String) o).length() : 0;
+        }
+        int[][] matrix = new int[field][2];
+        matrix[0][1] += field++;
+        Runnable r = () -> field++;
+        r.run();
+        if (o == null) {
+            throw new RuntimeException();
+        }
+    }
+
+    public void empty() {}
+}
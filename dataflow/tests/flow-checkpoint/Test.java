@@ -0,0 +1,11 @@
+public class Test {
+    public int test(int a) {
+        int x = 1;
+        int y = x;
+        int z = y;
+        x = 2;
+        y = x;
+        z = y + a;
+        return x + y + z;
+    }
+}
@@ -0,0 +1,25 @@
+public class Test {
+    public int test(int[] a) {
+        int x = 0;
+        int y = 0;
+        done:
+        {
+            try {
+                if (a[0] == 0) {
+                    x = 1;
+                    break done;
+                }
+                if (a[0] == 1) {
+                    x = 2;
+                    return x;
+                }
+                x = 3;
+                a[x] = x;
+            } finally {
+                y = 4;
+            }
+            x = 5;
+        }
+        return x + y;
+    }
+}
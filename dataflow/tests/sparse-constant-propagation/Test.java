@@ -0,0 +1,31 @@
+public class Test {
+    public int test(int p, boolean b) {
+        int x = 1;
+        int y = x;
+        int z;
+        if (b) {
+            z = 2;
+        } else {
+            z = 2;
+        }
+        int w = z;
+        if (b) {
+            x = 3;
+        }
+        int v = x;
+        int q = p;
+        while (b) {
+            y = y;
+            b = !b;
+        }
+        int u = y;
+        p = 4;
+        try {
+            p = 5;
+            p = p;
+        } finally {
+            q = p;
+        }
+        return v + w + q + u;
+    }
+}
@@ -10,6 +10,7 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -21,6 +22,7 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.stream.Stream;
 import javax.tools.Diagnostic;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
@@ -453,6 +455,27 @@ public class TestUtilities {
         }
     }
 
+    /**
+     * Delete the directory and its contents, if it exists. Used by tests that must start without
+     * the files that an earlier run wrote, such as cache files.
+     *
+     * @param dir the directory to delete
+     */
+    public static void deleteDirectory(String dir) {
+        Path path = Paths.get(dir);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(
+                    "Could not delete directory: " + dir + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Return true if the system property is set to "true". Return false if the system property is
      * not set or is set to "false". Otherwise, errs.
@@ -32,6 +32,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.ClassGetName;
 import org.checkerframework.common.reflection.MethodValChecker;
 import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
+import org.checkerframework.framework.flow.ControlFlowGraphCache;
 import org.checkerframework.framework.qual.SubtypeOf;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
@@ -109,6 +110,38 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         }
 
         super.initChecker();
+
+        if (parentChecker == null) {
+            incrementalCheckIndex = IncrementalCheckIndex.create(this);
+        }
+    }
+
+    /**
+     * The index of the diagnostics issued for each class in earlier compilations. Null unless the
+     * incrementalCheckDir command-line option is supplied and this checker is not a subchecker.
+     */
+    private @Nullable IncrementalCheckIndex incrementalCheckIndex = null;
+
+    /**
+     * Returns the number of classes whose diagnostics were replayed from the incremental check
+     * index in this compilation, or 0 if the incrementalCheckDir command-line option is not
+     * supplied.
+     *
+     * @return the number of classes whose diagnostics were replayed
+     */
+    public int getIncrementalCheckReplayedClasses() {
+        return incrementalCheckIndex == null ? 0 : incrementalCheckIndex.getReplayedClasses();
+    }
+
+    /**
+     * Returns the number of classes that were type-checked and recorded in the incremental check
+     * index in this compilation, or 0 if the incrementalCheckDir command-line option is not
+     * supplied.
+     *
+     * @return the number of classes that were type-checked and recorded
+     */
+    public int getIncrementalCheckCheckedClasses() {
+        return incrementalCheckIndex == null ? 0 : incrementalCheckIndex.getCheckedClasses();
     }
 
     /**
@@ -144,6 +177,12 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
      */
     private TreePathCacher treePathCacher = null;
 
+    /**
+     * The control flow graphs shared by this checker and its subcheckers. Initialized either in
+     * getControlFlowGraphCache or in instantiateSubcheckers.
+     */
+    private @MonotonicNonNull ControlFlowGraphCache controlFlowGraphCache = null;
+
     @Override
     protected void setRoot(CompilationUnitTree newRoot) {
         super.setRoot(newRoot);
@@ -432,6 +471,7 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
 
             instance.setProcessingEnvironment(this.processingEnv);
             instance.treePathCacher = this.getTreePathCacher();
+            instance.controlFlowGraphCache = this.getControlFlowGraphCache();
             // Prevent the new checker from storing non-immediate subcheckers
             instance.subcheckers = Collections.emptyList();
             immediateSubcheckers.add(instance);
@@ -475,9 +515,49 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         return treePathCacher;
     }
 
+    /**
+     * Returns the control flow graphs shared by this checker, its subcheckers, and the checker that
+     * runs them.
+     *
+     * @return the shared control flow graph cache
+     */
+    public ControlFlowGraphCache getControlFlowGraphCache() {
+        if (controlFlowGraphCache == null) {
+            // In case it wasn't already set in instantiateSubcheckers.
+            controlFlowGraphCache = new ControlFlowGraphCache();
+        }
+        return controlFlowGraphCache;
+    }
+
     // AbstractTypeProcessor delegation
     @Override
     public void typeProcess(TypeElement element, TreePath tree) {
+        if (incrementalCheckIndex != null && willTypeCheck(tree)) {
+            if (incrementalCheckIndex.replay(element, tree)) {
+                // The replayed errors are not Java errors, so the next class is type-checked.
+                Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+                this.errsOnLastExit = Log.instance(context).nerrors;
+                return;
+            }
+            incrementalCheckIndex.startRecording(element, tree);
+            try {
+                typeProcessAllCheckers(element, tree);
+            } finally {
+                incrementalCheckIndex.stopRecording();
+            }
+        } else {
+            typeProcessAllCheckers(element, tree);
+        }
+    }
+
+    /**
+     * Type-checks the class at {@code tree} with the subcheckers of this checker, then with this
+     * checker.
+     *
+     * @param element the class to type-check
+     * @param tree the path to the class
+     */
+    private void typeProcessAllCheckers(TypeElement element, TreePath tree) {
         if (!getSubcheckers().isEmpty()) {
             // TODO: I expected this to only be necessary if (parentChecker == null).
             // However, the NestedAggregateChecker fails otherwise.
@@ -570,7 +650,7 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         assert this.currentRoot == root;
         StackTraceElement[] trace = Thread.currentThread().getStackTrace();
         if (messageStore == null) {
-            super.printOrStoreMessage(kind, message, source, root, trace);
+            printAndRecordMessage(kind, message, source, root, trace);
         } else {
             CheckerMessage checkerMessage = new CheckerMessage(kind, message, source, this, trace);
             messageStore.add(checkerMessage);
@@ -587,11 +667,32 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
     private void printStoredMessages(CompilationUnitTree unit) {
         if (messageStore != null) {
             for (CheckerMessage msg : messageStore) {
-                super.printOrStoreMessage(msg.kind, msg.message, msg.source, unit, msg.trace);
+                printAndRecordMessage(msg.kind, msg.message, msg.source, unit, msg.trace);
             }
         }
     }
 
+    /**
+     * Prints the given message, and records it in the incremental check index if there is one.
+     *
+     * @param kind the kind of message to print
+     * @param message the message text
+     * @param source the source code position of the diagnostic message
+     * @param root the compilation unit
+     * @param trace the stack trace where the checker encountered an error
+     */
+    private void printAndRecordMessage(
+            Diagnostic.Kind kind,
+            String message,
+            Tree source,
+            CompilationUnitTree root,
+            StackTraceElement[] trace) {
+        super.printOrStoreMessage(kind, message, source, root, trace);
+        if (incrementalCheckIndex != null) {
+            incrementalCheckIndex.recordDiagnostic(kind, message, source, root);
+        }
+    }
+
     /** Represents a message (e.g., an error message) issued by a checker. */
     private static class CheckerMessage {
         /** The severity of the message. */
@@ -722,6 +823,14 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
             checker.typeProcessingOver();
         }
 
+        GenericAnnotatedTypeFactory<?, ?, ?, ?> atypeFactory = getTypeFactory();
+        if (atypeFactory != null) {
+            atypeFactory.typeProcessingOver();
+        }
+        if (incrementalCheckIndex != null) {
+            incrementalCheckIndex.write();
+        }
+
         super.typeProcessingOver();
     }
 
@@ -786,6 +895,28 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         return false;
     }
 
+    @Override
+    protected void printStats() {
+        super.printStats();
+
+        getTypeFactory().printStatistics();
+        for (BaseTypeChecker checker : getSubcheckers()) {
+            checker.getTypeFactory().printStatistics();
+        }
+        if (controlFlowGraphCache != null) {
+            System.out.printf(
+                    "%s control flow graph cache: %d hits, %d misses%n",
+                    getClass().getSimpleName(),
+                    controlFlowGraphCache.getHits(),
+                    controlFlowGraphCache.getMisses());
+        }
+        if (incrementalCheckIndex != null) {
+            System.out.printf(
+                    "%s incremental check index: %s%n",
+                    getClass().getSimpleName(), incrementalCheckIndex.getStatistics());
+        }
+    }
+
     @Override
     protected void shutdownHook() {
         super.shutdownHook();
@@ -305,7 +305,41 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
         if (tree != null && getCurrentPath() != null) {
             this.visitorState.setPath(new TreePath(getCurrentPath(), tree));
         }
-        return super.scan(tree, p);
+        Void result = super.scan(tree, p);
+        if (tree != null && tree.getKind() == Tree.Kind.METHOD && shouldReleaseFlowResults()) {
+            releaseFlowResults((MethodTree) tree);
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the flow analysis results for a method should be released once the method has
+     * been visited, as requested by the {@code -AflowReleaseMethodResults} command-line option.
+     * Only the checker that runs all other checkers releases results: a checker may query the type
+     * factory of a subchecker, and subcheckers finish visiting a compilation unit before the
+     * checker that uses them starts.
+     *
+     * @return true if the flow analysis results for a method should be released after visiting it
+     */
+    protected boolean shouldReleaseFlowResults() {
+        return checker.getParentChecker() == null && checker.hasOption("flowReleaseMethodResults");
+    }
+
+    /**
+     * Releases the flow analysis results for {@code method}, in the type factory of this visitor
+     * and in those of all subcheckers.
+     *
+     * @param method a method that has been visited
+     * @see GenericAnnotatedTypeFactory#releaseFlowResults(MethodTree)
+     */
+    protected void releaseFlowResults(MethodTree method) {
+        atypeFactory.releaseFlowResults(method);
+        for (BaseTypeChecker subchecker : checker.getSubcheckers()) {
+            GenericAnnotatedTypeFactory<?, ?, ?, ?> subFactory = subchecker.getTypeFactory();
+            if (subFactory != null) {
+                subFactory.releaseFlowResults(method);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,827 @@
+package org.checkerframework.common.basetype;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.Log;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import org.checkerframework.checker.interning.qual.InternedDistinct;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedDeclaredType;
+import org.checkerframework.framework.type.PersistentElementTypeCache;
+import org.checkerframework.framework.util.CacheFileUtils;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * An index, stored in a file, of the diagnostics that a checker issued for each top-level class,
+ * and of the signatures that type-checking the class used. It lets a compilation skip type-checking
+ * a class whose source file and used signatures have not changed since an earlier compilation, and
+ * issue the diagnostics recorded by that compilation instead. It is enabled by the {@code
+ * -AincrementalCheckDir} command-line option, and is only used by the checker that is not a
+ * subchecker of another checker.
+ *
+ * <p>The signatures used by a class are the elements outside the class that were passed to {@link
+ * AnnotatedTypeFactory#fromElement} or {@link AnnotatedTypeFactory#getDeclAnnotations} by the type
+ * factory of the checker or of one of its subcheckers while the class was type-checked. The
+ * signature of an element consists of its annotated type, which includes annotations from stub
+ * files and defaults, and its declaration annotations; the signature of a class also includes its
+ * direct supertypes and its members.
+ *
+ * <p>An entry for a class is only recorded if every diagnostic issued for it has a source tree in
+ * the class's compilation unit, and every element that it used can be looked up by name. Each
+ * checker has its own index file, whose name contains a hash of the checker configuration (see
+ * {@link PersistentElementTypeCache#computeConfigurationKey}). The index is not used if the checker
+ * was not loaded from a jar file or a directory.
+ */
+class IncrementalCheckIndex {
+
+    /** The first four bytes of an index file. */
+    private static final int MAGIC = 0x43464943;
+
+    /** The version of the index file format. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The checker that is not a subchecker of another checker. */
+    private final BaseTypeChecker checker;
+
+    /** The element utilities. */
+    private final Elements elements;
+
+    /** The tree utilities. */
+    private final Trees trees;
+
+    /** The javac log, used to count the diagnostics issued for a class. */
+    private final Log log;
+
+    /** The index file. */
+    private final Path indexFile;
+
+    /** The string that describes everything that the recorded diagnostics depend on. */
+    private final String configurationKey;
+
+    /** The entries of the index, by fully-qualified class name. */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** True if an entry was added or removed since the index file was read. */
+    private boolean modified = false;
+
+    /** The class that is being type-checked and recorded, or null. */
+    private @Nullable Recording recording = null;
+
+    /** The number of classes whose diagnostics were replayed from the index. */
+    private int replayedClasses = 0;
+
+    /** The number of classes that were type-checked. */
+    private int checkedClasses = 0;
+
+    /** An entry of the index: the record of type-checking one top-level class. */
+    private static class Entry {
+        /** The URI of the source file that contains the class. */
+        final String sourceFile;
+
+        /** A hash of the contents of the source file. */
+        final String sourceHash;
+
+        /** The signatures used by the class. */
+        final List<Dependency> dependencies;
+
+        /** The diagnostics issued for the class. */
+        final List<StoredDiagnostic> diagnostics;
+
+        /**
+         * Creates an Entry.
+         *
+         * @param sourceFile the URI of the source file that contains the class
+         * @param sourceHash a hash of the contents of the source file
+         * @param dependencies the signatures used by the class
+         * @param diagnostics the diagnostics issued for the class
+         */
+        Entry(
+                String sourceFile,
+                String sourceHash,
+                List<Dependency> dependencies,
+                List<StoredDiagnostic> diagnostics) {
+            this.sourceFile = sourceFile;
+            this.sourceHash = sourceHash;
+            this.dependencies = dependencies;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    /** A signature used by a class. */
+    private static class Dependency {
+        /** The class name of the checker whose type factory looked up the element. */
+        final String checkerName;
+
+        /** The key of the element; see {@link #elementKey}. */
+        final String elementKey;
+
+        /** A hash of the signature of the element; see {@link #fingerprint}. */
+        final String fingerprint;
+
+        /**
+         * Creates a Dependency.
+         *
+         * @param checkerName the class name of the checker whose type factory looked up the element
+         * @param elementKey the key of the element
+         * @param fingerprint a hash of the signature of the element
+         */
+        Dependency(String checkerName, String elementKey, String fingerprint) {
+            this.checkerName = checkerName;
+            this.elementKey = elementKey;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /** A diagnostic issued for a class. */
+    private static class StoredDiagnostic {
+        /** The kind of the diagnostic. */
+        final Kind kind;
+
+        /** The message text. */
+        final String message;
+
+        /** The source position of the diagnostic; see {@link #treePosition}. */
+        final String position;
+
+        /**
+         * Creates a StoredDiagnostic.
+         *
+         * @param kind the kind of the diagnostic
+         * @param message the message text
+         * @param position the source position of the diagnostic
+         */
+        StoredDiagnostic(Kind kind, String message, String position) {
+            this.kind = kind;
+            this.message = message;
+            this.position = position;
+        }
+    }
+
+    /** The state of recording the type-checking of a class. */
+    private static class Recording {
+        /** The class. */
+        final TypeElement element;
+
+        /** The compilation unit of the class. */
+        final @InternedDistinct CompilationUnitTree root;
+
+        /** The number of errors in the log before the class was type-checked. */
+        final int errorsBefore;
+
+        /** The number of warnings in the log before the class was type-checked. */
+        final int warningsBefore;
+
+        /** The diagnostics issued so far. */
+        final List<StoredDiagnostic> diagnostics = new ArrayList<>();
+
+        /** False if a diagnostic was issued that cannot be replayed. */
+        boolean replayable = true;
+
+        /**
+         * Creates a Recording.
+         *
+         * @param element the class
+         * @param root the compilation unit of the class
+         * @param errorsBefore the number of errors in the log before the class was type-checked
+         * @param warningsBefore the number of warnings in the log before the class was type-checked
+         */
+        Recording(
+                TypeElement element,
+                @InternedDistinct CompilationUnitTree root,
+                int errorsBefore,
+                int warningsBefore) {
+            this.element = element;
+            this.root = root;
+            this.errorsBefore = errorsBefore;
+            this.warningsBefore = warningsBefore;
+        }
+    }
+
+    /**
+     * Returns the incremental check index for {@code checker}, or null if the {@code
+     * -AincrementalCheckDir} command-line option was not supplied or the index cannot be used.
+     *
+     * @param checker the checker that is not a subchecker of another checker
+     * @return the incremental check index for {@code checker}, or null
+     */
+    static @Nullable IncrementalCheckIndex create(BaseTypeChecker checker) {
+        String dir = checker.getOption("incrementalCheckDir");
+        if (dir == null) {
+            return null;
+        }
+        String configurationKey =
+                PersistentElementTypeCache.computeConfigurationKey(checker.getTypeFactory());
+        if (configurationKey == null) {
+            checker.message(
+                    Kind.WARNING,
+                    "incrementalCheckDir is ignored, because "
+                            + checker.getClass().getSimpleName()
+                            + " was not loaded from a jar file or a directory");
+            return null;
+        }
+        String fileName =
+                checker.getClass().getSimpleName()
+                        + "-"
+                        + CacheFileUtils.sha256(configurationKey)
+                        + ".index";
+        return new IncrementalCheckIndex(
+                checker, Paths.get(dir).resolve(fileName), configurationKey);
+    }
+
+    /**
+     * Creates an IncrementalCheckIndex and reads {@code indexFile}, if it exists.
+     *
+     * @param checker the checker that is not a subchecker of another checker
+     * @param indexFile the index file
+     * @param configurationKey the string that describes everything that the recorded diagnostics
+     *     depend on
+     */
+    private IncrementalCheckIndex(
+            BaseTypeChecker checker, Path indexFile, String configurationKey) {
+        this.checker = checker;
+        this.elements = checker.getElementUtils();
+        this.trees = Trees.instance(checker.getProcessingEnvironment());
+        this.log =
+                Log.instance(
+                        ((JavacProcessingEnvironment) checker.getProcessingEnvironment())
+                                .getContext());
+        this.indexFile = indexFile;
+        this.configurationKey = configurationKey;
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                read();
+            } catch (IOException | IllegalArgumentException e) {
+                // The file is corrupt; it is replaced at the end of the compilation.
+                entries.clear();
+                modified = true;
+            }
+        }
+    }
+
+    // **********************************************************************
+    // Replaying and recording
+    // **********************************************************************
+
+    /**
+     * If the index has an up-to-date entry for the class at {@code path}, issues the diagnostics
+     * recorded for it and returns true. Otherwise, returns false; the class must then be
+     * type-checked.
+     *
+     * @param element a top-level class
+     * @param path the path to the class
+     * @return true if the diagnostics for the class were issued from the index
+     */
+    boolean replay(TypeElement element, TreePath path) {
+        Entry entry = entries.get(element.getQualifiedName().toString());
+        if (entry == null) {
+            return false;
+        }
+        CompilationUnitTree root = path.getCompilationUnit();
+        if (!entry.sourceFile.equals(root.getSourceFile().toUri().toString())
+                || !entry.sourceHash.equals(sourceHash(root))) {
+            return false;
+        }
+        for (Dependency dependency : entry.dependencies) {
+            AnnotatedTypeFactory atypeFactory = getTypeFactory(dependency.checkerName);
+            Element elt = lookUpElement(dependency.elementKey);
+            if (atypeFactory == null
+                    || elt == null
+                    || !dependency.fingerprint.equals(fingerprint(atypeFactory, elt))) {
+                return false;
+            }
+        }
+        Map<String, Tree> sources = findTrees(root, entry.diagnostics);
+        if (sources == null) {
+            return false;
+        }
+        for (StoredDiagnostic diagnostic : entry.diagnostics) {
+            trees.printMessage(
+                    diagnostic.kind, diagnostic.message, sources.get(diagnostic.position), root);
+        }
+        replayedClasses++;
+        return true;
+    }
+
+    /**
+     * Starts recording the diagnostics issued for, and the signatures used by, the class at {@code
+     * path}, which is about to be type-checked.
+     *
+     * @param element a top-level class
+     * @param path the path to the class
+     */
+    void startRecording(TypeElement element, TreePath path) {
+        @SuppressWarnings("interning:assignment.type.incompatible") // will be compared with ==
+        @InternedDistinct
+        CompilationUnitTree root = path.getCompilationUnit();
+        recording = new Recording(element, root, log.nerrors, log.nwarnings);
+        for (BaseTypeChecker c : allCheckers()) {
+            c.getTypeFactory().startRecordingElementUses();
+        }
+    }
+
+    /**
+     * Records a diagnostic that was issued while a class is being type-checked. Does nothing if no
+     * class is being recorded.
+     *
+     * @param kind the kind of the diagnostic
+     * @param message the message text
+     * @param source the source tree of the diagnostic
+     * @param root the compilation unit that contains {@code source}
+     */
+    void recordDiagnostic(Kind kind, String message, Tree source, CompilationUnitTree root) {
+        if (recording == null) {
+            return;
+        }
+        if (root != recording.root) {
+            recording.replayable = false;
+            return;
+        }
+        recording.diagnostics.add(new StoredDiagnostic(kind, message, treePosition(root, source)));
+    }
+
+    /**
+     * Stops recording the class that was passed to {@link #startRecording}, which has been
+     * type-checked, and stores its entry in the index if it can be replayed by later compilations.
+     */
+    void stopRecording() {
+        Recording r = recording;
+        if (r == null) {
+            throw new BugInCF("IncrementalCheckIndex.stopRecording: not recording");
+        }
+        recording = null;
+        Map<BaseTypeChecker, Set<Element>> uses = new HashMap<>();
+        for (BaseTypeChecker c : allCheckers()) {
+            uses.put(c, c.getTypeFactory().stopRecordingElementUses());
+        }
+        checkedClasses++;
+
+        String className = r.element.getQualifiedName().toString();
+        Entry entry = r.replayable ? createEntry(r, uses) : null;
+        if (entry != null) {
+            entries.put(className, entry);
+            modified = true;
+        } else if (entries.remove(className) != null) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Returns the index entry for a class that has been type-checked, or null if the class cannot
+     * be replayed by later compilations.
+     *
+     * @param r the recording of the class
+     * @param uses the elements looked up by the type factory of each checker
+     * @return the index entry for the class, or null
+     */
+    private @Nullable Entry createEntry(Recording r, Map<BaseTypeChecker, Set<Element>> uses) {
+        // Diagnostics that were not issued on a tree, such as those issued on an element or those
+        // issued because the checker crashed, are not recorded.
+        int errors = 0;
+        int warnings = 0;
+        for (StoredDiagnostic diagnostic : r.diagnostics) {
+            if (diagnostic.kind == Kind.ERROR) {
+                errors++;
+            } else if (diagnostic.kind == Kind.WARNING
+                    || diagnostic.kind == Kind.MANDATORY_WARNING) {
+                warnings++;
+            }
+        }
+        if (log.nerrors - r.errorsBefore != errors
+                || log.nwarnings - r.warningsBefore != warnings) {
+            return null;
+        }
+        String sourceHash = sourceHash(r.root);
+        if (sourceHash == null) {
+            return null;
+        }
+
+        List<Dependency> dependencies = new ArrayList<>();
+        for (Map.Entry<BaseTypeChecker, Set<Element>> use : uses.entrySet()) {
+            String checkerName = use.getKey().getClass().getName();
+            AnnotatedTypeFactory atypeFactory = use.getKey().getTypeFactory();
+            Set<String> keys = new HashSet<>();
+            for (Element elt : use.getValue()) {
+                Element signature = signatureElement(elt);
+                if (signature == null) {
+                    return null;
+                }
+                if (r.element.equals(topLevelClass(signature))) {
+                    // The source file hash covers the class's own elements.
+                    continue;
+                }
+                String key = elementKey(signature);
+                if (key == null) {
+                    return null;
+                }
+                if (keys.add(key)) {
+                    String fingerprint = fingerprint(atypeFactory, signature);
+                    if (fingerprint == null) {
+                        return null;
+                    }
+                    dependencies.add(new Dependency(checkerName, key, fingerprint));
+                }
+            }
+        }
+        return new Entry(
+                r.root.getSourceFile().toUri().toString(),
+                sourceHash,
+                dependencies,
+                new ArrayList<>(r.diagnostics));
+    }
+
+    /**
+     * Returns the checker and its subcheckers.
+     *
+     * @return the checker and its subcheckers
+     */
+    private List<BaseTypeChecker> allCheckers() {
+        List<BaseTypeChecker> result = new ArrayList<>(checker.getSubcheckers());
+        result.add(checker);
+        return result;
+    }
+
+    /**
+     * Returns the type factory of the checker or subchecker with the given class name, or null if
+     * there is none.
+     *
+     * @param checkerName the class name of a checker
+     * @return the type factory of the checker with the given class name, or null
+     */
+    private @Nullable AnnotatedTypeFactory getTypeFactory(String checkerName) {
+        for (BaseTypeChecker c : allCheckers()) {
+            if (c.getClass().getName().equals(checkerName)) {
+                return c.getTypeFactory();
+            }
+        }
+        return null;
+    }
+
+    // **********************************************************************
+    // Signatures
+    // **********************************************************************
+
+    /**
+     * Returns the element whose signature contains the signature of {@code elt}: the method for a
+     * parameter, the generic class or method for a type parameter, {@code elt} itself for a class,
+     * field, method, or package, and the top-level class that contains {@code elt} for other
+     * elements, such as local variables.
+     *
+     * @param elt an element
+     * @return the element whose signature contains the signature of {@code elt}, or null
+     */
+    private static @Nullable Element signatureElement(Element elt) {
+        switch (elt.getKind()) {
+            case PARAMETER:
+            case TYPE_PARAMETER:
+                return elt.getEnclosingElement();
+            case CLASS:
+            case INTERFACE:
+            case ENUM:
+            case ANNOTATION_TYPE:
+            case FIELD:
+            case ENUM_CONSTANT:
+            case METHOD:
+            case CONSTRUCTOR:
+            case PACKAGE:
+                return elt;
+            default:
+                return topLevelClass(elt);
+        }
+    }
+
+    /**
+     * Returns the top-level class that contains {@code elt}, or null if {@code elt} is a package.
+     *
+     * @param elt an element
+     * @return the top-level class that contains {@code elt}, or null
+     */
+    private static @Nullable TypeElement topLevelClass(Element elt) {
+        Element result = elt;
+        while (result != null
+                && result.getEnclosingElement() != null
+                && result.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+            result = result.getEnclosingElement();
+        }
+        return result instanceof TypeElement ? (TypeElement) result : null;
+    }
+
+    /**
+     * Returns the key of {@code elt} in the index file, or null if it cannot be looked up by name.
+     *
+     * @param elt a class, field, method, or package
+     * @return the key of {@code elt}, or null
+     */
+    private static @Nullable String elementKey(Element elt) {
+        switch (elt.getKind()) {
+            case PACKAGE:
+                return "P" + ((PackageElement) elt).getQualifiedName();
+            case CLASS:
+            case INTERFACE:
+            case ENUM:
+            case ANNOTATION_TYPE:
+                String className = ((TypeElement) elt).getQualifiedName().toString();
+                return className.isEmpty() ? null : "T" + className;
+            case FIELD:
+            case ENUM_CONSTANT:
+            case METHOD:
+            case CONSTRUCTOR:
+                String enclosingKey = elementKey(elt.getEnclosingElement());
+                if (enclosingKey == null || !enclosingKey.startsWith("T")) {
+                    return null;
+                }
+                return (elt.getKind().isField() ? "F" : "M")
+                        + enclosingKey.substring(1)
+                        + "#"
+                        + (elt.getKind().isField() ? elt.getSimpleName() : elt);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the element with the given key, or null if there is none.
+     *
+     * @param key the key of an element; see {@link #elementKey}
+     * @return the element with the given key, or null
+     */
+    private @Nullable Element lookUpElement(String key) {
+        char kind = key.charAt(0);
+        String name = key.substring(1);
+        if (kind == 'P') {
+            return elements.getPackageElement(name);
+        }
+        if (kind == 'T') {
+            return elements.getTypeElement(name);
+        }
+        int separator = name.indexOf('#');
+        if (separator == -1) {
+            return null;
+        }
+        TypeElement enclosing = elements.getTypeElement(name.substring(0, separator));
+        if (enclosing == null) {
+            return null;
+        }
+        String member = name.substring(separator + 1);
+        for (Element elt : enclosing.getEnclosedElements()) {
+            if (kind == 'F'
+                    ? elt.getKind().isField() && elt.getSimpleName().contentEquals(member)
+                    : (elt.getKind() == ElementKind.METHOD
+                                    || elt.getKind() == ElementKind.CONSTRUCTOR)
+                            && elt.toString().equals(member)) {
+                return elt;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a hash of the signature of {@code elt}, as seen by {@code atypeFactory}: its
+     * annotated type and declaration annotations, and for a class, also its direct supertypes and
+     * members. Returns null if the signature cannot be computed.
+     *
+     * @param atypeFactory a type factory
+     * @param elt a class, field, method, or package
+     * @return a hash of the signature of {@code elt}, or null
+     */
+    private static @Nullable String fingerprint(AnnotatedTypeFactory atypeFactory, Element elt) {
+        StringBuilder signature = new StringBuilder();
+        try {
+            if (elt.getKind() != ElementKind.PACKAGE) {
+                AnnotatedTypeMirror type = atypeFactory.getAnnotatedType(elt);
+                signature.append(type.toString(true));
+                if (type instanceof AnnotatedDeclaredType) {
+                    for (AnnotatedDeclaredType supertype :
+                            ((AnnotatedDeclaredType) type).directSuperTypes()) {
+                        signature.append(" <: ").append(supertype.toString(true));
+                    }
+                    signature.append(" ").append(elt.getEnclosedElements());
+                }
+            }
+            signature.append(" ").append(atypeFactory.getDeclAnnotations(elt));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return CacheFileUtils.sha256(signature.toString());
+    }
+
+    // **********************************************************************
+    // Source positions
+    // **********************************************************************
+
+    /**
+     * Returns a hash of the contents of the source file of {@code root}, or null if it cannot be
+     * read.
+     *
+     * @param root a compilation unit
+     * @return a hash of the contents of the source file of {@code root}, or null
+     */
+    private static @Nullable String sourceHash(CompilationUnitTree root) {
+        try {
+            return CacheFileUtils.sha256(root.getSourceFile().getCharContent(true).toString());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a string that identifies {@code tree} within its compilation unit: its kind, start
+     * position, preferred position, and end position.
+     *
+     * @param root the compilation unit that contains {@code tree}
+     * @param tree a tree
+     * @return a string that identifies {@code tree} within {@code root}
+     */
+    private String treePosition(CompilationUnitTree root, Tree tree) {
+        SourcePositions positions = trees.getSourcePositions();
+        return tree.getKind()
+                + ":"
+                + positions.getStartPosition(root, tree)
+                + ":"
+                + ((JCTree) tree).getPreferredPosition()
+                + ":"
+                + positions.getEndPosition(root, tree);
+    }
+
+    /**
+     * Returns a map from the positions of {@code diagnostics} to trees in {@code root} at those
+     * positions, or null if there is no tree at some position.
+     *
+     * @param root a compilation unit
+     * @param diagnostics diagnostics for a class in {@code root}
+     * @return a map from the positions of {@code diagnostics} to trees at those positions, or null
+     */
+    private @Nullable Map<String, Tree> findTrees(
+            CompilationUnitTree root, List<StoredDiagnostic> diagnostics) {
+        Map<String, Tree> result = new HashMap<>();
+        if (diagnostics.isEmpty()) {
+            return result;
+        }
+        for (StoredDiagnostic diagnostic : diagnostics) {
+            result.put(diagnostic.position, null);
+        }
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void scan(Tree tree, Void p) {
+                if (tree != null) {
+                    String position = treePosition(root, tree);
+                    if (result.containsKey(position) && result.get(position) == null) {
+                        result.put(position, tree);
+                    }
+                }
+                return super.scan(tree, p);
+            }
+        }.scan(root, null);
+        return result.containsValue(null) ? null : result;
+    }
+
+    // **********************************************************************
+    // Reading and writing the index file
+    // **********************************************************************
+
+    /**
+     * Writes the index file, if this compilation changed the index. Issues a warning if the file
+     * cannot be written.
+     */
+    void write() {
+        if (!modified) {
+            return;
+        }
+        try {
+            CacheFileUtils.writeAtomically(indexFile, this::writeContents);
+        } catch (IOException e) {
+            checker.message(
+                    Kind.WARNING,
+                    "Could not write incremental check index " + indexFile + ": " + e);
+        }
+    }
+
+    /**
+     * Returns the number of classes whose diagnostics were replayed from this index.
+     *
+     * @return the number of classes whose diagnostics were replayed from this index
+     */
+    int getReplayedClasses() {
+        return replayedClasses;
+    }
+
+    /**
+     * Returns the number of classes that were type-checked and recorded in this index.
+     *
+     * @return the number of classes that were type-checked and recorded in this index
+     */
+    int getCheckedClasses() {
+        return checkedClasses;
+    }
+
+    /**
+     * Returns a one-line description of how many classes were replayed from this index.
+     *
+     * @return a one-line description of how many classes were replayed from this index
+     */
+    String getStatistics() {
+        return String.format(
+                "%d classes replayed, %d classes type-checked, %d entries",
+                replayedClasses, checkedClasses, entries.size());
+    }
+
+    /**
+     * Reads the entries of the index file. Reads no entries if the file was written for a different
+     * configuration.
+     *
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    private void read() throws IOException {
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || !configurationKey.equals(CacheFileUtils.readString(in))) {
+                return;
+            }
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                String className = CacheFileUtils.readString(in);
+                String sourceFile = CacheFileUtils.readString(in);
+                String sourceHash = CacheFileUtils.readString(in);
+                int numDependencies = in.readInt();
+                List<Dependency> dependencies = new ArrayList<>(numDependencies);
+                for (int j = 0; j < numDependencies; j++) {
+                    dependencies.add(
+                            new Dependency(
+                                    CacheFileUtils.readString(in),
+                                    CacheFileUtils.readString(in),
+                                    CacheFileUtils.readString(in)));
+                }
+                int numDiagnostics = in.readInt();
+                List<StoredDiagnostic> diagnostics = new ArrayList<>(numDiagnostics);
+                for (int j = 0; j < numDiagnostics; j++) {
+                    Kind kind = Kind.valueOf(CacheFileUtils.readString(in));
+                    diagnostics.add(
+                            new StoredDiagnostic(
+                                    kind,
+                                    CacheFileUtils.readString(in),
+                                    CacheFileUtils.readString(in)));
+                }
+                entries.put(
+                        className, new Entry(sourceFile, sourceHash, dependencies, diagnostics));
+            }
+        }
+    }
+
+    /**
+     * Writes the index to {@code out}.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    private void writeContents(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        CacheFileUtils.writeString(out, configurationKey);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            CacheFileUtils.writeString(out, mapEntry.getKey());
+            CacheFileUtils.writeString(out, entry.sourceFile);
+            CacheFileUtils.writeString(out, entry.sourceHash);
+            out.writeInt(entry.dependencies.size());
+            for (Dependency dependency : entry.dependencies) {
+                CacheFileUtils.writeString(out, dependency.checkerName);
+                CacheFileUtils.writeString(out, dependency.elementKey);
+                CacheFileUtils.writeString(out, dependency.fingerprint);
+            }
+            out.writeInt(entry.diagnostics.size());
+            for (StoredDiagnostic diagnostic : entry.diagnostics) {
+                CacheFileUtils.writeString(out, diagnostic.kind.name());
+                CacheFileUtils.writeString(out, diagnostic.message);
+                CacheFileUtils.writeString(out, diagnostic.position);
+            }
+        }
+    }
+}
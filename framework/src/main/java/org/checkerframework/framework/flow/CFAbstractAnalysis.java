@@ -1,9 +1,12 @@
 package org.checkerframework.framework.flow;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
@@ -11,7 +14,17 @@ import javax.lang.model.util.Types;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.dataflow.analysis.ForwardAnalysisImpl;
+import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.analysis.ThresholdWideningStrategy;
+import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGLambda;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
+import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGStatement;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.livevariable.LiveLocalVariables;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
@@ -22,6 +35,7 @@ import org.checkerframework.framework.type.TypeHierarchy;
 import org.checkerframework.framework.util.dependenttypes.DependentTypesHelper;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.UserError;
 
 /**
  * {@link CFAbstractAnalysis} is an extensible org.checkerframework.dataflow analysis for the
@@ -66,6 +80,28 @@ public abstract class CFAbstractAnalysis<
     /** Instance of the types utility. */
     protected final Types types;
 
+    /**
+     * The {@link CFValue}s created by {@link #defaultCreateAbstractValue}, by underlying type, so
+     * that equal values are represented by the same object. This makes stores that contain them
+     * smaller and faster to compare. Cleared before each control flow graph is analyzed.
+     */
+    private final IdentityHashMap<TypeMirror, List<CFValue>> internedValues =
+            new IdentityHashMap<>();
+
+    /** The default value of the {@code -AflowCheckpointBudget} command-line option. */
+    protected static final int DEFAULT_CHECKPOINT_BUDGET = 1000;
+
+    /** Whether to print the number of iterations for each analyzed method. */
+    private final boolean printIterationStats;
+
+    /**
+     * The local variables that are live at the start of each block of the control flow graph being
+     * analyzed, or null if the values of dead local variables are not removed from stores.
+     *
+     * @see #shouldPruneDeadLocalVariables
+     */
+    protected @Nullable LiveLocalVariables liveLocalVariables;
+
     /**
      * Create a CFAbstractAnalysis.
      *
@@ -90,6 +126,43 @@ public abstract class CFAbstractAnalysis<
         this.transferFunction = createTransferFunction();
         // TODO: remove parameter and set to empty list.
         this.fieldValues = fieldValues;
+        int checkpointInterval = getIntOption(checker, "flowCheckpointInterval", 0);
+        if (checkpointInterval > 0) {
+            setCheckpointing(
+                    checkpointInterval,
+                    getIntOption(checker, "flowCheckpointBudget", DEFAULT_CHECKPOINT_BUDGET));
+        }
+        if (maxCountBeforeWidening != -1 && checker.hasOption("flowWidenAtLoopHeads")) {
+            setWideningStrategy(new ThresholdWideningStrategy(maxCountBeforeWidening, true));
+        }
+        setIterationBudget(
+                getIntOption(checker, "flowIterationBudget", -1),
+                getIntOption(checker, "flowTimeBudget", -1));
+        this.printIterationStats = checker.hasOption("flowIterationStats");
+    }
+
+    /**
+     * Returns the value of a non-negative integer command-line option.
+     *
+     * @param checker the checker whose options to read
+     * @param name the name of the option
+     * @param defaultValue the value if the option is not given
+     * @return the value of the option, or {@code defaultValue} if it is not given
+     */
+    private static int getIntOption(SourceChecker checker, String name, int defaultValue) {
+        String option = checker.getOption(name);
+        if (option == null) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(option);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException ex) {
+            // fall through
+        }
+        throw new UserError(name + " was not a non-negative integer: " + option);
     }
 
     protected CFAbstractAnalysis(
@@ -106,7 +179,107 @@ public abstract class CFAbstractAnalysis<
     public void performAnalysis(ControlFlowGraph cfg, List<Pair<VariableElement, V>> fieldValues) {
         this.fieldValues.clear();
         this.fieldValues.addAll(fieldValues);
+        internedValues.clear();
+        liveLocalVariables = shouldPruneDeadLocalVariables() ? new LiveLocalVariables(cfg) : null;
         super.performAnalysis(cfg);
+        if (printIterationStats) {
+            System.out.printf(
+                    "%s: %d block iterations, %d local variable values at block entries%s%n",
+                    describe(cfg.getUnderlyingAST()),
+                    getIterationCount(),
+                    countLocalVariableValues(),
+                    isIterationBudgetExceeded() ? " (budget exceeded)" : "");
+        }
+        liveLocalVariables = null;
+    }
+
+    /**
+     * Returns true if the stores that flow into a block should not contain the values of local
+     * variables that are dead at the start of the block, that is, that no path from the start of
+     * the block reads before assigning them. Such stores are smaller, and joining them is faster,
+     * in long methods with many short-lived local variables. The values of formal parameters are
+     * always kept, because postconditions refer to them at the exit of the method.
+     *
+     * <p>Pruning loses no precision at the uses of local variables in the analyzed code. It is not
+     * suitable for checkers that read the values of local variables that are only named in
+     * annotations or in other expressions that the control flow graph does not contain. Therefore,
+     * pruning is enabled only by the {@code -AflowPruneDeadLocals} command-line option, or by a
+     * checker whose analysis overrides this method.
+     *
+     * @return true if the values of dead local variables should be removed from stores
+     */
+    protected boolean shouldPruneDeadLocalVariables() {
+        return checker.hasOption("flowPruneDeadLocals");
+    }
+
+    @Override
+    protected void addStoreBefore(
+            Block b, @Nullable Node node, S s, Store.Kind kind, boolean addBlockToWorklist) {
+        LiveLocalVariables live = liveLocalVariables;
+        if (live != null) {
+            s =
+                    s.retainLocalVariables(
+                            localVar ->
+                                    localVar.getElement().getKind() == ElementKind.PARAMETER
+                                            || live.isLiveBefore(b, localVar));
+        }
+        super.addStoreBefore(b, node, s, kind, addBlockToWorklist);
+    }
+
+    /**
+     * Returns the number of local variable values in the stores at the start of all blocks.
+     *
+     * @return the number of local variable values in the stores at the start of all blocks
+     */
+    private int countLocalVariableValues() {
+        int count = 0;
+        for (TransferInput<V, S> input : inputs.values()) {
+            count += input.getThenStore().localVariableValues.size();
+            if (input.containsTwoStores()) {
+                count += input.getElseStore().localVariableValues.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Returns an empty store, in which every expression has the type computed by the type
+     * factory.
+     */
+    @Override
+    protected S getTopStore(S store) {
+        return createEmptyStore(store.sequentialSemantics);
+    }
+
+    @Override
+    protected void iterationBudgetExceeded() {
+        assert cfg != null : "@AssumeAssertion(nullness): called during performAnalysis";
+        UnderlyingAST ast = cfg.getUnderlyingAST();
+        checker.reportWarning(
+                ast.getCode(), "flow.budget.exceeded", describe(ast), getIterationCount());
+    }
+
+    /**
+     * Returns a short description of the code that an underlying AST represents, for messages.
+     *
+     * @param ast an underlying AST
+     * @return a short description of {@code ast}
+     */
+    private static String describe(UnderlyingAST ast) {
+        switch (ast.getKind()) {
+            case METHOD:
+                CFGMethod method = (CFGMethod) ast;
+                return method.getSimpleClassName() + "." + method.getMethodName();
+            case LAMBDA:
+                CFGLambda lambda = (CFGLambda) ast;
+                // Not the enclosing method, which is null for lambdas in field initializers.
+                return "lambda in " + lambda.getSimpleClassName();
+            default:
+                CFGStatement statement = (CFGStatement) ast;
+                return "initializer in " + statement.getSimpleClassName();
+        }
     }
 
     public List<Pair<VariableElement, V>> getFieldValues() {
@@ -163,7 +336,11 @@ public abstract class CFAbstractAnalysis<
     public abstract @Nullable V createAbstractValue(
             Set<AnnotationMirror> annotations, TypeMirror underlyingType);
 
-    /** Default implementation for {@link #createAbstractValue(Set, TypeMirror)}. */
+    /**
+     * Default implementation for {@link #createAbstractValue(Set, TypeMirror)}. If {@code analysis}
+     * is this analysis, returns the previously created value with the same annotations and the
+     * identical underlying type, if any.
+     */
     public CFValue defaultCreateAbstractValue(
             CFAbstractAnalysis<CFValue, ?, ?> analysis,
             Set<AnnotationMirror> annotations,
@@ -171,7 +348,23 @@ public abstract class CFAbstractAnalysis<
         if (!CFAbstractValue.validateSet(annotations, underlyingType, qualifierHierarchy)) {
             return null;
         }
-        return new CFValue(analysis, annotations, underlyingType);
+        CFValue value = new CFValue(analysis, annotations, underlyingType);
+        if (analysis != this) {
+            return value;
+        }
+        List<CFValue> values =
+                internedValues.computeIfAbsent(underlyingType, t -> new ArrayList<>(2));
+        for (CFValue interned : values) {
+            if (interned.equals(value)) {
+                return interned;
+            }
+        }
+        // Copy the annotations, because the caller may modify the set that it passed.
+        Set<AnnotationMirror> copy = AnnotationUtils.createAnnotationSet();
+        copy.addAll(annotations);
+        value = new CFValue(analysis, copy, underlyingType);
+        values.add(value);
+        return value;
     }
 
     public TypeHierarchy getTypeHierarchy() {
@@ -1,11 +1,12 @@
 package org.checkerframework.framework.flow;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
@@ -39,6 +40,7 @@ import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.PersistentHashMap;
 import org.checkerframework.javacutil.ToStringComparator;
 import org.plumelib.util.UniqueId;
 
@@ -64,7 +66,7 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     protected final CFAbstractAnalysis<V, S, ?> analysis;
 
     /** Information collected about local variables (including method arguments). */
-    protected final Map<LocalVariable, V> localVariableValues;
+    protected Map<LocalVariable, V> localVariableValues;
 
     /** Information collected about the current object. */
     protected V thisValue;
@@ -113,24 +115,27 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
 
     protected CFAbstractStore(CFAbstractAnalysis<V, S, ?> analysis, boolean sequentialSemantics) {
         this.analysis = analysis;
-        localVariableValues = new HashMap<>();
+        localVariableValues = new PersistentHashMap<>();
         thisValue = null;
-        fieldValues = new HashMap<>();
-        methodValues = new HashMap<>();
-        arrayValues = new HashMap<>();
-        classValues = new HashMap<>();
+        fieldValues = new PersistentHashMap<>();
+        methodValues = new PersistentHashMap<>();
+        arrayValues = new PersistentHashMap<>();
+        classValues = new PersistentHashMap<>();
         this.sequentialSemantics = sequentialSemantics;
     }
 
-    /** Copy constructor. */
+    /**
+     * Copy constructor. The maps of the copy share their structure with the maps of {@code other},
+     * so copying takes constant time.
+     */
     protected CFAbstractStore(CFAbstractStore<V, S> other) {
         this.analysis = other.analysis;
-        localVariableValues = new HashMap<>(other.localVariableValues);
+        localVariableValues = new PersistentHashMap<>(other.localVariableValues);
         thisValue = other.thisValue;
-        fieldValues = new HashMap<>(other.fieldValues);
-        methodValues = new HashMap<>(other.methodValues);
-        arrayValues = new HashMap<>(other.arrayValues);
-        classValues = new HashMap<>(other.classValues);
+        fieldValues = new PersistentHashMap<>(other.fieldValues);
+        methodValues = new PersistentHashMap<>(other.methodValues);
+        arrayValues = new PersistentHashMap<>(other.arrayValues);
+        classValues = new PersistentHashMap<>(other.classValues);
         sequentialSemantics = other.sequentialSemantics;
     }
 
@@ -221,7 +226,7 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
             if (sideEffectsUnrefineAliases) {
                 fieldValues.entrySet().removeIf(e -> !e.getKey().isUnmodifiableByOtherCode());
             } else {
-                Map<FieldAccess, V> newFieldValues = new HashMap<>();
+                Map<FieldAccess, V> newFieldValues = new PersistentHashMap<>();
                 for (Map.Entry<FieldAccess, V> e : fieldValues.entrySet()) {
                     FieldAccess fieldAccess = e.getKey();
                     V otherVal = e.getValue();
@@ -885,6 +890,31 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
         return analysis.createCopiedStore((S) this);
     }
 
+    /**
+     * Returns a store like this one, but without the values of the local variables that are not in
+     * {@code liveVariables}. Returns this store, rather than a copy, if it has no such values.
+     *
+     * @param liveVariables the local variables whose values are kept
+     * @return this store, or a copy without the values of the other local variables
+     */
+    @SuppressWarnings("unchecked")
+    public S retainLocalVariables(Predicate<LocalVariable> liveVariables) {
+        List<LocalVariable> dead = new ArrayList<>();
+        for (LocalVariable localVar : localVariableValues.keySet()) {
+            if (!liveVariables.test(localVar)) {
+                dead.add(localVar);
+            }
+        }
+        if (dead.isEmpty()) {
+            return (S) this;
+        }
+        S result = copy();
+        for (LocalVariable localVar : dead) {
+            result.localVariableValues.remove(localVar);
+        }
+        return result;
+    }
+
     @Override
     public S leastUpperBound(S other) {
         return upperBound(other, false);
@@ -898,21 +928,10 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     private S upperBound(S other, boolean shouldWiden) {
         S newStore = analysis.createEmptyStore(sequentialSemantics);
 
-        for (Map.Entry<LocalVariable, V> e : other.localVariableValues.entrySet()) {
-            // local variables that are only part of one store, but not the
-            // other are discarded, as one of store implicitly contains 'top'
-            // for that variable.
-            LocalVariable localVar = e.getKey();
-            V thisVal = localVariableValues.get(localVar);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-
-                if (mergedVal != null) {
-                    newStore.localVariableValues.put(localVar, mergedVal);
-                }
-            }
-        }
+        // Information about locations that are only part of one store, but not the other, is
+        // discarded, as one store implicitly contains 'top' for that location.
+        newStore.localVariableValues =
+                upperBoundOfMaps(localVariableValues, other.localVariableValues, shouldWiden);
 
         // information about the current object
         {
@@ -924,60 +943,65 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
             }
         }
 
-        for (Map.Entry<FieldAccess, V> e : other.fieldValues.entrySet()) {
-            // information about fields that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that field.
-            FieldAccess el = e.getKey();
-            V thisVal = fieldValues.get(el);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-                if (mergedVal != null) {
-                    newStore.fieldValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Map.Entry<ArrayAccess, V> e : other.arrayValues.entrySet()) {
-            // information about arrays that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that array access.
-            ArrayAccess el = e.getKey();
-            V thisVal = arrayValues.get(el);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-                if (mergedVal != null) {
-                    newStore.arrayValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Map.Entry<MethodCall, V> e : other.methodValues.entrySet()) {
-            // information about methods that are only part of one store, but
-            // not the other are discarded, as one store implicitly contains
-            // 'top' for that field.
-            MethodCall el = e.getKey();
-            V thisVal = methodValues.get(el);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-                if (mergedVal != null) {
-                    newStore.methodValues.put(el, mergedVal);
-                }
-            }
+        newStore.fieldValues = upperBoundOfMaps(fieldValues, other.fieldValues, shouldWiden);
+        newStore.arrayValues = upperBoundOfMaps(arrayValues, other.arrayValues, shouldWiden);
+        newStore.methodValues = upperBoundOfMaps(methodValues, other.methodValues, shouldWiden);
+        newStore.classValues = upperBoundOfMaps(classValues, other.classValues, shouldWiden);
+        return newStore;
+    }
+
+    /**
+     * Returns a map from the keys of both {@code thisMap} and {@code otherMap} to the upper bound
+     * of their values.
+     *
+     * <p>If both maps are {@link PersistentHashMap}s, the result is a copy of {@code thisMap} that
+     * is only modified for the entries that are not shared with {@code otherMap}. The upper bound
+     * of a value with itself is the value.
+     *
+     * @param <K> the type of the keys
+     * @param thisMap a map of this store
+     * @param otherMap the corresponding map of the other store
+     * @param shouldWiden true iff widening should be used instead of the least upper bound
+     * @return a map from the keys of both maps to the upper bound of their values
+     */
+    private <K> Map<K, V> upperBoundOfMaps(
+            Map<K, V> thisMap, Map<K, V> otherMap, boolean shouldWiden) {
+        if (thisMap instanceof PersistentHashMap && otherMap instanceof PersistentHashMap) {
+            PersistentHashMap<K, V> newMap = new PersistentHashMap<>(thisMap);
+            ((PersistentHashMap<K, V>) thisMap)
+                    .allUnsharedEntriesMatch(
+                            (PersistentHashMap<K, V>) otherMap,
+                            (key, thisVal) -> {
+                                V otherVal = otherMap.get(key);
+                                if (thisVal == null || otherVal == null) {
+                                    newMap.remove(key);
+                                } else if (otherVal != thisVal) {
+                                    V mergedVal =
+                                            upperBoundOfValues(otherVal, thisVal, shouldWiden);
+                                    if (mergedVal == null) {
+                                        newMap.remove(key);
+                                    } else {
+                                        newMap.put(key, mergedVal);
+                                    }
+                                }
+                                return true;
+                            });
+            return newMap;
         }
-        for (Map.Entry<ClassName, V> e : other.classValues.entrySet()) {
-            ClassName el = e.getKey();
-            V thisVal = classValues.get(el);
+
+        Map<K, V> newMap = new PersistentHashMap<>();
+        for (Map.Entry<K, V> e : otherMap.entrySet()) {
+            K key = e.getKey();
+            V thisVal = thisMap.get(key);
             if (thisVal != null) {
                 V otherVal = e.getValue();
                 V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
                 if (mergedVal != null) {
-                    newStore.classValues.put(el, mergedVal);
+                    newMap.put(key, mergedVal);
                 }
             }
         }
-        return newStore;
+        return newMap;
     }
 
     private V upperBoundOfValues(V otherVal, V thisVal, boolean shouldWiden) {
@@ -991,37 +1015,34 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * equals predicate.
      */
     protected boolean supersetOf(CFAbstractStore<V, S> other) {
-        for (Map.Entry<LocalVariable, V> e : other.localVariableValues.entrySet()) {
-            LocalVariable key = e.getKey();
-            V value = localVariableValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Map.Entry<FieldAccess, V> e : other.fieldValues.entrySet()) {
-            FieldAccess key = e.getKey();
-            V value = fieldValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Map.Entry<ArrayAccess, V> e : other.arrayValues.entrySet()) {
-            ArrayAccess key = e.getKey();
-            V value = arrayValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Map.Entry<MethodCall, V> e : other.methodValues.entrySet()) {
-            MethodCall key = e.getKey();
-            V value = methodValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
+        return mapSupersetOf(localVariableValues, other.localVariableValues)
+                && mapSupersetOf(fieldValues, other.fieldValues)
+                && mapSupersetOf(arrayValues, other.arrayValues)
+                && mapSupersetOf(methodValues, other.methodValues)
+                && mapSupersetOf(classValues, other.classValues);
+    }
+
+    /**
+     * Returns true iff {@code thisMap} contains every entry of {@code otherMap}. If both maps are
+     * {@link PersistentHashMap}s, the entries that they share are not compared.
+     *
+     * @param <K> the type of the keys
+     * @param thisMap a map of this store
+     * @param otherMap the corresponding map of the other store
+     * @return true iff {@code thisMap} contains every entry of {@code otherMap}
+     */
+    private static <K, V> boolean mapSupersetOf(Map<K, V> thisMap, Map<K, V> otherMap) {
+        if (thisMap instanceof PersistentHashMap && otherMap instanceof PersistentHashMap) {
+            return ((PersistentHashMap<K, V>) otherMap)
+                    .allUnsharedEntriesMatch(
+                            (PersistentHashMap<K, V>) thisMap,
+                            (key, otherValue) -> {
+                                V value = thisMap.get(key);
+                                return value != null && value.equals(otherValue);
+                            });
         }
-        for (Map.Entry<ClassName, V> e : other.classValues.entrySet()) {
-            ClassName key = e.getKey();
-            V value = classValues.get(key);
+        for (Map.Entry<K, V> e : otherMap.entrySet()) {
+            V value = thisMap.get(e.getKey());
             if (value == null || !value.equals(e.getValue())) {
                 return false;
             }
@@ -1034,16 +1055,30 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
         if (o instanceof CFAbstractStore) {
             @SuppressWarnings("unchecked")
             CFAbstractStore<V, S> other = (CFAbstractStore<V, S>) o;
+            if (this.hashCode() != other.hashCode()) {
+                return false;
+            }
             return this.supersetOf(other) && other.supersetOf(this);
         } else {
             return false;
         }
     }
 
+    /**
+     * Returns a hash code that is consistent with {@link #equals}. Because the maps of the store
+     * maintain their hash codes as they are modified, this takes constant time, and {@link #equals}
+     * usually only compares hash codes if the stores differ.
+     *
+     * @return a hash code for this store
+     */
     @Override
     public int hashCode() {
-        // What is a good hash code to use?
-        return 22;
+        int result = localVariableValues.hashCode();
+        result = 31 * result + fieldValues.hashCode();
+        result = 31 * result + arrayValues.hashCode();
+        result = 31 * result + methodValues.hashCode();
+        result = 31 * result + classValues.hashCode();
+        return result;
     }
 
     @SideEffectFree
@@ -1,6 +1,5 @@
 package org.checkerframework.framework.flow;
 
-import java.util.Objects;
 import java.util.Set;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
@@ -56,6 +55,9 @@ public abstract class CFAbstractValue<V extends CFAbstractValue<V>> implements A
     /** The annotations in this abstract value. */
     protected final Set<AnnotationMirror> annotations;
 
+    /** The hash code of this value, or 0 if it has not been computed yet. */
+    private int hashCode = 0;
+
     /**
      * Creates a new CFAbstractValue.
      *
@@ -153,6 +155,12 @@ public abstract class CFAbstractValue<V extends CFAbstractValue<V>> implements A
         }
 
         CFAbstractValue<?> other = (CFAbstractValue<?>) obj;
+        if (this == other) {
+            return true;
+        }
+        if (this.hashCode() != other.hashCode()) {
+            return false;
+        }
         if (this.getUnderlyingType() != other.getUnderlyingType()
                 && !analysis.getTypes()
                         .isSameType(this.getUnderlyingType(), other.getUnderlyingType())) {
@@ -161,10 +169,26 @@ public abstract class CFAbstractValue<V extends CFAbstractValue<V>> implements A
         return AnnotationUtils.areSame(this.getAnnotations(), other.getAnnotations());
     }
 
+    /**
+     * Returns a hash code that depends only on the names of the annotations, so that it is
+     * consistent with {@link #equals}, which compares the underlying types with {@link
+     * javax.lang.model.util.Types#isSameType}. The hash code is computed once, because stores
+     * compare and hash values often.
+     *
+     * @return a hash code for this value
+     */
     @Pure
     @Override
     public int hashCode() {
-        return Objects.hash(getAnnotations(), underlyingType);
+        int result = hashCode;
+        if (result == 0) {
+            for (AnnotationMirror anno : getAnnotations()) {
+                result += AnnotationUtils.annotationName(anno).hashCode();
+            }
+            result = 31 * result + 1;
+            hashCode = result;
+        }
+        return result;
     }
 
     /**
@@ -9,8 +9,12 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
@@ -35,7 +39,18 @@ public class CFCFGBuilder extends CFGBuilder {
     /** This class should never be instantiated. Protected to still allow subclasses. */
     protected CFCFGBuilder() {}
 
-    /** Build the control flow graph of some code. */
+    /**
+     * Build the control flow graph of some code, or return the control flow graph that another
+     * checker of the same compound checker built for it.
+     *
+     * @param root the compilation unit that contains the code
+     * @param underlyingAST the code
+     * @param checker the checker that will analyze the control flow graph
+     * @param factory the type factory of {@code checker}
+     * @param env the processing environment
+     * @return the control flow graph of the code
+     * @see BaseTypeChecker#getControlFlowGraphCache()
+     */
     public static ControlFlowGraph build(
             CompilationUnitTree root,
             UnderlyingAST underlyingAST,
@@ -48,20 +63,48 @@ public class CFCFGBuilder extends CFGBuilder {
             throw new UserError(
                     "Assertions cannot be assumed to be enabled and disabled at the same time.");
         }
+        // The options may differ between the checkers of a compound checker.
+        boolean ignoreUncheckedExceptions = checker.hasOption("flowIgnoreUncheckedExceptions");
+        boolean shareFinallyBlocks = checker.hasOption("flowShareFinallyBlocks");
+
+        ControlFlowGraphCache cache = checker.getControlFlowGraphCache();
+        ControlFlowGraph cached =
+                cache.get(
+                        root,
+                        underlyingAST,
+                        assumeAssertionsEnabled,
+                        assumeAssertionsDisabled,
+                        ignoreUncheckedExceptions,
+                        shareFinallyBlocks,
+                        factory);
+        if (cached != null) {
+            return cached;
+        }
 
         CFTreeBuilder builder = new CFTreeBuilder(env);
-        PhaseOneResult phase1result =
+        CFCFGTranslationPhaseOne phaseOne =
                 new CFCFGTranslationPhaseOne(
-                                builder,
-                                checker,
-                                factory,
-                                assumeAssertionsEnabled,
-                                assumeAssertionsDisabled,
-                                env)
-                        .process(root, underlyingAST);
-        ControlFlowGraph phase2result = CFGTranslationPhaseTwo.process(phase1result);
-        ControlFlowGraph phase3result = CFGTranslationPhaseThree.process(phase2result);
-        return phase3result;
+                        builder,
+                        checker,
+                        factory,
+                        assumeAssertionsEnabled,
+                        assumeAssertionsDisabled,
+                        env);
+        PhaseOneResult phase1result = phaseOne.process(root, underlyingAST);
+        ControlFlowGraph cfg = CFGTranslationPhaseTwoAndThree.process(phase1result);
+        if (!phaseOne.isCheckerSpecific()) {
+            cache.put(
+                    root,
+                    underlyingAST,
+                    assumeAssertionsEnabled,
+                    assumeAssertionsDisabled,
+                    ignoreUncheckedExceptions,
+                    shareFinallyBlocks,
+                    cfg,
+                    phaseOne.getArtificialTrees(),
+                    phaseOne.getTerminatesExecutionLookups());
+        }
+        return cfg;
     }
 
     /*
@@ -92,6 +135,23 @@ public class CFCFGBuilder extends CFGBuilder {
         /** Type factory to provide types used during CFG building. */
         protected final AnnotatedTypeFactory factory;
 
+        /**
+         * True if the control flow graph depends on {@link #checker}, so that it cannot be shared
+         * with other checkers.
+         */
+        protected boolean checkerSpecific = false;
+
+        /** The artificial trees created so far, and their enclosing elements. */
+        protected final IdentityHashMap<Tree, Element> artificialTrees = new IdentityHashMap<>();
+
+        /**
+         * The methods that were looked up for {@code @TerminatesExecution}, and whether {@link
+         * #factory} found the annotation. The declaration annotations of a method may differ
+         * between checkers, for example because of their stub files.
+         */
+        protected final Map<ExecutableElement, Boolean> terminatesExecutionLookups =
+                new HashMap<>();
+
         public CFCFGTranslationPhaseOne(
                 CFTreeBuilder builder,
                 BaseTypeChecker checker,
@@ -99,13 +159,62 @@ public class CFCFGBuilder extends CFGBuilder {
                 boolean assumeAssertionsEnabled,
                 boolean assumeAssertionsDisabled,
                 ProcessingEnvironment env) {
-            super(builder, factory, assumeAssertionsEnabled, assumeAssertionsDisabled, env);
+            super(
+                    builder,
+                    factory,
+                    assumeAssertionsEnabled,
+                    assumeAssertionsDisabled,
+                    checker.hasOption("flowIgnoreUncheckedExceptions"),
+                    checker.hasOption("flowShareFinallyBlocks"),
+                    env);
             this.checker = checker;
             this.factory = factory;
         }
 
+        /**
+         * Returns true if the control flow graph depends on the checker that built it. That is the
+         * case if the code contains an enhanced for loop, whose iterator or array variable has the
+         * annotated type computed by the checker, or an assert statement whose detail message
+         * contains {@code @AssumeAssertion}, which may name some checkers but not others.
+         *
+         * @return true if the control flow graph depends on the checker that built it
+         */
+        public boolean isCheckerSpecific() {
+            return checkerSpecific;
+        }
+
+        /**
+         * Returns the artificial trees created so far, and their enclosing elements.
+         *
+         * @return the artificial trees created so far, and their enclosing elements
+         */
+        public Map<Tree, Element> getArtificialTrees() {
+            return artificialTrees;
+        }
+
+        /**
+         * Returns the methods that were looked up for {@code @TerminatesExecution} so far, and
+         * whether {@link #factory} found the annotation.
+         *
+         * @return the methods that were looked up for {@code @TerminatesExecution}, and the results
+         */
+        public Map<ExecutableElement, Boolean> getTerminatesExecutionLookups() {
+            return terminatesExecutionLookups;
+        }
+
+        @Override
+        protected boolean terminatesExecution(ExecutableElement method) {
+            boolean result = super.terminatesExecution(method);
+            terminatesExecutionLookups.put(method, result);
+            return result;
+        }
+
         @Override
         protected boolean assumeAssertionsEnabledFor(AssertTree tree) {
+            ExpressionTree detail = tree.getDetail();
+            if (detail != null && detail.toString().contains("@AssumeAssertion(")) {
+                checkerSpecific = true;
+            }
             if (assumeAssertionsActivatedForAssertTree(checker, tree)) {
                 return true;
             }
@@ -119,11 +228,13 @@ public class CFCFGBuilder extends CFGBuilder {
             if (enclosingMethod != null) {
                 Element methodElement = TreeUtils.elementFromDeclaration(enclosingMethod);
                 factory.setEnclosingElementForArtificialTree(tree, methodElement);
+                artificialTrees.put(tree, methodElement);
             } else {
                 ClassTree enclosingClass = TreeUtils.enclosingClass(getCurrentPath());
                 if (enclosingClass != null) {
                     Element classElement = TreeUtils.elementFromDeclaration(enclosingClass);
                     factory.setEnclosingElementForArtificialTree(tree, classElement);
+                    artificialTrees.put(tree, classElement);
                 }
             }
         }
@@ -131,6 +242,7 @@ public class CFCFGBuilder extends CFGBuilder {
         @Override
         protected VariableTree createEnhancedForLoopIteratorVariable(
                 MethodInvocationTree iteratorCall, VariableElement variableElement) {
+            checkerSpecific = true;
             // We do not want to cache flow-insensitive types
             // retrieved during CFG building.
             boolean oldShouldCache = factory.shouldCache;
@@ -155,6 +267,7 @@ public class CFCFGBuilder extends CFGBuilder {
         @Override
         protected VariableTree createEnhancedForLoopArrayVariable(
                 ExpressionTree expression, VariableElement variableElement) {
+            checkerSpecific = true;
             // We do not want to cache flow-insensitive types
             // retrieved during CFG building.
             boolean oldShouldCache = factory.shouldCache;
@@ -0,0 +1,249 @@
+package org.checkerframework.framework.flow;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.qual.TerminatesExecution;
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+
+/**
+ * The control flow graphs of the code of one compilation unit, shared by all checkers of a compound
+ * checker. Each checker of a compound checker analyzes the same code; with this cache, the control
+ * flow graph of a method is built by the first checker and reused by the others.
+ *
+ * <p>Only control flow graphs that do not depend on the checker that built them are cached; see
+ * {@link CFCFGBuilder.CFCFGTranslationPhaseOne#isCheckerSpecific()}. Analyses do not modify the
+ * control flow graphs that they analyze, so the cached graphs can be shared. A cached graph is only
+ * reused by a checker that agrees with the checker that built it about which invoked methods are
+ * annotated with {@code @TerminatesExecution}, since declaration annotations may come from
+ * checker-specific stub files.
+ *
+ * <p>The cache holds the control flow graphs of only one compilation unit: it is cleared when a
+ * control flow graph of another compilation unit is requested or stored.
+ *
+ * @see org.checkerframework.common.basetype.BaseTypeChecker#getControlFlowGraphCache()
+ */
+public class ControlFlowGraphCache {
+
+    /** A cached control flow graph. */
+    private static class Entry {
+        /** The control flow graph. */
+        final ControlFlowGraph cfg;
+
+        /** Whether the control flow graph was built assuming that assertions are enabled. */
+        final boolean assumeAssertionsEnabled;
+
+        /** Whether the control flow graph was built assuming that assertions are disabled. */
+        final boolean assumeAssertionsDisabled;
+
+        /**
+         * Whether the control flow graph was built without the edges for unchecked exceptions that
+         * only lead to the exceptional exit.
+         */
+        final boolean ignoreUncheckedExceptions;
+
+        /** Whether the control flow graph was built with each finally block translated once. */
+        final boolean shareFinallyBlocks;
+
+        /** The artificial trees of the control flow graph, and their enclosing elements. */
+        final Map<Tree, Element> artificialTrees;
+
+        /**
+         * The methods that were looked up for {@code @TerminatesExecution} while building the
+         * control flow graph, and whether the annotation was found.
+         */
+        final Map<ExecutableElement, Boolean> terminatesExecutionLookups;
+
+        /**
+         * Creates an entry.
+         *
+         * @param cfg the control flow graph
+         * @param assumeAssertionsEnabled whether the control flow graph was built assuming that
+         *     assertions are enabled
+         * @param assumeAssertionsDisabled whether the control flow graph was built assuming that
+         *     assertions are disabled
+         * @param ignoreUncheckedExceptions whether the control flow graph was built without the
+         *     edges for unchecked exceptions that only lead to the exceptional exit
+         * @param shareFinallyBlocks whether the control flow graph was built with each finally
+         *     block translated once
+         * @param artificialTrees the artificial trees of the control flow graph, and their
+         *     enclosing elements
+         * @param terminatesExecutionLookups the methods that were looked up for
+         *     {@code @TerminatesExecution} while building the control flow graph, and whether the
+         *     annotation was found
+         */
+        Entry(
+                ControlFlowGraph cfg,
+                boolean assumeAssertionsEnabled,
+                boolean assumeAssertionsDisabled,
+                boolean ignoreUncheckedExceptions,
+                boolean shareFinallyBlocks,
+                Map<Tree, Element> artificialTrees,
+                Map<ExecutableElement, Boolean> terminatesExecutionLookups) {
+            this.cfg = cfg;
+            this.assumeAssertionsEnabled = assumeAssertionsEnabled;
+            this.assumeAssertionsDisabled = assumeAssertionsDisabled;
+            this.ignoreUncheckedExceptions = ignoreUncheckedExceptions;
+            this.shareFinallyBlocks = shareFinallyBlocks;
+            this.artificialTrees = artificialTrees;
+            this.terminatesExecutionLookups = terminatesExecutionLookups;
+        }
+
+        /**
+         * Returns true if {@code factory} agrees with the factory that built the control flow graph
+         * about which invoked methods are annotated with {@code @TerminatesExecution}.
+         *
+         * @param factory the type factory of the checker that will analyze the control flow graph
+         * @return true if the control flow graph is the one that {@code factory} would build
+         */
+        boolean sameTerminatesExecution(AnnotatedTypeFactory factory) {
+            for (Map.Entry<ExecutableElement, Boolean> lookup :
+                    terminatesExecutionLookups.entrySet()) {
+                boolean terminatesExecution =
+                        factory.getDeclAnnotation(lookup.getKey(), TerminatesExecution.class)
+                                != null;
+                if (terminatesExecution != lookup.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The compilation unit whose control flow graphs are cached, or null if none are. */
+    private @Nullable CompilationUnitTree root = null;
+
+    /**
+     * The cached control flow graphs, by the {@linkplain UnderlyingAST#getCode() code} they
+     * represent.
+     */
+    private final IdentityHashMap<Tree, Entry> entries = new IdentityHashMap<>();
+
+    /** The number of control flow graphs that were reused from this cache. */
+    private long hits = 0;
+
+    /** The number of control flow graphs that were not in this cache. */
+    private long misses = 0;
+
+    /**
+     * Returns the cached control flow graph of {@code underlyingAST}, or null if there is none. If
+     * there is one, the enclosing elements of its artificial trees are recorded in {@code factory},
+     * as if {@code factory} had built it.
+     *
+     * @param root the compilation unit that contains {@code underlyingAST}
+     * @param underlyingAST the code whose control flow graph to return
+     * @param assumeAssertionsEnabled whether the control flow graph should assume that assertions
+     *     are enabled
+     * @param assumeAssertionsDisabled whether the control flow graph should assume that assertions
+     *     are disabled
+     * @param ignoreUncheckedExceptions whether the control flow graph should omit the edges for
+     *     unchecked exceptions that only lead to the exceptional exit
+     * @param shareFinallyBlocks whether the control flow graph should translate each finally block
+     *     once
+     * @param factory the type factory of the checker that will analyze the control flow graph
+     * @return the cached control flow graph of {@code underlyingAST}, or null
+     */
+    public @Nullable ControlFlowGraph get(
+            CompilationUnitTree root,
+            UnderlyingAST underlyingAST,
+            boolean assumeAssertionsEnabled,
+            boolean assumeAssertionsDisabled,
+            boolean ignoreUncheckedExceptions,
+            boolean shareFinallyBlocks,
+            AnnotatedTypeFactory factory) {
+        setRoot(root);
+        Entry entry = entries.get(underlyingAST.getCode());
+        if (entry == null
+                || entry.assumeAssertionsEnabled != assumeAssertionsEnabled
+                || entry.assumeAssertionsDisabled != assumeAssertionsDisabled
+                || entry.ignoreUncheckedExceptions != ignoreUncheckedExceptions
+                || entry.shareFinallyBlocks != shareFinallyBlocks
+                || !entry.sameTerminatesExecution(factory)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        for (Map.Entry<Tree, Element> artificialTree : entry.artificialTrees.entrySet()) {
+            factory.setEnclosingElementForArtificialTree(
+                    artificialTree.getKey(), artificialTree.getValue());
+        }
+        return entry.cfg;
+    }
+
+    /**
+     * Caches the control flow graph of {@code underlyingAST}.
+     *
+     * @param root the compilation unit that contains {@code underlyingAST}
+     * @param underlyingAST the code that {@code cfg} represents
+     * @param assumeAssertionsEnabled whether {@code cfg} assumes that assertions are enabled
+     * @param assumeAssertionsDisabled whether {@code cfg} assumes that assertions are disabled
+     * @param ignoreUncheckedExceptions whether {@code cfg} omits the edges for unchecked exceptions
+     *     that only lead to the exceptional exit
+     * @param shareFinallyBlocks whether {@code cfg} translates each finally block once
+     * @param cfg the control flow graph of {@code underlyingAST}
+     * @param artificialTrees the artificial trees that were created while building {@code cfg}, and
+     *     their enclosing elements
+     * @param terminatesExecutionLookups the methods that were looked up for
+     *     {@code @TerminatesExecution} while building {@code cfg}, and whether the annotation was
+     *     found
+     */
+    public void put(
+            CompilationUnitTree root,
+            UnderlyingAST underlyingAST,
+            boolean assumeAssertionsEnabled,
+            boolean assumeAssertionsDisabled,
+            boolean ignoreUncheckedExceptions,
+            boolean shareFinallyBlocks,
+            ControlFlowGraph cfg,
+            Map<Tree, Element> artificialTrees,
+            Map<ExecutableElement, Boolean> terminatesExecutionLookups) {
+        setRoot(root);
+        entries.put(
+                underlyingAST.getCode(),
+                new Entry(
+                        cfg,
+                        assumeAssertionsEnabled,
+                        assumeAssertionsDisabled,
+                        ignoreUncheckedExceptions,
+                        shareFinallyBlocks,
+                        artificialTrees,
+                        terminatesExecutionLookups));
+    }
+
+    /**
+     * Clears this cache if {@code newRoot} is not the compilation unit whose control flow graphs
+     * are cached.
+     *
+     * @param newRoot the compilation unit of a control flow graph that is requested or stored
+     */
+    private void setRoot(CompilationUnitTree newRoot) {
+        if (root != newRoot) {
+            entries.clear();
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Returns the number of control flow graphs that were reused from this cache.
+     *
+     * @return the number of control flow graphs that were reused from this cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of control flow graphs that were requested but not in this cache.
+     *
+     * @return the number of control flow graphs that were not in this cache
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
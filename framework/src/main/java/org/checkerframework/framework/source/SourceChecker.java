@@ -64,6 +64,7 @@ import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.qual.AnnotatedFor;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.util.CFContext;
+import org.checkerframework.framework.util.CheckerDaemon;
 import org.checkerframework.framework.util.CheckerMain;
 import org.checkerframework.framework.util.OptionConfiguration;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
@@ -254,6 +255,26 @@ import org.plumelib.util.UtilPlume;
     // Already listed above, but worth noting again in this section:
     // "useConservativeDefaultsForUncheckedCode"
 
+    ///
+    /// Performance
+    ///
+
+    // Only type-check the compilation units that belong to the given shard, written as
+    // "INDEX/COUNT" such as "-AtypeCheckShard=2/4".  Running COUNT compilations in parallel, one
+    // per INDEX, type-checks every compilation unit exactly once.
+    // org.checkerframework.framework.source.SourceChecker.isInTypeCheckShard
+    "typeCheckShard",
+
+    // Directory in which to store the types of elements from jar files and the JDK, so that later
+    // compilations can read them instead of recomputing them
+    // org.checkerframework.framework.type.PersistentElementTypeCache
+    "elementTypeCacheDir",
+
+    // Directory in which to store the diagnostics issued for each class and the signatures that
+    // they depend on, so that later compilations can skip classes that are unaffected by a change
+    // org.checkerframework.common.basetype.IncrementalCheckIndex
+    "incrementalCheckDir",
+
     ///
     /// Debugging
     ///
@@ -365,15 +386,68 @@ import org.plumelib.util.UtilPlume;
     // Set the cache size for caches in AnnotatedTypeFactory
     "atfCacheSize",
 
+    // Set the size of the cache for the types of elements without source code
+    // (from bytecode or stub files) in AnnotatedTypeFactory
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.libraryElementCache
+    "atfLibraryCacheSize",
+
     // Sets AnnotatedTypeFactory shouldCache to false
     "atfDoNotCache",
 
+    // Record the dataflow store before every Nth node of a basic block, so that queries for the
+    // store at a node re-run the transfer function for at most N nodes
+    // org.checkerframework.framework.flow.CFAbstractAnalysis
+    "flowCheckpointInterval",
+
+    // The maximum number of stores recorded per method for -AflowCheckpointInterval
+    // org.checkerframework.framework.flow.CFAbstractAnalysis
+    "flowCheckpointBudget",
+
+    // Widen the dataflow store only at loop heads, rather than at every block that has been
+    // analyzed too often
+    // org.checkerframework.framework.flow.CFAbstractAnalysis
+    "flowWidenAtLoopHeads",
+
+    // The maximum number of block iterations, or milliseconds, of the dataflow analysis of a
+    // method, after which the analysis stops refining types and a warning is issued.  Whether a
+    // time budget is exceeded depends on the speed of the machine.
+    // org.checkerframework.framework.flow.CFAbstractAnalysis
+    "flowIterationBudget",
+    "flowTimeBudget",
+
+    // Remove the values of dead local variables from the stores at the start of each block
+    // org.checkerframework.framework.flow.CFAbstractAnalysis
+    "flowPruneDeadLocals",
+
+    // Release the dataflow results for each method once the method has been type-checked
+    // org.checkerframework.common.basetype.BaseTypeVisitor
+    "flowReleaseMethodResults",
+
+    // Do not build the control flow graph of, or analyze, methods such as getters and setters
+    // whose expressions flow analysis could not refine
+    // org.checkerframework.framework.type.GenericAnnotatedTypeFactory
+    "flowSkipTrivialMethods",
+
+    // Omit the control flow graph edges for unchecked exceptions that no enclosing try statement
+    // handles
+    // org.checkerframework.framework.flow.CFCFGBuilder
+    "flowIgnoreUncheckedExceptions",
+
+    // Translate each finally block once, rather than once for each way of leaving its try
+    // statement
+    // org.checkerframework.framework.flow.CFCFGBuilder
+    "flowShareFinallyBlocks",
+
     /// Miscellaneous debugging options
 
     // Whether to output resource statistics at JVM shutdown
     // org.checkerframework.framework.source.SourceChecker.shutdownHook()
     "resourceStats",
 
+    // Print the number of block iterations of the dataflow analysis of each method
+    // org.checkerframework.framework.flow.CFAbstractAnalysis
+    "flowIterationStats",
+
     // Parse all JDK files at startup rather than as needed.
     "parseAllJdk"
 })
@@ -516,6 +590,19 @@ public abstract class SourceChecker extends AbstractTypeProcessor
     /** List of upstream checker names. Includes the current checker. */
     protected List<@FullyQualifiedName String> upstreamCheckerNames;
 
+    /**
+     * The index of the shard of compilation units that this checker type-checks, as set by the
+     * {@code -AtypeCheckShard} command-line option. Between 0 (inclusive) and {@link
+     * #typeCheckShardCount} (exclusive).
+     */
+    private int typeCheckShardIndex = 0;
+
+    /**
+     * The number of shards that the compilation units are divided into, as set by the {@code
+     * -AtypeCheckShard} command-line option. If 1, every compilation unit is type-checked.
+     */
+    private int typeCheckShardCount = 1;
+
     @Override
     public final synchronized void init(ProcessingEnvironment env) {
         super.init(env);
@@ -822,14 +909,7 @@ public abstract class SourceChecker extends AbstractTypeProcessor
                                 + "! Please ensure your checker is properly initialized.");
             }
             if (shouldAddShutdownHook()) {
-                Runtime.getRuntime()
-                        .addShutdownHook(
-                                new Thread() {
-                                    @Override
-                                    public void run() {
-                                        shutdownHook();
-                                    }
-                                });
+                CheckerDaemon.addShutdownHook(this::shutdownHook);
             }
             if (hasOption("version")) {
                 messager.printMessage(Kind.NOTE, "Checker Framework " + getCheckerVersion());
@@ -866,6 +946,80 @@ public abstract class SourceChecker extends AbstractTypeProcessor
         if (this.activeLints == null) {
             this.activeLints = createActiveLints(getOptions());
         }
+
+        initTypeCheckShard();
+    }
+
+    /**
+     * Sets {@link #typeCheckShardIndex} and {@link #typeCheckShardCount} from the {@code
+     * -AtypeCheckShard=INDEX/COUNT} command-line option, if it was supplied.
+     */
+    private void initTypeCheckShard() {
+        if (!hasOption("typeCheckShard")) {
+            return;
+        }
+        String shard = getOption("typeCheckShard");
+        int slash = (shard == null) ? -1 : shard.indexOf('/');
+        if (slash == -1) {
+            throw new UserError("-AtypeCheckShard must be of the form INDEX/COUNT: " + shard);
+        }
+        try {
+            typeCheckShardIndex = Integer.parseInt(shard.substring(0, slash).trim());
+            typeCheckShardCount = Integer.parseInt(shard.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new UserError("-AtypeCheckShard must be of the form INDEX/COUNT: " + shard);
+        }
+        if (typeCheckShardCount < 1
+                || typeCheckShardIndex < 0
+                || typeCheckShardIndex >= typeCheckShardCount) {
+            throw new UserError(
+                    "-AtypeCheckShard requires 0 <= INDEX < COUNT, found: %d/%d",
+                    typeCheckShardIndex, typeCheckShardCount);
+        }
+    }
+
+    /**
+     * Returns true if this checker should type-check the given compilation unit. This is always the
+     * case unless the {@code -AtypeCheckShard=INDEX/COUNT} command-line option is supplied, in
+     * which case the compilation units are partitioned into COUNT disjoint shards by the hash of
+     * their package and file name and only the shard INDEX is type-checked.
+     *
+     * <p>All classes of a compilation unit are in the same shard. Because the package and file name
+     * do not depend on the other sources, on the directory that contains the file, or on the order
+     * in which javac analyzes them, COUNT compilations of the same sources that differ only in
+     * INDEX can run in parallel and together issue exactly the diagnostics of a single compilation
+     * without the option. Each compilation only reports the diagnostics of its own shard; merging
+     * the outputs of the compilations is left to the build.
+     *
+     * @param root a compilation unit
+     * @return true if this checker should type-check {@code root}
+     */
+    private boolean isInTypeCheckShard(CompilationUnitTree root) {
+        if (typeCheckShardCount == 1) {
+            return true;
+        }
+        String path = root.getSourceFile().toUri().getPath();
+        String key = path.substring(path.lastIndexOf('/') + 1);
+        if (root.getPackageName() != null) {
+            key = root.getPackageName() + "." + key;
+        }
+        return Math.floorMod(key.hashCode(), typeCheckShardCount) == typeCheckShardIndex;
+    }
+
+    /**
+     * Returns true if {@link #typeProcess} will visit the class at {@code p}, and false if it will
+     * skip the class because the compilation has Java errors, because the checker was not
+     * initialized, or because the class is not in this checker's shard. Has no side effects.
+     *
+     * @param p the path to a top-level class
+     * @return true if {@link #typeProcess} will visit the class at {@code p}
+     */
+    protected boolean willTypeCheck(TreePath p) {
+        Log log = Log.instance(((JavacProcessingEnvironment) processingEnv).getContext());
+        return log.nerrors <= this.errsOnLastExit
+                && p.getCompilationUnit() != previousErrorCompilationUnit
+                && visitor != null
+                && isInTypeCheckShard(p.getCompilationUnit());
     }
 
     /** Output the warning about source level at most once. */
@@ -931,6 +1085,9 @@ public abstract class SourceChecker extends AbstractTypeProcessor
             // logged there. Don't also cause a NPE here.
             return;
         }
+        if (!isInTypeCheckShard(p.getCompilationUnit())) {
+            return;
+        }
         if (p.getCompilationUnit() != currentRoot) {
             setRoot(p.getCompilationUnit());
             if (hasOption("filenames")) {
@@ -2550,8 +2707,9 @@ public abstract class SourceChecker extends AbstractTypeProcessor
     }
 
     /**
-     * Method that gets called exactly once at shutdown time of the JVM. Checkers can override this
-     * method to customize the behavior.
+     * Method that gets called exactly once at shutdown time of the JVM, or at the end of the
+     * compilation if the checker runs in a {@link CheckerDaemon}. Checkers can override this method
+     * to customize the behavior.
      */
     protected void shutdownHook() {
         if (hasOption("resourceStats")) {
@@ -0,0 +1,401 @@
+package org.checkerframework.framework.stub;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A single file that contains all the annotated JDK files, with an index from class names to the
+ * location of their files. It is created at build time from the {@code annotated-jdk} directory,
+ * after {@link JavaStubifier} has minimized its files, and is stored in checker.jar as {@code
+ * annotated-jdk.index}. Reading the annotated JDK file of a class from it is a lookup in a hash map
+ * and a read from a buffer, instead of opening checker.jar and looking up a jar entry. The list of
+ * classes is read from the index, instead of from the entries of checker.jar, which does not
+ * contain the annotated JDK files themselves. The index does not save parsing: the file of a class
+ * is still parsed by {@link AnnotationFileParser} when the class is first used.
+ *
+ * <p>The file starts with a table of contents, whose entries are a class name (such as {@code
+ * java.util.List}, or {@code java.util.package-info} for a package), the name of its file, and the
+ * offset and length of the file's UTF-8 contents. The contents follow the table.
+ *
+ * <p>If the file is a file in the file system, it is memory-mapped; if it is in a jar file, it is
+ * read into memory once. Either way, an index is loaded at most once per process and is shared by
+ * all checkers and compilations in the process, until its file changes.
+ */
+public class AnnotatedJdkIndex {
+
+    /** The name of the resource that contains the annotated JDK index. */
+    public static final String RESOURCE_NAME = "/annotated-jdk.index";
+
+    /** The first four bytes of an index file. */
+    private static final int MAGIC = 0x43464a49;
+
+    /** The version of the index file format. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The suffix of package-info class names. */
+    private static final String PACKAGE_INFO = ".package-info";
+
+    /** The loaded indexes, by URL. */
+    private static final Map<String, AnnotatedJdkIndex> loadedIndexes = new ConcurrentHashMap<>();
+
+    /** The size and modification time of the file that this index was loaded from. */
+    private final String fingerprint;
+
+    /** The contents of the index file. */
+    private final ByteBuffer buffer;
+
+    /** The entries of the index, by class name. */
+    private final Map<String, Entry> entries;
+
+    /** The location of the annotated JDK file of a class. */
+    private static class Entry {
+        /** The name of the file, for use in diagnostics. */
+        final String fileName;
+
+        /** The offset of the contents of the file in the index. */
+        final int offset;
+
+        /** The length of the contents of the file. */
+        final int length;
+
+        /**
+         * Creates an Entry.
+         *
+         * @param fileName the name of the file
+         * @param offset the offset of the contents of the file in the index
+         * @param length the length of the contents of the file
+         */
+        Entry(String fileName, int offset, int length) {
+            this.fileName = fileName;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Creates an AnnotatedJdkIndex from the contents of an index file.
+     *
+     * @param fingerprint the size and modification time of the file that the index was loaded from
+     * @param buffer the contents of the index file
+     * @throws IOException if the index file is malformed
+     */
+    private AnnotatedJdkIndex(String fingerprint, ByteBuffer buffer) throws IOException {
+        this.fingerprint = fingerprint;
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not an annotated JDK index");
+            }
+            ByteBuffer header = buffer.duplicate();
+            header.position(8);
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(header));
+            int numEntries = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(numEntries * 2);
+            for (int i = 0; i < numEntries; i++) {
+                String className = in.readUTF();
+                entries.put(className, new Entry(in.readUTF(), in.readInt(), in.readInt()));
+            }
+            this.entries = Collections.unmodifiableMap(entries);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed annotated JDK index", e);
+        }
+    }
+
+    /**
+     * Returns the annotated JDK index at {@code url}, or null if there is none or it cannot be
+     * read.
+     *
+     * @param url the URL of an annotated JDK index, or null
+     * @return the annotated JDK index at {@code url}, or null
+     */
+    public static @Nullable AnnotatedJdkIndex load(@Nullable URL url) {
+        if (url == null) {
+            return null;
+        }
+        String fingerprint = fingerprint(url);
+        if (fingerprint == null) {
+            return null;
+        }
+        AnnotatedJdkIndex index = loadedIndexes.get(url.toString());
+        if (index != null && index.fingerprint.equals(fingerprint)) {
+            return index;
+        }
+        try {
+            index = new AnnotatedJdkIndex(fingerprint, readBuffer(url));
+        } catch (IOException e) {
+            return null;
+        }
+        loadedIndexes.put(url.toString(), index);
+        return index;
+    }
+
+    /**
+     * Returns the names of the classes whose annotated JDK files are in this index, except for
+     * package-info files.
+     *
+     * @return the names of the classes in this index
+     */
+    public List<String> getClassNames() {
+        return entries.keySet().stream()
+                .filter(name -> !name.endsWith(PACKAGE_INFO))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the names of the package-info files in this index, such as {@code
+     * java.util.package-info}.
+     *
+     * @return the names of the package-info files in this index
+     */
+    public List<String> getPackageInfoNames() {
+        return entries.keySet().stream()
+                .filter(name -> name.endsWith(PACKAGE_INFO))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the name of the annotated JDK file for {@code className}.
+     *
+     * @param className a class name returned by {@link #getClassNames} or {@link
+     *     #getPackageInfoNames}
+     * @return the name of the annotated JDK file for {@code className}
+     */
+    public String getFileName(String className) {
+        return getEntry(className).fileName;
+    }
+
+    /**
+     * Returns the contents of the annotated JDK file for {@code className}.
+     *
+     * @param className a class name returned by {@link #getClassNames} or {@link
+     *     #getPackageInfoNames}
+     * @return the contents of the annotated JDK file for {@code className}
+     */
+    public InputStream getContents(String className) {
+        Entry entry = getEntry(className);
+        ByteBuffer contents = buffer.duplicate();
+        contents.position(entry.offset);
+        contents.limit(entry.offset + entry.length);
+        return new ByteBufferInputStream(contents);
+    }
+
+    /**
+     * Returns the entry for {@code className}.
+     *
+     * @param className a class name in this index
+     * @return the entry for {@code className}
+     */
+    private Entry getEntry(String className) {
+        Entry entry = entries.get(className);
+        if (entry == null) {
+            throw new BugInCF("No annotated JDK file for " + className);
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the size and modification time of the file that contains {@code url}, or null if it
+     * is not a file or a jar entry.
+     *
+     * @param url a URL
+     * @return the size and modification time of the file that contains {@code url}, or null
+     */
+    private static @Nullable String fingerprint(URL url) {
+        try {
+            File file;
+            if (url.getProtocol().equals("jar")) {
+                URLConnection connection = url.openConnection();
+                file = new File(((JarURLConnection) connection).getJarFileURL().toURI());
+            } else if (url.getProtocol().equals("file")) {
+                file = new File(url.toURI());
+            } else {
+                return null;
+            }
+            return file.length() + " " + file.lastModified();
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the contents of {@code url}. A file is memory-mapped; a jar entry is read into
+     * memory.
+     *
+     * @param url the URL of an index file
+     * @return the contents of {@code url}
+     * @throws IOException if {@code url} cannot be read
+     */
+    private static ByteBuffer readBuffer(URL url) throws IOException {
+        if (url.getProtocol().equals("file")) {
+            Path path;
+            try {
+                path = Paths.get(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        URLConnection connection = url.openConnection();
+        // Do not keep checker.jar open.
+        connection.setUseCaches(false);
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1 << 16];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                bytes.write(chunk, 0, n);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+
+    /** An InputStream that reads the remaining bytes of a ByteBuffer. */
+    private static class ByteBufferInputStream extends InputStream {
+        /** The buffer to read from. */
+        private final ByteBuffer buf;
+
+        /**
+         * Creates a ByteBufferInputStream.
+         *
+         * @param buf the buffer to read from
+         */
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+
+    // **********************************************************************
+    // Creating an index
+    // **********************************************************************
+
+    /**
+     * Creates an annotated JDK index from an annotated JDK directory. Used by the build.
+     *
+     * @param args the annotated JDK directory, and the index file to create
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: AnnotatedJdkIndex annotated-jdk-dir index-file");
+            System.exit(1);
+        }
+        write(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    /**
+     * Writes an index of the annotated JDK files in {@code jdkDir} to {@code indexFile}. The class
+     * name of a file is its path relative to the {@code share/classes} directory that contains it,
+     * as in {@link AnnotationFileElementTypes}.
+     *
+     * @param jdkDir the annotated JDK directory
+     * @param indexFile the index file to create
+     * @throws IOException if a file cannot be read or written
+     */
+    private static void write(Path jdkDir, Path indexFile) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(jdkDir)) {
+            files =
+                    walk.filter(
+                                    p ->
+                                            Files.isRegularFile(p)
+                                                    && p.toString().endsWith(".java")
+                                                    // JavaParser can't parse module-info files.
+                                                    && !p.getFileName()
+                                                            .toString()
+                                                            .equals("module-info.java"))
+                            .sorted()
+                            .collect(Collectors.toList());
+        }
+
+        List<String> classNames = new ArrayList<>(files.size());
+        List<byte[]> contents = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String relative = jdkDir.relativize(file).toString().replace(File.separatorChar, '/');
+            int index = relative.indexOf("/share/classes/");
+            if (index == -1) {
+                continue;
+            }
+            classNames.add(
+                    relative.substring(index + "/share/classes/".length())
+                            .replace(".java", "")
+                            .replace('/', '.'));
+            contents.add(Files.readAllBytes(file));
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        // The offsets depend on the size of the header, so write it twice.
+        for (int pass = 0; pass < 2; pass++) {
+            int offset = 8 + header.size();
+            header.reset();
+            headerOut.writeInt(classNames.size());
+            for (int i = 0; i < classNames.size(); i++) {
+                String className = classNames.get(i);
+                headerOut.writeUTF(className);
+                headerOut.writeUTF(className.substring(className.lastIndexOf('.') + 1) + ".java");
+                headerOut.writeInt(offset);
+                headerOut.writeInt(contents.get(i).length);
+                offset += contents.get(i).length;
+            }
+        }
+
+        Files.createDirectories(indexFile.toAbsolutePath().getParent());
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            header.writeTo(out);
+            for (byte[] content : contents) {
+                out.write(content);
+            }
+        }
+    }
+}
@@ -13,10 +13,10 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -26,12 +26,14 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic.Kind;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.CanonicalNameOrEmpty;
 import org.checkerframework.framework.qual.StubFiles;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.stub.AnnotationFileParser.StubAnnotations;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.util.JarEntryNameCache;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.SystemUtil;
@@ -60,6 +62,12 @@ public class AnnotationFileElementTypes {
      */
     private final Map<String, String> jdkStubFilesJar = new HashMap<>();
 
+    /** The annotated JDK index, or null if the annotated JDK is not read from an index. */
+    private @Nullable AnnotatedJdkIndex jdkIndex;
+
+    /** Fully-qualified names of the classes in {@link #jdkIndex} that have not been parsed. */
+    private final Set<String> jdkIndexClasses = new HashSet<>();
+
     /** Which version number of the annotated JDK should be used? */
     private final String annotatedJdkVersion;
 
@@ -322,6 +330,8 @@ public class AnnotationFileElementTypes {
         } else if (jdkStubFilesJar.containsKey(className)) {
             parseJarEntry(jdkStubFilesJar.get(className));
             jdkStubFilesJar.remove(className);
+        } else if (jdkIndexClasses.remove(className)) {
+            parseIndexEntry(className);
         }
     }
 
@@ -404,6 +414,29 @@ public class AnnotationFileElementTypes {
         }
     }
 
+    /**
+     * Parses the stub file for the given class in {@link #jdkIndex}.
+     *
+     * @param className name of the class in the index
+     */
+    private void parseIndexEntry(String className) {
+        parsing = true;
+        try (InputStream jdkStub = jdkIndex.getContents(className)) {
+            AnnotationFileParser.parseJdkFileAsStub(
+                    jdkIndex.getFileName(className),
+                    jdkStub,
+                    factory,
+                    factory.getProcessingEnv(),
+                    stubAnnos);
+        } catch (IOException e) {
+            throw new BugInCF("cannot read the jdk stub file for " + className, e);
+        } catch (BugInCF e) {
+            throw new BugInCF("Exception while parsing " + className + ": " + e.getMessage(), e);
+        } finally {
+            parsing = false;
+        }
+    }
+
     /**
      * Returns a JarURLConnection to "/jdk*".
      *
@@ -435,6 +468,13 @@ public class AnnotationFileElementTypes {
         if (!shouldParseJdk) {
             return;
         }
+        jdkIndex =
+                AnnotatedJdkIndex.load(
+                        factory.getClass().getResource(AnnotatedJdkIndex.RESOURCE_NAME));
+        if (jdkIndex != null) {
+            prepJdkFromIndex();
+            return;
+        }
         URL resourceURL = factory.getClass().getResource("/annotated-jdk");
         if (resourceURL == null) {
             if (factory.getContext().getChecker().hasOption("permitMissingJdk")
@@ -457,6 +497,23 @@ public class AnnotationFileElementTypes {
         }
     }
 
+    /**
+     * Records the classes in {@link #jdkIndex} in {@link #jdkIndexClasses}. Also, parses all
+     * package-info.java files.
+     */
+    private void prepJdkFromIndex() {
+        for (String packageInfo : jdkIndex.getPackageInfoNames()) {
+            parseIndexEntry(packageInfo);
+        }
+        for (String className : jdkIndex.getClassNames()) {
+            if (parseAllJdkFiles) {
+                parseIndexEntry(className);
+            } else {
+                jdkIndexClasses.add(className);
+            }
+        }
+    }
+
     /**
      * Walk through the jdk directory and create a mapping, {@link #jdkStubFiles}, from file name to
      * the class contained with in it. Also, parses all package-info.java files.
@@ -510,19 +567,18 @@ public class AnnotationFileElementTypes {
         JarURLConnection connection = getJarURLConnectionToJdk();
 
         try (JarFile jarFile = connection.getJarFile()) {
-            for (JarEntry jarEntry : jarFile.stream().collect(Collectors.toList())) {
+            for (String jarEntryName : JarEntryNameCache.getEntryNames(jarFile)) {
                 // filter out directories and non-class files
-                if (!jarEntry.isDirectory()
-                        && jarEntry.getName().endsWith(".java")
-                        && jarEntry.getName().startsWith("annotated-jdk")
+                if (!jarEntryName.endsWith("/")
+                        && jarEntryName.endsWith(".java")
+                        && jarEntryName.startsWith("annotated-jdk")
                         // JavaParser can't parse module-info files, so skip them.
-                        && !jarEntry.getName().contains("module-info")) {
-                    String jarEntryName = jarEntry.getName();
+                        && !jarEntryName.contains("module-info")) {
                     if (parseAllJdkFiles) {
                         parseJarEntry(jarEntryName);
                         continue;
                     }
-                    int index = jarEntry.getName().indexOf("/share/classes/");
+                    int index = jarEntryName.indexOf("/share/classes/");
                     String shortName =
                             jarEntryName
                                     .substring(index + "/share/classes/".length())
@@ -351,6 +351,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     /** Size of LRU cache if one isn't specified using the atfCacheSize option. */
     private static final int DEFAULT_CACHE_SIZE = 300;
 
+    /**
+     * Size of {@link #libraryElementCache} if one isn't specified using the atfLibraryCacheSize
+     * option.
+     */
+    private static final int DEFAULT_LIBRARY_CACHE_SIZE = 5000;
+
     /** Mapping from a Tree to its annotated type; defaults have been applied. */
     private final Map<Tree, AnnotatedTypeMirror> classAndMethodTreeCache;
 
@@ -378,6 +384,49 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      */
     private final Map<Element, AnnotatedTypeMirror> elementCache;
 
+    /**
+     * Mapping from an Element that has no source code (it comes from bytecode or a stub file) to
+     * its annotated type; before defaults are applied. This is a second, larger tier behind {@link
+     * #elementCache}.
+     *
+     * <p>The two tiers have the same lifetime: {@link #setRoot} clears neither, so both are shared
+     * by all compilation units. They differ in what may evict their entries. Every element declared
+     * in the code being type-checked goes to {@link #elementCache}, so type-checking a large class
+     * evicts the library methods and fields that every class uses, and their types are then
+     * re-derived from stub files and class files. In this tier, only other library elements can
+     * evict them.
+     *
+     * <p>Like {@link #elementCache}, this tier stores a deep copy of each type and {@link
+     * #fromElement} returns a deep copy of the cached type on every hit: callers modify the types
+     * that they get, and annotated types have no copy-on-write mode.
+     */
+    private final Map<Element, AnnotatedTypeMirror> libraryElementCache;
+
+    /**
+     * Cache, stored on disk, of the types in {@link #libraryElementCache} that come from jar files
+     * and the JDK; it outlives this compilation. Null unless the elementTypeCacheDir command-line
+     * option is supplied.
+     */
+    private final @Nullable PersistentElementTypeCache persistentElementTypeCache;
+
+    /** The number of calls to {@link #fromElement} that were answered by {@link #elementCache}. */
+    private long elementCacheHits = 0;
+
+    /**
+     * The number of calls to {@link #fromElement} that were answered by {@link
+     * #libraryElementCache}.
+     */
+    private long libraryElementCacheHits = 0;
+
+    /** The number of calls to {@link #fromElement} that were not answered by either cache. */
+    private long elementCacheMisses = 0;
+
+    /**
+     * The elements passed to {@link #fromElement} or {@link #getDeclAnnotations} since the last
+     * call to {@link #startRecordingElementUses}, or null if element uses are not being recorded.
+     */
+    private @Nullable Set<Element> recordedElementUses = null;
+
     /** Mapping from an Element to the source Tree of the declaration. */
     private final Map<Element, Tree> elementToTreeCache;
 
@@ -446,6 +495,8 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             this.fromMemberTreeCache = CollectionUtils.createLRUCache(cacheSize);
             this.fromTypeTreeCache = CollectionUtils.createLRUCache(cacheSize);
             this.elementCache = CollectionUtils.createLRUCache(cacheSize);
+            this.libraryElementCache = CollectionUtils.createLRUCache(getLibraryCacheSize());
+            this.persistentElementTypeCache = PersistentElementTypeCache.create(this);
             this.elementToTreeCache = CollectionUtils.createLRUCache(cacheSize);
             this.annotationClassNames =
                     Collections.synchronizedMap(
@@ -456,6 +507,8 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             this.fromMemberTreeCache = null;
             this.fromTypeTreeCache = null;
             this.elementCache = null;
+            this.libraryElementCache = null;
+            this.persistentElementTypeCache = null;
             this.elementToTreeCache = null;
             this.annotationClassNames = null;
         }
@@ -677,9 +730,10 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             fromTypeTreeCache.clear();
             classAndMethodTreeCache.clear();
 
-            // There is no need to clear the following cache, it is limited by cache size and it
-            // contents won't change between compilation units.
+            // There is no need to clear the following caches, they are limited by cache size and
+            // their contents won't change between compilation units.
             // elementCache.clear();
+            // libraryElementCache.clear();
         }
     }
 
@@ -982,6 +1036,129 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         }
     }
 
+    /**
+     * Returns the int supplied to the checker via the atfLibraryCacheSize option or the default
+     * size of the cache for elements without source code.
+     *
+     * @return library cache size passed as argument to checker or DEFAULT_LIBRARY_CACHE_SIZE
+     */
+    protected int getLibraryCacheSize() {
+        String option = checker.getOption("atfLibraryCacheSize");
+        if (option == null) {
+            return DEFAULT_LIBRARY_CACHE_SIZE;
+        }
+        try {
+            return Integer.valueOf(option);
+        } catch (NumberFormatException ex) {
+            throw new UserError("atfLibraryCacheSize was not an integer: " + option);
+        }
+    }
+
+    /**
+     * Returns the number of calls to {@link #fromElement} that were answered by the cache of the
+     * types of elements declared in source code.
+     *
+     * @return the number of hits in the cache of the types of elements declared in source code
+     */
+    public long getElementCacheHits() {
+        return elementCacheHits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #fromElement} that were answered by the cache of the
+     * types of elements without source code, such as JDK methods.
+     *
+     * @return the number of hits in the cache of the types of elements without source code
+     */
+    public long getLibraryElementCacheHits() {
+        return libraryElementCacheHits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #fromElement} that were answered by neither element
+     * type cache.
+     *
+     * @return the number of misses in the element type caches
+     */
+    public long getElementCacheMisses() {
+        return elementCacheMisses;
+    }
+
+    /**
+     * Returns the cache, stored on disk, of the types of elements from jar files and the JDK.
+     *
+     * @return the cache, stored on disk, of the types of elements from jar files and the JDK, or
+     *     null unless the {@code -AelementTypeCacheDir} command-line option is supplied
+     */
+    public @Nullable PersistentElementTypeCache getPersistentElementTypeCache() {
+        return persistentElementTypeCache;
+    }
+
+    /**
+     * Prints statistics about this factory, such as the hit rates of its caches, to standard
+     * output. Called at JVM shutdown if the {@code -AresourceStats} command-line option is
+     * supplied.
+     *
+     * <p>Subclasses that override this method should call {@code super.printStatistics()}.
+     */
+    public void printStatistics() {
+        if (!shouldCache) {
+            return;
+        }
+        long lookups = elementCacheHits + libraryElementCacheHits + elementCacheMisses;
+        System.out.printf(
+                "%s element cache: %d lookups, %d hits, %d library hits, %d misses, %d + %d"
+                        + " entries%n",
+                this,
+                lookups,
+                elementCacheHits,
+                libraryElementCacheHits,
+                elementCacheMisses,
+                elementCache.size(),
+                libraryElementCache.size());
+        if (persistentElementTypeCache != null) {
+            System.out.printf(
+                    "%s persistent element type cache: %s%n",
+                    this, persistentElementTypeCache.getStatistics());
+        }
+        if (typeHierarchy instanceof DefaultTypeHierarchy) {
+            ((DefaultTypeHierarchy) typeHierarchy).printStatistics();
+        }
+    }
+
+    /**
+     * Called once, after all compilation units have been type-checked. Writes the persistent
+     * element type cache, if the elementTypeCacheDir command-line option is supplied.
+     *
+     * <p>Subclasses that override this method should call {@code super.typeProcessingOver()}.
+     */
+    public void typeProcessingOver() {
+        if (persistentElementTypeCache != null) {
+            persistentElementTypeCache.write();
+        }
+    }
+
+    /**
+     * Starts recording the elements whose types or declaration annotations are looked up by this
+     * factory, via {@link #fromElement} or {@link #getDeclAnnotations}. Used to determine which
+     * signatures the type-checking of a class depends on.
+     */
+    public void startRecordingElementUses() {
+        recordedElementUses = new HashSet<>();
+    }
+
+    /**
+     * Stops recording element uses, and returns the elements looked up since the last call to
+     * {@link #startRecordingElementUses}.
+     *
+     * @return the elements looked up since the last call to {@link #startRecordingElementUses}
+     */
+    public Set<Element> stopRecordingElementUses() {
+        Set<Element> result = recordedElementUses;
+        recordedElementUses = null;
+        return result == null ? Collections.emptySet() : result;
+    }
+
     /**
      * Returns an AnnotatedTypeMirror representing the annotated type of {@code elt}.
      *
@@ -1036,8 +1213,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         if (tree == null) {
             throw new BugInCF("AnnotatedTypeFactory.getAnnotatedType: null tree");
         }
-        if (shouldCache && classAndMethodTreeCache.containsKey(tree)) {
-            return classAndMethodTreeCache.get(tree).deepCopy();
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = classAndMethodTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
 
         AnnotatedTypeMirror type;
@@ -1172,8 +1352,28 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return AnnotatedTypeMirror of the element with explicitly-written and stub file annotations
      */
     public AnnotatedTypeMirror fromElement(Element elt) {
-        if (shouldCache && elementCache.containsKey(elt)) {
-            return elementCache.get(elt).deepCopy();
+        if (recordedElementUses != null) {
+            recordedElementUses.add(elt);
+        }
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = elementCache.get(elt);
+            if (cached != null) {
+                elementCacheHits++;
+                return cached.deepCopy();
+            }
+            cached = libraryElementCache.get(elt);
+            if (cached != null) {
+                libraryElementCacheHits++;
+                return cached.deepCopy();
+            }
+            elementCacheMisses++;
+            if (persistentElementTypeCache != null && !stubTypes.isParsing()) {
+                cached = persistentElementTypeCache.get(elt);
+                if (cached != null) {
+                    libraryElementCache.put(elt, cached.deepCopy());
+                    return cached;
+                }
+            }
         }
         if (elt.getKind() == ElementKind.PACKAGE) {
             return toAnnotatedType(elt.asType(), false);
@@ -1221,7 +1421,14 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         // Caching is disabled if stub files are being parsed, because calls to this
         // method before the stub files are fully read can return incorrect results.
         if (shouldCache && !stubTypes.isParsing()) {
-            elementCache.put(elt, type.deepCopy());
+            if (decl == null) {
+                libraryElementCache.put(elt, type.deepCopy());
+                if (persistentElementTypeCache != null) {
+                    persistentElementTypeCache.put(elt, type);
+                }
+            } else {
+                elementCache.put(elt, type.deepCopy());
+            }
         }
         return type;
     }
@@ -1252,8 +1459,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                     "AnnotatedTypeFactory.fromMember: not a method or variable declaration: "
                             + tree);
         }
-        if (shouldCache && fromMemberTreeCache.containsKey(tree)) {
-            return fromMemberTreeCache.get(tree).deepCopy();
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = fromMemberTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
         AnnotatedTypeMirror result = TypeFromTree.fromMember(this, tree);
 
@@ -1327,8 +1537,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @see TypeFromExpressionVisitor
      */
     private AnnotatedTypeMirror fromExpression(ExpressionTree tree) {
-        if (shouldCache && fromExpressionTreeCache.containsKey(tree)) {
-            return fromExpressionTreeCache.get(tree).deepCopy();
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = fromExpressionTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
 
         AnnotatedTypeMirror result = TypeFromTree.fromExpression(this, tree);
@@ -1357,8 +1570,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the (partially) annotated type of the type in the AST
      */
     /*package private*/ final AnnotatedTypeMirror fromTypeTree(Tree tree) {
-        if (shouldCache && fromTypeTreeCache.containsKey(tree)) {
-            return fromTypeTreeCache.get(tree).deepCopy();
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = fromTypeTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
 
         AnnotatedTypeMirror result = TypeFromTree.fromTypeTree(this, tree);
@@ -3435,6 +3651,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      *     inherited
      */
     public Set<AnnotationMirror> getDeclAnnotations(Element elt) {
+        if (recordedElementUses != null) {
+            recordedElementUses.add(elt);
+        }
         Set<AnnotationMirror> cachedValue = cacheDeclAnnos.get(elt);
         if (cachedValue != null) {
             // Found in cache, return result.
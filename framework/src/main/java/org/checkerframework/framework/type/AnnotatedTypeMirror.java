@@ -762,6 +762,11 @@ public abstract class AnnotatedTypeMirror {
      * This is useful for cases in which the user may want to copy the structure of a type exactly
      * but NOT its annotations.
      *
+     * <p>The caches of {@link AnnotatedTypeFactory} return a deep copy on every hit, so this method
+     * is performance-critical. For a type without component types, an override may therefore build
+     * the copy directly, for example with {@link #shallowCopy(boolean)}, instead of using {@link
+     * AnnotatedTypeCopier}, whose visitor and map dominate the cost of copying small types.
+     *
      * @return a deep copy
      */
     public abstract AnnotatedTypeMirror deepCopy(final boolean copyAnnotations);
@@ -880,6 +885,23 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedDeclaredType deepCopy(boolean copyAnnotations) {
+            if (enclosingType == null && (typeArgs == null || typeArgs.isEmpty())) {
+                // No component types, such as String; see AnnotatedTypeMirror#deepCopy(boolean).
+                // This produces the same copy as AnnotatedTypeCopier. Do not call shallowCopy,
+                // which would initialize typeArgs if it is null.
+                AnnotatedDeclaredType copy =
+                        new AnnotatedDeclaredType(getUnderlyingType(), atypeFactory, declaration);
+                if (copyAnnotations) {
+                    copy.addAnnotations(this.getAnnotationsField());
+                }
+                if (wasRaw) {
+                    copy.setWasRaw();
+                }
+                if (typeArgs != null) {
+                    copy.typeArgs = Collections.emptyList();
+                }
+                return copy;
+            }
             return (AnnotatedDeclaredType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
         }
 
@@ -1695,7 +1717,8 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedNoType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedNoType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // No component types; see AnnotatedTypeMirror#deepCopy(boolean).
+            return shallowCopy(copyAnnotations);
         }
 
         @Override
@@ -1737,7 +1760,8 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedNullType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedNullType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // No component types; see AnnotatedTypeMirror#deepCopy(boolean).
+            return shallowCopy(copyAnnotations);
         }
 
         @Override
@@ -1782,7 +1806,8 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedPrimitiveType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedPrimitiveType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // No component types; see AnnotatedTypeMirror#deepCopy(boolean).
+            return shallowCopy(copyAnnotations);
         }
 
         @Override
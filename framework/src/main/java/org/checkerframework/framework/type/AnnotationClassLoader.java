@@ -13,12 +13,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 import javax.annotation.processing.ProcessingEnvironment;
@@ -28,6 +26,7 @@ import org.checkerframework.checker.signature.qual.BinaryName;
 import org.checkerframework.checker.signature.qual.DotSeparatedIdentifiers;
 import org.checkerframework.checker.signature.qual.Identifier;
 import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.util.JarEntryNameCache;
 import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
@@ -273,19 +272,13 @@ public class AnnotationClassLoader {
      * @param jar a jar file
      * @return true if the jar file contains the qual package, false otherwise
      */
-    @SuppressWarnings("JdkObsolete")
     private final boolean checkJarForPackage(final JarFile jar) {
-        Enumeration<JarEntry> jarEntries = jar.entries();
-
         // loop through the entries in the jar
-        while (jarEntries.hasMoreElements()) {
-            JarEntry je = jarEntries.nextElement();
-
+        for (String entryName : JarEntryNameCache.getEntryNames(jar)) {
             // Each entry is the fully qualified path and file name to a
             // particular artifact in the jar file (eg a class file).
             // If the jar has the package, one of the entry's name will begin
             // with the package name in slash notation.
-            String entryName = je.getName();
             if (entryName.startsWith(packageNameWithSlashes + SLASH)) {
                 return true;
             }
@@ -568,23 +561,17 @@ public class AnnotationClassLoader {
      * @param jar the JarFile containing the annotation class files
      * @return a set of fully qualified class names of the annotations
      */
-    @SuppressWarnings("JdkObsolete")
     private final Set<@BinaryName String> getBundledAnnotationNamesFromJar(final JarFile jar) {
         Set<@BinaryName String> annos = new LinkedHashSet<>();
 
-        // get an enumeration iterator for all the content entries in the jar
-        // file
-        Enumeration<JarEntry> jarEntries = jar.entries();
-
-        // enumerate through the entries
-        while (jarEntries.hasMoreElements()) {
-            JarEntry je = jarEntries.nextElement();
+        // iterate over the names of all the content entries in the jar file
+        for (String entryName : JarEntryNameCache.getEntryNames(jar)) {
             // filter out directories and non-class files
-            if (je.isDirectory() || !je.getName().endsWith(CLASS_SUFFIX)) {
+            if (entryName.endsWith("/") || !entryName.endsWith(CLASS_SUFFIX)) {
                 continue;
             }
 
-            String className = Signatures.classfilenameToBinaryName(je.getName());
+            String className = Signatures.classfilenameToBinaryName(entryName);
 
             // filter for qual package
             if (className.startsWith(packageName + DOT)) {
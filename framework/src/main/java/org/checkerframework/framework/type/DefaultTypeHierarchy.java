@@ -1,13 +1,17 @@
 package org.checkerframework.framework.type;
 
 import java.util.List;
+import java.util.Map;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVariable;
 import javax.lang.model.util.Types;
+import org.checkerframework.checker.interning.qual.EqualsMethod;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.qual.Covariant;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedArrayType;
@@ -19,10 +23,12 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVari
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedUnionType;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedWildcardType;
 import org.checkerframework.framework.type.visitor.AbstractAtmComboVisitor;
+import org.checkerframework.framework.type.visitor.SimpleAnnotatedTypeScanner;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.AtmCombo;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.CollectionUtils;
 import org.checkerframework.javacutil.TypesUtils;
 
 /**
@@ -121,6 +127,32 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
      */
     protected final StructuralEqualityVisitHistory areEqualVisitHistory;
 
+    /** The size of {@link #subtypeCache}. */
+    private static final int SUBTYPE_CACHE_SIZE = 1000;
+
+    /**
+     * Caches the result of {@link #isSubtype(AnnotatedTypeMirror, AnnotatedTypeMirror)} for pairs
+     * of types whose comparison is expensive; see {@link #subtypeQueryHasher}. The keys are copies
+     * of the queried types, so later side effects on the queried types do not affect the cache.
+     * Null if the atfDoNotCache option is supplied.
+     */
+    private final @Nullable Map<SubtypeQuery, Boolean> subtypeCache;
+
+    /** Compares the keys of {@link #subtypeCache}. */
+    private final SubtypeQueryComparer subtypeQueryComparer;
+
+    /** The number of subtype queries answered by {@link #subtypeCache}. */
+    private int subtypeCacheHits = 0;
+
+    /** The number of cacheable subtype queries that were not in {@link #subtypeCache}. */
+    private int subtypeCacheMisses = 0;
+
+    /**
+     * The number of subtype queries that involve a parameterized type but were not cached, because
+     * they involve a raw type or an uninferred type argument.
+     */
+    private int subtypeCacheUncacheableQueries = 0;
+
     /** Creates a DefaultTypeHierarchy. */
     public DefaultTypeHierarchy(
             final BaseTypeChecker checker,
@@ -135,6 +167,12 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
 
         this.ignoreRawTypes = ignoreRawTypes;
         this.invariantArrayComponents = invariantArrayComponents;
+
+        this.subtypeCache =
+                checker.hasOption("atfDoNotCache")
+                        ? null
+                        : CollectionUtils.createLRUCache(SUBTYPE_CACHE_SIZE);
+        this.subtypeQueryComparer = new SubtypeQueryComparer(checker.getTypeUtils());
     }
 
     /**
@@ -154,6 +192,10 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
      * should not override this method, but instead override {@link #isSubtype(AnnotatedTypeMirror,
      * AnnotatedTypeMirror, AnnotationMirror)} or some of the {@code visitXXX} methods.
      *
+     * <p>The result is cached for pairs of types that are expensive to compare, so overrides of
+     * {@link #isSubtype(AnnotatedTypeMirror, AnnotatedTypeMirror, AnnotationMirror)} must only
+     * depend on the structure and annotations of the types being compared.
+     *
      * @param subtype expected subtype
      * @param supertype expected supertype
      * @return true if subtype is a subtype of supertype or equal to it
@@ -161,6 +203,40 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
     @Override
     public boolean isSubtype(
             final AnnotatedTypeMirror subtype, final AnnotatedTypeMirror supertype) {
+        if (subtypeCache == null || !(isParameterized(subtype) || isParameterized(supertype))) {
+            return isSubtypeInAllHierarchies(subtype, supertype);
+        }
+        Integer subtypeHash = subtypeQueryHasher.visit(subtype);
+        Integer supertypeHash = subtypeHash == null ? null : subtypeQueryHasher.visit(supertype);
+        if (subtypeHash == null || supertypeHash == null) {
+            subtypeCacheUncacheableQueries++;
+            return isSubtypeInAllHierarchies(subtype, supertype);
+        }
+
+        SubtypeQuery query = new SubtypeQuery(subtype, supertype, 31 * subtypeHash + supertypeHash);
+        Boolean cachedResult = subtypeCache.get(query);
+        if (cachedResult != null) {
+            subtypeCacheHits++;
+            return cachedResult;
+        }
+        subtypeCacheMisses++;
+
+        boolean result = isSubtypeInAllHierarchies(subtype, supertype);
+        subtypeCache.put(
+                new SubtypeQuery(subtype.deepCopy(), supertype.deepCopy(), query.hashCode), result);
+        return result;
+    }
+
+    /**
+     * Returns true if subtype {@literal <:} supertype in every qualifier hierarchy. Does not use
+     * {@link #subtypeCache}.
+     *
+     * @param subtype expected subtype
+     * @param supertype expected supertype
+     * @return true if subtype is a subtype of supertype or equal to it
+     */
+    private boolean isSubtypeInAllHierarchies(
+            final AnnotatedTypeMirror subtype, final AnnotatedTypeMirror supertype) {
         for (final AnnotationMirror top : qualifierHierarchy.getTopAnnotations()) {
             if (!isSubtype(subtype, supertype, top)) {
                 return false;
@@ -170,6 +246,193 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
         return true;
     }
 
+    /**
+     * Returns true if {@code type} is a declared type with type arguments.
+     *
+     * @param type a type
+     * @return true if {@code type} is a declared type with type arguments
+     */
+    private static boolean isParameterized(AnnotatedTypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && !((AnnotatedDeclaredType) type).getTypeArguments().isEmpty();
+    }
+
+    /**
+     * Computes the hash code of a type for {@link #subtypeCache}, or returns null if the type must
+     * not be cached. Only comparisons that involve a parameterized type are cached, because those
+     * require computing an as-super type and checking type argument containment. Comparisons that
+     * involve raw types or uninferred type arguments are not cached, because their results are not
+     * determined by the structure of the types.
+     *
+     * <p>The hash code is consistent with {@link SubtypeQueryComparer}: it combines the kind, the
+     * element of declared types and type variables, and the primary annotations of each component
+     * of the type. Unlike {@link AnnotatedTypeMirror#hashCode()}, it does not format the type as a
+     * string.
+     */
+    private final SimpleAnnotatedTypeScanner<@Nullable Integer, Void> subtypeQueryHasher =
+            new SimpleAnnotatedTypeScanner<>(
+                    (type, p) -> {
+                        if (type.getKind() == TypeKind.DECLARED
+                                && ((AnnotatedDeclaredType) type).wasRaw()) {
+                            return null;
+                        } else if (type.getKind() == TypeKind.WILDCARD
+                                && ((AnnotatedWildcardType) type).isUninferredTypeArgument()) {
+                            return null;
+                        }
+                        int hash = type.getKind().ordinal();
+                        TypeMirror underlying = type.getUnderlyingType();
+                        if (underlying.getKind() == TypeKind.DECLARED) {
+                            hash =
+                                    31 * hash
+                                            + System.identityHashCode(
+                                                    ((DeclaredType) underlying).asElement());
+                        } else if (underlying.getKind() == TypeKind.TYPEVAR) {
+                            hash =
+                                    31 * hash
+                                            + System.identityHashCode(
+                                                    ((TypeVariable) underlying).asElement());
+                        }
+                        for (AnnotationMirror anno : type.getAnnotations()) {
+                            // A sum, because the order of the annotations does not matter.
+                            hash += System.identityHashCode(anno.getAnnotationType().asElement());
+                        }
+                        return hash;
+                    },
+                    (r1, r2) -> r1 == null || r2 == null ? null : 31 * r1 + r2,
+                    0);
+
+    /**
+     * Returns the number of subtype queries answered by the subtype cache.
+     *
+     * @return the number of subtype cache hits
+     */
+    public int getSubtypeCacheHits() {
+        return subtypeCacheHits;
+    }
+
+    /**
+     * Returns the number of cacheable subtype queries that were not in the subtype cache.
+     *
+     * @return the number of subtype cache misses
+     */
+    public int getSubtypeCacheMisses() {
+        return subtypeCacheMisses;
+    }
+
+    /**
+     * Returns the number of subtype queries that involve a parameterized type but were not cached,
+     * because they involve a raw type or an uninferred type argument.
+     *
+     * @return the number of uncacheable subtype queries
+     */
+    public int getSubtypeCacheUncacheableQueries() {
+        return subtypeCacheUncacheableQueries;
+    }
+
+    /**
+     * Prints statistics about the subtype cache to {@code System.out}. Called by {@link
+     * AnnotatedTypeFactory#printStatistics()}.
+     */
+    public void printStatistics() {
+        if (subtypeCache == null) {
+            return;
+        }
+        System.out.printf(
+                "%s subtype cache: %d lookups, %d hits, %d misses, %d uncacheable, %d entries%n",
+                checker.getClass().getSimpleName(),
+                subtypeCacheHits + subtypeCacheMisses,
+                subtypeCacheHits,
+                subtypeCacheMisses,
+                subtypeCacheUncacheableQueries,
+                subtypeCache.size());
+    }
+
+    /** A pair of types used as a key in {@link #subtypeCache}. */
+    private final class SubtypeQuery {
+        /** The expected subtype. */
+        final AnnotatedTypeMirror subtype;
+
+        /** The expected supertype. */
+        final AnnotatedTypeMirror supertype;
+
+        /** The hash code of this query, computed by {@link #subtypeQueryHasher}. */
+        final int hashCode;
+
+        /**
+         * Creates a query for the given types and precomputed hash code.
+         *
+         * @param subtype the expected subtype
+         * @param supertype the expected supertype
+         * @param hashCode the hash code of the query
+         */
+        SubtypeQuery(AnnotatedTypeMirror subtype, AnnotatedTypeMirror supertype, int hashCode) {
+            this.subtype = subtype;
+            this.supertype = supertype;
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SubtypeQuery)) {
+                return false;
+            }
+            SubtypeQuery other = (SubtypeQuery) o;
+            return hashCode == other.hashCode
+                    && subtypeQueryComparer.visit(subtype, other.subtype, null)
+                    && subtypeQueryComparer.visit(supertype, other.supertype, null);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Compares types for {@link #subtypeCache}. Unlike {@link AnnotatedTypeMirror#equals}, this
+     * compares underlying types with {@link Types#isSameType}, so that different {@code TypeMirror}
+     * objects that represent the same type are equal.
+     */
+    private static class SubtypeQueryComparer extends EqualityAtmComparer {
+        /** The type utilities. */
+        private final Types types;
+
+        /**
+         * Creates a SubtypeQueryComparer.
+         *
+         * @param types the type utilities
+         */
+        SubtypeQueryComparer(Types types) {
+            this.types = types;
+        }
+
+        @Override
+        @EqualsMethod // to make Interning Checker permit the == comparison
+        protected boolean compare(AnnotatedTypeMirror type1, AnnotatedTypeMirror type2) {
+            if (type1 == type2) {
+                return true;
+            }
+            if (type1 == null || type2 == null) {
+                return false;
+            }
+            TypeMirror underlying1 = type1.getUnderlyingType();
+            TypeMirror underlying2 = type2.getUnderlyingType();
+            boolean sameUnderlyingType;
+            if (underlying1.getKind() == TypeKind.WILDCARD
+                    || underlying2.getKind() == TypeKind.WILDCARD) {
+                // Types#isSameType is false for wildcards; their bounds are compared when the
+                // components of the wildcards are scanned.
+                sameUnderlyingType = underlying1.getKind() == underlying2.getKind();
+            } else {
+                sameUnderlyingType = types.isSameType(underlying1, underlying2);
+            }
+            return sameUnderlyingType && arePrimeAnnosEqual(type1, type2);
+        }
+    }
+
     /**
      * Returns true if {@code subtype <: supertype}, but only for the hierarchy of which {@code top}
      * is the top.
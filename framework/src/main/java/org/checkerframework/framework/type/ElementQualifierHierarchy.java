@@ -3,6 +3,7 @@ package org.checkerframework.framework.type;
 import java.lang.annotation.Annotation;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -114,7 +115,7 @@ public abstract class ElementQualifierHierarchy implements QualifierHierarchy {
     @RequiresNonNull({"this.qualifierKindHierarchy", "this.elements"})
     protected Map<QualifierKind, AnnotationMirror> createElementlessQualifierMap(
             @UnderInitialization ElementQualifierHierarchy this) {
-        Map<QualifierKind, AnnotationMirror> quals = new TreeMap<>();
+        Map<QualifierKind, AnnotationMirror> quals = new HashMap<>();
         for (QualifierKind kind : qualifierKindHierarchy.allQualifierKinds()) {
             if (!kind.hasElements()) {
                 quals.put(kind, AnnotationBuilder.fromClass(elements, kind.getAnnotationClass()));
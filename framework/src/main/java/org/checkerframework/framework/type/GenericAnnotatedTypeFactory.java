@@ -1,15 +1,21 @@
 package org.checkerframework.framework.type;
 
+import com.sun.source.tree.AssignmentTree;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionStatementTree;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.LiteralTree;
 import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParenthesizedTree;
 import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.StatementTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.Tree.Kind;
 import com.sun.source.tree.UnaryTree;
@@ -30,6 +36,7 @@ import java.util.StringJoiner;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
@@ -243,10 +250,10 @@ public abstract class GenericAnnotatedTypeFactory<
 
     /**
      * Caches for {@link AnalysisResult#runAnalysisFor(Node, Analysis.BeforeOrAfter, TransferInput,
-     * IdentityHashMap, Map)}. This cache is enabled if {@link #shouldCache} is true. The cache size
-     * is derived from {@link #getCacheSize()}.
+     * Map, Map)}. This cache is enabled if {@link #shouldCache} is true. The cache size is derived
+     * from {@link #getCacheSize()}.
      *
-     * @see AnalysisResult#runAnalysisFor(Node, BeforeOrAfter, TransferInput, IdentityHashMap, Map)
+     * @see AnalysisResult#runAnalysisFor(Node, BeforeOrAfter, TransferInput, Map, Map)
      */
     protected final Map<
                     TransferInput<Value, Store>,
@@ -277,6 +284,7 @@ public abstract class GenericAnnotatedTypeFactory<
 
         this.initializationStore = null;
         this.initializationStaticStore = null;
+        this.skipTrivialMethods = checker.hasOption("flowSkipTrivialMethods");
 
         this.cfgVisualizer = createCFGVisualizer();
 
@@ -822,7 +830,7 @@ public abstract class GenericAnnotatedTypeFactory<
         AnnotationMirror annotationMirror = null;
         if (CFAbstractStore.canInsertJavaExpression(expr)) {
             Store store = getStoreBefore(tree);
-            Value value = store.getValue(expr);
+            Value value = store == null ? null : store.getValue(expr);
             if (value != null) {
                 annotationMirror = getAnnotationByClass(value.getAnnotations(), clazz);
             }
@@ -905,7 +913,7 @@ public abstract class GenericAnnotatedTypeFactory<
             return null;
         }
         Store store = getStoreBefore(tree);
-        Value value = store.getValue(je);
+        Value value = store == null ? null : store.getValue(je);
         return value != null ? value.getAnnotations().iterator().next() : null;
     }
 
@@ -954,6 +962,17 @@ public abstract class GenericAnnotatedTypeFactory<
      */
     protected IdentityHashMap<MethodInvocationTree, Store> methodInvocationStores;
 
+    /**
+     * Whether to skip the flow analysis of methods that cannot benefit from it, as requested by the
+     * {@code -AflowSkipTrivialMethods} command-line option.
+     *
+     * @see #canSkipFlowAnalysis(MethodTree, List)
+     */
+    private final boolean skipTrivialMethods;
+
+    /** The number of methods whose flow analysis was skipped, for {@link #printStatistics()}. */
+    private long skippedFlowAnalyses = 0;
+
     /**
      * Returns the regular exit store for a method or another code block (such as static
      * initializers).
@@ -992,6 +1011,48 @@ public abstract class GenericAnnotatedTypeFactory<
         return returnStatementStores.get(methodTree);
     }
 
+    /**
+     * Removes the results of the flow analysis for the body of {@code method}: the values and
+     * stores of its trees, and its exit and return statement stores. Call this only once no more
+     * queries will be made for the trees of {@code method}; afterwards, they behave as if they had
+     * not been analyzed. The results for lambdas and classes within {@code method} are kept.
+     *
+     * @param method a method whose results are no longer needed
+     * @see AnalysisResult#release(Tree)
+     */
+    public void releaseFlowResults(MethodTree method) {
+        if (flowResult == null) {
+            return;
+        }
+        BlockTree body = method.getBody();
+        if (body != null) {
+            flowResult.release(body);
+        }
+        regularExitStores.remove(method);
+        exceptionalExitStores.remove(method);
+        returnStatementStores.remove(method);
+    }
+
+    /**
+     * Returns the number of methods whose flow analysis was skipped because of the {@code
+     * -AflowSkipTrivialMethods} command-line option.
+     *
+     * @return the number of methods whose flow analysis was skipped
+     * @see #canSkipFlowAnalysis(MethodTree, List)
+     */
+    public long getSkippedFlowAnalyses() {
+        return skippedFlowAnalyses;
+    }
+
+    @Override
+    public void printStatistics() {
+        super.printStatistics();
+        if (skipTrivialMethods) {
+            System.out.printf(
+                    "%s flow analysis: %d trivial methods skipped%n", this, skippedFlowAnalyses);
+        }
+    }
+
     /**
      * Returns the store immediately before a given {@link Tree}.
      *
@@ -1275,6 +1336,10 @@ public abstract class GenericAnnotatedTypeFactory<
                 // TODO: at this point, we don't have any information about
                 // fields of superclasses.
                 for (CFGMethod met : methods) {
+                    if (skipTrivialMethods && canSkipFlowAnalysis(met.getMethod(), fieldValues)) {
+                        skippedFlowAnalyses++;
+                        continue;
+                    }
                     analyze(
                             queue,
                             lambdaQueue,
@@ -1326,6 +1391,116 @@ public abstract class GenericAnnotatedTypeFactory<
         }
     }
 
+    /**
+     * Returns true if the flow analysis of {@code method} can be skipped, because it could not
+     * refine the type of any expression in the body of {@code method}. The trees of a skipped
+     * method have their declared types, and the method has no stores. This method is used only if
+     * the {@code -AflowSkipTrivialMethods} command-line option is supplied.
+     *
+     * <p>This is a cheap syntactic check that only accepts methods with an empty body or a body
+     * that is a single return statement or field assignment, such as getters and setters, whose
+     * expressions are literals, parameters of {@code method}, and fields. A method is not skipped
+     * if it is a constructor, if it has contracts, if it reads a final field whose initializer has
+     * been analyzed, or if whole-program inference is enabled.
+     *
+     * <p>Subclasses whose visitor needs the stores of every method should override this method to
+     * return false.
+     *
+     * @param method a method with a body
+     * @param fieldValues the abstract values of the final fields whose initializers have been
+     *     analyzed
+     * @return true if the flow analysis of {@code method} can be skipped
+     */
+    protected boolean canSkipFlowAnalysis(
+            MethodTree method, List<Pair<VariableElement, Value>> fieldValues) {
+        if (TreeUtils.isConstructor(method) || getWholeProgramInference() != null) {
+            return false;
+        }
+        ExecutableElement methodElement = TreeUtils.elementFromDeclaration(method);
+        if (!contractsUtils.getContracts(methodElement).isEmpty()) {
+            return false;
+        }
+        List<? extends StatementTree> statements = method.getBody().getStatements();
+        if (statements.isEmpty()) {
+            return true;
+        }
+        if (statements.size() > 1) {
+            return false;
+        }
+        StatementTree statement = statements.get(0);
+        switch (statement.getKind()) {
+            case RETURN:
+                ExpressionTree result = ((ReturnTree) statement).getExpression();
+                return result == null || isTrivialExpression(result, methodElement, fieldValues);
+            case EXPRESSION_STATEMENT:
+                ExpressionTree expression = ((ExpressionStatementTree) statement).getExpression();
+                if (expression.getKind() != Kind.ASSIGNMENT) {
+                    return false;
+                }
+                AssignmentTree assignment = (AssignmentTree) expression;
+                return isTrivialExpression(assignment.getVariable(), methodElement, fieldValues)
+                        && isTrivialExpression(
+                                assignment.getExpression(), methodElement, fieldValues);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns true if {@code tree} is a literal, {@code this}, a parameter of {@code method}, or an
+     * access of a field whose value is not in {@code fieldValues}, through such an expression or a
+     * type name. The flow analysis never refines the type of such an expression in a method that
+     * {@link #canSkipFlowAnalysis(MethodTree, List)} accepts.
+     *
+     * @param tree an expression in the body of {@code method}
+     * @param method the method that contains {@code tree}
+     * @param fieldValues the abstract values of the final fields whose initializers have been
+     *     analyzed
+     * @return true if {@code tree} is a trivial expression
+     */
+    private boolean isTrivialExpression(
+            ExpressionTree tree,
+            ExecutableElement method,
+            List<Pair<VariableElement, Value>> fieldValues) {
+        if (tree instanceof LiteralTree || TreeUtils.isExplicitThisDereference(tree)) {
+            return true;
+        }
+        switch (tree.getKind()) {
+            case PARENTHESIZED:
+                return isTrivialExpression(
+                        ((ParenthesizedTree) tree).getExpression(), method, fieldValues);
+            case IDENTIFIER:
+            case MEMBER_SELECT:
+                Element element = TreeUtils.elementFromUse(tree);
+                if (element == null) {
+                    return false;
+                }
+                switch (element.getKind()) {
+                    case PARAMETER:
+                        return element.getEnclosingElement().equals(method);
+                    case FIELD:
+                    case ENUM_CONSTANT:
+                        for (Pair<VariableElement, Value> fieldValue : fieldValues) {
+                            if (fieldValue.first.equals(element)) {
+                                return false;
+                            }
+                        }
+                        if (tree.getKind() == Kind.IDENTIFIER) {
+                            return true;
+                        }
+                        ExpressionTree receiver = ((MemberSelectTree) tree).getExpression();
+                        Element receiverElement = TreeUtils.elementFromUse(receiver);
+                        return (receiverElement != null
+                                        && ElementUtils.isTypeElement(receiverElement))
+                                || isTrivialExpression(receiver, method, fieldValues);
+                    default:
+                        return false;
+                }
+            default:
+                return false;
+        }
+    }
+
     /**
      * Analyze the AST {@code ast} and store the result. Additional operations that should be
      * performed after analysis should be implemented in {@link #postAnalyze(ControlFlowGraph)}.
@@ -3,9 +3,9 @@ package org.checkerframework.framework.type;
 import java.lang.annotation.Annotation;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.util.Elements;
 import org.checkerframework.checker.initialization.qual.UnderInitialization;
@@ -89,7 +89,7 @@ public class NoElementQualifierHierarchy implements QualifierHierarchy {
     @RequiresNonNull("this.qualifierKindHierarchy")
     protected Map<QualifierKind, AnnotationMirror> createAnnotationMirrors(
             @UnderInitialization NoElementQualifierHierarchy this, Elements elements) {
-        Map<QualifierKind, AnnotationMirror> quals = new TreeMap<>();
+        Map<QualifierKind, AnnotationMirror> quals = new HashMap<>();
         for (QualifierKind kind : qualifierKindHierarchy.allQualifierKinds()) {
             if (kind.hasElements()) {
                 throw new TypeSystemError(kind + "has elements");
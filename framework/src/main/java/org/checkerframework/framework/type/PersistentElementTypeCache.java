@@ -0,0 +1,1046 @@
+package org.checkerframework.framework.type;
+
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.framework.type.visitor.SimpleAnnotatedTypeScanner;
+import org.checkerframework.framework.util.CacheFileUtils;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.SystemUtil;
+
+/**
+ * A cache, stored in a file, of the types returned by {@link AnnotatedTypeFactory#fromElement} for
+ * elements whose class files are in a jar file or in the JDK. It lets a compilation reuse the types
+ * computed by earlier compilations, instead of recomputing them from annotated JDK files, stub
+ * files, and the annotations in class files. It is enabled by the {@code -AelementTypeCacheDir}
+ * command-line option.
+ *
+ * <p>The types in the cache are the types before defaults are applied: {@link
+ * AnnotatedTypeFactory#addComputedTypeAnnotations(Element, AnnotatedTypeMirror)} is applied to a
+ * type read from the cache exactly as to a type that was computed.
+ *
+ * <p>Each checker has its own cache file, whose name contains a hash of everything that the cached
+ * types depend on: the checker and the jar files or directories that it was loaded from (which
+ * contain its stub files and the annotated JDK), the {@code -A} command-line options, the files
+ * named by the {@code stubs} option, and the JDK. The cache is not used if the checker was not
+ * loaded from a jar file or a directory. Each entry also records the jar file (or JDK) that the
+ * class file of its element was read from, and the entry is ignored if that jar file has changed.
+ *
+ * <p>A type is stored as the sequence of the annotation sets of its components, in the order in
+ * which {@link SimpleAnnotatedTypeScanner} visits them. It is read by creating an unannotated type
+ * for the element and replacing the annotations of its components, in the same order. The file is
+ * read into memory, and an entry is decoded only when its element is looked up. The file is not
+ * memory-mapped, because on Windows a file cannot be replaced while it is mapped. Annotations whose
+ * elements have byte or {@code Class} values are not supported; a type that contains one is not
+ * cached.
+ */
+public class PersistentElementTypeCache {
+
+    /** The first four bytes of a cache file. */
+    private static final int MAGIC = 0x43464554;
+
+    /** The version of the file format; files with a different version are ignored. */
+    private static final int FORMAT_VERSION = 2;
+
+    /** The origin of an element whose class file was read from the JDK itself. */
+    private static final String JDK_ORIGIN = "jrt:";
+
+    /** The type factory whose types are cached. */
+    private final AnnotatedTypeFactory atypeFactory;
+
+    /** The processing environment. */
+    private final ProcessingEnvironment processingEnv;
+
+    /** The element utilities. */
+    private final Elements elements;
+
+    /** The cache file. */
+    private final Path cacheFile;
+
+    /** The string that describes everything that the types in {@link #cacheFile} depend on. */
+    private final String cacheKey;
+
+    /** The contents of {@link #cacheFile}, or null if it did not exist or could not be read. */
+    private @Nullable ByteBuffer buffer = null;
+
+    /** The origins of the entries in {@link #cacheFile}. */
+    private final List<String> storedOrigins = new ArrayList<>();
+
+    /** The fingerprints of the origins in {@link #storedOrigins}, when the file was written. */
+    private final List<String> storedFingerprints = new ArrayList<>();
+
+    /** Whether the origin with the same index in {@link #storedOrigins} has not changed. */
+    private final List<Boolean> storedOriginIsValid = new ArrayList<>();
+
+    /** Maps element keys to the location of their entries in {@link #buffer}. */
+    private final Map<String, StoredEntry> storedEntries = new HashMap<>();
+
+    /** Entries created by this compilation, mapped from element keys; written at the end. */
+    private final Map<String, NewEntry> newEntries = new LinkedHashMap<>();
+
+    /** Maps origins to their current fingerprints, or to "" if they cannot be fingerprinted. */
+    private final Map<String, String> originFingerprints = new HashMap<>();
+
+    /** Annotations without element values, by name. */
+    private final Map<String, AnnotationMirror> annotationsWithoutValues = new HashMap<>();
+
+    /** The number of lookups that were answered by the cache. */
+    private long hits = 0;
+
+    /** The number of lookups of cacheable elements that are not in the cache file. */
+    private long misses = 0;
+
+    /**
+     * The number of lookups of elements that are in the cache file, but whose entry is outdated
+     * because the jar file of the element changed.
+     */
+    private long staleLookups = 0;
+
+    /** The location of an entry of {@link #cacheFile}. */
+    private static class StoredEntry {
+        /** The index of the origin of the entry in {@link #storedOrigins}. */
+        final int origin;
+        /** The offset of the encoded type in {@link #buffer}. */
+        final int offset;
+        /** The length of the encoded type. */
+        final int length;
+
+        /**
+         * Creates a StoredEntry.
+         *
+         * @param origin the index of the origin of the entry
+         * @param offset the offset of the encoded type
+         * @param length the length of the encoded type
+         */
+        StoredEntry(int origin, int offset, int length) {
+            this.origin = origin;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /** An entry created by this compilation. */
+    private static class NewEntry {
+        /** The origin of the entry. */
+        final String origin;
+        /** The encoded type. */
+        final byte[] bytes;
+
+        /**
+         * Creates a NewEntry.
+         *
+         * @param origin the origin of the entry
+         * @param bytes the encoded type
+         */
+        NewEntry(String origin, byte[] bytes) {
+            this.origin = origin;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Returns the persistent element type cache for {@code atypeFactory}, or null if the {@code
+     * -AelementTypeCacheDir} command-line option was not supplied or the cache cannot be used.
+     *
+     * @param atypeFactory the type factory whose types are cached
+     * @return the persistent element type cache for {@code atypeFactory}, or null
+     */
+    public static @Nullable PersistentElementTypeCache create(AnnotatedTypeFactory atypeFactory) {
+        SourceChecker checker = atypeFactory.getContext().getChecker();
+        String dir = checker.getOption("elementTypeCacheDir");
+        if (dir == null) {
+            return null;
+        }
+        String cacheKey = computeConfigurationKey(atypeFactory);
+        if (cacheKey == null) {
+            checker.message(
+                    Kind.WARNING,
+                    "elementTypeCacheDir is ignored, because "
+                            + checker.getClass().getSimpleName()
+                            + " was not loaded from a jar file or a directory");
+            return null;
+        }
+        String fileName =
+                checker.getClass().getSimpleName()
+                        + "-"
+                        + CacheFileUtils.sha256(cacheKey)
+                        + ".cache";
+        return new PersistentElementTypeCache(
+                atypeFactory, Paths.get(dir).resolve(fileName), cacheKey);
+    }
+
+    /**
+     * Creates a PersistentElementTypeCache and reads {@code cacheFile}, if it exists.
+     *
+     * @param atypeFactory the type factory whose types are cached
+     * @param cacheFile the cache file
+     * @param cacheKey the string that describes everything that the cached types depend on
+     */
+    private PersistentElementTypeCache(
+            AnnotatedTypeFactory atypeFactory, Path cacheFile, String cacheKey) {
+        this.atypeFactory = atypeFactory;
+        this.processingEnv = atypeFactory.getProcessingEnv();
+        this.elements = processingEnv.getElementUtils();
+        this.cacheFile = cacheFile;
+        this.cacheKey = cacheKey;
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                read();
+            } catch (IOException | BufferUnderflowException e) {
+                // The file is corrupt; it is replaced at the end of the compilation.
+                buffer = null;
+                storedOrigins.clear();
+                storedFingerprints.clear();
+                storedOriginIsValid.clear();
+                storedEntries.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the type of {@code elt} stored in this cache, or null if there is none.
+     *
+     * @param elt an element
+     * @return the type of {@code elt} stored in this cache, or null
+     */
+    public @Nullable AnnotatedTypeMirror get(Element elt) {
+        String key = elementKey(elt);
+        if (key == null) {
+            return null;
+        }
+        StoredEntry entry = buffer == null ? null : storedEntries.get(key);
+        if (entry == null) {
+            if (getOrigin(elt) != null) {
+                misses++;
+            }
+            // Otherwise, the element is not from a jar file, so it is never cached.
+            return null;
+        }
+        AnnotatedTypeMirror type = null;
+        if (storedOriginIsValid.get(entry.origin)) {
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(entry.offset);
+            payload.limit(entry.offset + entry.length);
+            try {
+                type = decodeType(elt, new DataInputStream(new ByteBufferInputStream(payload)));
+            } catch (IOException | BufferUnderflowException e) {
+                type = null;
+            }
+        }
+        if (type == null) {
+            // The jar file of the element changed, or the stored type does not fit the element.
+            staleLookups++;
+        } else {
+            hits++;
+        }
+        return type;
+    }
+
+    /**
+     * Adds {@code type}, the type of {@code elt}, to this cache, if {@code elt} is from a jar file
+     * or the JDK and {@code type} can be encoded.
+     *
+     * @param elt an element
+     * @param type the type of {@code elt}, as returned by {@link AnnotatedTypeFactory#fromElement}
+     */
+    public void put(Element elt, AnnotatedTypeMirror type) {
+        String key = elementKey(elt);
+        if (key == null || newEntries.containsKey(key)) {
+            return;
+        }
+        StoredEntry stored = storedEntries.get(key);
+        if (stored != null && storedOriginIsValid.get(stored.origin)) {
+            return;
+        }
+        String origin = getOrigin(elt);
+        if (origin == null || fingerprint(origin).isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (!encodeType(type, out)) {
+                return;
+            }
+        } catch (IOException e) {
+            // The cache is optional, so do not cache a type that cannot be encoded.
+            return;
+        }
+        newEntries.put(key, new NewEntry(origin, bytes.toByteArray()));
+    }
+
+    /**
+     * Writes the cache file, if this compilation added entries to the cache or found outdated
+     * entries in it. Issues a warning if the file cannot be written.
+     */
+    public void write() {
+        boolean hasInvalidEntries = storedOriginIsValid.contains(false);
+        if (newEntries.isEmpty() && !hasInvalidEntries) {
+            return;
+        }
+        try {
+            CacheFileUtils.writeAtomically(cacheFile, this::writeContents);
+        } catch (IOException e) {
+            atypeFactory
+                    .getContext()
+                    .getChecker()
+                    .message(
+                            Kind.WARNING,
+                            "Could not write element type cache " + cacheFile + ": " + e);
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were answered by this cache.
+     *
+     * @return the number of lookups that were answered by this cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups of elements from a jar file or the JDK that are not in the
+     * cache file.
+     *
+     * @return the number of lookups of elements that are not in the cache file
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of lookups of elements whose entry in the cache file is outdated, because
+     * the jar file of the element changed.
+     *
+     * @return the number of lookups of elements whose entry in the cache file is outdated
+     */
+    public long getStaleLookups() {
+        return staleLookups;
+    }
+
+    /**
+     * Returns a one-line description of the hit rate of this cache. Lookups of elements that are
+     * not from a jar file or the JDK are not counted, because they are never cached.
+     *
+     * @return a one-line description of the hit rate of this cache
+     */
+    public String getStatistics() {
+        return String.format(
+                "%d hits, %d misses, %d stale, %d stored entries, %d new entries",
+                hits, misses, staleLookups, storedEntries.size(), newEntries.size());
+    }
+
+    // **********************************************************************
+    // Reading and writing the cache file
+    // **********************************************************************
+
+    /**
+     * Reads {@link #cacheFile} into memory and reads its index. Does nothing if the file was
+     * written for a different cache key.
+     *
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    private void read() throws IOException {
+        ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(cacheFile));
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(contents.duplicate()));
+        if (in.readInt() != MAGIC
+                || in.readInt() != FORMAT_VERSION
+                || !cacheKey.equals(CacheFileUtils.readString(in))) {
+            return;
+        }
+        int numOrigins = in.readInt();
+        for (int i = 0; i < numOrigins; i++) {
+            String origin = CacheFileUtils.readString(in);
+            String storedFingerprint = CacheFileUtils.readString(in);
+            storedOrigins.add(origin);
+            storedFingerprints.add(storedFingerprint);
+            storedOriginIsValid.add(
+                    !storedFingerprint.isEmpty() && storedFingerprint.equals(fingerprint(origin)));
+        }
+        int numEntries = in.readInt();
+        for (int i = 0; i < numEntries; i++) {
+            String elementKey = CacheFileUtils.readString(in);
+            int origin = in.readInt();
+            int length = in.readInt();
+            if (origin < 0 || origin >= numOrigins || length < 0) {
+                throw new IOException("Corrupt element type cache " + cacheFile);
+            }
+            int offset = contents.capacity() - in.available();
+            if (in.skipBytes(length) != length) {
+                throw new IOException("Truncated element type cache " + cacheFile);
+            }
+            storedEntries.put(elementKey, new StoredEntry(origin, offset, length));
+        }
+        buffer = contents;
+    }
+
+    /**
+     * Writes the new entries and the still-valid stored entries to {@code out}.
+     *
+     * @param out where to write the cache file
+     * @throws IOException if writing fails
+     */
+    private void writeContents(DataOutputStream out) throws IOException {
+        // Number the origins of all entries that are written.
+        Map<String, Integer> originIndex = new LinkedHashMap<>();
+        Map<String, String> originFingerprint = new HashMap<>();
+        for (int i = 0; i < storedOrigins.size(); i++) {
+            if (storedOriginIsValid.get(i)) {
+                originIndex.putIfAbsent(storedOrigins.get(i), originIndex.size());
+                originFingerprint.put(storedOrigins.get(i), storedFingerprints.get(i));
+            }
+        }
+        for (NewEntry entry : newEntries.values()) {
+            originIndex.putIfAbsent(entry.origin, originIndex.size());
+            originFingerprint.putIfAbsent(entry.origin, fingerprint(entry.origin));
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        CacheFileUtils.writeString(out, cacheKey);
+        out.writeInt(originIndex.size());
+        for (String origin : originIndex.keySet()) {
+            CacheFileUtils.writeString(out, origin);
+            CacheFileUtils.writeString(out, originFingerprint.get(origin));
+        }
+
+        int numEntries = newEntries.size();
+        for (Map.Entry<String, StoredEntry> stored : storedEntries.entrySet()) {
+            if (storedOriginIsValid.get(stored.getValue().origin)
+                    && !newEntries.containsKey(stored.getKey())) {
+                numEntries++;
+            }
+        }
+        out.writeInt(numEntries);
+        for (Map.Entry<String, StoredEntry> stored : storedEntries.entrySet()) {
+            StoredEntry entry = stored.getValue();
+            if (storedOriginIsValid.get(entry.origin) && !newEntries.containsKey(stored.getKey())) {
+                CacheFileUtils.writeString(out, stored.getKey());
+                out.writeInt(originIndex.get(storedOrigins.get(entry.origin)));
+                out.writeInt(entry.length);
+                ByteBuffer payload = buffer.duplicate();
+                payload.position(entry.offset);
+                byte[] bytes = new byte[entry.length];
+                payload.get(bytes);
+                out.write(bytes);
+            }
+        }
+        for (Map.Entry<String, NewEntry> newEntry : newEntries.entrySet()) {
+            NewEntry entry = newEntry.getValue();
+            CacheFileUtils.writeString(out, newEntry.getKey());
+            out.writeInt(originIndex.get(entry.origin));
+            out.writeInt(entry.bytes.length);
+            out.write(entry.bytes);
+        }
+    }
+
+    /** An input stream that reads from a {@link ByteBuffer}. */
+    private static class ByteBufferInputStream extends InputStream {
+        /** The buffer to read from. */
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates a ByteBufferInputStream.
+         *
+         * @param buffer the buffer to read from, starting at its position
+         */
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    // **********************************************************************
+    // Encoding and decoding types
+    // **********************************************************************
+
+    /**
+     * Returns the components of {@code type}, in the order in which {@link
+     * SimpleAnnotatedTypeScanner} visits them.
+     *
+     * @param type a type
+     * @return the components of {@code type}, including {@code type} itself
+     */
+    private static List<AnnotatedTypeMirror> components(AnnotatedTypeMirror type) {
+        List<AnnotatedTypeMirror> result = new ArrayList<>();
+        new SimpleAnnotatedTypeScanner<Void, Void>(
+                        (component, p) -> {
+                            result.add(component);
+                            return null;
+                        })
+                .visit(type);
+        return result;
+    }
+
+    /**
+     * Writes {@code type} to {@code out}.
+     *
+     * @param type the type to encode
+     * @param out where to write the encoded type
+     * @return false if {@code type} contains an annotation that cannot be encoded
+     * @throws IOException if writing fails
+     */
+    private static boolean encodeType(AnnotatedTypeMirror type, DataOutputStream out)
+            throws IOException {
+        List<AnnotatedTypeMirror> components = components(type);
+        out.writeInt(components.size());
+        for (AnnotatedTypeMirror component : components) {
+            out.writeByte(component.getKind().ordinal());
+            Set<AnnotationMirror> annos = component.getAnnotations();
+            out.writeShort(annos.size());
+            for (AnnotationMirror anno : annos) {
+                if (!encodeAnnotation(anno, out)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the type of {@code elt} from {@code in}.
+     *
+     * @param elt the element whose type is read
+     * @param in the encoded type
+     * @return the type of {@code elt}, or null if the encoded type does not match the type of
+     *     {@code elt}
+     * @throws IOException if reading fails
+     */
+    private @Nullable AnnotatedTypeMirror decodeType(Element elt, DataInputStream in)
+            throws IOException {
+        AnnotatedTypeMirror type =
+                atypeFactory.toAnnotatedType(elt.asType(), ElementUtils.isTypeDeclaration(elt));
+        if (type.getKind() == TypeKind.EXECUTABLE) {
+            ((AnnotatedExecutableType) type).setElement((ExecutableElement) elt);
+        }
+        List<AnnotatedTypeMirror> components = components(type);
+        if (in.readInt() != components.size()) {
+            return null;
+        }
+        for (AnnotatedTypeMirror component : components) {
+            if (in.readByte() != component.getKind().ordinal()) {
+                return null;
+            }
+            int numAnnos = in.readShort();
+            List<AnnotationMirror> annos = new ArrayList<>(numAnnos);
+            for (int i = 0; i < numAnnos; i++) {
+                AnnotationMirror anno = decodeAnnotation(in);
+                if (anno == null) {
+                    return null;
+                }
+                annos.add(anno);
+            }
+            if (component.getKind() != TypeKind.EXECUTABLE) {
+                component.clearAnnotations();
+                component.addAnnotations(annos);
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Writes {@code anno} to {@code out}. Only the explicit element values are written.
+     *
+     * @param anno the annotation to encode
+     * @param out where to write the encoded annotation
+     * @return false if {@code anno} has a value that cannot be encoded
+     * @throws IOException if writing fails
+     */
+    private static boolean encodeAnnotation(AnnotationMirror anno, DataOutputStream out)
+            throws IOException {
+        CacheFileUtils.writeString(out, AnnotationUtils.annotationName(anno));
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                anno.getElementValues();
+        out.writeShort(values.size());
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                values.entrySet()) {
+            CacheFileUtils.writeString(out, entry.getKey().getSimpleName().toString());
+            if (!encodeValue(entry.getValue().getValue(), out)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads an annotation from {@code in}.
+     *
+     * @param in the encoded annotation
+     * @return the annotation, or null if its annotation type or one of its values cannot be found
+     * @throws IOException if reading fails
+     */
+    private @Nullable AnnotationMirror decodeAnnotation(DataInputStream in) throws IOException {
+        String name = CacheFileUtils.readString(in);
+        int numValues = in.readShort();
+        if (numValues == 0) {
+            AnnotationMirror cached = annotationsWithoutValues.get(name);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        if (elements.getTypeElement(name) == null) {
+            return null;
+        }
+        AnnotationBuilder builder = new AnnotationBuilder(processingEnv, name);
+        for (int i = 0; i < numValues; i++) {
+            String elementName = CacheFileUtils.readString(in);
+            Object value = decodeValue(in);
+            if (value == null) {
+                return null;
+            }
+            setValue(builder, elementName, value);
+        }
+        AnnotationMirror result = builder.build();
+        if (numValues == 0) {
+            annotationsWithoutValues.put(name, result);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the value of an annotation element to {@code out}.
+     *
+     * @param value the value of an annotation element, as returned by {@link
+     *     AnnotationValue#getValue()}
+     * @param out where to write the encoded value
+     * @return false if {@code value} cannot be encoded
+     * @throws IOException if writing fails
+     */
+    private static boolean encodeValue(Object value, DataOutputStream out) throws IOException {
+        if (value instanceof Boolean) {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte('C');
+            out.writeChar((Character) value);
+        } else if (value instanceof Short) {
+            out.writeByte('S');
+            out.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.writeByte('I');
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte('J');
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte('F');
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte('D');
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte('s');
+            CacheFileUtils.writeString(out, (String) value);
+        } else if (value instanceof VariableElement) {
+            VariableElement enumConstant = (VariableElement) value;
+            out.writeByte('e');
+            CacheFileUtils.writeString(
+                    out,
+                    ((TypeElement) enumConstant.getEnclosingElement())
+                            .getQualifiedName()
+                            .toString());
+            CacheFileUtils.writeString(out, enumConstant.getSimpleName().toString());
+        } else if (value instanceof AnnotationMirror) {
+            out.writeByte('@');
+            return encodeAnnotation((AnnotationMirror) value, out);
+        } else if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            out.writeByte('[');
+            out.writeInt(values.size());
+            for (Object v : values) {
+                if (!encodeValue(((AnnotationValue) v).getValue(), out)) {
+                    return false;
+                }
+            }
+        } else {
+            // A byte or a class literal.
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the value of an annotation element from {@code in}.
+     *
+     * @param in the encoded value
+     * @return the value, or null if it refers to an enum constant that cannot be found
+     * @throws IOException if reading fails or the value is corrupt
+     */
+    private @Nullable Object decodeValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case 'Z':
+                return in.readBoolean();
+            case 'C':
+                return in.readChar();
+            case 'S':
+                return in.readShort();
+            case 'I':
+                return in.readInt();
+            case 'J':
+                return in.readLong();
+            case 'F':
+                return in.readFloat();
+            case 'D':
+                return in.readDouble();
+            case 's':
+                return CacheFileUtils.readString(in);
+            case 'e':
+                TypeElement enumType = elements.getTypeElement(CacheFileUtils.readString(in));
+                String constantName = CacheFileUtils.readString(in);
+                if (enumType == null) {
+                    return null;
+                }
+                for (VariableElement field :
+                        ElementFilter.fieldsIn(enumType.getEnclosedElements())) {
+                    if (field.getSimpleName().contentEquals(constantName)) {
+                        return field;
+                    }
+                }
+                return null;
+            case '@':
+                return decodeAnnotation(in);
+            case '[':
+                int size = in.readInt();
+                List<Object> values = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    Object value = decodeValue(in);
+                    if (value == null) {
+                        return null;
+                    }
+                    values.add(value);
+                }
+                return values;
+            default:
+                throw new IOException("Unexpected tag in element type cache: " + tag);
+        }
+    }
+
+    /**
+     * Calls the {@code setValue} method of {@code builder} that accepts {@code value}.
+     *
+     * @param builder an annotation builder
+     * @param elementName the name of the annotation element to set
+     * @param value the value returned by {@link #decodeValue}
+     */
+    private static void setValue(AnnotationBuilder builder, String elementName, Object value) {
+        if (value instanceof Boolean) {
+            builder.setValue(elementName, (Boolean) value);
+        } else if (value instanceof Character) {
+            builder.setValue(elementName, (Character) value);
+        } else if (value instanceof Short) {
+            builder.setValue(elementName, (Short) value);
+        } else if (value instanceof Integer) {
+            builder.setValue(elementName, (Integer) value);
+        } else if (value instanceof Long) {
+            builder.setValue(elementName, (Long) value);
+        } else if (value instanceof Float) {
+            builder.setValue(elementName, (Float) value);
+        } else if (value instanceof Double) {
+            builder.setValue(elementName, (Double) value);
+        } else if (value instanceof String) {
+            builder.setValue(elementName, (String) value);
+        } else if (value instanceof VariableElement) {
+            builder.setValue(elementName, (VariableElement) value);
+        } else if (value instanceof AnnotationMirror) {
+            builder.setValue(elementName, (AnnotationMirror) value);
+        } else if (value instanceof List) {
+            builder.setValue(elementName, (List<?>) value);
+        } else {
+            throw new BugInCF("Unexpected annotation value: " + value);
+        }
+    }
+
+    // **********************************************************************
+    // Keys and fingerprints
+    // **********************************************************************
+
+    /**
+     * Returns the key of {@code elt} in the cache file, or null if its type is not cached.
+     *
+     * @param elt an element
+     * @return the key of {@code elt}, or null if its type is not cached
+     */
+    private @Nullable String elementKey(Element elt) {
+        switch (elt.getKind()) {
+            case CLASS:
+            case INTERFACE:
+            case ENUM:
+            case ANNOTATION_TYPE:
+                return "T" + elements.getBinaryName((TypeElement) elt);
+            case FIELD:
+            case ENUM_CONSTANT:
+                return "F"
+                        + elements.getBinaryName((TypeElement) elt.getEnclosingElement())
+                        + "#"
+                        + elt.getSimpleName();
+            case METHOD:
+            case CONSTRUCTOR:
+                return "M"
+                        + elements.getBinaryName((TypeElement) elt.getEnclosingElement())
+                        + "#"
+                        + elt;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the jar file that the class file of {@code elt} (or of the class that encloses it)
+     * was read from, as a URI string, or {@link #JDK_ORIGIN} if it was read from the JDK. Returns
+     * null if it was read from a directory or from source code.
+     *
+     * @param elt an element
+     * @return the jar file that the class file of {@code elt} was read from, or null
+     */
+    private static @Nullable String getOrigin(Element elt) {
+        TypeElement enclosingClass = ElementUtils.enclosingClass(elt);
+        if (!(enclosingClass instanceof ClassSymbol)) {
+            return null;
+        }
+        JavaFileObject classfile = ((ClassSymbol) enclosingClass).classfile;
+        if (classfile == null || classfile.getKind() != JavaFileObject.Kind.CLASS) {
+            return null;
+        }
+        URI uri = classfile.toUri();
+        if ("jrt".equals(uri.getScheme())) {
+            return JDK_ORIGIN;
+        }
+        if ("jar".equals(uri.getScheme())) {
+            String jar = uri.getRawSchemeSpecificPart();
+            int separator = jar.indexOf("!/");
+            return separator == -1 ? null : jar.substring(0, separator);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the current fingerprint of {@code origin}, or "" if it cannot be determined.
+     *
+     * @param origin the jar file that a class file was read from, or {@link #JDK_ORIGIN}
+     * @return the current fingerprint of {@code origin}, or ""
+     */
+    private String fingerprint(String origin) {
+        return originFingerprints.computeIfAbsent(
+                origin,
+                o -> {
+                    if (o.equals(JDK_ORIGIN)) {
+                        return System.getProperty("java.home")
+                                + " "
+                                + System.getProperty("java.version");
+                    }
+                    try {
+                        String fingerprint = fileFingerprint(Paths.get(new URI(o)));
+                        return fingerprint == null ? "" : fingerprint;
+                    } catch (URISyntaxException
+                            | IllegalArgumentException
+                            | FileSystemNotFoundException e) {
+                        return "";
+                    }
+                });
+    }
+
+    /**
+     * Returns the size and modification time of {@code file}, or null if it is not a regular file.
+     *
+     * @param file a file
+     * @return the size and modification time of {@code file}, or null
+     */
+    private static @Nullable String fileFingerprint(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return file + " " + Files.size(file) + " " + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of files in {@code dir} and its subdirectories and their latest
+     * modification time, or null if {@code dir} cannot be read.
+     *
+     * @param dir a directory
+     * @return the number of files in {@code dir} and their latest modification time, or null
+     */
+    private static @Nullable String directoryFingerprint(Path dir) {
+        long numFiles = 0;
+        long lastModified = 0;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    numFiles++;
+                    lastModified =
+                            Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            return null;
+        }
+        return dir + " " + numFiles + " " + lastModified;
+    }
+
+    /**
+     * Returns the fingerprint of the jar file or directory that {@code clazz} was loaded from, or
+     * null if it was loaded from neither.
+     *
+     * @param clazz a class
+     * @return the fingerprint of the jar file or directory that {@code clazz} was loaded from, or
+     *     null
+     */
+    private static @Nullable String codeSourceFingerprint(Class<?> clazz) {
+        CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        if (location == null) {
+            return null;
+        }
+        try {
+            Path path = Paths.get(location.toURI());
+            return Files.isDirectory(path) ? directoryFingerprint(path) : fileFingerprint(path);
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a string that describes everything, other than the code being compiled and the class
+     * files that it uses, that the types computed by {@code atypeFactory} and the diagnostics
+     * issued by its checker depend on: the checker and the jar files or directories that it was
+     * loaded from, the JDK, the {@code -A} command-line options, and the files named by the {@code
+     * stubs} option. Returns null if the checker was not loaded from a jar file or a directory.
+     *
+     * @param atypeFactory a type factory
+     * @return a string that describes everything that the types computed by {@code atypeFactory}
+     *     depend on, or null
+     */
+    public static @Nullable String computeConfigurationKey(AnnotatedTypeFactory atypeFactory) {
+        SourceChecker checker = atypeFactory.getContext().getChecker();
+        ProcessingEnvironment env = atypeFactory.getProcessingEnv();
+        StringJoiner key = new StringJoiner(System.lineSeparator());
+        key.add(checker.getClass().getName());
+        for (Class<?> clazz : new Class<?>[] {checker.getClass(), AnnotatedTypeFactory.class}) {
+            String fingerprint = codeSourceFingerprint(clazz);
+            if (fingerprint == null) {
+                return null;
+            }
+            key.add(fingerprint);
+        }
+        key.add(System.getProperty("java.home"));
+        key.add(System.getProperty("java.version"));
+        key.add(env.getSourceVersion().name());
+        key.add(String.valueOf(SystemUtil.getReleaseValue(env)));
+
+        // Command-line options, except those that do not affect types or diagnostics.
+        Map<String, String> options = new TreeMap<>(env.getOptions());
+        options.remove("elementTypeCacheDir");
+        options.remove("incrementalCheckDir");
+        options.remove("typeCheckShard");
+        options.forEach((name, value) -> key.add("-A" + name + "=" + value));
+
+        // The stub files that are read from the file system; see
+        // AnnotationFileElementTypes#parseStubFiles.
+        for (String stubs :
+                new String[] {
+                    System.getProperty("stubs"), System.getenv("stubs"), checker.getOption("stubs")
+                }) {
+            if (stubs == null) {
+                continue;
+            }
+            for (String stub : stubs.split(File.pathSeparator)) {
+                key.add(stub);
+                Path path = Paths.get(stub);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> files = Files.walk(path)) {
+                        for (Path file : files.sorted().collect(Collectors.toList())) {
+                            String fingerprint = fileFingerprint(file);
+                            if (fingerprint != null) {
+                                key.add(fingerprint);
+                            }
+                        }
+                    } catch (IOException e) {
+                        return null;
+                    }
+                } else {
+                    String fingerprint = fileFingerprint(path);
+                    if (fingerprint != null) {
+                        key.add(fingerprint);
+                    }
+                }
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package org.checkerframework.framework.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * Utility methods for the files in which a checker stores results between compilations, such as the
+ * files of {@link org.checkerframework.framework.type.PersistentElementTypeCache} and of the
+ * incremental check index.
+ */
+public class CacheFileUtils {
+
+    /** Do not instantiate. */
+    private CacheFileUtils() {
+        throw new AssertionError("Class CacheFileUtils cannot be instantiated.");
+    }
+
+    /** Writes the contents of a file. */
+    @FunctionalInterface
+    public interface ContentsWriter {
+        /**
+         * Writes the contents of a file to {@code out}.
+         *
+         * @param out the stream to write to
+         * @throws IOException if writing fails
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Replaces the contents of {@code file}, creating its directory if necessary. The contents are
+     * written to a temporary file in the same directory, which is then moved to {@code file}, so a
+     * concurrent compilation that reads {@code file} sees either the old or the new contents. The
+     * temporary file is deleted if writing fails.
+     *
+     * @param file the file to write
+     * @param contents writes the contents of the file
+     * @throws IOException if writing fails
+     */
+    public static void writeAtomically(Path file, ContentsWriter contents) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmpFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                contents.write(out);
+            }
+            try {
+                Files.move(
+                        tmpFile,
+                        file,
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(tmpFile);
+            } catch (IOException e2) {
+                e.addSuppressed(e2);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a string of any length, unlike {@link DataOutputStream#writeUTF}, which rejects
+     * strings whose encoding is longer than 65535 bytes.
+     *
+     * @param out the stream to write to
+     * @param s the string to write
+     * @throws IOException if writing fails
+     */
+    public static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param in the stream to read from
+     * @return the string that was read
+     * @throws IOException if reading fails or the string is corrupt
+     */
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt string length: " + length);
+        }
+        if (length <= 8192) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        // Read a long string in chunks, so that a corrupt length leads to an EOFException rather
+        // than to a large allocation.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        for (int remaining = length; remaining > 0; ) {
+            int n = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, n);
+            bytes.write(chunk, 0, n);
+            remaining -= n;
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the SHA-256 hash of {@code s}, as a hexadecimal string.
+     *
+     * @param s a string
+     * @return the SHA-256 hash of {@code s}
+     */
+    public static String sha256(String s) {
+        try {
+            byte[] hash =
+                    MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder();
+            for (byte b : hash) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new BugInCF("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package org.checkerframework.framework.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A long-lived process that runs javac, and the Checker Framework as an annotation processor, for
+ * compile requests that it receives over a local socket. Compared to starting a new JVM per
+ * compilation, as {@link CheckerMain} does, a compilation run by the daemon does not pay for
+ * loading and JIT-compiling the Checker Framework and javac, and it reuses process-wide caches such
+ * as {@link JarEntryNameCache}. State that depends on a compilation, such as type factories and
+ * parsed stub files, is not reused.
+ *
+ * <p>Start the daemon with checker.jar on its classpath and the JVM options that {@link
+ * CheckerMain} uses, from the directory in which compilations will run, for example:
+ *
+ * <pre>{@code
+ * java --add-opens jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED \
+ *     -cp checker.jar org.checkerframework.framework.util.CheckerDaemon 4711
+ * }</pre>
+ *
+ * Then pass {@code -daemonPort 4711} to {@link CheckerMain} (that is, to the {@code javac} script
+ * of the Checker Framework), which sends the javac command line to the daemon instead of starting a
+ * new JVM. Stop the daemon by running it with the arguments {@code -stop 4711}.
+ *
+ * <p>Since a compilation can run arbitrary code, such as annotation processors and compiler
+ * plug-ins, the daemon only serves clients that can read its secret file, which it creates in the
+ * {@code .checkerframework} directory of the user's home directory and which only the user can
+ * read. The daemon runs one compilation at a time. Only a client running in the daemon's working
+ * directory is served, because javac resolves relative file names against it. The output of a
+ * compilation, including what the checkers print to {@link System#out} and {@link System#err}, is
+ * sent to the client.
+ */
+public class CheckerDaemon {
+
+    /** The version of the protocol between the daemon and its clients. */
+    private static final int PROTOCOL_VERSION = 2;
+
+    /** The request to run a compilation. */
+    private static final int COMPILE_REQUEST = 0;
+
+    /** The request to shut down the daemon. */
+    private static final int SHUTDOWN_REQUEST = 1;
+
+    /** The exit status reported for a request that the daemon refuses. */
+    private static final int REFUSED_STATUS = 2;
+
+    /** The exit status reported for a compilation that threw an exception. */
+    private static final int ABNORMAL_STATUS = 4;
+
+    /** The number of bytes of the secret that a client must send. */
+    private static final int SECRET_LENGTH = 32;
+
+    /** The largest number of javac command-line arguments in a request. */
+    private static final int MAX_ARGUMENTS = 1 << 20;
+
+    /** How long the daemon waits for a client to send its request, in milliseconds. */
+    private static final int REQUEST_TIMEOUT_MILLIS = 60_000;
+
+    /**
+     * The hooks registered by the compilation that the daemon is running, or null if no compilation
+     * is running. Only accessed by the thread that runs compilations.
+     */
+    private static @Nullable List<Runnable> compilationHooks = null;
+
+    /** Do not instantiate. */
+    private CheckerDaemon() {
+        throw new Error("Do not instantiate");
+    }
+
+    /**
+     * Runs the daemon until a client requests that it shut down, or requests that a running daemon
+     * shut down.
+     *
+     * @param args the port to listen on, which is chosen and printed if absent; or {@code -stop}
+     *     and the port of the daemon to shut down
+     * @throws IOException if the daemon cannot listen on the port
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("-stop")) {
+            shutdown(Integer.parseInt(args[1]));
+            return;
+        }
+        int port = args.length == 0 ? 0 : Integer.parseInt(args[0]);
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            Path secretFile = secretFile(server.getLocalPort());
+            byte[] secret = createSecret(secretFile);
+            System.out.println("CheckerDaemon listening on port " + server.getLocalPort());
+            try {
+                boolean running = true;
+                while (running) {
+                    try (Socket socket = server.accept()) {
+                        running = serve(socket, secret);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("CheckerDaemon: " + e);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(secretFile);
+            }
+        }
+    }
+
+    /**
+     * Returns the secret file of the daemon that listens on {@code port}.
+     *
+     * @param port the port that the daemon listens on
+     * @return the secret file of the daemon that listens on {@code port}
+     */
+    private static Path secretFile(int port) {
+        return secretDirectory().resolve("daemon-" + port + ".secret");
+    }
+
+    /**
+     * Returns the directory of the secret files of daemons.
+     *
+     * @return the directory of the secret files of daemons
+     */
+    private static Path secretDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".checkerframework");
+    }
+
+    /**
+     * Creates a new random secret and writes it to {@code file}, a file in {@link
+     * #secretDirectory}, which only the user can read. On a file system without POSIX permissions,
+     * such as on Windows, the file gets the permissions of the user's home directory.
+     *
+     * @param file the file to write the secret to
+     * @return the secret
+     * @throws IOException if the file cannot be written
+     */
+    private static byte[] createSecret(Path file) throws IOException {
+        byte[] secret = new byte[SECRET_LENGTH];
+        new SecureRandom().nextBytes(secret);
+        Path dir = secretDirectory();
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            if (!Files.isDirectory(dir)) {
+                Files.createDirectories(
+                        dir,
+                        PosixFilePermissions.asFileAttribute(
+                                PosixFilePermissions.fromString("rwx------")));
+            }
+            Files.deleteIfExists(file);
+            Files.createFile(
+                    file,
+                    PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createDirectories(dir);
+            Files.deleteIfExists(file);
+            Files.createFile(file);
+        }
+        Files.write(file, secret);
+        return secret;
+    }
+
+    /**
+     * Reads one request from {@code socket}, runs it, and writes the response.
+     *
+     * <p>A request consists of the protocol version, the secret of the daemon, and the kind of
+     * request. A compile request also contains the working directory of the client and the javac
+     * command-line arguments. A response consists of the output of javac and its exit status.
+     *
+     * @param socket a connection to a client
+     * @param secret the secret of the daemon
+     * @return false if the client requested that the daemon shut down
+     * @throws IOException if communicating with the client fails
+     */
+    private static boolean serve(Socket socket, byte[] secret) throws IOException {
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (in.readInt() != PROTOCOL_VERSION) {
+            respond(
+                    out,
+                    "CheckerDaemon: unsupported protocol version" + System.lineSeparator(),
+                    REFUSED_STATUS);
+            return true;
+        }
+        byte[] clientSecret = new byte[SECRET_LENGTH];
+        in.readFully(clientSecret);
+        if (!MessageDigest.isEqual(secret, clientSecret)) {
+            // Do not tell an unauthenticated client anything.
+            return true;
+        }
+
+        int request = in.readInt();
+        if (request == SHUTDOWN_REQUEST) {
+            respond(out, "", 0);
+            return false;
+        }
+        if (request != COMPILE_REQUEST) {
+            throw new IOException("Malformed CheckerDaemon request: " + request);
+        }
+        String workingDirectory = CacheFileUtils.readString(in);
+        int numArgs = in.readInt();
+        if (numArgs < 0 || numArgs > MAX_ARGUMENTS) {
+            throw new IOException("Malformed CheckerDaemon request: " + numArgs + " arguments");
+        }
+        String[] args = new String[numArgs];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = CacheFileUtils.readString(in);
+        }
+
+        if (!workingDirectory.equals(System.getProperty("user.dir"))) {
+            respond(
+                    out,
+                    "CheckerDaemon: the daemon runs in "
+                            + System.getProperty("user.dir")
+                            + ", not in "
+                            + workingDirectory
+                            + System.lineSeparator(),
+                    REFUSED_STATUS);
+            return true;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = compile(args, output);
+        respond(out, new String(output.toByteArray(), StandardCharsets.UTF_8), status);
+        return true;
+    }
+
+    /**
+     * Runs javac, and then the hooks that the compilation registered. Everything that they print,
+     * including to {@link System#out} and {@link System#err}, is written to {@code output}.
+     *
+     * @param args the javac command-line arguments
+     * @param output where to write the output of the compilation, in UTF-8
+     * @return the exit status of javac
+     */
+    private static int compile(String[] args, ByteArrayOutputStream output) {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        PrintStream capture;
+        try {
+            capture = new PrintStream(output, true, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new Error("UTF-8 is not supported", e);
+        }
+        PrintWriter writer =
+                new PrintWriter(new OutputStreamWriter(capture, StandardCharsets.UTF_8), true);
+        List<Runnable> hooks = new ArrayList<>();
+        compilationHooks = hooks;
+        System.setOut(capture);
+        System.setErr(capture);
+        try {
+            int status;
+            try {
+                status = com.sun.tools.javac.Main.compile(args, writer);
+            } catch (RuntimeException | Error e) {
+                // Keep serving later compilations.
+                writer.flush();
+                e.printStackTrace(capture);
+                status = ABNORMAL_STATUS;
+            }
+            writer.flush();
+            compilationHooks = null;
+            for (Runnable hook : hooks) {
+                hook.run();
+            }
+            return status;
+        } finally {
+            compilationHooks = null;
+            capture.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+    }
+
+    /**
+     * Registers a hook that runs when the JVM shuts down. If the daemon is running a compilation,
+     * the hook instead runs when the compilation finishes, so that the hooks of compilations do not
+     * accumulate in the daemon, and its output is sent to the client.
+     *
+     * @param hook the hook to run
+     */
+    public static void addShutdownHook(Runnable hook) {
+        List<Runnable> hooks = compilationHooks;
+        if (hooks != null) {
+            hooks.add(hook);
+        } else {
+            Runtime.getRuntime().addShutdownHook(new Thread(hook));
+        }
+    }
+
+    /**
+     * Writes a response to a client.
+     *
+     * @param out the stream to the client
+     * @param output the output of the compilation
+     * @param status the exit status of the compilation
+     * @throws IOException if writing fails
+     */
+    private static void respond(DataOutputStream out, String output, int status)
+            throws IOException {
+        CacheFileUtils.writeString(out, output);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /**
+     * Sends a compilation to the daemon listening on {@code port}, and prints its output.
+     *
+     * @param port the port that the daemon listens on
+     * @param args the javac command-line arguments
+     * @param output where to print the output of javac
+     * @return the exit status of javac
+     * @throws IOException if the daemon cannot be reached
+     */
+    public static int compile(int port, List<String> args, PrintStream output) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream out = sendRequest(socket, port, COMPILE_REQUEST);
+            CacheFileUtils.writeString(out, System.getProperty("user.dir"));
+            out.writeInt(args.size());
+            for (String arg : args) {
+                CacheFileUtils.writeString(out, arg);
+            }
+            out.flush();
+            return readResponse(socket, output);
+        }
+    }
+
+    /**
+     * Requests that the daemon listening on {@code port} shut down.
+     *
+     * @param port the port that the daemon listens on
+     * @throws IOException if the daemon cannot be reached
+     */
+    public static void shutdown(int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            sendRequest(socket, port, SHUTDOWN_REQUEST).flush();
+            readResponse(socket, System.err);
+        }
+    }
+
+    /**
+     * Writes the protocol version, the secret of the daemon, and the kind of request to {@code
+     * socket}.
+     *
+     * @param socket a connection to the daemon
+     * @param port the port that the daemon listens on
+     * @param request the kind of request
+     * @return the stream to the daemon, to which the rest of the request can be written
+     * @throws IOException if the secret cannot be read or writing fails
+     */
+    private static DataOutputStream sendRequest(Socket socket, int port, int request)
+            throws IOException {
+        byte[] secret = Files.readAllBytes(secretFile(port));
+        if (secret.length != SECRET_LENGTH) {
+            throw new IOException("Malformed CheckerDaemon secret file " + secretFile(port));
+        }
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(PROTOCOL_VERSION);
+        out.write(secret);
+        out.writeInt(request);
+        return out;
+    }
+
+    /**
+     * Reads the response of the daemon, and prints its output.
+     *
+     * @param socket a connection to the daemon
+     * @param output where to print the output of javac
+     * @return the exit status of javac
+     * @throws IOException if reading fails, for example because the daemon refused the request
+     */
+    private static int readResponse(Socket socket, PrintStream output) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        output.print(CacheFileUtils.readString(in));
+        output.flush();
+        return in.readInt();
+    }
+}
@@ -17,6 +17,7 @@ import java.util.jar.JarInputStream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.FullyQualifiedName;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.SystemUtil;
@@ -88,6 +89,9 @@ public class CheckerMain {
     /** Command-line argument files (specified with @ on the command line). */
     private final List<File> argListFiles;
 
+    /** The port of the {@link CheckerDaemon} that runs the compilation, or null to start javac. */
+    private final @Nullable String daemonPort;
+
     /**
      * Option name for specifying an alternative checker-qual.jar location. The accompanying value
      * MUST be the path to the jar file (NOT the path to its encompassing directory)
@@ -106,6 +110,12 @@ public class CheckerMain {
      */
     public static final String JDK_PATH_OPT = "-jdkJar";
 
+    /**
+     * Option name for specifying the port of a {@link CheckerDaemon} that runs the compilation,
+     * instead of a new JVM.
+     */
+    public static final String DAEMON_PORT_OPT = "-daemonPort";
+
     /**
      * Construct all the relevant file locations and Java version given the path to this jar and a
      * set of directories in which to search for jars.
@@ -123,6 +133,7 @@ public class CheckerMain {
                         CHECKER_QUAL_PATH_OPT, new File(searchPath, "checker-qual.jar"), args);
 
         this.javacJar = extractFileArg(JAVAC_PATH_OPT, new File(searchPath, "javac.jar"), args);
+        this.daemonPort = extractArg(DAEMON_PORT_OPT, null, args);
 
         this.compilationBootclasspath = createCompilationBootclasspath(args);
         this.runtimeClasspath = createRuntimeClasspath(args);
@@ -421,13 +432,29 @@ public class CheckerMain {
 
         addMainToArgs(args);
 
+        args.addAll(getCompilerArguments(true));
+        return args;
+    }
+
+    /**
+     * Returns the command-line arguments to pass to javac.
+     *
+     * @param quotePaths whether to quote the classpath and processorpath if they contain spaces, as
+     *     required when they are passed through a command line
+     * @return the command-line arguments to pass to javac
+     */
+    private List<String> getCompilerArguments(boolean quotePaths) {
+        List<String> args = new ArrayList<>(toolOpts.size() + 10);
+
         if (!argsListHasClassPath(argListFiles)) {
+            String classpath = concatenatePaths(cpOpts);
             args.add("-classpath");
-            args.add(quote(concatenatePaths(cpOpts)));
+            args.add(quotePaths ? quote(classpath) : classpath);
         }
         if (!argsListHasProcessorPath(argListFiles)) {
+            String processorpath = concatenatePaths(ppOpts);
             args.add("-processorpath");
-            args.add(quote(concatenatePaths(ppOpts)));
+            args.add(quotePaths ? quote(processorpath) : processorpath);
         }
 
         if (SystemUtil.getJreVersion() == 8) {
@@ -494,9 +521,13 @@ public class CheckerMain {
         return result;
     }
 
-    /** Invoke the compiler with all relevant jars on its classpath and/or bootclasspath. */
+    /**
+     * Invoke the compiler with all relevant jars on its classpath and/or bootclasspath. If the
+     * {@code -daemonPort} option was supplied, the compiler is run by a {@link CheckerDaemon}
+     * rather than in a new JVM.
+     */
     public int invokeCompiler() {
-        List<String> args = getExecArguments();
+        List<String> args = daemonPort == null ? getExecArguments() : getCompilerArguments(false);
 
         for (int i = 0; i < args.size(); i++) {
             String arg = args.get(i);
@@ -509,6 +540,15 @@ public class CheckerMain {
             }
         }
 
+        if (daemonPort != null) {
+            try {
+                return CheckerDaemon.compile(Integer.parseInt(daemonPort), args, System.err);
+            } catch (IOException | NumberFormatException e) {
+                throw new RuntimeException(
+                        "Exception connecting to CheckerDaemon on port " + daemonPort, e);
+            }
+        }
+
         // Actually invoke the compiler
         return ExecUtil.execute(args.toArray(new String[args.size()]), System.out, System.err);
     }
@@ -3,6 +3,7 @@ package org.checkerframework.framework.util;
 import java.lang.annotation.Annotation;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -81,6 +82,20 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
      */
     private final Map<QualifierKind, Map<QualifierKind, QualifierKind>> glbs;
 
+    /**
+     * The contents of {@link #lubs}, indexed by the ordinals of the qualifier kinds: {@code
+     * lubTable[kind1.ordinal * qualifierKinds.size() + kind2.ordinal]} is the lub of kind1 and
+     * kind2, or null if they are in different hierarchies.
+     */
+    private final @Nullable QualifierKind[] lubTable;
+
+    /**
+     * The contents of {@link #glbs}, indexed by the ordinals of the qualifier kinds: {@code
+     * glbTable[kind1.ordinal * qualifierKinds.size() + kind2.ordinal]} is the glb of kind1 and
+     * kind2, or null if they are in different hierarchies.
+     */
+    private final @Nullable QualifierKind[] glbTable;
+
     @Override
     public Set<? extends QualifierKind> getTops() {
         return tops;
@@ -93,6 +108,10 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
 
     @Override
     public @Nullable QualifierKind leastUpperBound(QualifierKind q1, QualifierKind q2) {
+        int index = tableIndex(q1, q2);
+        if (index != -1) {
+            return lubTable[index];
+        }
         @SuppressWarnings(
                 "nullness:dereference.of.nullable") // All QualifierKinds are keys in lubs.
         QualifierKind result = lubs.get(q1).get(q2);
@@ -101,12 +120,42 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
 
     @Override
     public @Nullable QualifierKind greatestLowerBound(QualifierKind q1, QualifierKind q2) {
+        int index = tableIndex(q1, q2);
+        if (index != -1) {
+            return glbTable[index];
+        }
         @SuppressWarnings(
                 "nullness:dereference.of.nullable") // All QualifierKinds are keys in glbs.
         QualifierKind result = glbs.get(q1).get(q2);
         return result;
     }
 
+    /**
+     * Returns the index of the pair {@code q1}, {@code q2} in {@link #lubTable} and {@link
+     * #glbTable}, or -1 if either is not a qualifier kind of this hierarchy.
+     *
+     * @param q1 a qualifier kind
+     * @param q2 a qualifier kind
+     * @return the index of the pair {@code q1}, {@code q2} in the lub and glb tables, or -1
+     */
+    private int tableIndex(QualifierKind q1, QualifierKind q2) {
+        if (!(q1 instanceof DefaultQualifierKind && q2 instanceof DefaultQualifierKind)) {
+            return -1;
+        }
+        int size = qualifierKinds.size();
+        int ordinal1 = ((DefaultQualifierKind) q1).ordinal;
+        int ordinal2 = ((DefaultQualifierKind) q2).ordinal;
+        if (ordinal1 < 0
+                || ordinal1 >= size
+                || ordinal2 < 0
+                || ordinal2 >= size
+                || qualifierKinds.get(ordinal1) != q1
+                || qualifierKinds.get(ordinal2) != q2) {
+            return -1;
+        }
+        return ordinal1 * size + ordinal2;
+    }
+
     @Override
     public List<? extends QualifierKind> allQualifierKinds() {
         return qualifierKinds;
@@ -162,6 +211,9 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
         this.nameToQualifierKind = createQualifierKinds(qualifierClasses);
         this.qualifierKinds = new ArrayList<>(nameToQualifierKind.values());
         Collections.sort(qualifierKinds);
+        for (int i = 0; i < qualifierKinds.size(); i++) {
+            qualifierKinds.get(i).ordinal = i;
+        }
 
         Map<DefaultQualifierKind, Set<DefaultQualifierKind>> directSuperMap =
                 createDirectSuperMap();
@@ -172,12 +224,64 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
         this.bottoms = createBottomsSet(directSuperMap);
         initializePolymorphicQualifiers();
         initializeQualifierKindFields(directSuperMap);
+        initializeStrictSuperTypeOrdinals();
         this.lubs = createLubsMap();
         this.glbs = createGlbsMap();
+        this.lubTable = createTable(lubs);
+        this.glbTable = createTable(glbs);
 
         verifyHierarchy(directSuperMap);
     }
 
+    /**
+     * Sets {@link DefaultQualifierKind#strictSuperTypeOrdinals} for every qualifier kind, so that
+     * {@link DefaultQualifierKind#isSubtypeOf(QualifierKind)} is a bit test. Called after {@link
+     * #initializeQualifierKindFields(Map)}; the strict super types of a qualifier kind must not
+     * change afterwards.
+     */
+    @RequiresNonNull("this.qualifierKinds")
+    private void initializeStrictSuperTypeOrdinals(
+            @UnderInitialization DefaultQualifierKindHierarchy this) {
+        for (DefaultQualifierKind qualifierKind : qualifierKinds) {
+            if (qualifierKind.strictSuperTypes == null) {
+                continue;
+            }
+            BitSet ordinals = new BitSet(qualifierKinds.size());
+            for (QualifierKind superKind : qualifierKind.strictSuperTypes) {
+                if (superKind instanceof DefaultQualifierKind
+                        && ((DefaultQualifierKind) superKind).ordinal >= 0) {
+                    ordinals.set(((DefaultQualifierKind) superKind).ordinal);
+                }
+            }
+            qualifierKind.strictSuperTypeOrdinals = ordinals;
+        }
+    }
+
+    /**
+     * Returns the contents of {@code map}, a map of maps such as {@link #lubs}, as an array indexed
+     * by the ordinals of the qualifier kinds; see {@link #lubTable}.
+     *
+     * @param map a map from pairs of qualifier kinds to qualifier kinds
+     * @return an array with the contents of {@code map}
+     */
+    @RequiresNonNull("this.qualifierKinds")
+    private @Nullable QualifierKind[] createTable(
+            @UnderInitialization DefaultQualifierKindHierarchy this,
+            Map<QualifierKind, Map<QualifierKind, QualifierKind>> map) {
+        int size = qualifierKinds.size();
+        @Nullable QualifierKind[] table = new QualifierKind[size * size];
+        for (DefaultQualifierKind qual1 : qualifierKinds) {
+            Map<QualifierKind, QualifierKind> qual1Map = map.get(qual1);
+            if (qual1Map == null) {
+                continue;
+            }
+            for (DefaultQualifierKind qual2 : qualifierKinds) {
+                table[qual1.ordinal * size + qual2.ordinal] = qual1Map.get(qual2);
+            }
+        }
+        return table;
+    }
+
     /**
      * Verifies that the {@link DefaultQualifierKindHierarchy} is a valid hierarchy.
      *
@@ -236,8 +340,8 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     protected Map<@Interned @CanonicalName String, DefaultQualifierKind> createQualifierKinds(
             @UnderInitialization DefaultQualifierKindHierarchy this,
             Collection<Class<? extends Annotation>> qualifierClasses) {
-        TreeMap<@Interned @CanonicalName String, DefaultQualifierKind> nameToQualifierKind =
-                new TreeMap<>();
+        Map<@Interned @CanonicalName String, DefaultQualifierKind> nameToQualifierKind =
+                new HashMap<>();
         for (Class<? extends Annotation> clazz : qualifierClasses) {
             @SuppressWarnings("interning") // uniqueness is tested immediately below
             @Interned DefaultQualifierKind qualifierKind = new DefaultQualifierKind(clazz);
@@ -726,6 +830,16 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
         // Set while creating the QualifierKindHierarchy.
         protected @MonotonicNonNull Set<QualifierKind> strictSuperTypes;
 
+        /** The index of this in {@link DefaultQualifierKindHierarchy#qualifierKinds}. */
+        // Set while creating the QualifierKindHierarchy.
+        private int ordinal = -1;
+
+        /**
+         * The ordinals of {@link #strictSuperTypes}. Null until {@link #strictSuperTypes} is final.
+         */
+        // Set while creating the QualifierKindHierarchy.
+        private @Nullable BitSet strictSuperTypeOrdinals = null;
+
         /**
          * Creates a {@link DefaultQualifierKind} for the given annotation class.
          *
@@ -814,7 +928,17 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
                 throw new BugInCF(
                         "DefaultQualifierKind#isSubtypeOf: strictSuperTypes was null. Don't call this method during initialization of DefaultQualifierKindHierarchy.");
             }
-            return this == superQualKind || strictSuperTypes.contains(superQualKind);
+            if (this == superQualKind) {
+                return true;
+            }
+            if (strictSuperTypeOrdinals != null
+                    && superQualKind instanceof DefaultQualifierKind
+                    && ((DefaultQualifierKind) superQualKind).top == top
+                    && ((DefaultQualifierKind) superQualKind).ordinal >= 0) {
+                // superQualKind belongs to the same hierarchy as this.
+                return strictSuperTypeOrdinals.get(((DefaultQualifierKind) superQualKind).ordinal);
+            }
+            return strictSuperTypes.contains(superQualKind);
         }
 
         @Override
@@ -0,0 +1,86 @@
+package org.checkerframework.framework.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A cache of the names of the entries of jar files, such as the names of the annotated JDK files
+ * and of the qualifiers in checker.jar. Enumerating the entries of checker.jar is expensive, and is
+ * otherwise done by every checker in every compilation. The cache is static, so in a long-lived
+ * process such as {@link CheckerDaemon} it is shared by all compilations. An entry is discarded
+ * when the size or modification time of its jar file changes.
+ */
+public final class JarEntryNameCache {
+
+    /** Do not instantiate. */
+    private JarEntryNameCache() {
+        throw new Error("Do not instantiate");
+    }
+
+    /** The cached entry names, by the absolute path of the jar file. */
+    private static final Map<String, CachedJar> cache = new ConcurrentHashMap<>();
+
+    /** The entry names of a jar file, and the size and modification time of the file. */
+    private static class CachedJar {
+        /** The size of the jar file, when its entries were read. */
+        final long length;
+
+        /** The modification time of the jar file, when its entries were read. */
+        final long lastModified;
+
+        /** The names of the entries of the jar file, in the order of the jar file. */
+        final List<String> entryNames;
+
+        /**
+         * Creates a CachedJar.
+         *
+         * @param length the size of the jar file
+         * @param lastModified the modification time of the jar file
+         * @param entryNames the names of the entries of the jar file
+         */
+        CachedJar(long length, long lastModified, List<String> entryNames) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.entryNames = entryNames;
+        }
+    }
+
+    /**
+     * Returns the names of the entries of {@code jar}, in the order in which {@link
+     * JarFile#entries()} returns them. The names of directories end with "/".
+     *
+     * @param jar an open jar file
+     * @return the names of the entries of {@code jar}
+     */
+    @SuppressWarnings("JdkObsolete") // JarFile#entries
+    public static List<String> getEntryNames(JarFile jar) {
+        File file = new File(jar.getName()).getAbsoluteFile();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        CachedJar cached = cache.get(file.getPath());
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+            return cached.entryNames;
+        }
+
+        List<String> entryNames = new ArrayList<>();
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            entryNames.add(entries.nextElement().getName());
+        }
+        entryNames = Collections.unmodifiableList(entryNames);
+        cache.put(file.getPath(), new CachedJar(length, lastModified, entryNames));
+        return entryNames;
+    }
+
+    /** Discards all cached entry names. */
+    public static void clear() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,313 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import org.checkerframework.framework.util.CheckerDaemon;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link CheckerDaemon} by running it in a separate JVM and sending it compilations over the
+ * loopback interface. The daemon and the tests use a temporary home directory, so that the secret
+ * file of the daemon is not written to the user's home directory.
+ */
+public class CheckerDaemonTest {
+
+    /** The output of {@link HookProcessor} while it processes the compiled file. */
+    private static final String PROCESSOR_OUTPUT = "HookProcessor: processing";
+
+    /** The output of the shutdown hook registered by {@link HookProcessor}. */
+    private static final String HOOK_OUTPUT = "HookProcessor: shutdown hook";
+
+    /** The temporary home directory. */
+    private Path home;
+
+    /** The home directory of this JVM before the test. */
+    private String oldHome;
+
+    /** The daemon process that the tests talk to. */
+    private Process daemon;
+
+    /** The port that {@link #daemon} listens on. */
+    private int port;
+
+    /** A source file that compiles without errors. */
+    private Path goodSource;
+
+    /** A source file that does not compile. */
+    private Path badSource;
+
+    @Before
+    public void setUp() throws IOException {
+        home = Files.createTempDirectory("checker-daemon-test");
+        oldHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+        goodSource = home.resolve("Good.java");
+        Files.write(goodSource, "class Good {}".getBytes(StandardCharsets.UTF_8));
+        badSource = home.resolve("Bad.java");
+        Files.write(badSource, "class Bad { int i = \"\"; }".getBytes(StandardCharsets.UTF_8));
+        daemon = startDaemon(new File(System.getProperty("user.dir")));
+        port = readPort(daemon);
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        try {
+            if (daemon.isAlive()) {
+                CheckerDaemon.shutdown(port);
+                daemon.waitFor(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            daemon.destroyForcibly();
+            System.setProperty("user.home", oldHome);
+            deleteRecursively(home);
+        }
+    }
+
+    /** Tests that the output of javac, and the exit status, are sent to the client. */
+    @Test
+    public void sendsJavacOutput() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = compile(output, "-proc:none", "-d", home.toString(), badSource.toString());
+        Assert.assertEquals(output.toString("UTF-8"), 1, status);
+        Assert.assertTrue(output.toString("UTF-8"), output.toString("UTF-8").contains("Bad.java"));
+    }
+
+    /**
+     * Tests that what a compilation prints to {@link System#out}, and what its shutdown hooks
+     * print, is sent to the client, and that the hooks run once, at the end of their compilation.
+     */
+    @Test
+    public void runsHooksPerCompilation() throws IOException, InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int status =
+                    compile(
+                            output,
+                            "-processorpath",
+                            System.getProperty("java.class.path"),
+                            "-processor",
+                            HookProcessor.class.getName(),
+                            "-proc:only",
+                            goodSource.toString());
+            String text = output.toString("UTF-8");
+            Assert.assertEquals(text, 0, status);
+            Assert.assertEquals(text, 1, count(text, PROCESSOR_OUTPUT));
+            // The hook of the first compilation did not run again.
+            Assert.assertEquals(text, 1, count(text, HOOK_OUTPUT));
+            Assert.assertTrue(text, text.indexOf(PROCESSOR_OUTPUT) < text.indexOf(HOOK_OUTPUT));
+        }
+
+        // No hook was left to run when the daemon exits.
+        CheckerDaemon.shutdown(port);
+        Assert.assertTrue(daemon.waitFor(30, TimeUnit.SECONDS));
+        String daemonOutput = readAll(daemon);
+        Assert.assertEquals(daemonOutput, 0, count(daemonOutput, HOOK_OUTPUT));
+    }
+
+    /** Tests that a client that does not know the secret of the daemon gets no response. */
+    @Test
+    public void rejectsWrongSecret() throws IOException {
+        Path secretFile = home.resolve(".checkerframework").resolve("daemon-" + port + ".secret");
+        byte[] secret = Files.readAllBytes(secretFile);
+        byte[] wrongSecret = secret.clone();
+        wrongSecret[0]++;
+        Files.write(secretFile, wrongSecret);
+        try {
+            compile(new ByteArrayOutputStream(), "-version");
+            Assert.fail("The daemon ran a compilation for a client with the wrong secret");
+        } catch (IOException e) {
+            // expected: the daemon closes the connection without responding
+        } finally {
+            Files.write(secretFile, secret);
+        }
+
+        // The daemon still serves clients that know the secret.
+        Assert.assertEquals(0, compile(new ByteArrayOutputStream(), "-version"));
+    }
+
+    /** Tests that a daemon refuses clients that run in a different directory. */
+    @Test
+    public void refusesOtherWorkingDirectory() throws IOException, InterruptedException {
+        Process otherDaemon = startDaemon(home.toFile());
+        try {
+            int otherPort = readPort(otherDaemon);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int status =
+                    CheckerDaemon.compile(
+                            otherPort,
+                            Arrays.asList(
+                                    "-proc:none", "-d", home.toString(), badSource.toString()),
+                            printStream(output));
+            String text = output.toString("UTF-8");
+            Assert.assertEquals(text, 2, status);
+            Assert.assertTrue(text, text.contains("the daemon runs in"));
+            Assert.assertFalse(text, text.contains("Bad.java"));
+            CheckerDaemon.shutdown(otherPort);
+            Assert.assertTrue(otherDaemon.waitFor(30, TimeUnit.SECONDS));
+        } finally {
+            otherDaemon.destroyForcibly();
+        }
+    }
+
+    /**
+     * Sends a compilation to {@link #daemon}.
+     *
+     * @param output where to write the output of the compilation
+     * @param args the javac command-line arguments
+     * @return the exit status of the compilation
+     * @throws IOException if communicating with the daemon fails
+     */
+    private int compile(ByteArrayOutputStream output, String... args) throws IOException {
+        return CheckerDaemon.compile(port, Arrays.asList(args), printStream(output));
+    }
+
+    /**
+     * Starts a daemon, with the classpath and the home directory of the tests.
+     *
+     * @param workingDirectory the working directory of the daemon
+     * @return the daemon process
+     * @throws IOException if the process cannot be started
+     */
+    private Process startDaemon(File workingDirectory) throws IOException {
+        List<String> command =
+                Arrays.asList(
+                        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-Duser.home=" + home,
+                        "-cp",
+                        System.getProperty("java.class.path"),
+                        CheckerDaemon.class.getName());
+        return new ProcessBuilder(command)
+                .directory(workingDirectory)
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    /**
+     * Reads the port that a daemon listens on from the first line of its output.
+     *
+     * @param process the daemon process
+     * @return the port that the daemon listens on
+     * @throws IOException if the output cannot be read
+     */
+    private static int readPort(Process process) throws IOException {
+        String line =
+                new BufferedReader(
+                                new InputStreamReader(
+                                        process.getInputStream(), StandardCharsets.UTF_8))
+                        .readLine();
+        String prefix = "CheckerDaemon listening on port ";
+        Assert.assertTrue("Unexpected daemon output: " + line, line.startsWith(prefix));
+        return Integer.parseInt(line.substring(prefix.length()));
+    }
+
+    /**
+     * Returns the rest of the output of a process that has terminated.
+     *
+     * @param process a process that has terminated
+     * @return the rest of its output
+     * @throws IOException if the output cannot be read
+     */
+    private static String readAll(Process process) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = process.getInputStream().read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    /**
+     * Returns a print stream that writes to {@code output} in UTF-8.
+     *
+     * @param output the stream to write to
+     * @return a print stream that writes to {@code output}
+     */
+    private static PrintStream printStream(ByteArrayOutputStream output) {
+        try {
+            return new PrintStream(output, true, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new Error("UTF-8 is not supported", e);
+        }
+    }
+
+    /**
+     * Returns how often {@code part} occurs in {@code text}.
+     *
+     * @param text a string
+     * @param part the string to count
+     * @return how often {@code part} occurs in {@code text}
+     */
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i != -1; i = text.indexOf(part, i + part.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Deletes a directory and its contents.
+     *
+     * @param dir the directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void deleteRecursively(Path dir) throws IOException {
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteRecursively(file.toPath());
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    /**
+     * An annotation processor that prints to {@link System#out} and registers a hook with {@link
+     * CheckerDaemon#addShutdownHook}, as checkers do.
+     */
+    @SupportedAnnotationTypes("*")
+    public static class HookProcessor extends AbstractProcessor {
+
+        @Override
+        public synchronized void init(ProcessingEnvironment processingEnv) {
+            super.init(processingEnv);
+            CheckerDaemon.addShutdownHook(() -> System.out.println(HOOK_OUTPUT));
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (!roundEnv.processingOver()) {
+                System.out.println(PROCESSOR_OUTPUT);
+            }
+            return false;
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import org.checkerframework.framework.util.JarEntryNameCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests that {@link JarEntryNameCache} discards the entry names of a jar file that changed. */
+public class JarEntryNameCacheTest {
+
+    /** The jar file whose entry names are cached. */
+    private Path jar;
+
+    @Before
+    public void setUp() throws IOException {
+        JarEntryNameCache.clear();
+        jar = Files.createTempFile("JarEntryNameCacheTest", ".jar");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        JarEntryNameCache.clear();
+        Files.deleteIfExists(jar);
+    }
+
+    /** Tests that the entry names are cached while the jar file does not change. */
+    @Test
+    public void cachesEntryNames() throws IOException {
+        writeJar("a/", "a/A.class");
+        List<String> first = getEntryNames();
+        Assert.assertEquals(Arrays.asList("a/", "a/A.class"), first);
+        Assert.assertSame(first, getEntryNames());
+    }
+
+    /** Tests that the entry names are read again when the size of the jar file changes. */
+    @Test
+    public void discardsEntryNamesWhenSizeChanges() throws IOException {
+        writeJar("a/", "a/A.class");
+        FileTime lastModified = Files.getLastModifiedTime(jar);
+        Assert.assertEquals(Arrays.asList("a/", "a/A.class"), getEntryNames());
+
+        writeJar("a/", "a/A.class", "a/B.class");
+        // Only the size of the file tells that it changed.
+        Files.setLastModifiedTime(jar, lastModified);
+        Assert.assertEquals(Arrays.asList("a/", "a/A.class", "a/B.class"), getEntryNames());
+    }
+
+    /** Tests that the entry names are read again when the jar file is modified. */
+    @Test
+    public void discardsEntryNamesWhenModificationTimeChanges() throws IOException {
+        writeJar("a/", "a/A.class");
+        long size = Files.size(jar);
+        List<String> first = getEntryNames();
+
+        writeJar("b/", "b/B.class");
+        Assert.assertEquals(size, Files.size(jar));
+        Files.setLastModifiedTime(
+                jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10_000));
+        List<String> second = getEntryNames();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(Arrays.asList("b/", "b/B.class"), second);
+    }
+
+    /**
+     * Returns the entry names of {@link #jar}, from {@link JarEntryNameCache}.
+     *
+     * @return the entry names of {@link #jar}
+     * @throws IOException if the jar file cannot be read
+     */
+    private List<String> getEntryNames() throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            return JarEntryNameCache.getEntryNames(jarFile);
+        }
+    }
+
+    /**
+     * Replaces {@link #jar} with a jar file that has empty entries with the given names.
+     *
+     * @param entryNames the names of the entries
+     * @throws IOException if the jar file cannot be written
+     */
+    private void writeJar(String... entryNames) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String entryName : entryNames) {
+                JarEntry entry = new JarEntry(entryName);
+                // A fixed time, so that jar files with names of the same lengths have equal sizes.
+                entry.setTime(0);
+                out.putNextEntry(entry);
+                out.closeEntry();
+            }
+        }
+    }
+}
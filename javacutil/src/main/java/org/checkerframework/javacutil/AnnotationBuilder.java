@@ -640,6 +640,19 @@ public class AnnotationBuilder {
         /** The annotation name. */
         // default visibility to allow access from within package.
         final @Interned @CanonicalName String annotationName;
+        /**
+         * The elements of the annotation type, sorted by their simple signature; computed lazily by
+         * {@link #getSortedElements()}.
+         */
+        private @Nullable List<ExecutableElement> sortedElements;
+        /**
+         * The hash code of this annotation's name and element values, consistent with {@link
+         * AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)}; computed lazily by {@link
+         * #getValuesHashCode()}.
+         */
+        private int valuesHashCode;
+        /** True if {@link #valuesHashCode} has been computed. */
+        private boolean valuesHashCodeComputed = false;
 
         /**
          * Create a CheckerFrameworkAnnotationMirror.
@@ -667,6 +680,43 @@ public class AnnotationBuilder {
             return Collections.unmodifiableMap(elementValues);
         }
 
+        /**
+         * Returns true if no element values were set explicitly, so that every element has its
+         * default value.
+         *
+         * @return true if no element values were set explicitly
+         */
+        boolean hasNoElementValues() {
+            return elementValues.isEmpty();
+        }
+
+        /**
+         * Returns the elements of the annotation type, sorted by their simple signature.
+         *
+         * @return the elements of the annotation type, sorted by their simple signature
+         */
+        List<ExecutableElement> getSortedElements() {
+            if (sortedElements == null) {
+                sortedElements = AnnotationUtils.getSortedElements(annotationType);
+            }
+            return sortedElements;
+        }
+
+        /**
+         * Returns a hash code of this annotation's name and element values. Annotations that are
+         * the same according to {@link AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)}
+         * have the same hash code.
+         *
+         * @return a hash code of this annotation's name and element values
+         */
+        int getValuesHashCode() {
+            if (!valuesHashCodeComputed) {
+                valuesHashCode = AnnotationUtils.valuesHashCode(this);
+                valuesHashCodeComputed = true;
+            }
+            return valuesHashCode;
+        }
+
         @SideEffectFree
         @Override
         public String toString() {
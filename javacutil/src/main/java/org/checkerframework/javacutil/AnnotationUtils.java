@@ -96,6 +96,20 @@ public class AnnotationUtils {
             return false;
         }
 
+        if (a1 instanceof CheckerFrameworkAnnotationMirror
+                && a2 instanceof CheckerFrameworkAnnotationMirror) {
+            CheckerFrameworkAnnotationMirror cfam1 = (CheckerFrameworkAnnotationMirror) a1;
+            CheckerFrameworkAnnotationMirror cfam2 = (CheckerFrameworkAnnotationMirror) a2;
+            if (cfam1.hasNoElementValues() && cfam2.hasNoElementValues()) {
+                return true;
+            }
+            // The hash codes are cached, so this is cheap for annotations that are compared often,
+            // such as the qualifiers stored in type factories.
+            if (cfam1.getValuesHashCode() != cfam2.getValuesHashCode()) {
+                return false;
+            }
+        }
+
         // This commented implementation is less efficient.  It is also wrong:  it requires a
         // particular order for fields, and it distinguishes the long constants "33" and "33L".
         // Map<? extends ExecutableElement, ? extends AnnotationValue> elval1 =
@@ -169,6 +183,9 @@ public class AnnotationUtils {
      */
     public static boolean areSame(
             Collection<? extends AnnotationMirror> c1, Collection<? extends AnnotationMirror> c2) {
+        if (c1 == c2) {
+            return true;
+        }
         if (c1.size() != c2.size()) {
             return false;
         }
@@ -335,12 +352,12 @@ public class AnnotationUtils {
         // The annotations have the same name, but different values, so compare values.
         Map<? extends ExecutableElement, ? extends AnnotationValue> vals1 = a1.getElementValues();
         Map<? extends ExecutableElement, ? extends AnnotationValue> vals2 = a2.getElementValues();
-        Set<ExecutableElement> sortedElements =
-                new TreeSet<>(Comparator.comparing(ElementUtils::getSimpleSignature));
-        sortedElements.addAll(
-                ElementFilter.methodsIn(a1.getAnnotationType().asElement().getEnclosedElements()));
+        if (vals1.isEmpty() && vals2.isEmpty()) {
+            // Every element has its default value.
+            return 0;
+        }
 
-        for (ExecutableElement meth : sortedElements) {
+        for (ExecutableElement meth : getSortedElements(a1)) {
             AnnotationValue aval1 = vals1.get(meth);
             AnnotationValue aval2 = vals2.get(meth);
             if (aval1 == null) {
@@ -357,6 +374,92 @@ public class AnnotationUtils {
         return 0;
     }
 
+    /**
+     * Returns the elements of the annotation type of {@code anno}, sorted by their simple
+     * signature.
+     *
+     * @param anno an annotation
+     * @return the elements of the annotation type of {@code anno}, sorted by their simple signature
+     */
+    private static List<ExecutableElement> getSortedElements(AnnotationMirror anno) {
+        if (anno instanceof CheckerFrameworkAnnotationMirror) {
+            return ((CheckerFrameworkAnnotationMirror) anno).getSortedElements();
+        }
+        return getSortedElements(anno.getAnnotationType());
+    }
+
+    /**
+     * Returns the elements of {@code annotationType}, sorted by their simple signature.
+     *
+     * @param annotationType an annotation type
+     * @return the elements of {@code annotationType}, sorted by their simple signature
+     */
+    /* package-private */ static List<ExecutableElement> getSortedElements(
+            DeclaredType annotationType) {
+        List<ExecutableElement> elements =
+                ElementFilter.methodsIn(annotationType.asElement().getEnclosedElements());
+        if (elements.size() <= 1) {
+            return elements;
+        }
+        List<ExecutableElement> sortedElements = new ArrayList<>(elements);
+        sortedElements.sort(Comparator.comparing(ElementUtils::getSimpleSignature));
+        return sortedElements;
+    }
+
+    /**
+     * Returns a hash code of the name and the element values, including default values, of {@code
+     * anno}. Annotations that are the same according to {@link #areSame(AnnotationMirror,
+     * AnnotationMirror)} have the same hash code.
+     *
+     * @param anno an annotation
+     * @return a hash code of the name and the element values of {@code anno}
+     */
+    /* package-private */ static int valuesHashCode(AnnotationMirror anno) {
+        int result = annotationName(anno).hashCode();
+        Map<? extends ExecutableElement, ? extends AnnotationValue> vals = anno.getElementValues();
+        for (ExecutableElement meth : getSortedElements(anno)) {
+            AnnotationValue aval = vals.get(meth);
+            if (aval == null) {
+                aval = meth.getDefaultValue();
+            }
+            result =
+                    31 * result
+                            + (aval == null ? 0 : annotationValueValueHashCode(aval.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a hash code for a value returned by {@code AnnotationValue.getValue()}, consistent
+     * with {@link #compareAnnotationValueValue}: values for which that method returns 0 have the
+     * same hash code.
+     *
+     * @param val a value returned by {@code AnnotationValue.getValue()}
+     * @return a hash code for {@code val}
+     */
+    private static int annotationValueValueHashCode(@Nullable Object val) {
+        if (val == null) {
+            return 0;
+        } else if (val instanceof List<?>) {
+            int result = 1;
+            for (Object v : (List<?>) val) {
+                result = 31 * result + annotationValueValueHashCode(v);
+            }
+            return result;
+        } else if (val instanceof CheckerFrameworkAnnotationMirror) {
+            return ((CheckerFrameworkAnnotationMirror) val).getValuesHashCode();
+        } else if (val instanceof AnnotationMirror) {
+            return valuesHashCode((AnnotationMirror) val);
+        } else if (val instanceof AnnotationValue) {
+            return annotationValueValueHashCode(((AnnotationValue) val).getValue());
+        } else if (val instanceof Type.ClassType) {
+            // TypesUtils.areSameDeclaredTypes compares the simple names.
+            return ((Type.ClassType) val).tsym.name.toString().hashCode();
+        } else {
+            return val.hashCode();
+        }
+    }
+
     /**
      * Return 0 iff the two AnnotationValue objects are the same.
      *
@@ -617,6 +720,10 @@ public class AnnotationUtils {
 
         Map<? extends ExecutableElement, ? extends AnnotationValue> vals1 = am1.getElementValues();
         Map<? extends ExecutableElement, ? extends AnnotationValue> vals2 = am2.getElementValues();
+        if (vals1.isEmpty() && vals2.isEmpty()) {
+            // Every element has its default value.
+            return true;
+        }
         for (ExecutableElement meth :
                 ElementFilter.methodsIn(
                         am1.getAnnotationType().asElement().getEnclosedElements())) {
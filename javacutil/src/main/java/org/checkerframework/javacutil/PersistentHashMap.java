@@ -0,0 +1,672 @@
+package org.checkerframework.javacutil;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A map whose copies share their structure. The entries are stored in a hash array mapped trie
+ * whose nodes are never modified: a modification replaces the nodes on the path from the root to
+ * the modified entry, and all other nodes are shared with the map's copies. Therefore, copying a
+ * map with {@link #PersistentHashMap(Map)} takes constant time, and modifying a map costs time
+ * logarithmic in its size and does not affect its copies.
+ *
+ * <p>Two maps that were copied from each other share the parts of the trie that neither modified.
+ * {@link #allUnsharedEntriesMatch} visits only the entries outside of the shared parts, which makes
+ * comparing and merging such maps proportional to the number of modifications rather than to the
+ * size of the maps.
+ *
+ * <p>Keys must not be null. Values may be null. Iterators do not fail if the map is modified during
+ * iteration; they iterate over the entries of the map at the time the iterator was created.
+ *
+ * <p>The {@link #hashCode} of the map is maintained as entries are added and removed, so it takes
+ * constant time, and {@link #equals} compares it before comparing entries. Therefore, neither the
+ * keys nor the values may change their hash codes while they are in the map.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    /** The number of hash bits used at each level of the trie. */
+    private static final int BITS_PER_LEVEL = 5;
+
+    /** The mask for the hash bits used at each level of the trie. */
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    /** The result of {@link Node#find} if there is no entry for the key. */
+    private static final Object NOT_FOUND = new Object();
+
+    /** The root of an empty trie. */
+    private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    /** The root of the trie. */
+    private Node root;
+
+    /** The number of entries in this map. */
+    private int size;
+
+    /** The sum of the hash codes of the entries in this map, as defined by {@link Map#hashCode}. */
+    private int hashCode;
+
+    /** Creates an empty map. */
+    public PersistentHashMap() {
+        this.root = EMPTY;
+        this.size = 0;
+        this.hashCode = 0;
+    }
+
+    /**
+     * Creates a map with the same entries as {@code map}. If {@code map} is a PersistentHashMap,
+     * this takes constant time, and the two maps share their structure.
+     *
+     * @param map the map whose entries to copy
+     */
+    public PersistentHashMap(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            PersistentHashMap<? extends K, ? extends V> other =
+                    (PersistentHashMap<? extends K, ? extends V>) map;
+            this.root = other.root;
+            this.size = other.size;
+            this.hashCode = other.hashCode;
+        } else {
+            this.root = EMPTY;
+            this.size = 0;
+            this.hashCode = 0;
+            putAll(map);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root.find(key, hash(key), 0) != NOT_FOUND;
+    }
+
+    @Override
+    public @Nullable V get(Object key) {
+        Object value = root.find(key, hash(key), 0);
+        return value == NOT_FOUND ? null : castValue(value);
+    }
+
+    @Override
+    public @Nullable V put(K key, V value) {
+        int hash = hash(key);
+        Object oldValue = root.find(key, hash, 0);
+        if (oldValue == NOT_FOUND) {
+            root = root.put(key, value, hash, 0);
+            size++;
+            hashCode += entryHashCode(key, value);
+            return null;
+        }
+        if (oldValue != value) {
+            root = root.put(key, value, hash, 0);
+            hashCode += entryHashCode(key, value) - entryHashCode(key, oldValue);
+        }
+        return castValue(oldValue);
+    }
+
+    @Override
+    public @Nullable V remove(Object key) {
+        int hash = hash(key);
+        Object oldValue = root.find(key, hash, 0);
+        if (oldValue == NOT_FOUND) {
+            return null;
+        }
+        Node newRoot = root.remove(key, hash, 0);
+        root = newRoot == null ? EMPTY : newRoot;
+        size--;
+        hashCode -= entryHashCode(key, oldValue);
+        return castValue(oldValue);
+    }
+
+    @Override
+    public void clear() {
+        root = EMPTY;
+        size = 0;
+        hashCode = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns true if {@code test} holds for every entry of this map that is not in a part of the
+     * trie that this map shares with {@code other}. Every entry in a shared part is also an entry
+     * of {@code other}, with the identical value. Stops at the first entry for which {@code test}
+     * does not hold.
+     *
+     * @param other another map
+     * @param test the predicate to test entries with
+     * @return true if {@code test} holds for every entry of this map that is not shared with {@code
+     *     other}
+     */
+    public boolean allUnsharedEntriesMatch(
+            PersistentHashMap<K, V> other, BiPredicate<? super K, ? super V> test) {
+        return allUnsharedEntriesMatch(root, other.root, test);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (o instanceof PersistentHashMap) {
+            PersistentHashMap<?, ?> other = (PersistentHashMap<?, ?>) o;
+            if (other.root == root) {
+                return true;
+            }
+            if (other.hashCode != hashCode || other.size != size) {
+                return false;
+            }
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Returns the hash code of an entry, as defined by {@link Map.Entry#hashCode}.
+     *
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @return the hash code of the entry
+     */
+    private static int entryHashCode(Object key, @Nullable Object value) {
+        return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    /**
+     * Casts a value stored in the trie to the type of values.
+     *
+     * @param value a value stored in the trie
+     * @return {@code value}
+     */
+    @SuppressWarnings("unchecked")
+    private V castValue(@Nullable Object value) {
+        return (V) value;
+    }
+
+    /**
+     * Returns the hash code of {@code key}, with its high bits mixed into its low bits, which are
+     * used by the first levels of the trie.
+     *
+     * @param key a key
+     * @return the hash code of {@code key}
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns true if {@code test} holds for every entry of {@code a} that is not in a part of
+     * {@code a} shared with {@code b}. Both nodes are at the same level of their tries.
+     *
+     * @param a a node
+     * @param b another node
+     * @param test the predicate to test entries with
+     * @return true if {@code test} holds for every entry of {@code a} not shared with {@code b}
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> boolean allUnsharedEntriesMatch(
+            Node a, Node b, BiPredicate<? super K, ? super V> test) {
+        if (a == b) {
+            return true;
+        }
+        if (!(a instanceof BitmapNode) || !(b instanceof BitmapNode)) {
+            return allEntriesMatch(a, test);
+        }
+        BitmapNode bitmapA = (BitmapNode) a;
+        BitmapNode bitmapB = (BitmapNode) b;
+        int remaining = bitmapA.bitmap;
+        for (int i = 0; remaining != 0; i += 2) {
+            int bit = remaining & -remaining;
+            remaining ^= bit;
+            Object key = bitmapA.array[i];
+            Object value = bitmapA.array[i + 1];
+            if ((bitmapB.bitmap & bit) != 0) {
+                int j = bitmapB.index(bit);
+                Object keyB = bitmapB.array[j];
+                Object valueB = bitmapB.array[j + 1];
+                if (key == keyB && value == valueB) {
+                    continue;
+                }
+                if (key == null && keyB == null) {
+                    if (!allUnsharedEntriesMatch((Node) value, (Node) valueB, test)) {
+                        return false;
+                    }
+                    continue;
+                }
+            }
+            if (key == null) {
+                if (!allEntriesMatch((Node) value, test)) {
+                    return false;
+                }
+            } else if (!test.test((K) key, (V) value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if {@code test} holds for every entry of {@code node}.
+     *
+     * @param node a node
+     * @param test the predicate to test entries with
+     * @return true if {@code test} holds for every entry of {@code node}
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> boolean allEntriesMatch(
+            Node node, BiPredicate<? super K, ? super V> test) {
+        for (int i = 0; i < node.array.length; i += 2) {
+            Object key = node.array[i];
+            Object value = node.array[i + 1];
+            if (key == null) {
+                if (!allEntriesMatch((Node) value, test)) {
+                    return false;
+                }
+            } else if (!test.test((K) key, (V) value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of {@code array} in which the element at {@code index} is {@code value}.
+     *
+     * @param array an array
+     * @param index an index into {@code array}
+     * @param value the new value of the element
+     * @return a copy of {@code array} with the element at {@code index} replaced
+     */
+    private static Object[] copyAndSet(Object[] array, int index, @Nullable Object value) {
+        Object[] result = array.clone();
+        result[index] = value;
+        return result;
+    }
+
+    /**
+     * A node of the trie. Its array contains pairs of elements: a key followed by its value, or
+     * null followed by a child node.
+     */
+    private abstract static class Node {
+        /** The key-value pairs and child nodes of this node. */
+        final Object[] array;
+
+        /**
+         * Creates a Node.
+         *
+         * @param array the key-value pairs and child nodes of the node
+         */
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        /**
+         * Returns the value of {@code key} in the trie rooted at this node, or {@link #NOT_FOUND}
+         * if there is no entry for {@code key}.
+         *
+         * @param key a key
+         * @param hash the hash of {@code key}
+         * @param shift the number of hash bits used by the levels above this node
+         * @return the value of {@code key}, or {@link #NOT_FOUND}
+         */
+        abstract @Nullable Object find(Object key, int hash, int shift);
+
+        /**
+         * Returns the root of a trie that is the trie rooted at this node with the entry for {@code
+         * key} set to {@code value}.
+         *
+         * @param key a key
+         * @param value the new value of {@code key}
+         * @param hash the hash of {@code key}
+         * @param shift the number of hash bits used by the levels above this node
+         * @return the root of the modified trie
+         */
+        abstract Node put(Object key, @Nullable Object value, int hash, int shift);
+
+        /**
+         * Returns the root of a trie that is the trie rooted at this node without the entry for
+         * {@code key}, or null if that trie is empty. Returns this if there is no entry for {@code
+         * key}.
+         *
+         * @param key a key
+         * @param hash the hash of {@code key}
+         * @param shift the number of hash bits used by the levels above this node
+         * @return the root of the modified trie, or null if it is empty
+         */
+        abstract @Nullable Node remove(Object key, int hash, int shift);
+    }
+
+    /** A node that has a slot for each value of the hash bits used at its level. */
+    private static final class BitmapNode extends Node {
+        /** The set of occupied slots. */
+        final int bitmap;
+
+        /**
+         * Creates a BitmapNode.
+         *
+         * @param bitmap the set of occupied slots
+         * @param array a pair of elements for each occupied slot
+         */
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        /**
+         * Returns the slot for {@code hash} at the level {@code shift}, as a single bit.
+         *
+         * @param hash a hash
+         * @param shift the number of hash bits used by the levels above this node
+         * @return the slot for {@code hash}
+         */
+        static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & LEVEL_MASK);
+        }
+
+        /**
+         * Returns the index in {@link #array} of the key of the slot {@code bit}.
+         *
+         * @param bit a slot, as a single bit
+         * @return the index in {@link #array} of the key of the slot {@code bit}
+         */
+        int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        @Nullable Object find(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(key, hash, shift + BITS_PER_LEVEL);
+            }
+            return key.equals(k) ? array[i + 1] : NOT_FOUND;
+        }
+
+        @Override
+        Node put(Object key, @Nullable Object value, int hash, int shift) {
+            int bit = bit(hash, shift);
+            int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, i);
+                newArray[i] = key;
+                newArray[i + 1] = value;
+                System.arraycopy(array, i, newArray, i + 2, array.length - i);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).put(key, value, hash, shift + BITS_PER_LEVEL);
+                return child == v ? this : new BitmapNode(bitmap, copyAndSet(array, i + 1, child));
+            }
+            if (key.equals(k)) {
+                return value == v ? this : new BitmapNode(bitmap, copyAndSet(array, i + 1, value));
+            }
+            Node child = createNode(k, v, key, value, hash, shift + BITS_PER_LEVEL);
+            Object[] newArray = copyAndSet(array, i, null);
+            newArray[i + 1] = child;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        @Nullable Node remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                Node child = (Node) array[i + 1];
+                Node newChild = child.remove(key, hash, shift + BITS_PER_LEVEL);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null) {
+                    return new BitmapNode(bitmap, copyAndSet(array, i + 1, newChild));
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        /**
+         * Returns a node that contains two entries, whose keys are different.
+         *
+         * @param key1 the first key
+         * @param value1 the value of the first key
+         * @param key2 the second key
+         * @param value2 the value of the second key
+         * @param hash2 the hash of the second key
+         * @param shift the number of hash bits used by the levels above the new node
+         * @return a node that contains the two entries
+         */
+        static Node createNode(
+                Object key1,
+                @Nullable Object value1,
+                Object key2,
+                @Nullable Object value2,
+                int hash2,
+                int shift) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            return EMPTY.put(key1, value1, hash1, shift).put(key2, value2, hash2, shift);
+        }
+    }
+
+    /** A node that contains entries whose keys have the same hash. */
+    private static final class CollisionNode extends Node {
+        /** The hash of the keys of this node. */
+        final int hash;
+
+        /**
+         * Creates a CollisionNode.
+         *
+         * @param hash the hash of the keys of the node
+         * @param array the key-value pairs of the node
+         */
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the index in {@link #array} of {@code key}, or -1 if it is not a key of this
+         * node.
+         *
+         * @param key a key
+         * @return the index in {@link #array} of {@code key}, or -1
+         */
+        int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        @Nullable Object find(Object key, int hash, int shift) {
+            int i = hash == this.hash ? indexOf(key) : -1;
+            return i == -1 ? NOT_FOUND : array[i + 1];
+        }
+
+        @Override
+        Node put(Object key, @Nullable Object value, int hash, int shift) {
+            if (hash != this.hash) {
+                BitmapNode parent =
+                        new BitmapNode(BitmapNode.bit(this.hash, shift), new Object[] {null, this});
+                return parent.put(key, value, hash, shift);
+            }
+            int i = indexOf(key);
+            if (i == -1) {
+                Object[] newArray = Arrays.copyOf(array, array.length + 2);
+                newArray[array.length] = key;
+                newArray[array.length + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            return array[i + 1] == value
+                    ? this
+                    : new CollisionNode(hash, copyAndSet(array, i + 1, value));
+        }
+
+        @Override
+        @Nullable Node remove(Object key, int hash, int shift) {
+            int i = hash == this.hash ? indexOf(key) : -1;
+            if (i == -1) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new CollisionNode(hash, newArray);
+        }
+    }
+
+    /**
+     * An iterator over the entries of a trie. Its entries write through to the map, and its {@link
+     * #remove} method removes the last entry from the map.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        /** The arrays of the nodes on the path to the next entry. */
+        private final Object[][] arrays = new Object[8][];
+
+        /** The index of the next pair in each array of {@link #arrays}. */
+        private final int[] indexes = new int[8];
+
+        /** The index of the last node in {@link #arrays}, or -1 if there are no more entries. */
+        private int depth;
+
+        /** The next entry, or null if there are no more entries. */
+        private @Nullable SimpleEntry<K, V> next;
+
+        /** The last entry returned by {@link #next}, or null if it has been removed. */
+        private @Nullable SimpleEntry<K, V> last;
+
+        /**
+         * Creates an EntryIterator.
+         *
+         * @param root the root of the trie to iterate over
+         */
+        EntryIterator(Node root) {
+            arrays[0] = root.array;
+            depth = 0;
+            advance();
+        }
+
+        /** Sets {@link #next} to the next entry of the trie. */
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int i = indexes[depth];
+                if (i >= array.length) {
+                    depth--;
+                    continue;
+                }
+                indexes[depth] = i + 2;
+                if (array[i] == null) {
+                    depth++;
+                    arrays[depth] = ((Node) array[i + 1]).array;
+                    indexes[depth] = 0;
+                } else {
+                    next = new WriteThroughEntry((K) array[i], (V) array[i + 1]);
+                    return;
+                }
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            PersistentHashMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+
+    /** An entry whose {@link #setValue} method sets the value of its key in the map. */
+    private final class WriteThroughEntry extends SimpleEntry<K, V> {
+
+        private static final long serialVersionUID = 20201218L;
+
+        /**
+         * Creates a WriteThroughEntry.
+         *
+         * @param key the key of the entry
+         * @param value the value of the entry
+         */
+        WriteThroughEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            PersistentHashMap.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.checkerframework.javacutil.test.junit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.checkerframework.javacutil.PersistentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PersistentHashMapTest {
+
+    /** A key whose hash code is given, so that tests can create keys whose hash codes collide. */
+    private static final class Key {
+        /** The name of the key. */
+        private final String name;
+
+        /** The hash code of the key. */
+        private final int hash;
+
+        /**
+         * Creates a key.
+         *
+         * @param name the name of the key
+         * @param hash the hash code of the key
+         */
+        Key(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @Test
+    public void putAndGet() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        Assert.assertNull(map.put("a", 1));
+        Assert.assertNull(map.put("b", 2));
+        Assert.assertEquals(Integer.valueOf(1), map.put("a", 3));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(Integer.valueOf(3), map.get("a"));
+        Assert.assertEquals(Integer.valueOf(2), map.get("b"));
+        Assert.assertNull(map.get("c"));
+        Assert.assertFalse(map.containsKey("c"));
+    }
+
+    @Test
+    public void nullValues() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        Assert.assertNull(map.put("a", null));
+        Assert.assertTrue(map.containsKey("a"));
+        Assert.assertNull(map.get("a"));
+        Assert.assertEquals(1, map.size());
+        Assert.assertNull(map.remove("a"));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void remove() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        Assert.assertEquals(Integer.valueOf(1), map.remove("a"));
+        Assert.assertNull(map.remove("a"));
+        Assert.assertEquals(1, map.size());
+        Assert.assertFalse(map.containsKey("a"));
+        Assert.assertEquals(Integer.valueOf(2), map.remove("b"));
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(new HashMap<String, Integer>(), map);
+    }
+
+    @Test
+    public void hashCollisions() {
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        Key a = new Key("a", 42);
+        Key b = new Key("b", 42);
+        Key c = new Key("c", 42);
+        // Differs from the others only in the bits used by the deepest levels of the trie.
+        Key d = new Key("d", 42 | (1 << 31));
+        map.put(a, 1);
+        map.put(b, 2);
+        map.put(c, 3);
+        map.put(d, 4);
+        Assert.assertEquals(4, map.size());
+        Assert.assertEquals(Integer.valueOf(1), map.get(a));
+        Assert.assertEquals(Integer.valueOf(2), map.get(b));
+        Assert.assertEquals(Integer.valueOf(3), map.get(c));
+        Assert.assertEquals(Integer.valueOf(4), map.get(d));
+        Assert.assertNull(map.get(new Key("e", 42)));
+
+        Assert.assertEquals(Integer.valueOf(2), map.put(b, 5));
+        Assert.assertEquals(Integer.valueOf(5), map.get(b));
+        Assert.assertEquals(Integer.valueOf(1), map.remove(a));
+        Assert.assertNull(map.get(a));
+        Assert.assertEquals(Integer.valueOf(3), map.get(c));
+        Assert.assertEquals(Integer.valueOf(5), map.remove(b));
+        Assert.assertEquals(Integer.valueOf(3), map.remove(c));
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals(Integer.valueOf(4), map.get(d));
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put("k" + i, i);
+        }
+        PersistentHashMap<String, Integer> copy = new PersistentHashMap<>(map);
+        Assert.assertEquals(map, copy);
+        copy.put("k0", -1);
+        copy.remove("k1");
+        copy.put("new", 0);
+        Assert.assertEquals(Integer.valueOf(0), map.get("k0"));
+        Assert.assertEquals(Integer.valueOf(1), map.get("k1"));
+        Assert.assertFalse(map.containsKey("new"));
+        Assert.assertEquals(100, map.size());
+        Assert.assertEquals(100, copy.size());
+        Assert.assertNotEquals(map, copy);
+    }
+
+    @Test
+    public void allUnsharedEntriesMatch() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("k" + i, i);
+        }
+        PersistentHashMap<String, Integer> copy = new PersistentHashMap<>(map);
+        copy.put("k7", -7);
+        List<String> visited = new ArrayList<>();
+        Assert.assertTrue(
+                copy.allUnsharedEntriesMatch(
+                        map,
+                        (key, value) -> {
+                            visited.add(key);
+                            return true;
+                        }));
+        Assert.assertTrue(visited.contains("k7"));
+        Assert.assertTrue(visited.size() < copy.size());
+        Assert.assertFalse(copy.allUnsharedEntriesMatch(map, (key, value) -> value >= 0));
+        Assert.assertTrue(map.allUnsharedEntriesMatch(map, (key, value) -> false));
+    }
+
+    /**
+     * Checks that the hash code of the map, which is maintained as entries are added and removed,
+     * is the one defined by {@link Map#hashCode}.
+     */
+    @Test
+    public void incrementalHashCode() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        Map<String, Integer> expected = new HashMap<>();
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        map.put("a", 1);
+        expected.put("a", 1);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        map.put("a", 2);
+        expected.put("a", 2);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        map.put("b", null);
+        expected.put("b", null);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        map.put("b", 3);
+        expected.put("b", 3);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        map.remove("a");
+        expected.remove("a");
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        map.entrySet().iterator().next().setValue(4);
+        expected.put("b", 4);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        map.clear();
+        Assert.assertEquals(0, map.hashCode());
+    }
+
+    @Test
+    public void iteration() {
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        Map<Key, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            // Every fourth key collides with the previous one.
+            Key key = new Key("k" + i, i % 4 == 0 ? i - 1 : i);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        Map<Key, Integer> iterated = new HashMap<>();
+        for (Map.Entry<Key, Integer> entry : map.entrySet()) {
+            Assert.assertNull(iterated.put(entry.getKey(), entry.getValue()));
+        }
+        Assert.assertEquals(expected, iterated);
+
+        // An iterator iterates over the entries at the time it was created.
+        Iterator<Map.Entry<Key, Integer>> iterator = map.entrySet().iterator();
+        map.clear();
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        Assert.assertEquals(200, count);
+    }
+
+    @Test
+    public void iteratorRemove() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            map.put("k" + i, i);
+        }
+        Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(25, map.size());
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            Assert.assertEquals(1, entry.getValue() % 2);
+        }
+    }
+
+    /** Compares random modifications of a PersistentHashMap and of a HashMap. */
+    @Test
+    public void randomOperations() {
+        Random random = new Random(20201218L);
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        Map<Key, Integer> expected = new HashMap<>();
+        List<PersistentHashMap<Key, Integer>> copies = new ArrayList<>();
+        List<Map<Key, Integer>> expectedCopies = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            // Few distinct hash codes, so that there are many collisions.
+            int n = random.nextInt(500);
+            Key key = new Key("k" + n, n % 50);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+            if (i % 1000 == 0) {
+                copies.add(new PersistentHashMap<>(map));
+                expectedCopies.add(new HashMap<>(expected));
+            }
+        }
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(map, expected);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        for (int i = 0; i < copies.size(); i++) {
+            Assert.assertEquals(expectedCopies.get(i), copies.get(i));
+            Assert.assertEquals(expectedCopies.get(i).hashCode(), copies.get(i).hashCode());
+        }
+    }
+}